@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.deploy.standard;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.contains;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.CookieManager;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jst.common.project.facet.core.JavaFacet;
+import org.eclipse.jst.j2ee.web.project.facet.WebFacetUtils;
+import org.eclipse.wst.common.componentcore.ComponentCore;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.google.cloud.tools.appengine.cloudsdk.process.ProcessOutputLineListener;
+import com.google.cloud.tools.eclipse.appengine.deploy.AppEngineProjectDeployer;
+import com.google.cloud.tools.eclipse.appengine.facets.AppEngineStandardFacet;
+import com.google.cloud.tools.eclipse.test.util.project.TestProjectCreator;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StandardDeployJobTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+  @Rule public TestProjectCreator appEngineStandardProject =
+      new TestProjectCreator().withFacetVersions(Arrays.asList(JavaFacet.VERSION_1_7,
+                                                               WebFacetUtils.WEB_25,
+                                                               AppEngineStandardFacet.APPENGINE_STANDARD_VERSION));
+
+  @Mock private ExplodedWarPublisher exporter;
+  @Mock private StandardProjectStaging staging;
+  @Mock private AppEngineProjectDeployer deployer;
+  @Mock private ProcessOutputLineListener stderrLineListener;
+
+  private StandardDeployJob job;
+  private org.eclipse.core.runtime.Path libraryDirectory;
+
+  @Before
+  public void setUp() throws IOException {
+    StandardDeployJobConfig config = new StandardDeployJobConfig()
+        .setProject(appEngineStandardProject.getProject())
+        .setStderrLineListener(stderrLineListener);
+    job = new StandardDeployJob(exporter, staging, deployer, config);
+    Path directory = temporaryFolder.newFolder("lib").toPath();
+    createJar(directory.resolve("library.jar"));
+    libraryDirectory = new org.eclipse.core.runtime.Path(directory.toString());
+  }
+
+  @Test
+  public void testCheckLibraries_java7ProjectWarnsAboutLibraries() {
+    job.checkLibraries(libraryDirectory, new NullProgressMonitor());
+    verify(stderrLineListener).onOutputLine(contains("java.net.CookieManager"));
+  }
+
+  @Test
+  public void testCheckLibraries_java8ProjectAcceptsLibraries() throws CoreException {
+    setRuntime("<runtime>java8</runtime>");
+    job.checkLibraries(libraryDirectory, new NullProgressMonitor());
+    verify(stderrLineListener, never()).onOutputLine(anyString());
+  }
+
+  private void setRuntime(String runtimeElement) throws CoreException {
+    IFile appEngineWebXml = ComponentCore.createComponent(appEngineStandardProject.getProject())
+        .getRootFolder().getFile("WEB-INF/appengine-web.xml").getUnderlyingFile();
+    assertTrue(appEngineWebXml.exists());
+    String contents = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+        + "<appengine-web-app xmlns=\"http://appengine.google.com/ns/1.0\">\n"
+        + "  " + runtimeElement + "\n"
+        + "</appengine-web-app>\n";
+    appEngineWebXml.setContents(new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8)),
+                                true, false, null);
+  }
+
+  // this class references java.net.CookieManager below, so a jar of it has a violation on Java 7
+  private void createJar(Path jar) throws IOException {
+    assertNotNull(CookieManager.class);
+    try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(jar));
+        InputStream input = getClass().getResourceAsStream("StandardDeployJobTest.class")) {
+      zip.putNextEntry(new ZipEntry("com/example/StandardDeployJobTest.class"));
+      copy(input, zip);
+      zip.closeEntry();
+    }
+  }
+
+  private static void copy(InputStream input, OutputStream output) throws IOException {
+    byte[] buffer = new byte[4096];
+    int read;
+    while ((read = input.read(buffer)) != -1) {
+      output.write(buffer, 0, read);
+    }
+  }
+}
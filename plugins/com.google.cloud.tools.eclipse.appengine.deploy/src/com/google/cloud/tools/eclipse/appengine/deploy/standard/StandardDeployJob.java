@@ -19,6 +19,8 @@ package com.google.cloud.tools.eclipse.appengine.deploy.standard;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -27,6 +29,7 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
 
@@ -37,8 +40,10 @@ import com.google.cloud.tools.appengine.cloudsdk.process.ProcessStartListener;
 import com.google.cloud.tools.eclipse.appengine.deploy.AppEngineProjectDeployer;
 import com.google.cloud.tools.eclipse.appengine.deploy.Messages;
 import com.google.cloud.tools.eclipse.appengine.login.CredentialHelper;
+import com.google.cloud.tools.eclipse.appengine.whitelist.JarWhitelistScanner;
 import com.google.cloud.tools.eclipse.util.CloudToolsInfo;
 import com.google.cloud.tools.eclipse.util.status.StatusUtil;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Charsets;
 import com.google.common.base.Preconditions;
 
@@ -59,6 +64,7 @@ public class StandardDeployJob extends WorkspaceJob {
   private static final String STAGING_DIRECTORY_NAME = "staging";
   private static final String EXPLODED_WAR_DIRECTORY_NAME = "exploded-war";
   private static final String CREDENTIAL_FILENAME = "gcloud-credentials.json";
+  private static final String WEB_INF_LIB = "WEB-INF/lib"; //$NON-NLS-1$
 
   private static final Logger logger = Logger.getLogger(StandardDeployJob.class.getName());
 
@@ -104,7 +110,14 @@ public class StandardDeployJob extends WorkspaceJob {
       try {
         getJobManager().beginRule(config.getProject(), progress);
         exporter.publish(config.getProject(), explodedWarDirectory, progress.newChild(10));
-        staging.stage(explodedWarDirectory, stagingDirectory, cloudSdk, progress.newChild(20));
+      } finally {
+        getJobManager().endRule(config.getProject());
+      }
+      // the scan only reads the exploded WAR, so the project is not locked while it runs
+      checkLibraries(explodedWarDirectory.append(WEB_INF_LIB), progress.newChild(5));
+      try {
+        getJobManager().beginRule(config.getProject(), progress);
+        staging.stage(explodedWarDirectory, stagingDirectory, cloudSdk, progress.newChild(15));
       } finally {
         getJobManager().endRule(config.getProject());
       }
@@ -149,6 +162,36 @@ public class StandardDeployJob extends WorkspaceJob {
     super.canceling();
   }
 
+  /**
+   * Reports the non-whitelisted JRE classes referenced from the libraries of the exploded WAR on
+   * the error stream of the deploy console. These are only warnings, as libraries often reference
+   * such classes from code paths that an App Engine application never runs. The libraries are
+   * checked against the whitelist of the runtime that the deployed project targets.
+   *
+   * @throws OperationCanceledException if <code>monitor</code> is canceled between two jars
+   */
+  @VisibleForTesting
+  void checkLibraries(IPath libraryDirectory, IProgressMonitor monitor) {
+    SubMonitor progress = SubMonitor.convert(monitor, 1);
+    progress.setTaskName(Messages.getString("task.name.check.libraries")); //$NON-NLS-1$
+    try {
+      JarWhitelistScanner libraryScanner = JarWhitelistScanner.forProject(config.getProject());
+      Map<String, Set<String>> violations =
+          libraryScanner.scanDirectory(libraryDirectory.toFile().toPath(), progress.newChild(1));
+      for (Map.Entry<String, Set<String>> entry : violations.entrySet()) {
+        String warning = Messages.getString("library.not.whitelisted", //$NON-NLS-1$
+                                            entry.getKey(), entry.getValue());
+        logger.warning(warning);
+        if (config.getStderrLineListener() != null) {
+          config.getStderrLineListener().onOutputLine(warning);
+        }
+      }
+    } catch (IOException exception) {
+      logger.log(Level.WARNING,
+                 "Could not check libraries against the App Engine JRE whitelist", exception); //$NON-NLS-1$
+    }
+  }
+
   private void saveCredential(Path destination, Credential credential) throws IOException {
     String jsonCredential = new CredentialHelper().toJson(credential);
     Files.write(destination, jsonCredential.getBytes(Charsets.UTF_8));
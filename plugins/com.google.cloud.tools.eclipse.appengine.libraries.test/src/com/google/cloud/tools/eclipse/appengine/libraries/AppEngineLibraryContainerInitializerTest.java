@@ -19,28 +19,23 @@ package com.google.cloud.tools.eclipse.appengine.libraries;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.eq;
-import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
-import com.google.cloud.tools.eclipse.appengine.libraries.model.Library;
-import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFactory;
-import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFactoryException;
-import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFile;
-import com.google.cloud.tools.eclipse.appengine.libraries.model.MavenCoordinates;
 import com.google.cloud.tools.eclipse.appengine.libraries.persistence.LibraryClasspathContainerSerializer;
 import com.google.cloud.tools.eclipse.appengine.libraries.persistence.LibraryClasspathContainerSerializer.ArtifactBaseLocationProvider;
 import com.google.cloud.tools.eclipse.appengine.libraries.persistence.LibraryClasspathContainerSerializer.LibraryContainerStateLocationProvider;
 import com.google.cloud.tools.eclipse.appengine.libraries.repository.ILibraryRepositoryService;
+import com.google.cloud.tools.eclipse.appengine.libraries.repository.LibraryRepositoryServiceException;
 import com.google.cloud.tools.eclipse.test.util.project.TestProjectCreator;
 import java.io.File;
 import java.io.IOException;
-import java.util.Collections;
+import java.util.List;
 import org.eclipse.core.runtime.CoreException;
-import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.jdt.core.IClasspathEntry;
@@ -63,8 +58,6 @@ public class AppEngineLibraryContainerInitializerTest {
   private static final String TEST_CONTAINER_PATH = "test.appengine.libraries";
   private static final String TEST_LIBRARY_PATH = TEST_CONTAINER_PATH + "/" + TEST_LIBRARY_ID;
 
-  @Mock private LibraryFactory libraryFactory;
-  @Mock private IConfigurationElement configurationElement;
   @Mock private LibraryContainerStateLocationProvider containerStateProvider;
   @Mock private ArtifactBaseLocationProvider artifactBaseLocationProvider;
   @Mock private ILibraryRepositoryService repositoryService;
@@ -78,9 +71,8 @@ public class AppEngineLibraryContainerInitializerTest {
 
   @Before
   public void setUp() throws Exception {
-    when(repositoryService.rebuildClasspathEntry(any(IClasspathEntry.class)))
-      .thenAnswer(fakeClasspathEntry());
-    setupLibraryFactory();
+    when(repositoryService.rebuildClasspathEntries(anyListOf(IClasspathEntry.class)))
+      .thenAnswer(fakeClasspathEntries());
     setupSerializer();
   }
 
@@ -98,9 +90,7 @@ public class AppEngineLibraryContainerInitializerTest {
   @Test
   public void testInitialize_resolvesContainerToJar() throws CoreException {
     AppEngineLibraryContainerInitializer containerInitializer =
-        new AppEngineLibraryContainerInitializer(new IConfigurationElement[]{ configurationElement },
-                                                 libraryFactory,
-                                                 TEST_CONTAINER_PATH,
+        new AppEngineLibraryContainerInitializer(TEST_CONTAINER_PATH,
                                                  serializer,
                                                  repositoryService);
     containerInitializer.initialize(new Path(TEST_LIBRARY_PATH), testProject.getJavaProject());
@@ -112,23 +102,37 @@ public class AppEngineLibraryContainerInitializerTest {
     assertThat(libJar.getSourceAttachmentPath().toOSString(), is("/test/path/artifactId-sources.jar"));
   }
 
+  @Test
+  public void testInitialize_doesNotWaitForMissingJars() throws Exception {
+    ILibraryRepositoryService failingRepositoryService = mock(ILibraryRepositoryService.class);
+    when(failingRepositoryService.rebuildClasspathEntries(anyListOf(IClasspathEntry.class)))
+      .thenThrow(new LibraryRepositoryServiceException("test exception"));
+    AppEngineLibraryContainerInitializer containerInitializer =
+        new AppEngineLibraryContainerInitializer(TEST_CONTAINER_PATH,
+                                                 serializer,
+                                                 failingRepositoryService);
+    containerInitializer.initialize(new Path(TEST_LIBRARY_PATH), testProject.getJavaProject());
+
+    IClasspathEntry[] resolvedClasspath = testProject.getJavaProject().getResolvedClasspath(false);
+    assertThat(resolvedClasspath.length, is(2));
+    assertThat(resolvedClasspath[1].getPath().toOSString(), is("/test/path/artifactId.jar"));
+  }
+
   @Test(expected = CoreException.class)
   public void testInitialize_containerPathConsistsOfOneSegment() throws Exception {
     AppEngineLibraryContainerInitializer containerInitializer =
-        new AppEngineLibraryContainerInitializer(new IConfigurationElement[]{ configurationElement },
-                                                 libraryFactory,
-                                                 TEST_CONTAINER_PATH,
-                                                 serializer);
+        new AppEngineLibraryContainerInitializer(TEST_CONTAINER_PATH,
+                                                 serializer,
+                                                 repositoryService);
     containerInitializer.initialize(new Path("single.segment.id"), testProject.getJavaProject());
   }
 
   @Test(expected = CoreException.class)
   public void testInitialize_containerPathConsistsOfThreeSegments() throws Exception {
     AppEngineLibraryContainerInitializer containerInitializer =
-        new AppEngineLibraryContainerInitializer(new IConfigurationElement[]{ configurationElement },
-                                                 libraryFactory,
-                                                 TEST_CONTAINER_PATH,
-                                                 serializer);
+        new AppEngineLibraryContainerInitializer(TEST_CONTAINER_PATH,
+                                                 serializer,
+                                                 repositoryService);
     containerInitializer.initialize(new Path("first.segment/second.segment/third.segment"),
                                     testProject.getJavaProject());
   }
@@ -136,19 +140,16 @@ public class AppEngineLibraryContainerInitializerTest {
   @Test(expected = CoreException.class)
   public void testInitialize_containerPathHasWrongFirstSegment() throws Exception {
     AppEngineLibraryContainerInitializer containerInitializer =
-        new AppEngineLibraryContainerInitializer(new IConfigurationElement[]{ configurationElement },
-                                                 libraryFactory,
-                                                 TEST_CONTAINER_PATH,
-                                                 serializer);
+        new AppEngineLibraryContainerInitializer(TEST_CONTAINER_PATH,
+                                                 serializer,
+                                                 repositoryService);
     containerInitializer.initialize(new Path("first.segment/second.segment"), testProject.getJavaProject());
   }
 
   @Test
   public void testInitialize_containerPathHasWrongLibraryId() throws Exception {
     AppEngineLibraryContainerInitializer containerInitializer =
-        new AppEngineLibraryContainerInitializer(new IConfigurationElement[]{ configurationElement },
-                                                 libraryFactory,
-                                                 TEST_CONTAINER_PATH,
+        new AppEngineLibraryContainerInitializer(TEST_CONTAINER_PATH,
                                                  serializer,
                                                  repositoryService);
     containerInitializer.initialize(new Path(TEST_CONTAINER_PATH + "/second.segment"), testProject.getJavaProject());
@@ -156,51 +157,18 @@ public class AppEngineLibraryContainerInitializerTest {
     assertThat(resolvedClasspath.length, is(1));
   }
 
-  @Test
-  public void testInitialize_libraryFactoryErrorDoesNotPreventOtherLibraries() throws Exception {
-    Library library = new Library(TEST_LIBRARY_ID);
-    library.setLibraryFiles(Collections.singletonList(new LibraryFile(new MavenCoordinates("groupId",
-                                                                                           "artifactId"))));
-    // this will override what is set in setupLibraryFactory() when setUp() is executed
-    doThrow(LibraryFactoryException.class)
-      .doReturn(library)
-      .when(libraryFactory).create(any(IConfigurationElement.class));
-
-    AppEngineLibraryContainerInitializer containerInitializer =
-        new AppEngineLibraryContainerInitializer(new IConfigurationElement[]{ configurationElement,
-                                                                              configurationElement },
-                                                 libraryFactory,
-                                                 TEST_CONTAINER_PATH,
-                                                 serializer,
-                                                 repositoryService);
-    containerInitializer.initialize(new Path(TEST_LIBRARY_PATH), testProject.getJavaProject());
-
-    IClasspathEntry[] resolvedClasspath = testProject.getJavaProject().getResolvedClasspath(false);
-    assertThat(resolvedClasspath.length, is(2));
-    IClasspathEntry libJar = resolvedClasspath[1];
-    assertThat(libJar.getPath().toOSString(), is("/test/path/artifactId.jar"));
-    assertThat(libJar.getSourceAttachmentPath().toOSString(), is("/test/path/artifactId-sources.jar"));
-  }
-
   @Test(expected = CoreException.class)
   public void testInitialize_deserializingContainerThrowsError() throws Exception {
     LibraryClasspathContainerSerializer mockSerializer = mock(LibraryClasspathContainerSerializer.class);
     doThrow(new IOException("test exception"))
       .when(mockSerializer).loadContainer(any(IJavaProject.class), any(IPath.class));
     AppEngineLibraryContainerInitializer containerInitializer =
-        new AppEngineLibraryContainerInitializer(new IConfigurationElement[]{ configurationElement },
-                                                 libraryFactory,
-                                                 TEST_CONTAINER_PATH,
-                                                 mockSerializer);
+        new AppEngineLibraryContainerInitializer(TEST_CONTAINER_PATH,
+                                                 mockSerializer,
+                                                 repositoryService);
     containerInitializer.initialize(new Path(TEST_LIBRARY_PATH), testProject.getJavaProject());
   }
 
-  private void setupLibraryFactory() throws LibraryFactoryException {
-    Library library = new Library(TEST_LIBRARY_ID);
-    library.setLibraryFiles(Collections.singletonList(new LibraryFile(new MavenCoordinates("groupId", "artifactId"))));
-    doReturn(library).when(libraryFactory).create(any(IConfigurationElement.class));
-  }
-
   private void setupSerializer() throws IOException, CoreException {
     serializer = new LibraryClasspathContainerSerializer(containerStateProvider, artifactBaseLocationProvider);
     when(artifactBaseLocationProvider.getBaseLocation()).thenReturn(new Path("/test"));
@@ -218,11 +186,12 @@ public class AppEngineLibraryContainerInitializerTest {
     serializer.saveContainer(null, container);
   }
 
-  private Answer<IClasspathEntry> fakeClasspathEntry() {
-    return new Answer<IClasspathEntry>() {
+  private Answer<List<IClasspathEntry>> fakeClasspathEntries() {
+    return new Answer<List<IClasspathEntry>>() {
+      @SuppressWarnings("unchecked")
       @Override
-      public IClasspathEntry answer(InvocationOnMock invocation) throws Throwable {
-        return invocation.getArgumentAt(0, IClasspathEntry.class);
+      public List<IClasspathEntry> answer(InvocationOnMock invocation) throws Throwable {
+        return invocation.getArgumentAt(0, List.class);
       }
     };
   }
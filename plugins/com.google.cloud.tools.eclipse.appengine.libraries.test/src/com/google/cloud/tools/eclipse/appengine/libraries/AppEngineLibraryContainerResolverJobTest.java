@@ -0,0 +1,272 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.model.ILibraryCatalog;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.Library;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryDependencyGraph;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFile;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.MavenCoordinates;
+import com.google.cloud.tools.eclipse.appengine.libraries.persistence.LibraryClasspathContainerSerializer;
+import com.google.cloud.tools.eclipse.appengine.libraries.repository.ILibraryRepositoryService;
+import com.google.cloud.tools.eclipse.appengine.libraries.repository.LibraryRepositoryServiceException;
+import com.google.cloud.tools.eclipse.test.util.project.TestProjectCreator;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.IClasspathContainer;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AppEngineLibraryContainerResolverJobTest {
+
+  private static final String LIBRARY_ID = "resolverJobTestLibrary";
+  private static final String OTHER_LIBRARY_ID = "resolverJobTestOtherLibrary";
+  private static final String REQUIRED_LIBRARY_ID = "resolverJobTestRequiredLibrary";
+
+  @Mock private ILibraryCatalog libraryCatalog;
+  @Mock private ILibraryRepositoryService repositoryService;
+  @Mock private LibraryClasspathContainerSerializer serializer;
+
+  @Rule
+  public TestProjectCreator testProject =
+      new TestProjectCreator().withClasspathContainerPath(Library.CONTAINER_PATH_PREFIX + "/" + LIBRARY_ID);
+
+  private List<LibraryFile> libraryFiles;
+
+  @Before
+  public void setUp() {
+    Library library = new Library(LIBRARY_ID);
+    library.setLibraryFiles(Arrays.asList(libraryFile("first"), libraryFile("second"), libraryFile("third")));
+    libraryFiles = library.getLibraryFiles();
+    when(libraryCatalog.getLibrary(LIBRARY_ID)).thenReturn(library);
+    when(libraryCatalog.getDependencyGraph()).thenReturn(LibraryDependencyGraph.create(Arrays.asList(library)));
+  }
+
+  @Test
+  public void testRun_entriesInOrderOfLibraryFiles() throws Exception {
+    final CountDownLatch lastResolved = new CountDownLatch(1);
+    // the first file is resolved after the others
+    when(repositoryService.getLibraryClasspathEntry(libraryFiles.get(0))).thenAnswer(new Answer<IClasspathEntry>() {
+      @Override
+      public IClasspathEntry answer(InvocationOnMock invocation) throws InterruptedException {
+        lastResolved.await(10, TimeUnit.SECONDS);
+        return libraryEntry("first");
+      }
+    });
+    when(repositoryService.getLibraryClasspathEntry(libraryFiles.get(1))).thenReturn(libraryEntry("second"));
+    when(repositoryService.getLibraryClasspathEntry(libraryFiles.get(2))).thenAnswer(new Answer<IClasspathEntry>() {
+      @Override
+      public IClasspathEntry answer(InvocationOnMock invocation) {
+        lastResolved.countDown();
+        return libraryEntry("third");
+      }
+    });
+
+    AppEngineLibraryContainerResolverJob job = createJob();
+    job.schedule();
+    job.join();
+
+    assertTrue(job.getResult().isOK());
+    ArgumentCaptor<LibraryClasspathContainer> saved = ArgumentCaptor.forClass(LibraryClasspathContainer.class);
+    verify(serializer).saveContainer(eq(testProject.getJavaProject()), saved.capture());
+    IClasspathEntry[] entries = saved.getValue().getClasspathEntries();
+    assertThat(entries.length, is(3));
+    assertThat(entries[0], is(libraryEntry("first")));
+    assertThat(entries[1], is(libraryEntry("second")));
+    assertThat(entries[2], is(libraryEntry("third")));
+  }
+
+  @Test
+  public void testJoinFamily_containerInstalled() throws Exception {
+    when(repositoryService.getLibraryClasspathEntry(libraryFiles.get(0))).thenReturn(libraryEntry("first"));
+    when(repositoryService.getLibraryClasspathEntry(libraryFiles.get(1))).thenReturn(libraryEntry("second"));
+    when(repositoryService.getLibraryClasspathEntry(libraryFiles.get(2))).thenReturn(libraryEntry("third"));
+
+    AppEngineLibraryContainerResolverJob job = createJob();
+    job.schedule();
+    Job.getJobManager().join(AppEngineLibraryContainerResolverJob.FAMILY, null);
+
+    assertTrue(job.getResult().isOK());
+    IClasspathContainer container = JavaCore.getClasspathContainer(
+        new Path(Library.CONTAINER_PATH_PREFIX + "/" + LIBRARY_ID), testProject.getJavaProject());
+    assertNotNull(container);
+    IClasspathEntry[] entries = container.getClasspathEntries();
+    assertThat(entries.length, is(3));
+    assertThat(entries[0], is(libraryEntry("first")));
+    assertThat(entries[2], is(libraryEntry("third")));
+  }
+
+  @Test
+  public void testRun_resolutionErrorKeepsContainer() throws Exception {
+    when(repositoryService.getLibraryClasspathEntry(libraryFiles.get(0))).thenReturn(libraryEntry("first"));
+    when(repositoryService.getLibraryClasspathEntry(libraryFiles.get(1)))
+        .thenThrow(new LibraryRepositoryServiceException("test exception"));
+    when(repositoryService.getLibraryClasspathEntry(libraryFiles.get(2))).thenReturn(libraryEntry("third"));
+
+    AppEngineLibraryContainerResolverJob job = createJob();
+    job.schedule();
+    job.join();
+
+    assertThat(job.getResult().getSeverity(), is(IStatus.ERROR));
+    verify(serializer, never()).saveContainer(any(IJavaProject.class), any(LibraryClasspathContainer.class));
+  }
+
+  @Test
+  public void testRun_cancelStopsPendingResolutions() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch interrupted = new CountDownLatch(1);
+    when(repositoryService.getLibraryClasspathEntry(any(LibraryFile.class))).thenAnswer(new Answer<IClasspathEntry>() {
+      @Override
+      public IClasspathEntry answer(InvocationOnMock invocation) throws InterruptedException {
+        started.countDown();
+        try {
+          // longer than the test is willing to wait, so only cancellation ends it
+          Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+        } catch (InterruptedException ex) {
+          interrupted.countDown();
+          throw ex;
+        }
+        return libraryEntry("never");
+      }
+    });
+
+    AppEngineLibraryContainerResolverJob job = createJob();
+    job.schedule();
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    job.cancel();
+    job.join();
+
+    assertThat(job.getResult().getSeverity(), is(IStatus.CANCEL));
+    assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+    verify(serializer, never()).saveContainer(any(IJavaProject.class), any(LibraryClasspathContainer.class));
+  }
+
+  @Test
+  public void testRun_requiredLibraryIncludedInOneContainer() throws Exception {
+    setUpRequiredLibrary();
+
+    AppEngineLibraryContainerResolverJob job =
+        createJob(new HashSet<>(Arrays.asList(LIBRARY_ID, OTHER_LIBRARY_ID)));
+    job.schedule();
+    job.join();
+
+    assertTrue(job.getResult().isOK());
+    ArgumentCaptor<LibraryClasspathContainer> saved = ArgumentCaptor.forClass(LibraryClasspathContainer.class);
+    verify(serializer, times(2)).saveContainer(eq(testProject.getJavaProject()), saved.capture());
+    IClasspathEntry[] entries = saved.getAllValues().get(0).getClasspathEntries();
+    assertThat(entries.length, is(4));
+    assertThat(entries[3], is(libraryEntry("required")));
+    IClasspathEntry[] otherEntries = saved.getAllValues().get(1).getClasspathEntries();
+    assertThat(otherEntries.length, is(1));
+    assertThat(otherEntries[0], is(libraryEntry("other")));
+  }
+
+  @Test
+  public void testRun_changedRequiredLibraryResolvesIncludingContainer() throws Exception {
+    setUpRequiredLibrary();
+
+    AppEngineLibraryContainerResolverJob job = createJob(Collections.singleton(REQUIRED_LIBRARY_ID));
+    job.schedule();
+    job.join();
+
+    assertTrue(job.getResult().isOK());
+    ArgumentCaptor<LibraryClasspathContainer> saved = ArgumentCaptor.forClass(LibraryClasspathContainer.class);
+    verify(serializer).saveContainer(eq(testProject.getJavaProject()), saved.capture());
+    assertThat(saved.getValue().getPath().segment(1), is(LIBRARY_ID));
+    assertThat(saved.getValue().getClasspathEntries()[3], is(libraryEntry("required")));
+  }
+
+  /**
+   * Adds a container of another library to the project, with both libraries requiring a library
+   * without a container of its own.
+   */
+  private void setUpRequiredLibrary() throws Exception {
+    Library library = libraryCatalog.getLibrary(LIBRARY_ID);
+    library.setLibraryDependencies(Collections.singletonList(REQUIRED_LIBRARY_ID));
+    Library otherLibrary = new Library(OTHER_LIBRARY_ID);
+    otherLibrary.setLibraryFiles(Collections.singletonList(libraryFile("other")));
+    otherLibrary.setLibraryDependencies(Collections.singletonList(REQUIRED_LIBRARY_ID));
+    Library requiredLibrary = new Library(REQUIRED_LIBRARY_ID);
+    requiredLibrary.setLibraryFiles(Collections.singletonList(libraryFile("required")));
+    when(libraryCatalog.getLibrary(OTHER_LIBRARY_ID)).thenReturn(otherLibrary);
+    when(libraryCatalog.getLibrary(REQUIRED_LIBRARY_ID)).thenReturn(requiredLibrary);
+    when(libraryCatalog.getDependencyGraph())
+        .thenReturn(LibraryDependencyGraph.create(Arrays.asList(library, otherLibrary, requiredLibrary)));
+    when(repositoryService.getLibraryClasspathEntry(any(LibraryFile.class))).thenAnswer(new Answer<IClasspathEntry>() {
+      @Override
+      public IClasspathEntry answer(InvocationOnMock invocation) {
+        LibraryFile libraryFile = invocation.getArgumentAt(0, LibraryFile.class);
+        return libraryEntry(libraryFile.getMavenCoordinates().getArtifactId());
+      }
+    });
+
+    IJavaProject javaProject = testProject.getJavaProject();
+    IClasspathEntry[] rawClasspath = javaProject.getRawClasspath();
+    IClasspathEntry[] newRawClasspath = Arrays.copyOf(rawClasspath, rawClasspath.length + 1);
+    newRawClasspath[rawClasspath.length] =
+        JavaCore.newContainerEntry(new Path(Library.CONTAINER_PATH_PREFIX + "/" + OTHER_LIBRARY_ID));
+    javaProject.setRawClasspath(newRawClasspath, null);
+  }
+
+  private AppEngineLibraryContainerResolverJob createJob() {
+    return createJob(Collections.singleton(LIBRARY_ID));
+  }
+
+  private AppEngineLibraryContainerResolverJob createJob(Set<String> libraryIdsToResolve) {
+    return new AppEngineLibraryContainerResolverJob(testProject.getJavaProject(), libraryCatalog,
+                                                    repositoryService, serializer, libraryIdsToResolve);
+  }
+
+  private static LibraryFile libraryFile(String artifactId) {
+    return new LibraryFile(new MavenCoordinates("groupId", artifactId));
+  }
+
+  private static IClasspathEntry libraryEntry(String artifactId) {
+    return JavaCore.newLibraryEntry(new Path("/repository/" + artifactId + ".jar"), null /* sourceAttachmentPath */,
+                                    null /* sourceAttachmentRootPath */);
+  }
+}
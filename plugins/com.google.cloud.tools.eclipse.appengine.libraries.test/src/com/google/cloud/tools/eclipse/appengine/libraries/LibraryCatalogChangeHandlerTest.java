@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.model.Library;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryDependencyGraph;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaModelException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LibraryCatalogChangeHandlerTest {
+
+  @Mock private IJavaProject javaProject;
+  @Mock private IProject project;
+
+  @Before
+  public void setUp() {
+    when(javaProject.getProject()).thenReturn(project);
+    when(project.isAccessible()).thenReturn(true);
+  }
+
+  @Test
+  public void testGetAffectedLibraryIds() throws JavaModelException {
+    IClasspathEntry[] rawClasspath = new IClasspathEntry[] {
+        container(Library.CONTAINER_PATH_PREFIX + "/changed"),
+        container(Library.CONTAINER_PATH_PREFIX + "/unchanged"),
+        container("org.eclipse.jdt.launching.JRE_CONTAINER"),
+        entry(IClasspathEntry.CPE_LIBRARY, "/project/lib/changed")};
+    when(javaProject.getRawClasspath()).thenReturn(rawClasspath);
+
+    Set<String> affected = LibraryCatalogChangeHandler.getAffectedLibraryIds(
+        javaProject, new HashSet<>(Arrays.asList("changed", "other")));
+
+    assertThat(affected, is(Collections.singleton("changed")));
+  }
+
+  @Test
+  public void testGetAffectedLibraryIds_inaccessibleProject() throws JavaModelException {
+    when(project.isAccessible()).thenReturn(false);
+
+    assertTrue(LibraryCatalogChangeHandler.getAffectedLibraryIds(javaProject, Collections.singleton("changed"))
+        .isEmpty());
+    verify(javaProject, never()).getRawClasspath();
+  }
+
+  @Test
+  public void testWithDependentLibraryIds() {
+    Library changed = new Library("changed");
+    Library dependent = new Library("dependent");
+    dependent.setLibraryDependencies(Collections.singletonList("changed"));
+    Library transitive = new Library("transitive");
+    transitive.setLibraryDependencies(Collections.singletonList("dependent"));
+    Library unrelated = new Library("unrelated");
+    LibraryDependencyGraph dependencyGraph =
+        LibraryDependencyGraph.create(Arrays.asList(changed, dependent, transitive, unrelated));
+
+    Set<String> changedIds =
+        LibraryCatalogChangeHandler.withDependentLibraryIds(Collections.singleton("changed"), dependencyGraph);
+
+    assertThat(changedIds, is((Set<String>) new HashSet<>(Arrays.asList("changed", "dependent", "transitive"))));
+  }
+
+  private static IClasspathEntry container(String path) {
+    return entry(IClasspathEntry.CPE_CONTAINER, path);
+  }
+
+  private static IClasspathEntry entry(int kind, String path) {
+    IClasspathEntry entry = mock(IClasspathEntry.class);
+    when(entry.getEntryKind()).thenReturn(kind);
+    when(entry.getPath()).thenReturn(new Path(path));
+    return entry;
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.google.cloud.tools.eclipse.test.util.project.TestProjectCreator;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IClasspathContainer;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class LibraryContainerUpdateJobTest {
+
+  private static final String TEST_CONTAINER_PATH = "test.appengine.libraries";
+  private static final String TEST_LIBRARY_PATH = TEST_CONTAINER_PATH + "/libraryId";
+
+  @Rule
+  public TestProjectCreator firstProject = new TestProjectCreator().withClasspathContainerPath(TEST_LIBRARY_PATH);
+  @Rule
+  public TestProjectCreator secondProject = new TestProjectCreator().withClasspathContainerPath(TEST_LIBRARY_PATH);
+
+  /**
+   * Relies on {@link TestAppEngineLibraryContainerInitializer} leaving the container of the test
+   * projects unresolved, see {@link AppEngineLibraryContainerInitializerTest}.
+   */
+  @Test
+  public void testRun_setsContainersOfAllProjects() throws CoreException, InterruptedException {
+    LibraryContainerUpdateJob job = new LibraryContainerUpdateJob();
+    job.add(firstProject.getJavaProject(), createContainer("/test/path/first.jar"));
+    job.add(secondProject.getJavaProject(), createContainer("/test/path/second.jar"));
+    job.join();
+
+    assertLibraryJar(firstProject.getJavaProject(), "/test/path/first.jar");
+    assertLibraryJar(secondProject.getJavaProject(), "/test/path/second.jar");
+  }
+
+  @Test
+  public void testAdd_laterContainerReplacesPendingOne() throws CoreException, InterruptedException {
+    LibraryContainerUpdateJob job = new LibraryContainerUpdateJob();
+    job.add(firstProject.getJavaProject(), createContainer("/test/path/old.jar"));
+    job.add(firstProject.getJavaProject(), createContainer("/test/path/new.jar"));
+    job.join();
+
+    assertLibraryJar(firstProject.getJavaProject(), "/test/path/new.jar");
+  }
+
+  @Test
+  public void testReplace_installedContainerIsReplaced() throws CoreException, InterruptedException {
+    LibraryClasspathContainer installed = createContainer("/test/path/old.jar");
+    install(firstProject.getJavaProject(), installed);
+    LibraryContainerUpdateJob job = new LibraryContainerUpdateJob();
+    job.add(firstProject.getJavaProject(), installed, createContainer("/test/path/new.jar"));
+    job.join();
+
+    assertLibraryJar(firstProject.getJavaProject(), "/test/path/new.jar");
+  }
+
+  @Test
+  public void testReplace_otherInstalledContainerIsKept() throws CoreException, InterruptedException {
+    install(firstProject.getJavaProject(), createContainer("/test/path/current.jar"));
+    LibraryContainerUpdateJob job = new LibraryContainerUpdateJob();
+    job.add(firstProject.getJavaProject(), createContainer("/test/path/old.jar"),
+            createContainer("/test/path/new.jar"));
+    job.add(secondProject.getJavaProject(), createContainer("/test/path/second.jar"));
+    job.join();
+
+    assertLibraryJar(firstProject.getJavaProject(), "/test/path/current.jar");
+    assertLibraryJar(secondProject.getJavaProject(), "/test/path/second.jar");
+  }
+
+  @Test
+  public void testReplace_pendingContainerIsKept() throws CoreException, InterruptedException {
+    LibraryClasspathContainer installed = createContainer("/test/path/old.jar");
+    install(firstProject.getJavaProject(), installed);
+    LibraryContainerUpdateJob job = new LibraryContainerUpdateJob();
+    job.add(firstProject.getJavaProject(), createContainer("/test/path/resolved.jar"));
+    job.add(firstProject.getJavaProject(), installed, createContainer("/test/path/patched.jar"));
+    job.join();
+
+    assertLibraryJar(firstProject.getJavaProject(), "/test/path/resolved.jar");
+  }
+
+  private static void install(IJavaProject javaProject, LibraryClasspathContainer container)
+      throws JavaModelException {
+    JavaCore.setClasspathContainer(container.getPath(), new IJavaProject[] {javaProject},
+                                   new IClasspathContainer[] {container}, null);
+  }
+
+  private static LibraryClasspathContainer createContainer(String jarPath) {
+    IClasspathEntry[] classpathEntries =
+        new IClasspathEntry[] { JavaCore.newLibraryEntry(new Path(jarPath), null /* sourceAttachmentPath */,
+                                                         null /* sourceAttachmentRootPath */) };
+    IPath containerPath = new Path(TEST_LIBRARY_PATH);
+    return new LibraryClasspathContainer(containerPath, "Test API", classpathEntries);
+  }
+
+  private static void assertLibraryJar(IJavaProject javaProject, String jarPath) throws CoreException {
+    IClasspathEntry[] resolvedClasspath = javaProject.getResolvedClasspath(false);
+    assertThat(resolvedClasspath.length, is(2));
+    assertThat(resolvedClasspath[1].getPath().toString(), is(jarPath));
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.persistence.LibraryClasspathContainerSerializer;
+import com.google.cloud.tools.eclipse.appengine.libraries.repository.ILibraryRepositoryService;
+import com.google.cloud.tools.eclipse.appengine.libraries.repository.LibraryRepositoryServiceException;
+import com.google.cloud.tools.eclipse.test.util.project.TestProjectCreator;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IClasspathContainer;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LibraryContainerValidationJobTest {
+
+  private static final String TEST_LIBRARY_PATH = "test.appengine.libraries/libraryId";
+
+  @Mock private ILibraryRepositoryService repositoryService;
+  @Mock private LibraryClasspathContainerSerializer serializer;
+
+  @Rule
+  public TestProjectCreator testProject = new TestProjectCreator().withClasspathContainerPath(TEST_LIBRARY_PATH);
+  @Rule
+  public TemporaryFolder repository = new TemporaryFolder();
+
+  @Test
+  public void testRun_existingJarsAreKept() throws Exception {
+    File jar = repository.newFile("existing.jar");
+    LibraryClasspathContainer container = createContainer(jar.getAbsolutePath());
+
+    install(container);
+    LibraryContainerValidationJob job = new LibraryContainerValidationJob(repositoryService, serializer);
+    job.validate(testProject.getJavaProject(), container);
+    job.join();
+
+    assertThat(job.getResult().isOK(), is(true));
+    verify(repositoryService, never()).rebuildClasspathEntries(anyListOf(IClasspathEntry.class));
+    verify(serializer, never()).saveContainer(any(IJavaProject.class), any(LibraryClasspathContainer.class));
+  }
+
+  @Test
+  public void testRun_existingJarsAreMarkedUsed() throws Exception {
+    File jar = repository.newFile("existing.jar");
+    LibraryClasspathContainer container = createContainer(jar.getAbsolutePath(), "/missing/path/artifactId.jar");
+    when(repositoryService.rebuildClasspathEntries(anyListOf(IClasspathEntry.class)))
+        .thenThrow(new LibraryRepositoryServiceException("test exception"));
+
+    install(container);
+    LibraryContainerValidationJob job = new LibraryContainerValidationJob(repositoryService, serializer);
+    job.validate(testProject.getJavaProject(), container);
+    job.join();
+
+    verify(repositoryService).markUsed(container.getClasspathEntries()[0]);
+    verify(repositoryService, never()).markUsed(container.getClasspathEntries()[1]);
+  }
+
+  @Test
+  public void testRun_missingJarIsResolvedAgain() throws Exception {
+    File jar = repository.newFile("resolved.jar");
+    LibraryClasspathContainer container = createContainer("/missing/path/artifactId.jar");
+    IClasspathEntry resolvedEntry = JavaCore.newLibraryEntry(new Path(jar.getAbsolutePath()), null, null);
+    when(repositoryService.rebuildClasspathEntries(Collections.singletonList(container.getClasspathEntries()[0])))
+      .thenReturn(Collections.singletonList(resolvedEntry));
+
+    install(container);
+    LibraryContainerValidationJob job = new LibraryContainerValidationJob(repositoryService, serializer);
+    job.validate(testProject.getJavaProject(), container);
+    job.join();
+
+    assertThat(job.getResult().isOK(), is(true));
+    ArgumentCaptor<LibraryClasspathContainer> saved = ArgumentCaptor.forClass(LibraryClasspathContainer.class);
+    verify(serializer).saveContainer(eq(testProject.getJavaProject()), saved.capture());
+    assertThat(saved.getValue().getClasspathEntries()[0], is(resolvedEntry));
+    // the installed container is replaced, not modified
+    assertThat(container.getClasspathEntries()[0].getPath().toString(), is("/missing/path/artifactId.jar"));
+  }
+
+  @Test
+  public void testRun_missingJarsResolvedInOneRequest() throws Exception {
+    File existingJar = repository.newFile("existing.jar");
+    File resolvedJar = repository.newFile("resolved.jar");
+    LibraryClasspathContainer container =
+        createContainer("/missing/path/first.jar", existingJar.getAbsolutePath(), "/missing/path/second.jar");
+    IClasspathEntry[] classpathEntries = container.getClasspathEntries();
+    IClasspathEntry resolvedEntry = JavaCore.newLibraryEntry(new Path(resolvedJar.getAbsolutePath()), null, null);
+    when(repositoryService.rebuildClasspathEntries(Arrays.asList(classpathEntries[0], classpathEntries[2])))
+      .thenReturn(Arrays.asList(resolvedEntry, resolvedEntry));
+
+    install(container);
+    LibraryContainerValidationJob job = new LibraryContainerValidationJob(repositoryService, serializer);
+    job.validate(testProject.getJavaProject(), container);
+    job.join();
+
+    assertThat(job.getResult().isOK(), is(true));
+    ArgumentCaptor<LibraryClasspathContainer> saved = ArgumentCaptor.forClass(LibraryClasspathContainer.class);
+    verify(serializer).saveContainer(eq(testProject.getJavaProject()), saved.capture());
+    IClasspathEntry[] savedEntries = saved.getValue().getClasspathEntries();
+    assertThat(savedEntries[0], is(resolvedEntry));
+    assertThat(savedEntries[1], is(classpathEntries[1]));
+    assertThat(savedEntries[2], is(resolvedEntry));
+    verify(repositoryService, never()).rebuildClasspathEntry(any(IClasspathEntry.class));
+  }
+
+  @Test
+  public void testRun_resolutionErrorKeepsContainer() throws Exception {
+    LibraryClasspathContainer container = createContainer("/missing/path/artifactId.jar");
+    when(repositoryService.rebuildClasspathEntries(anyListOf(IClasspathEntry.class)))
+      .thenThrow(new LibraryRepositoryServiceException("test exception"));
+
+    install(container);
+    LibraryContainerValidationJob job = new LibraryContainerValidationJob(repositoryService, serializer);
+    job.validate(testProject.getJavaProject(), container);
+    job.join();
+
+    assertThat(job.getResult().getSeverity(), is(IStatus.ERROR));
+    verify(serializer, never()).saveContainer(any(IJavaProject.class), any(LibraryClasspathContainer.class));
+  }
+
+  @Test
+  public void testRun_replacedContainerIsKept() throws Exception {
+    File jar = repository.newFile("resolved.jar");
+    LibraryClasspathContainer container = createContainer("/missing/path/artifactId.jar");
+    IClasspathEntry resolvedEntry = JavaCore.newLibraryEntry(new Path(jar.getAbsolutePath()), null, null);
+    when(repositoryService.rebuildClasspathEntries(Collections.singletonList(container.getClasspathEntries()[0])))
+      .thenReturn(Collections.singletonList(resolvedEntry));
+    // e.g. a resolver job installed another container after this one was handed in
+    LibraryClasspathContainer replacement = createContainer(jar.getAbsolutePath());
+    install(replacement);
+
+    LibraryContainerValidationJob job = new LibraryContainerValidationJob(repositoryService, serializer);
+    job.validate(testProject.getJavaProject(), container);
+    job.join();
+
+    assertThat(job.getResult().isOK(), is(true));
+    verify(serializer, never()).saveContainer(any(IJavaProject.class), any(LibraryClasspathContainer.class));
+    assertThat(JavaCore.getClasspathContainer(new Path(TEST_LIBRARY_PATH), testProject.getJavaProject()),
+               is((IClasspathContainer) replacement));
+  }
+
+  private void install(LibraryClasspathContainer container) throws JavaModelException {
+    JavaCore.setClasspathContainer(container.getPath(), new IJavaProject[] {testProject.getJavaProject()},
+                                   new IClasspathContainer[] {container}, null);
+  }
+
+  private static LibraryClasspathContainer createContainer(String... jarPaths) {
+    IClasspathEntry[] classpathEntries = new IClasspathEntry[jarPaths.length];
+    for (int i = 0; i < jarPaths.length; i++) {
+      classpathEntries[i] = JavaCore.newLibraryEntry(new Path(jarPaths[i]), null /* sourceAttachmentPath */,
+                                                     null /* sourceAttachmentRootPath */);
+    }
+    return new LibraryClasspathContainer(new Path(TEST_LIBRARY_PATH), "Test API", classpathEntries);
+  }
+}
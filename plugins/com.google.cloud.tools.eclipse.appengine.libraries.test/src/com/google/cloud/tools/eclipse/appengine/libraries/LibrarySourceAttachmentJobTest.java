@@ -0,0 +1,210 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFile;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.MavenCoordinates;
+import com.google.cloud.tools.eclipse.appengine.libraries.persistence.LibraryClasspathContainerSerializer;
+import com.google.cloud.tools.eclipse.appengine.libraries.repository.ILibraryRepositoryService;
+import com.google.cloud.tools.eclipse.appengine.libraries.repository.LibraryRepositoryServiceException;
+import com.google.cloud.tools.eclipse.test.util.project.TestProjectCreator;
+import java.util.Arrays;
+import java.util.Collections;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IClasspathContainer;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LibrarySourceAttachmentJobTest {
+
+  private static final String TEST_LIBRARY_PATH = "test.appengine.libraries/libraryId";
+  private static final IPath SOURCE_PATH = new Path("/sources/artifactId-sources.jar");
+
+  @Mock private ILibraryRepositoryService repositoryService;
+  @Mock private LibraryClasspathContainerSerializer serializer;
+
+  @Rule
+  public TestProjectCreator testProject = new TestProjectCreator().withClasspathContainerPath(TEST_LIBRARY_PATH);
+
+  @Test
+  public void testRun_sourcesAttached() throws Exception {
+    LibraryFile libraryFile = new LibraryFile(new MavenCoordinates("groupId", "artifactId"));
+    when(repositoryService.resolveSourceAttachment(libraryFile)).thenReturn(SOURCE_PATH);
+    LibraryClasspathContainer container = createContainer((IPath) null);
+    install(container);
+
+    LibrarySourceAttachmentJob job = new LibrarySourceAttachmentJob();
+    job.add(testProject.getJavaProject(), container, Collections.singletonList(libraryFile), repositoryService,
+            serializer);
+    job.join();
+
+    assertThat(job.getResult().isOK(), is(true));
+    ArgumentCaptor<LibraryClasspathContainer> saved = ArgumentCaptor.forClass(LibraryClasspathContainer.class);
+    verify(serializer).saveContainer(eq(testProject.getJavaProject()), saved.capture());
+    IClasspathEntry savedEntry = saved.getValue().getClasspathEntries()[0];
+    assertThat(savedEntry.getSourceAttachmentPath(), is(SOURCE_PATH));
+    assertThat(savedEntry.getPath(), is(container.getClasspathEntries()[0].getPath()));
+    // the installed container is replaced, not modified
+    assertNull(container.getClasspathEntries()[0].getSourceAttachmentPath());
+  }
+
+  @Test
+  public void testRun_attachedSourcesAreKept() throws Exception {
+    LibraryFile libraryFile = new LibraryFile(new MavenCoordinates("groupId", "artifactId"));
+    LibraryClasspathContainer container = createContainer(new Path("/local/artifactId-sources.jar"));
+
+    LibrarySourceAttachmentJob job = new LibrarySourceAttachmentJob();
+    job.add(testProject.getJavaProject(), container, Collections.singletonList(libraryFile), repositoryService,
+            serializer);
+    job.join();
+
+    assertThat(job.getResult().isOK(), is(true));
+    verify(repositoryService, never()).resolveSourceAttachment(any(LibraryFile.class));
+    verify(serializer, never()).saveContainer(any(IJavaProject.class), any(LibraryClasspathContainer.class));
+  }
+
+  @Test
+  public void testRun_missingSourcesKeepContainer() throws Exception {
+    LibraryFile libraryFile = new LibraryFile(new MavenCoordinates("groupId", "artifactId"));
+    when(repositoryService.resolveSourceAttachment(libraryFile))
+      .thenThrow(new LibraryRepositoryServiceException("test exception"));
+
+    LibrarySourceAttachmentJob job = new LibrarySourceAttachmentJob();
+    job.add(testProject.getJavaProject(), createContainer((IPath) null), Collections.singletonList(libraryFile),
+            repositoryService, serializer);
+    job.join();
+
+    assertThat(job.getResult().isOK(), is(true));
+    verify(serializer, never()).saveContainer(any(IJavaProject.class), any(LibraryClasspathContainer.class));
+  }
+
+  @Test
+  public void testRun_sharedSourcesDownloadedOnce() throws Exception {
+    LibraryFile libraryFile = new LibraryFile(new MavenCoordinates("groupId", "artifactId"));
+    LibraryFile sameLibraryFile = new LibraryFile(new MavenCoordinates("groupId", "artifactId"));
+    when(repositoryService.resolveSourceAttachment(any(LibraryFile.class))).thenReturn(SOURCE_PATH);
+    LibraryClasspathContainer container = createContainer(null, null);
+    install(container);
+
+    LibrarySourceAttachmentJob job = new LibrarySourceAttachmentJob();
+    job.add(testProject.getJavaProject(), container, Arrays.asList(libraryFile, sameLibraryFile), repositoryService,
+            serializer);
+    job.join();
+
+    verify(repositoryService, times(1)).resolveSourceAttachment(any(LibraryFile.class));
+    ArgumentCaptor<LibraryClasspathContainer> saved = ArgumentCaptor.forClass(LibraryClasspathContainer.class);
+    verify(serializer).saveContainer(eq(testProject.getJavaProject()), saved.capture());
+    assertThat(saved.getValue().getClasspathEntries()[0].getSourceAttachmentPath(), is(SOURCE_PATH));
+    assertThat(saved.getValue().getClasspathEntries()[1].getSourceAttachmentPath(), is(SOURCE_PATH));
+  }
+
+  @Test
+  public void testRun_sourcesAttachedToReplacedContainerWithSameJars() throws Exception {
+    LibraryFile libraryFile = new LibraryFile(new MavenCoordinates("groupId", "artifactId"));
+    when(repositoryService.resolveSourceAttachment(libraryFile)).thenReturn(SOURCE_PATH);
+    LibraryClasspathContainer container = createContainer((IPath) null);
+    // e.g. resolved again while the sources were downloaded
+    LibraryClasspathContainer replacement = new LibraryClasspathContainer(
+        container.getPath(), "Replaced API",
+        new IClasspathEntry[] { container.getClasspathEntries()[0],
+                                JavaCore.newLibraryEntry(new Path("/repository/other.jar"), null, null) });
+    install(replacement);
+
+    LibrarySourceAttachmentJob job = new LibrarySourceAttachmentJob();
+    job.add(testProject.getJavaProject(), container, Collections.singletonList(libraryFile), repositoryService,
+            serializer);
+    job.join();
+
+    ArgumentCaptor<LibraryClasspathContainer> saved = ArgumentCaptor.forClass(LibraryClasspathContainer.class);
+    verify(serializer).saveContainer(eq(testProject.getJavaProject()), saved.capture());
+    assertThat(saved.getValue().getDescription(), is("Replaced API"));
+    IClasspathEntry[] savedEntries = saved.getValue().getClasspathEntries();
+    assertThat(savedEntries.length, is(2));
+    assertThat(savedEntries[0].getSourceAttachmentPath(), is(SOURCE_PATH));
+    assertNull(savedEntries[1].getSourceAttachmentPath());
+  }
+
+  @Test
+  public void testRun_replacedContainerWithOtherJarsIsKept() throws Exception {
+    LibraryFile libraryFile = new LibraryFile(new MavenCoordinates("groupId", "artifactId"));
+    when(repositoryService.resolveSourceAttachment(libraryFile)).thenReturn(SOURCE_PATH);
+    LibraryClasspathContainer container = createContainer((IPath) null);
+    install(new LibraryClasspathContainer(
+        container.getPath(), "Replaced API",
+        new IClasspathEntry[] { JavaCore.newLibraryEntry(new Path("/repository/other.jar"), null, null) }));
+
+    LibrarySourceAttachmentJob job = new LibrarySourceAttachmentJob();
+    job.add(testProject.getJavaProject(), container, Collections.singletonList(libraryFile), repositoryService,
+            serializer);
+    job.join();
+
+    assertThat(job.getResult().isOK(), is(true));
+    verify(serializer, never()).saveContainer(any(IJavaProject.class), any(LibraryClasspathContainer.class));
+  }
+
+  @Test
+  public void testRun_laterRunDownloadsAgain() throws Exception {
+    LibraryFile libraryFile = new LibraryFile(new MavenCoordinates("groupId", "artifactId"));
+    when(repositoryService.resolveSourceAttachment(libraryFile)).thenReturn(SOURCE_PATH);
+
+    LibrarySourceAttachmentJob job = new LibrarySourceAttachmentJob();
+    job.add(testProject.getJavaProject(), createContainer((IPath) null), Collections.singletonList(libraryFile),
+            repositoryService, serializer);
+    job.join();
+    job.add(testProject.getJavaProject(), createContainer((IPath) null), Collections.singletonList(libraryFile),
+            repositoryService, serializer);
+    job.join();
+
+    // e.g. the sources were deleted since the first run
+    verify(repositoryService, times(2)).resolveSourceAttachment(libraryFile);
+  }
+
+  private void install(LibraryClasspathContainer container) throws JavaModelException {
+    JavaCore.setClasspathContainer(container.getPath(), new IJavaProject[] {testProject.getJavaProject()},
+                                   new IClasspathContainer[] {container}, null);
+  }
+
+  private static LibraryClasspathContainer createContainer(IPath... sourceAttachmentPaths) {
+    IClasspathEntry[] classpathEntries = new IClasspathEntry[sourceAttachmentPaths.length];
+    for (int i = 0; i < classpathEntries.length; i++) {
+      classpathEntries[i] = JavaCore.newLibraryEntry(new Path("/repository/artifactId-" + i + ".jar"),
+                                                     sourceAttachmentPaths[i],
+                                                     null /* sourceAttachmentRootPath */);
+    }
+    return new LibraryClasspathContainer(new Path(TEST_LIBRARY_PATH), "Test API", classpathEntries);
+  }
+}
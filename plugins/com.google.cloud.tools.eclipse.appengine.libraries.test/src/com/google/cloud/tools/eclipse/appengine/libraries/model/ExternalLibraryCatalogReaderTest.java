@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.model;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class ExternalLibraryCatalogReaderTest {
+
+  private final ExternalLibraryCatalogReader reader = new ExternalLibraryCatalogReader();
+
+  @Test
+  public void testRead_allAttributes() throws Exception {
+    List<Library> libraries = read("{ 'libraries': [ {"
+        + "  'id': 'objectify', 'name': 'Objectify', 'siteUri': 'http://example.com/site',"
+        + "  'export': false, 'recommendation': 'required', 'libraryDependencies': [ 'appengine-api' ],"
+        + "  'libraryFiles': [ {"
+        + "    'javadocUri': 'http://example.com/javadoc', 'sourceUri': 'http://example.com/sources.jar',"
+        + "    'export': false,"
+        + "    'mavenCoordinates': { 'groupId': 'com.googlecode.objectify', 'artifactId': 'objectify',"
+        + "      'version': '5.1.13', 'type': 'war', 'classifier': 'tests', 'repositoryUri': 'http://example.com' },"
+        + "    'filters': [ { 'exclusionFilter': 'a/**' }, { 'inclusionFilter': 'b/**' } ]"
+        + "  } ]"
+        + "} ] }");
+
+    assertThat(libraries.size(), is(1));
+    Library library = libraries.get(0);
+    assertThat(library.getId(), is("objectify"));
+    assertThat(library.getName(), is("Objectify"));
+    assertThat(library.getSiteUri(), is(new URI("http://example.com/site")));
+    assertFalse(library.isExport());
+    assertThat(library.getRecommendation(), is(LibraryRecommendation.REQUIRED));
+    assertThat(library.getLibraryDependencies(), is(Collections.singletonList("appengine-api")));
+    assertThat(library.getLibraryFiles().size(), is(1));
+
+    LibraryFile libraryFile = library.getLibraryFiles().get(0);
+    assertThat(libraryFile.getJavadocUri(), is(new URI("http://example.com/javadoc")));
+    assertThat(libraryFile.getSourceUri(), is(new URI("http://example.com/sources.jar")));
+    assertFalse(libraryFile.isExport());
+    MavenCoordinates mavenCoordinates = libraryFile.getMavenCoordinates();
+    assertThat(mavenCoordinates.getGroupId(), is("com.googlecode.objectify"));
+    assertThat(mavenCoordinates.getArtifactId(), is("objectify"));
+    assertThat(mavenCoordinates.getVersion(), is("5.1.13"));
+    assertThat(mavenCoordinates.getType(), is("war"));
+    assertThat(mavenCoordinates.getClassifier(), is("tests"));
+    assertThat(mavenCoordinates.getRepository(), is("http://example.com"));
+    assertThat(libraryFile.getFilters().size(), is(2));
+    assertTrue(libraryFile.getFilters().get(0).isExclude());
+    assertThat(libraryFile.getFilters().get(0).getPattern(), is("a/**"));
+    assertFalse(libraryFile.getFilters().get(1).isExclude());
+    assertThat(libraryFile.getFilters().get(1).getPattern(), is("b/**"));
+  }
+
+  @Test
+  public void testRead_defaults() throws Exception {
+    List<Library> libraries = read("{ 'libraries': [ { 'id': 'a', 'libraryFiles': [ {"
+        + "  'mavenCoordinates': { 'groupId': 'g', 'artifactId': 'a' } } ] } ] }");
+
+    Library library = libraries.get(0);
+    assertNull(library.getName());
+    assertTrue(library.isExport());
+    assertThat(library.getRecommendation(), is(LibraryRecommendation.OPTIONAL));
+    assertTrue(library.getLibraryDependencies().isEmpty());
+    LibraryFile libraryFile = library.getLibraryFiles().get(0);
+    assertNull(libraryFile.getSourceUri());
+    assertTrue(libraryFile.isExport());
+    assertTrue(libraryFile.getFilters().isEmpty());
+    assertThat(libraryFile.getMavenCoordinates().getVersion(), is(MavenCoordinates.LATEST_VERSION));
+    assertThat(libraryFile.getMavenCoordinates().getRepository(), is(MavenCoordinates.MAVEN_CENTRAL_REPO));
+  }
+
+  @Test
+  public void testRead_unknownNamesAreSkipped() throws Exception {
+    List<Library> libraries = read("{ 'version': 2, 'libraries': [ { 'id': 'a', 'future': { 'x': [ 1 ] } } ] }");
+    assertThat(libraries.size(), is(1));
+    assertThat(libraries.get(0).getId(), is("a"));
+  }
+
+  @Test
+  public void testRead_noLibraries() throws Exception {
+    assertTrue(read("{ }").isEmpty());
+  }
+
+  @Test(expected = LibraryFactoryException.class)
+  public void testRead_malformed() throws Exception {
+    read("{ 'libraries': [ { 'id': 'a' ");
+  }
+
+  @Test(expected = LibraryFactoryException.class)
+  public void testRead_missingId() throws Exception {
+    read("{ 'libraries': [ { 'name': 'a' } ] }");
+  }
+
+  @Test(expected = LibraryFactoryException.class)
+  public void testRead_missingMavenCoordinates() throws Exception {
+    read("{ 'libraries': [ { 'id': 'a', 'libraryFiles': [ { 'javadocUri': 'http://example.com' } ] } ] }");
+  }
+
+  @Test(expected = LibraryFactoryException.class)
+  public void testRead_unexpectedType() throws Exception {
+    read("{ 'libraries': [ { 'id': 'a', 'libraryDependencies': 'b' } ] }");
+  }
+
+  @Test(expected = LibraryFactoryException.class)
+  public void testRead_invalidRecommendation() throws Exception {
+    read("{ 'libraries': [ { 'id': 'a', 'recommendation': 'maybe' } ] }");
+  }
+
+  private List<Library> read(String json) throws LibraryFactoryException {
+    return reader.read(new StringReader(json.replace('\'', '"')));
+  }
+}
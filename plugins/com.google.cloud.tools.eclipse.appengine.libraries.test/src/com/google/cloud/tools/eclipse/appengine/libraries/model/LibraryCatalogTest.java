@@ -0,0 +1,277 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.model;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IExtension;
+import org.eclipse.core.runtime.IExtensionRegistry;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LibraryCatalogTest {
+
+  @Mock private IExtensionRegistry extensionRegistry;
+  @Mock private LibraryFactory libraryFactory;
+  @Mock private IConfigurationElement firstElement;
+  @Mock private IConfigurationElement secondElement;
+  @Mock private ILibraryCatalogListener listener;
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private LibraryCatalog catalog;
+
+  @Before
+  public void setUp() {
+    catalog = new LibraryCatalog(extensionRegistry, libraryFactory);
+  }
+
+  @Test
+  public void testActivate_registersListenerAndParsesLibraries() throws LibraryFactoryException {
+    Library library = new Library("a");
+    doReturn(library).when(libraryFactory).create(firstElement);
+    setConfigurationElements(firstElement);
+
+    catalog.activate();
+
+    verify(extensionRegistry).addListener(catalog, ILibraryCatalog.LIBRARIES_EXTENSION_POINT);
+    assertThat(catalog.getLibrary("a"), sameInstance(library));
+    assertThat(catalog.getLibraries().size(), is(1));
+  }
+
+  @Test
+  public void testGetLibrary_unknownId() {
+    setConfigurationElements();
+    catalog.activate();
+    assertNull(catalog.getLibrary("a"));
+  }
+
+  @Test
+  public void testActivate_libraryFactoryErrorDoesNotPreventOtherLibraries()
+      throws LibraryFactoryException {
+    doThrow(LibraryFactoryException.class).when(libraryFactory).create(firstElement);
+    doReturn(new Library("b")).when(libraryFactory).create(secondElement);
+    setConfigurationElements(firstElement, secondElement);
+
+    catalog.activate();
+
+    assertThat(catalog.getLibraries().size(), is(1));
+    assertThat(catalog.getLibrary("b").getId(), is("b"));
+  }
+
+  @Test
+  public void testAdded_reparsesLibraries() throws LibraryFactoryException {
+    doReturn(new Library("a")).when(libraryFactory).create(firstElement);
+    doReturn(new Library("b")).when(libraryFactory).create(secondElement);
+    setConfigurationElements(firstElement);
+    catalog.activate();
+
+    setConfigurationElements(firstElement, secondElement);
+    catalog.added(new IExtension[0]);
+
+    assertThat(catalog.getLibraries().size(), is(2));
+    assertThat(catalog.getLibrary("b").getId(), is("b"));
+  }
+
+  @Test
+  public void testRemoved_reparsesLibraries() throws LibraryFactoryException {
+    doReturn(new Library("a")).when(libraryFactory).create(firstElement);
+    setConfigurationElements(firstElement);
+    catalog.activate();
+
+    setConfigurationElements();
+    catalog.removed(new IExtension[0]);
+
+    assertNull(catalog.getLibrary("a"));
+  }
+
+  @Test
+  public void testGetLibraries_isSnapshot() throws LibraryFactoryException {
+    doReturn(new Library("a")).when(libraryFactory).create(any(IConfigurationElement.class));
+    setConfigurationElements(firstElement);
+    catalog.activate();
+
+    Collection<Library> before = catalog.getLibraries();
+    setConfigurationElements();
+    catalog.removed(new IExtension[0]);
+
+    assertThat(before.size(), is(1));
+    assertThat(catalog.getLibraries().size(), is(0));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testGetLibraries_isUnmodifiable() {
+    setConfigurationElements();
+    catalog.activate();
+    catalog.getLibraries().add(new Library("a"));
+  }
+
+  @Test
+  public void testGetDependencyGraph_followsLibraries() throws LibraryFactoryException {
+    Library library = new Library("a");
+    library.setLibraryDependencies(Collections.singletonList("b"));
+    doReturn(library).when(libraryFactory).create(firstElement);
+    doReturn(new Library("b")).when(libraryFactory).create(secondElement);
+    setConfigurationElements(firstElement);
+    catalog.activate();
+
+    assertTrue(catalog.getDependencyGraph().getRequiredLibraryIds("a").isEmpty());
+
+    setConfigurationElements(firstElement, secondElement);
+    catalog.added(new IExtension[0]);
+
+    assertTrue(catalog.getDependencyGraph().requires("a", "b"));
+  }
+
+  @Test
+  public void testActivate_externalCatalogReplacesLibraries() throws Exception {
+    Library library = new Library("a");
+    library.setName("from plugin.xml");
+    doReturn(library).when(libraryFactory).create(firstElement);
+    setConfigurationElements(firstElement);
+    Path externalCatalog = writeExternalCatalog("{ 'libraries': [ { 'id': 'a', 'name': 'external' },"
+                                                + " { 'id': 'b' } ] }");
+    catalog = new LibraryCatalog(extensionRegistry, libraryFactory, externalCatalog);
+
+    catalog.activate();
+    try {
+      assertThat(catalog.getLibraries().size(), is(2));
+      assertThat(catalog.getLibrary("a").getName(), is("external"));
+      assertThat(catalog.getLibrary("b").getId(), is("b"));
+    } finally {
+      catalog.deactivate();
+    }
+  }
+
+  @Test
+  public void testReloadExternalCatalog_notifiesChangedLibraries() throws Exception {
+    setConfigurationElements();
+    Path externalCatalog = writeExternalCatalog("{ 'libraries': [ { 'id': 'a', 'libraryDependencies': [ 'b' ] },"
+                                                + " { 'id': 'b', 'name': 'before' }, { 'id': 'c' } ] }");
+    catalog = new LibraryCatalog(extensionRegistry, libraryFactory, externalCatalog);
+    catalog.activate();
+    try {
+      catalog.addListener(listener);
+      writeExternalCatalog("{ 'libraries': [ { 'id': 'a', 'libraryDependencies': [ 'b' ] },"
+                           + " { 'id': 'b', 'name': 'after' }, { 'id': 'c' } ] }");
+
+      catalog.reloadExternalCatalog();
+
+      assertThat(catalog.getLibrary("b").getName(), is("after"));
+      verify(listener).librariesChanged(new HashSet<>(Arrays.asList("a", "b")));
+    } finally {
+      catalog.deactivate();
+    }
+  }
+
+  @Test
+  public void testReloadExternalCatalog_unchangedCatalogNotifiesNothing() throws Exception {
+    setConfigurationElements();
+    Path externalCatalog = writeExternalCatalog("{ 'libraries': [ { 'id': 'a' } ] }");
+    catalog = new LibraryCatalog(extensionRegistry, libraryFactory, externalCatalog);
+    catalog.activate();
+    try {
+      catalog.addListener(listener);
+      catalog.reloadExternalCatalog();
+      verify(listener, never()).librariesChanged(anySetOf(String.class));
+    } finally {
+      catalog.deactivate();
+    }
+  }
+
+  @Test
+  public void testReloadExternalCatalog_invalidCatalogKeepsLibraries() throws Exception {
+    setConfigurationElements();
+    Path externalCatalog = writeExternalCatalog("{ 'libraries': [ { 'id': 'a' } ] }");
+    catalog = new LibraryCatalog(extensionRegistry, libraryFactory, externalCatalog);
+    catalog.activate();
+    try {
+      catalog.addListener(listener);
+      writeExternalCatalog("{ 'libraries': [ { 'id': ");
+
+      catalog.reloadExternalCatalog();
+
+      assertThat(catalog.getLibrary("a").getId(), is("a"));
+      verify(listener, never()).librariesChanged(anySetOf(String.class));
+    } finally {
+      catalog.deactivate();
+    }
+  }
+
+  @Test
+  public void testReloadExternalCatalog_deletedCatalogRemovesLibraries() throws Exception {
+    setConfigurationElements();
+    Path externalCatalog = writeExternalCatalog("{ 'libraries': [ { 'id': 'a' } ] }");
+    catalog = new LibraryCatalog(extensionRegistry, libraryFactory, externalCatalog);
+    catalog.activate();
+    try {
+      catalog.addListener(listener);
+      Files.delete(externalCatalog);
+
+      catalog.reloadExternalCatalog();
+
+      assertNull(catalog.getLibrary("a"));
+      verify(listener).librariesChanged(Collections.singleton("a"));
+    } finally {
+      catalog.deactivate();
+    }
+  }
+
+  @Test
+  public void testDeactivate_removesListener() {
+    setConfigurationElements();
+    catalog.activate();
+    catalog.deactivate();
+    verify(extensionRegistry).removeListener(catalog);
+  }
+
+  private Path writeExternalCatalog(String json) throws IOException {
+    Path file = temporaryFolder.getRoot().toPath().resolve("catalog.json");
+    Files.write(file, json.replace('\'', '"').getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  private void setConfigurationElements(IConfigurationElement... elements) {
+    when(extensionRegistry.getConfigurationElementsFor(ILibraryCatalog.LIBRARIES_EXTENSION_POINT))
+        .thenReturn(elements);
+  }
+}
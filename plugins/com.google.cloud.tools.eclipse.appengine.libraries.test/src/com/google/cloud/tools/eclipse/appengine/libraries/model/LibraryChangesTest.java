@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.model;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Test;
+
+public class LibraryChangesTest {
+
+  @Test
+  public void testSameDefinition() {
+    assertTrue(LibraryChanges.sameDefinition(library("a", "1.0"), library("a", "1.0")));
+  }
+
+  @Test
+  public void testSameDefinition_versionChanged() {
+    assertFalse(LibraryChanges.sameDefinition(library("a", "1.0"), library("a", "1.1")));
+  }
+
+  @Test
+  public void testSameDefinition_filterChanged() {
+    Library library = library("a", "1.0");
+    Library other = library("a", "1.0");
+    LibraryFile libraryFile = other.getLibraryFiles().get(0);
+    libraryFile.setFilters(Collections.singletonList(Filter.exclusionFilter("a/**")));
+    other.setLibraryFiles(Collections.singletonList(libraryFile));
+
+    assertFalse(LibraryChanges.sameDefinition(library, other));
+  }
+
+  @Test
+  public void testSameDefinition_dependencyChanged() {
+    Library other = library("a", "1.0");
+    other.setLibraryDependencies(Collections.singletonList("b"));
+    assertFalse(LibraryChanges.sameDefinition(library("a", "1.0"), other));
+  }
+
+  @Test
+  public void testGetChangedLibraryIds() {
+    Map<String, Library> before = libraries(library("same", "1.0"), library("changed", "1.0"),
+                                            library("removed", "1.0"));
+    Map<String, Library> after = libraries(library("same", "1.0"), library("changed", "2.0"),
+                                           library("added", "1.0"));
+
+    assertThat(LibraryChanges.getChangedLibraryIds(before, after), is(ids("changed", "removed", "added")));
+  }
+
+  @Test
+  public void testGetChangedLibraryIds_noChange() {
+    assertTrue(LibraryChanges.getChangedLibraryIds(libraries(library("a", "1.0")), libraries(library("a", "1.0")))
+        .isEmpty());
+  }
+
+  @Test
+  public void testGetAffectedLibraryIds_includesDependents() {
+    Library dependent = library("dependent", "1.0");
+    dependent.setLibraryDependencies(Collections.singletonList("changed"));
+    Library formerDependent = library("formerDependent", "1.0");
+    formerDependent.setLibraryDependencies(Collections.singletonList("changed"));
+    Library unrelated = library("unrelated", "1.0");
+    LibraryDependencyGraph before = LibraryDependencyGraph.create(
+        Arrays.asList(library("changed", "1.0"), dependent, formerDependent, unrelated));
+    LibraryDependencyGraph after = LibraryDependencyGraph.create(
+        Arrays.asList(library("changed", "2.0"), dependent, library("formerDependent", "1.0"), unrelated));
+
+    assertThat(LibraryChanges.getAffectedLibraryIds(ids("changed"), before, after),
+               is(ids("changed", "dependent", "formerDependent")));
+  }
+
+  private static Library library(String id, String version) {
+    MavenCoordinates mavenCoordinates = new MavenCoordinates("groupId", id);
+    mavenCoordinates.setVersion(version);
+    Library library = new Library(id);
+    library.setLibraryFiles(Collections.singletonList(new LibraryFile(mavenCoordinates)));
+    return library;
+  }
+
+  private static Map<String, Library> libraries(Library... libraries) {
+    Map<String, Library> map = new HashMap<>();
+    for (Library library : libraries) {
+      map.put(library.getId(), library);
+    }
+    return map;
+  }
+
+  private static Set<String> ids(String... ids) {
+    return new HashSet<>(Arrays.asList(ids));
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.model;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+
+public class LibraryDependencyGraphTest {
+
+  @Test
+  public void testGetRequiredLibraryIds_noDependencies() {
+    LibraryDependencyGraph graph = LibraryDependencyGraph.create(Arrays.asList(library("a")));
+    assertTrue(graph.getRequiredLibraryIds("a").isEmpty());
+    assertTrue(graph.getDependentLibraryIds("a").isEmpty());
+  }
+
+  @Test
+  public void testGetRequiredLibraryIds_transitive() {
+    LibraryDependencyGraph graph =
+        LibraryDependencyGraph.create(Arrays.asList(library("a", "b"), library("b", "c"), library("c")));
+
+    assertThat(graph.getRequiredLibraryIds("a"), is(ids("b", "c")));
+    assertThat(graph.getRequiredLibraryIds("b"), is(ids("c")));
+    assertTrue(graph.getRequiredLibraryIds("c").isEmpty());
+    assertTrue(graph.requires("a", "c"));
+    assertFalse(graph.requires("c", "a"));
+    assertTrue(graph.getCycles().isEmpty());
+  }
+
+  @Test
+  public void testGetRequiredLibraryIds_independentOfOrder() {
+    LibraryDependencyGraph graph =
+        LibraryDependencyGraph.create(Arrays.asList(library("c"), library("b", "c"), library("a", "b")));
+    assertThat(graph.getRequiredLibraryIds("a"), is(ids("b", "c")));
+  }
+
+  @Test
+  public void testGetRequiredLibraryIds_sharedDependency() {
+    LibraryDependencyGraph graph = LibraryDependencyGraph.create(
+        Arrays.asList(library("a", "b", "c"), library("b", "d"), library("c", "d"), library("d")));
+
+    assertThat(graph.getRequiredLibraryIds("a"), is(ids("b", "c", "d")));
+    assertThat(graph.getDependentLibraryIds("d"), is(ids("a", "b", "c")));
+  }
+
+  @Test
+  public void testGetRequiredLibraryIds_ofSeveralLibraries() {
+    LibraryDependencyGraph graph = LibraryDependencyGraph.create(
+        Arrays.asList(library("a", "b"), library("b", "c"), library("c"), library("d", "e"), library("e")));
+
+    assertThat(graph.getRequiredLibraryIds(Arrays.asList("a", "b", "d")), is(ids("c", "e")));
+  }
+
+  @Test
+  public void testGetRequiredLibraryIds_unknownLibrary() {
+    LibraryDependencyGraph graph = LibraryDependencyGraph.create(Arrays.asList(library("a")));
+    assertTrue(graph.getRequiredLibraryIds("b").isEmpty());
+    assertTrue(graph.getDependentLibraryIds("b").isEmpty());
+  }
+
+  @Test
+  public void testGetRequiredLibraryIds_unknownDependencyIsIgnored() {
+    LibraryDependencyGraph graph = LibraryDependencyGraph.create(Arrays.asList(library("a", "b", "c"), library("c")));
+    assertThat(graph.getRequiredLibraryIds("a"), is(ids("c")));
+  }
+
+  @Test
+  public void testGetDependentLibraryIds_transitive() {
+    LibraryDependencyGraph graph =
+        LibraryDependencyGraph.create(Arrays.asList(library("a", "b"), library("b", "c"), library("c")));
+
+    assertThat(graph.getDependentLibraryIds("c"), is(ids("a", "b")));
+    assertThat(graph.getDependentLibraryIds("b"), is(ids("a")));
+    assertTrue(graph.getDependentLibraryIds("a").isEmpty());
+  }
+
+  @Test
+  public void testCycle() {
+    LibraryDependencyGraph graph = LibraryDependencyGraph.create(
+        Arrays.asList(library("a", "b"), library("b", "c"), library("c", "a", "d"), library("d")));
+
+    assertThat(graph.getRequiredLibraryIds("a"), is(ids("b", "c", "d")));
+    assertThat(graph.getRequiredLibraryIds("c"), is(ids("a", "b", "d")));
+    assertThat(graph.getDependentLibraryIds("d"), is(ids("a", "b", "c")));
+    assertThat(graph.getCycles().size(), is(1));
+    assertThat(graph.getCycles().get(0), is(ids("a", "b", "c")));
+  }
+
+  @Test
+  public void testCycle_selfDependency() {
+    LibraryDependencyGraph graph = LibraryDependencyGraph.create(Arrays.asList(library("a", "a")));
+
+    assertTrue(graph.getRequiredLibraryIds("a").isEmpty());
+    assertThat(graph.getCycles().size(), is(1));
+  }
+
+  @Test
+  public void testEmpty() {
+    assertTrue(LibraryDependencyGraph.empty().getRequiredLibraryIds("a").isEmpty());
+    assertTrue(LibraryDependencyGraph.create(Collections.<Library>emptyList()).getCycles().isEmpty());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testGetRequiredLibraryIds_isUnmodifiable() {
+    LibraryDependencyGraph graph = LibraryDependencyGraph.create(Arrays.asList(library("a", "b"), library("b")));
+    graph.getRequiredLibraryIds("a").add("c");
+  }
+
+  private static Library library(String id, String... dependencies) {
+    Library library = new Library(id);
+    library.setLibraryDependencies(Arrays.asList(dependencies));
+    return library;
+  }
+
+  private static Set<String> ids(String... ids) {
+    return new HashSet<>(Arrays.asList(ids));
+  }
+}
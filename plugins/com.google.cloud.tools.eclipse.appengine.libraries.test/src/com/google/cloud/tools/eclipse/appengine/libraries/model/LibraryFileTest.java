@@ -26,6 +26,7 @@ import static org.junit.Assert.assertTrue;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -86,6 +87,23 @@ public class LibraryFileTest {
     assertTrue(libraryFile.getFilters().get(3).isExclude());
   }
 
+  @Test(expected = UnsupportedOperationException.class)
+  public void testGetFilters_unmodifiable() {
+    LibraryFile libraryFile = new LibraryFile(new MavenCoordinates("groupId", "artifactId"));
+    libraryFile.setFilters(Collections.singletonList(Filter.exclusionFilter("filter")));
+    libraryFile.getFilters().clear();
+  }
+
+  @Test
+  public void testSetFilters_copiesList() {
+    LibraryFile libraryFile = new LibraryFile(new MavenCoordinates("groupId", "artifactId"));
+    List<Filter> filters = new ArrayList<>();
+    filters.add(Filter.exclusionFilter("filter"));
+    libraryFile.setFilters(filters);
+    filters.clear();
+    assertThat(libraryFile.getFilters().size(), is(1));
+  }
+
   @Test
   public void setNullJavadocUri() {
     MavenCoordinates mavenCoordinates = new MavenCoordinates("groupId", "artifactId");
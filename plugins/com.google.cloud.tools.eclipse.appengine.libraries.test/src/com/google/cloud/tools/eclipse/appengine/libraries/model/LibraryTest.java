@@ -25,8 +25,10 @@ import static org.junit.Assert.assertTrue;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import org.junit.Test;
 
 public class LibraryTest {
@@ -107,6 +109,23 @@ public class LibraryTest {
     assertThat(actual.getMavenCoordinates().getArtifactId(), is("artifactId"));
   }
 
+  @Test(expected = UnsupportedOperationException.class)
+  public void testGetLibraryFiles_unmodifiable() {
+    Library library = new Library("a");
+    library.setLibraryFiles(Arrays.asList(new LibraryFile(new MavenCoordinates("groupId", "artifactId"))));
+    library.getLibraryFiles().clear();
+  }
+
+  @Test
+  public void testSetLibraryFiles_copiesList() {
+    Library library = new Library("a");
+    List<LibraryFile> libraryFiles = new ArrayList<>();
+    libraryFiles.add(new LibraryFile(new MavenCoordinates("groupId", "artifactId")));
+    library.setLibraryFiles(libraryFiles);
+    libraryFiles.clear();
+    assertThat(library.getLibraryFiles().size(), is(1));
+  }
+
   @Test
   public void testExportDefaultsToTrue() {
     Library library = new Library("a");
@@ -142,6 +161,22 @@ public class LibraryTest {
     assertThat(library.getLibraryDependencies().get(0), is("libraryId"));
   }
 
+  @Test(expected = UnsupportedOperationException.class)
+  public void testGetLibraryDependencies_unmodifiable() {
+    Library library = new Library("a");
+    library.getLibraryDependencies().add("libraryId");
+  }
+
+  @Test
+  public void testSetLibraryDependencies_copiesList() {
+    Library library = new Library("a");
+    List<String> libraryDependencies = new ArrayList<>();
+    libraryDependencies.add("libraryId");
+    library.setLibraryDependencies(libraryDependencies);
+    libraryDependencies.clear();
+    assertThat(library.getLibraryDependencies().size(), is(1));
+  }
+
   @Test
   public void testRecommendationDefaultsToOptional() {
     Library library = new Library("a");
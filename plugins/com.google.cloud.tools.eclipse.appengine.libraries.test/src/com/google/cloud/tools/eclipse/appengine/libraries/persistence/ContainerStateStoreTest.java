@@ -0,0 +1,231 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.LibraryClasspathContainer;
+import com.google.cloud.tools.eclipse.appengine.libraries.repository.AccessRules;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IAccessRule;
+import org.eclipse.jdt.core.IClasspathAttribute;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.JavaCore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ContainerStateStoreTest {
+
+  private static final IPath BASE_LOCATION = new Path("/repository");
+  private static final IPath CONTAINER_PATH = new Path("container/library");
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final LibraryClasspathContainer container = new LibraryClasspathContainer(
+      CONTAINER_PATH, "Library",
+      new IClasspathEntry[] {
+          JavaCore.newLibraryEntry(new Path("/repository/group/artifact.jar"),
+                                   new Path("/repository/group/artifact-sources.jar"),
+                                   null,
+                                   new IAccessRule[] {
+                                       JavaCore.newAccessRule(new Path("com/example/**"),
+                                                              IAccessRule.K_ACCESSIBLE) },
+                                   new IClasspathAttribute[] {
+                                       JavaCore.newClasspathAttribute("name", "value") },
+                                   true) });
+
+  @Test
+  public void testGet_unknownContainer() throws IOException {
+    ContainerStateStore store = ContainerStateStore.empty();
+    assertNull(store.get("project", CONTAINER_PATH, null /* stateFile */, BASE_LOCATION));
+    assertFalse(store.isDirty());
+  }
+
+  @Test
+  public void testPut() throws IOException {
+    ContainerStateStore store = ContainerStateStore.empty();
+    store.put("project", container, null /* stateFile */, BASE_LOCATION);
+    assertTrue(store.isDirty());
+    assertContainer(store.get("project", CONTAINER_PATH, null /* stateFile */, BASE_LOCATION));
+    assertNull(store.get("other", CONTAINER_PATH, null /* stateFile */, BASE_LOCATION));
+  }
+
+  @Test
+  public void testGet_changedStateFile() throws IOException {
+    File stateFile = temporaryFolder.newFile();
+    ContainerStateStore store = ContainerStateStore.empty();
+    store.put("project", container, stateFile, BASE_LOCATION);
+    assertContainer(store.get("project", CONTAINER_PATH, stateFile, BASE_LOCATION));
+
+    Files.write(stateFile.toPath(), new byte[] {1, 2, 3});
+    assertNull(store.get("project", CONTAINER_PATH, stateFile, BASE_LOCATION));
+  }
+
+  @Test
+  public void testGet_touchedStateFile() throws IOException {
+    File stateFile = temporaryFolder.newFile();
+    ContainerStateStore store = ContainerStateStore.empty();
+    store.put("project", container, stateFile, BASE_LOCATION);
+
+    assertTrue(stateFile.setLastModified(stateFile.lastModified() + 10000));
+    assertNull(store.get("project", CONTAINER_PATH, stateFile, BASE_LOCATION));
+  }
+
+  @Test
+  public void testGet_deletedStateFile() throws IOException {
+    File stateFile = temporaryFolder.newFile();
+    ContainerStateStore store = ContainerStateStore.empty();
+    store.put("project", container, stateFile, BASE_LOCATION);
+
+    assertTrue(stateFile.delete());
+    assertNull(store.get("project", CONTAINER_PATH, null /* stateFile */, BASE_LOCATION));
+  }
+
+  @Test
+  public void testSaveAndLoad_keepsStateFileStamp() throws IOException {
+    File stateFile = temporaryFolder.newFile();
+    ContainerStateStore store = ContainerStateStore.empty();
+    store.put("project", container, stateFile, BASE_LOCATION);
+    java.nio.file.Path file = temporaryFolder.getRoot().toPath().resolve("containers-1");
+    store.save(file);
+
+    ContainerStateStore loaded = ContainerStateStore.load(file);
+    assertContainer(loaded.get("project", CONTAINER_PATH, stateFile, BASE_LOCATION));
+    assertTrue(stateFile.setLastModified(stateFile.lastModified() + 10000));
+    assertNull(loaded.get("project", CONTAINER_PATH, stateFile, BASE_LOCATION));
+  }
+
+  @Test
+  public void testPut_changedStateFileIsDirty() throws IOException {
+    File stateFile = temporaryFolder.newFile();
+    ContainerStateStore store = ContainerStateStore.empty();
+    store.put("project", container, stateFile, BASE_LOCATION);
+    java.nio.file.Path file = temporaryFolder.getRoot().toPath().resolve("containers-1");
+    store.save(file);
+
+    ContainerStateStore loaded = ContainerStateStore.load(file);
+    assertTrue(stateFile.setLastModified(stateFile.lastModified() + 10000));
+    loaded.put("project", container, stateFile, BASE_LOCATION);
+    assertTrue(loaded.isDirty());
+  }
+
+  @Test
+  public void testRetainProjects() throws IOException {
+    ContainerStateStore store = ContainerStateStore.empty();
+    store.put("project", container, null /* stateFile */, BASE_LOCATION);
+    store.put("deleted", container, null /* stateFile */, BASE_LOCATION);
+    store.retainProjects(Collections.singleton("project"));
+    assertContainer(store.get("project", CONTAINER_PATH, null /* stateFile */, BASE_LOCATION));
+    assertNull(store.get("deleted", CONTAINER_PATH, null /* stateFile */, BASE_LOCATION));
+  }
+
+  @Test
+  public void testSaveAndLoad() throws IOException {
+    ContainerStateStore store = ContainerStateStore.empty();
+    store.put("project", container, null /* stateFile */, BASE_LOCATION);
+    java.nio.file.Path file = temporaryFolder.getRoot().toPath().resolve("containers-1");
+    store.save(file);
+    assertFalse(store.isDirty());
+
+    ContainerStateStore loaded = ContainerStateStore.load(file);
+    assertFalse(loaded.isDirty());
+    assertContainer(loaded.get("project", CONTAINER_PATH, null /* stateFile */, BASE_LOCATION));
+  }
+
+  @Test
+  public void testLoad_sharesAccessRules() throws IOException {
+    ContainerStateStore store = ContainerStateStore.empty();
+    store.put("project", container, null /* stateFile */, BASE_LOCATION);
+    java.nio.file.Path file = temporaryFolder.getRoot().toPath().resolve("containers-1");
+    store.save(file);
+
+    ContainerStateStore loaded = ContainerStateStore.load(file);
+    IAccessRule[] accessRules = AccessRules.intern(container.getClasspathEntries()[0].getAccessRules());
+    IClasspathEntry entry =
+        loaded.get("project", CONTAINER_PATH, null /* stateFile */, BASE_LOCATION).getClasspathEntries()[0];
+    assertSame(accessRules[0], entry.getAccessRules()[0]);
+  }
+
+  @Test
+  public void testSave_copiesLoadedContainers() throws IOException {
+    ContainerStateStore store = ContainerStateStore.empty();
+    store.put("project", container, null /* stateFile */, BASE_LOCATION);
+    java.nio.file.Path file1 = temporaryFolder.getRoot().toPath().resolve("containers-1");
+    store.save(file1);
+
+    ContainerStateStore loaded = ContainerStateStore.load(file1);
+    loaded.put("other", container, null /* stateFile */, BASE_LOCATION);
+    java.nio.file.Path file2 = temporaryFolder.getRoot().toPath().resolve("containers-2");
+    loaded.save(file2);
+
+    ContainerStateStore reloaded = ContainerStateStore.load(file2);
+    assertContainer(reloaded.get("project", CONTAINER_PATH, null /* stateFile */, BASE_LOCATION));
+    assertContainer(reloaded.get("other", CONTAINER_PATH, null /* stateFile */, BASE_LOCATION));
+  }
+
+  @Test
+  public void testPut_sameContainerIsNotDirty() throws IOException {
+    ContainerStateStore store = ContainerStateStore.empty();
+    store.put("project", container, null /* stateFile */, BASE_LOCATION);
+    java.nio.file.Path file = temporaryFolder.getRoot().toPath().resolve("containers-1");
+    store.save(file);
+
+    ContainerStateStore loaded = ContainerStateStore.load(file);
+    loaded.put("project", container, null /* stateFile */, BASE_LOCATION);
+    assertFalse(loaded.isDirty());
+  }
+
+  @Test
+  public void testLoad_missingFile() throws IOException {
+    ContainerStateStore store =
+        ContainerStateStore.load(temporaryFolder.getRoot().toPath().resolve("containers-1"));
+    assertNull(store.get("project", CONTAINER_PATH, null /* stateFile */, BASE_LOCATION));
+  }
+
+  @Test
+  public void testLoad_otherFormat() throws IOException {
+    java.nio.file.Path file = temporaryFolder.newFile().toPath();
+    Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+    ContainerStateStore store = ContainerStateStore.load(file);
+    assertNull(store.get("project", CONTAINER_PATH, null /* stateFile */, BASE_LOCATION));
+  }
+
+  private static void assertContainer(LibraryClasspathContainer loaded) {
+    assertEquals(CONTAINER_PATH, loaded.getPath());
+    assertEquals("Library", loaded.getDescription());
+    assertEquals(1, loaded.getClasspathEntries().length);
+    IClasspathEntry entry = loaded.getClasspathEntries()[0];
+    assertEquals(new Path("/repository/group/artifact.jar"), entry.getPath());
+    assertEquals(new Path("/repository/group/artifact-sources.jar"), entry.getSourceAttachmentPath());
+    assertEquals(1, entry.getAccessRules().length);
+    assertEquals(IAccessRule.K_ACCESSIBLE, entry.getAccessRules()[0].getKind());
+    assertEquals(new Path("com/example/**"), entry.getAccessRules()[0].getPattern());
+    assertEquals(1, entry.getExtraAttributes().length);
+    assertEquals("name", entry.getExtraAttributes()[0].getName());
+    assertEquals("value", entry.getExtraAttributes()[0].getValue());
+  }
+}
@@ -16,6 +16,7 @@
 
 package com.google.cloud.tools.eclipse.appengine.libraries.persistence;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.any;
@@ -26,9 +27,11 @@ import com.google.cloud.tools.eclipse.appengine.libraries.LibraryClasspathContai
 import com.google.cloud.tools.eclipse.appengine.libraries.persistence.LibraryClasspathContainerSerializer.ArtifactBaseLocationProvider;
 import com.google.cloud.tools.eclipse.appengine.libraries.persistence.LibraryClasspathContainerSerializer.LibraryContainerStateLocationProvider;
 import com.google.common.base.Charsets;
-import com.google.gson.JsonParser;
-import java.io.FileReader;
+import java.io.DataInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
 import org.eclipse.core.runtime.CoreException;
@@ -122,7 +125,7 @@ public class LibraryClasspathContainerSerializerTest {
   }
 
   @Test
-  public void testLoadContainer() throws IOException, CoreException {
+  public void testLoadContainer_legacyJsonFormat() throws IOException, CoreException {
     Path stateFilePath = new Path(stateFolder.newFile().getAbsolutePath());
     when(stateLocationProvider.getContainerStateFile(any(IJavaProject.class), any(IPath.class), anyBoolean()))
       .thenReturn(stateFilePath);
@@ -145,9 +148,118 @@ public class LibraryClasspathContainerSerializerTest {
         new LibraryClasspathContainerSerializer(stateLocationProvider,
                                                 artifactBaseLocationProvider);
     serializer.saveContainer(javaProject, container);
-    // use JsonObject.equals()
-    assertEquals(new JsonParser().parse(SERIALIZED_CONTAINER),
-                 new JsonParser().parse(new FileReader(stateFilePath.toFile())));
+    try (InputStream inputStream = Files.newInputStream(stateFilePath.toFile().toPath());
+        DataInputStream input = new DataInputStream(inputStream)) {
+      assertEquals(ContainerStateFormat.MAGIC, input.readInt());
+      assertEquals(ContainerStateFormat.FORMAT_VERSION, input.readInt());
+    }
+  }
+
+  @Test
+  public void testSaveContainer_noTemporaryFileLeft() throws CoreException, IOException {
+    Path stateFilePath = new Path(stateFolder.newFile().getAbsolutePath());
+    when(stateLocationProvider.getContainerStateFile(any(IJavaProject.class), any(IPath.class), anyBoolean()))
+      .thenReturn(stateFilePath);
+    LibraryClasspathContainerSerializer serializer =
+        new LibraryClasspathContainerSerializer(stateLocationProvider,
+                                                artifactBaseLocationProvider);
+    serializer.saveContainer(javaProject, container);
+    serializer.saveContainer(javaProject, container);
+    assertArrayEquals(new String[] { stateFilePath.lastSegment() }, stateFolder.getRoot().list());
+  }
+
+  @Test
+  public void testLoadContainer_emptyFile() throws IOException, CoreException {
+    Path stateFilePath = new Path(stateFolder.newFile().getAbsolutePath());
+    when(stateLocationProvider.getContainerStateFile(any(IJavaProject.class), any(IPath.class), anyBoolean()))
+      .thenReturn(stateFilePath);
+    LibraryClasspathContainerSerializer serializer =
+        new LibraryClasspathContainerSerializer(stateLocationProvider,
+                                                artifactBaseLocationProvider);
+    assertNull(serializer.loadContainer(javaProject, new Path(CONTAINER_PATH)));
+  }
+
+  @Test
+  public void testLoadContainer_unknownFormatVersion() throws IOException, CoreException {
+    Path stateFilePath = new Path(stateFolder.newFile().getAbsolutePath());
+    when(stateLocationProvider.getContainerStateFile(any(IJavaProject.class), any(IPath.class), anyBoolean()))
+      .thenReturn(stateFilePath);
+    ByteBuffer header = ByteBuffer.allocate(8);
+    header.putInt(ContainerStateFormat.MAGIC).putInt(ContainerStateFormat.FORMAT_VERSION + 1);
+    Files.write(stateFilePath.toFile().toPath(), header.array(), StandardOpenOption.TRUNCATE_EXISTING);
+    LibraryClasspathContainerSerializer serializer =
+        new LibraryClasspathContainerSerializer(stateLocationProvider,
+                                                artifactBaseLocationProvider);
+    assertNull(serializer.loadContainer(javaProject, new Path(CONTAINER_PATH)));
+  }
+
+  @Test
+  public void testLoadContainer_fromWorkspaceStore() throws CoreException, IOException {
+    Path stateFilePath = new Path(stateFolder.newFile().getAbsolutePath());
+    when(stateLocationProvider.getContainerStateFile(any(IJavaProject.class), any(IPath.class), anyBoolean()))
+      .thenReturn(stateFilePath);
+    when(javaProject.getElementName()).thenReturn("project");
+    ContainerStateStore store = ContainerStateStore.empty();
+    LibraryClasspathContainerSerializer serializer =
+        new LibraryClasspathContainerSerializer(stateLocationProvider, artifactBaseLocationProvider, store);
+    serializer.saveContainer(javaProject, container);
+    // the store answers as long as the state file is unchanged
+    store.put("project", otherContainer(), stateFilePath.toFile(), new Path("/test"));
+
+    assertEquals("Other container", serializer.loadContainer(javaProject, new Path(CONTAINER_PATH)).getDescription());
+  }
+
+  @Test
+  public void testLoadContainer_changedStateFileIsReadAgain() throws CoreException, IOException {
+    Path stateFilePath = new Path(stateFolder.newFile().getAbsolutePath());
+    when(stateLocationProvider.getContainerStateFile(any(IJavaProject.class), any(IPath.class), anyBoolean()))
+      .thenReturn(stateFilePath);
+    when(javaProject.getElementName()).thenReturn("project");
+    ContainerStateStore store = ContainerStateStore.empty();
+    store.put("project", otherContainer(), stateFilePath.toFile(), new Path("/test"));
+    // e.g. the project was updated from version control
+    File stateFile = stateFilePath.toFile();
+    Files.write(stateFile.toPath(),
+                SERIALIZED_CONTAINER.getBytes(Charsets.UTF_8),
+                StandardOpenOption.TRUNCATE_EXISTING);
+    stateFile.setLastModified(stateFile.lastModified() + 10000);
+
+    LibraryClasspathContainerSerializer serializer =
+        new LibraryClasspathContainerSerializer(stateLocationProvider, artifactBaseLocationProvider, store);
+    compare(container, serializer.loadContainer(javaProject, new Path(CONTAINER_PATH)));
+    compare(container, store.get("project", new Path(CONTAINER_PATH), stateFile, new Path("/test")));
+  }
+
+  @Test
+  public void testLoadContainer_deletedStateFileIsNotReadFromWorkspaceStore() throws CoreException, IOException {
+    Path stateFilePath = new Path(stateFolder.newFile().getAbsolutePath());
+    when(stateLocationProvider.getContainerStateFile(any(IJavaProject.class), any(IPath.class), anyBoolean()))
+      .thenReturn(stateFilePath);
+    when(javaProject.getElementName()).thenReturn("project");
+    ContainerStateStore store = ContainerStateStore.empty();
+    LibraryClasspathContainerSerializer serializer =
+        new LibraryClasspathContainerSerializer(stateLocationProvider, artifactBaseLocationProvider, store);
+    serializer.saveContainer(javaProject, container);
+    Files.delete(stateFilePath.toFile().toPath());
+
+    assertNull(serializer.loadContainer(javaProject, new Path(CONTAINER_PATH)));
+  }
+
+  @Test
+  public void testLoadContainer_stateFileAddedToWorkspaceStore() throws CoreException, IOException {
+    Path stateFilePath = new Path(stateFolder.newFile().getAbsolutePath());
+    when(stateLocationProvider.getContainerStateFile(any(IJavaProject.class), any(IPath.class), anyBoolean()))
+      .thenReturn(stateFilePath);
+    when(javaProject.getElementName()).thenReturn("project");
+    Files.write(stateFilePath.toFile().toPath(),
+                SERIALIZED_CONTAINER.getBytes(Charsets.UTF_8),
+                StandardOpenOption.TRUNCATE_EXISTING);
+    ContainerStateStore store = ContainerStateStore.empty();
+    LibraryClasspathContainerSerializer serializer =
+        new LibraryClasspathContainerSerializer(stateLocationProvider, artifactBaseLocationProvider, store);
+    serializer.loadContainer(javaProject, new Path(CONTAINER_PATH));
+
+    compare(container, store.get("project", new Path(CONTAINER_PATH), stateFilePath.toFile(), new Path("/test")));
   }
 
   @Test
@@ -166,6 +278,10 @@ public class LibraryClasspathContainerSerializerTest {
     assertNull(serializer.loadContainer(javaProject, new Path(CONTAINER_PATH)));
   }
 
+  private static LibraryClasspathContainer otherContainer() {
+    return new LibraryClasspathContainer(new Path(CONTAINER_PATH), "Other container", new IClasspathEntry[0]);
+  }
+
   private void compare(LibraryClasspathContainer container, LibraryClasspathContainer otherContainer) {
     assertEquals(container.getPath(), otherContainer.getPath());
     assertEquals(container.getKind(), otherContainer.getKind());
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.repository;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.model.Filter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IAccessRule;
+import org.eclipse.jdt.core.JavaCore;
+import org.junit.Test;
+
+public class AccessRulesTest {
+
+  @Test
+  public void testFromFilters() {
+    IAccessRule[] accessRules = AccessRules.fromFilters(Arrays.asList(Filter.exclusionFilter("com/example/impl/**"),
+                                                                      Filter.inclusionFilter("com/example/**")));
+
+    assertThat(accessRules.length, is(2));
+    assertThat(accessRules[0].getKind(), is(IAccessRule.K_NON_ACCESSIBLE));
+    assertThat(accessRules[0].getPattern().toString(), is("com/example/impl/**"));
+    assertThat(accessRules[1].getKind(), is(IAccessRule.K_ACCESSIBLE));
+    assertThat(accessRules[1].getPattern().toString(), is("com/example/**"));
+  }
+
+  @Test
+  public void testFromFilters_noFilters() {
+    assertThat(AccessRules.fromFilters(Collections.<Filter>emptyList()).length, is(0));
+  }
+
+  @Test
+  public void testFromFilters_sameFiltersShareTable() {
+    assertThat(AccessRules.fromFilters(filters()), sameInstance(AccessRules.fromFilters(filters())));
+  }
+
+  @Test
+  public void testFromFilters_sameRuleIsShared() {
+    IAccessRule[] accessRules = AccessRules.fromFilters(filters());
+    IAccessRule[] otherAccessRules =
+        AccessRules.fromFilters(Collections.singletonList(Filter.inclusionFilter("com/example/**")));
+
+    assertThat(otherAccessRules[0], sameInstance(accessRules[1]));
+  }
+
+  @Test
+  public void testFromFilters_repeatedPatternIsLeftOut() {
+    IAccessRule[] accessRules = AccessRules.fromFilters(Arrays.asList(Filter.exclusionFilter("com/example/**"),
+                                                                      Filter.inclusionFilter("com/example/**")));
+
+    assertThat(accessRules.length, is(1));
+    assertThat(accessRules[0].getKind(), is(IAccessRule.K_NON_ACCESSIBLE));
+  }
+
+  @Test
+  public void testFromFilters_rulesAfterMatchAllAreLeftOut() {
+    IAccessRule[] accessRules = AccessRules.fromFilters(Arrays.asList(Filter.inclusionFilter("com/example/**"),
+                                                                      Filter.exclusionFilter("**"),
+                                                                      Filter.inclusionFilter("org/example/**")));
+
+    assertThat(accessRules.length, is(2));
+    assertThat(accessRules[1].getPattern().toString(), is("**"));
+  }
+
+  @Test
+  public void testIntern() {
+    IAccessRule[] accessRules = new IAccessRule[] {
+        JavaCore.newAccessRule(new Path("com/example/impl/**"), IAccessRule.K_NON_ACCESSIBLE),
+        JavaCore.newAccessRule(new Path("com/example/**"), IAccessRule.K_ACCESSIBLE)};
+
+    assertThat(AccessRules.intern(accessRules), sameInstance(AccessRules.fromFilters(filters())));
+  }
+
+  @Test
+  public void testIntern_keepsIgnoreIfBetter() {
+    IAccessRule rule = JavaCore.newAccessRule(new Path("com/example/**"),
+                                              IAccessRule.K_DISCOURAGED | IAccessRule.IGNORE_IF_BETTER);
+    IAccessRule otherRule = JavaCore.newAccessRule(new Path("com/example/**"), IAccessRule.K_DISCOURAGED);
+
+    IAccessRule interned = AccessRules.intern(new IAccessRule[] {rule})[0];
+    assertTrue(interned.ignoreIfBetter());
+    assertThat(interned.getKind(), is(IAccessRule.K_DISCOURAGED));
+    assertFalse(AccessRules.intern(new IAccessRule[] {otherRule})[0].ignoreIfBetter());
+  }
+
+  @Test
+  public void testIsAccessible() {
+    IAccessRule[] accessRules = AccessRules.fromFilters(filters());
+
+    assertTrue(AccessRules.isAccessible(accessRules, "com/example/Api"));
+    assertTrue(AccessRules.isAccessible(accessRules, "com/example/sub/Api"));
+    assertFalse(AccessRules.isAccessible(accessRules, "com/example/impl/Implementation"));
+  }
+
+  @Test
+  public void testIsAccessible_noMatchingRule() {
+    assertTrue(AccessRules.isAccessible(AccessRules.fromFilters(filters()), "org/example/Api"));
+  }
+
+  private static List<Filter> filters() {
+    return Arrays.asList(Filter.exclusionFilter("com/example/impl/**"), Filter.inclusionFilter("com/example/**"));
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.repository;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DownloadCacheTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path cacheDirectory;
+  private DownloadCache cache;
+
+  @Before
+  public void setUp() throws IOException {
+    cacheDirectory = temporaryFolder.getRoot().toPath().resolve("cache");
+    cache = new DownloadCache(cacheDirectory);
+  }
+
+  @Test
+  public void testGetCachedFile_notDownloaded() throws IOException {
+    assertNull(cache.getCachedFile(temporaryFolder.newFile("remote.jar").toURI()));
+  }
+
+  @Test
+  public void testDownload() throws IOException {
+    URI uri = createRemoteFile("remote", "content");
+
+    Path file = cache.download(uri);
+
+    assertThat(file.getParent(), is(cacheDirectory));
+    assertTrue(file.getFileName().toString().endsWith("-remote-sources.jar"));
+    assertThat(Files.readAllLines(file, StandardCharsets.UTF_8), is(Collections.singletonList("content")));
+    assertThat(cache.getCachedFile(uri), is(file));
+  }
+
+  @Test
+  public void testDownload_cachedFileIsNotDownloadedAgain() throws IOException {
+    URI uri = createRemoteFile("remote", "content");
+    Path file = cache.download(uri);
+    Files.delete(new File(uri).toPath());
+
+    assertThat(cache.download(uri), is(file));
+  }
+
+  @Test
+  public void testDownload_differentUrisWithSameName() throws IOException {
+    URI first = createRemoteFile("first", "first content");
+    URI second = createRemoteFile("second", "second content");
+
+    assertFalse(cache.download(first).equals(cache.download(second)));
+  }
+
+  @Test(expected = IOException.class)
+  public void testDownload_missingFile() throws IOException {
+    cache.download(new File(temporaryFolder.getRoot(), "missing.jar").toURI());
+  }
+
+  @Test
+  public void testDownload_failureLeavesNoFile() throws IOException {
+    URI uri = new File(temporaryFolder.getRoot(), "missing.jar").toURI();
+    try {
+      cache.download(uri);
+    } catch (IOException ex) {
+      // expected
+    }
+
+    assertNull(cache.getCachedFile(uri));
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDirectory)) {
+      assertFalse(files.iterator().hasNext());
+    }
+  }
+
+  private URI createRemoteFile(String directory, String content) throws IOException {
+    File file = new File(temporaryFolder.newFolder(directory), "remote-sources.jar");
+    Files.write(file.toPath(), Collections.singletonList(content), StandardCharsets.UTF_8);
+    return file.toURI();
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.repository;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.model.Filter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FilterPreviewTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path jar;
+
+  @Before
+  public void setUp() throws IOException {
+    jar = temporaryFolder.getRoot().toPath().resolve("library.jar");
+    try (ZipOutputStream output = new ZipOutputStream(Files.newOutputStream(jar))) {
+      for (String name : Arrays.asList("META-INF/MANIFEST.MF",
+                                       "com/example/Api.class",
+                                       "com/example/Api$Inner.class",
+                                       "com/example/impl/Implementation.class",
+                                       "com/example/mixed/Public.class",
+                                       "com/example/mixed/Internal.class",
+                                       "Default.class")) {
+        output.putNextEntry(new ZipEntry(name));
+        output.closeEntry();
+      }
+    }
+  }
+
+  @Test
+  public void testCreate_noFilters() throws IOException {
+    FilterPreview preview = FilterPreview.create(jar, Collections.<Filter>emptyList());
+
+    assertThat(preview.getExposedPackages(),
+               is(set("", "com.example", "com.example.impl", "com.example.mixed")));
+    assertTrue(preview.getHiddenPackages().isEmpty());
+  }
+
+  @Test
+  public void testCreate() throws IOException {
+    FilterPreview preview = FilterPreview.create(jar, Arrays.asList(
+        Filter.exclusionFilter("com/example/impl/**"),
+        Filter.exclusionFilter("com/example/mixed/Internal"),
+        Filter.inclusionFilter("com/example/**"),
+        Filter.exclusionFilter("**")));
+
+    assertThat(preview.getExposedPackages(), is(set("com.example", "com.example.mixed")));
+    assertThat(preview.getHiddenPackages(), is(set("", "com.example.impl")));
+  }
+
+  @Test(expected = IOException.class)
+  public void testCreate_notAJar() throws IOException {
+    Path file = temporaryFolder.newFile("library.txt").toPath();
+    try (OutputStream output = Files.newOutputStream(file)) {
+      output.write("not a jar".getBytes("UTF-8"));
+    }
+    FilterPreview.create(file, Collections.<Filter>emptyList());
+  }
+
+  private static TreeSet<String> set(String... packageNames) {
+    return new TreeSet<>(Arrays.asList(packageNames));
+  }
+}
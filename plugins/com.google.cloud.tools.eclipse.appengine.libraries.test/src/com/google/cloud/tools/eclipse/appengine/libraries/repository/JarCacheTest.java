@@ -0,0 +1,246 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.repository;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JarCacheTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path cacheDirectory;
+  private JarCache cache;
+
+  @Before
+  public void setUp() {
+    cacheDirectory = temporaryFolder.getRoot().toPath().resolve("cache");
+    cache = new JarCache(cacheDirectory);
+  }
+
+  @Test
+  public void testStore_verifiedAgainstSha1File() throws Exception {
+    Path jar = createJar("repository", "library.jar", "content");
+    writeSha1File(jar, sha1("content"));
+
+    Path file = cache.store(jar);
+
+    assertThat(file, is(cacheDirectory.resolve(sha1("content").substring(0, 2)).resolve(sha1("content"))
+        .resolve("library.jar")));
+    assertThat(Files.readAllLines(file, StandardCharsets.UTF_8), is(Collections.singletonList("content")));
+  }
+
+  @Test
+  public void testStore_sha1FileWithFileName() throws Exception {
+    Path jar = createJar("repository", "library.jar", "content");
+    writeSha1File(jar, sha1("content").toUpperCase() + "  library.jar");
+
+    assertThat(cache.store(jar).getParent().getFileName().toString(), is(sha1("content")));
+  }
+
+  @Test
+  public void testStore_withoutSha1File() throws Exception {
+    Path jar = createJar("repository", "library.jar", "content");
+
+    assertThat(cache.store(jar).getParent().getFileName().toString(), is(sha1("content")));
+  }
+
+  @Test
+  public void testStore_checksumMismatch() throws Exception {
+    Path jar = createJar("repository", "library.jar", "corrupt content");
+    writeSha1File(jar, sha1("content"));
+
+    try {
+      cache.store(jar);
+      fail();
+    } catch (LibraryRepositoryServiceException ex) {
+      assertFalse(Files.exists(cacheDirectory.resolve(sha1("content").substring(0, 2))));
+    }
+  }
+
+  @Test
+  public void testStore_sameContentIsStoredOnce() throws Exception {
+    Path jar = createJar("first", "library.jar", "content");
+    Path otherJar = createJar("second", "library.jar", "content");
+
+    assertThat(cache.store(otherJar), is(cache.store(jar)));
+  }
+
+  @Test
+  public void testStore_knownDigestIsNotComputedAgain() throws Exception {
+    Path jar = createJar("repository", "library.jar", "content");
+    writeSha1File(jar, sha1("content"));
+    Path file = cache.store(jar);
+    // the digest of the sha1 file is enough to find the jar, once it has been verified
+    replaceJar(jar, "changed content");
+
+    assertThat(new JarCache(cacheDirectory).store(jar), is(file));
+  }
+
+  @Test
+  public void testStore_changedJarIsStoredAgain() throws Exception {
+    Path jar = createJar("repository", "library.jar", "content");
+    Path file = cache.store(jar);
+    replaceJar(jar, "new content");
+
+    Path newFile = cache.store(jar);
+
+    assertThat(newFile.getParent().getFileName().toString(), is(sha1("new content")));
+    assertThat(Files.readAllLines(file, StandardCharsets.UTF_8), is(Collections.singletonList("content")));
+  }
+
+  @Test
+  public void testStore_jarOverwrittenInPlaceKeepsCachedContent() throws Exception {
+    Path jar = createJar("repository", "library.jar", "content");
+    Path file = cache.store(jar);
+    // unlike Maven, which writes a new file, e.g. a build that writes to the local repository
+    Files.write(jar, Collections.singletonList("overwritten content"), StandardCharsets.UTF_8);
+
+    assertThat(Files.readAllLines(file, StandardCharsets.UTF_8), is(Collections.singletonList("content")));
+  }
+
+  @Test
+  public void testEvictUnused_deletesJarsUnusedForTimeToLive() throws Exception {
+    Path file = cache.store(createJar("repository", "library.jar", "content"));
+    setLastUsed(file, TimeUnit.DAYS.toMillis(JarCache.DEFAULT_TIME_TO_LIVE_DAYS + 1));
+
+    cache.evictUnused();
+
+    assertFalse(Files.exists(file.getParent()));
+    assertFalse(Files.exists(file.getParent().getParent()));
+  }
+
+  @Test
+  public void testEvictUnused_keepsRecentlyUsedJars() throws Exception {
+    Path file = cache.store(createJar("repository", "library.jar", "content"));
+    Path unusedFile = cache.store(createJar("unused", "library.jar", "unused content"));
+    setLastUsed(unusedFile, TimeUnit.DAYS.toMillis(2));
+    cache.setTimeToLive(1, TimeUnit.DAYS);
+
+    cache.evictUnused();
+
+    assertTrue(Files.exists(file));
+    assertFalse(Files.exists(unusedFile));
+  }
+
+  @Test
+  public void testStore_marksStoredJarAsUsed() throws Exception {
+    Path jar = createJar("repository", "library.jar", "content");
+    writeSha1File(jar, sha1("content"));
+    Path file = cache.store(jar);
+    setLastUsed(file, TimeUnit.DAYS.toMillis(JarCache.DEFAULT_TIME_TO_LIVE_DAYS + 1));
+
+    // e.g. another workspace using the same jar
+    assertThat(new JarCache(cacheDirectory).store(jar), is(file));
+    cache.evictUnused();
+
+    assertTrue(Files.exists(file));
+  }
+
+  @Test
+  public void testStore_jarLookedUpAgainIsMarkedAsUsed() throws Exception {
+    Path jar = createJar("repository", "library.jar", "content");
+    // marks the jar again on every use
+    cache.setTimeToLive(1, TimeUnit.MILLISECONDS);
+    Path file = cache.store(jar);
+    setLastUsed(file, TimeUnit.DAYS.toMillis(2));
+
+    assertThat(cache.store(jar), is(file));
+    cache.setTimeToLive(1, TimeUnit.DAYS);
+    cache.evictUnused();
+
+    assertTrue(Files.exists(file));
+  }
+
+  @Test
+  public void testMarkUsed_keepsJarOfInstalledContainer() throws Exception {
+    Path file = cache.store(createJar("repository", "library.jar", "content"));
+    setLastUsed(file, TimeUnit.DAYS.toMillis(JarCache.DEFAULT_TIME_TO_LIVE_DAYS + 1));
+
+    // e.g. a workspace that installs a persisted container referring to the jar
+    new JarCache(cacheDirectory).markUsed(file);
+    cache.evictUnused();
+
+    assertTrue(Files.exists(file));
+  }
+
+  @Test
+  public void testMarkUsed_ignoresFileOutsideCache() throws Exception {
+    Path jar = createJar("repository", "library.jar", "content");
+    setLastUsed(jar, TimeUnit.DAYS.toMillis(1));
+    FileTime lastModified = Files.getLastModifiedTime(jar.getParent());
+
+    cache.markUsed(jar);
+
+    assertThat(Files.getLastModifiedTime(jar.getParent()), is(lastModified));
+  }
+
+  @Test
+  public void testEvictUnused_missingDirectory() throws Exception {
+    cache.evictUnused();
+
+    assertFalse(Files.exists(cacheDirectory));
+  }
+
+  @Test(expected = IOException.class)
+  public void testStore_missingJar() throws Exception {
+    cache.store(temporaryFolder.getRoot().toPath().resolve("missing.jar"));
+  }
+
+  private Path createJar(String directory, String name, String content) throws IOException {
+    Path jar = temporaryFolder.newFolder(directory).toPath().resolve(name);
+    Files.write(jar, Collections.singletonList(content), StandardCharsets.UTF_8);
+    return jar;
+  }
+
+  // like Maven, which writes a new file rather than overwriting the existing one
+  private static void replaceJar(Path jar, String content) throws IOException {
+    Path temporaryFile = jar.resolveSibling("library.jar.tmp");
+    Files.write(temporaryFile, Collections.singletonList(content), StandardCharsets.UTF_8);
+    Files.move(temporaryFile, jar, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private static void setLastUsed(Path file, long millisAgo) throws IOException {
+    Files.setLastModifiedTime(file.getParent(), FileTime.fromMillis(System.currentTimeMillis() - millisAgo));
+  }
+
+  private static void writeSha1File(Path jar, String content) throws IOException {
+    Files.write(jar.resolveSibling(jar.getFileName() + ".sha1"), content.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  private static String sha1(String line) {
+    // the jars of these tests are written as a single line
+    return Hashing.sha1().hashString(line + System.lineSeparator(), StandardCharsets.UTF_8).toString();
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.repository;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.model.MavenCoordinates;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LatestVersionCacheTest {
+
+  @Rule
+  public TemporaryFolder stateLocation = new TemporaryFolder();
+
+  @Mock private LatestVersionCache.VersionResolver resolver;
+
+  private LatestVersionCache cache;
+  private final MavenCoordinates coordinates = new MavenCoordinates("groupId", "artifactId");
+
+  @Before
+  public void setUp() {
+    cache = new LatestVersionCache(resolver);
+  }
+
+  @Test
+  public void testGet_notResolvedYet() {
+    assertNull(cache.get(coordinates));
+  }
+
+  @Test
+  public void testGet_resolvedVersion() throws Exception {
+    cache.put(coordinates, "1.0");
+    assertThat(cache.get(coordinates), is("1.0"));
+    verify(resolver, never()).resolveLatestVersion(any(MavenCoordinates.class));
+  }
+
+  @Test
+  public void testGet_otherArtifact() {
+    cache.put(coordinates, "1.0");
+    assertNull(cache.get(new MavenCoordinates("groupId", "otherArtifactId")));
+  }
+
+  @Test
+  public void testGet_expiredVersionIsReturnedAndRefreshed() throws Exception {
+    when(resolver.resolveLatestVersion(any(MavenCoordinates.class))).thenReturn("2.0");
+    cache.setTimeToLive(0, TimeUnit.HOURS);
+    cache.put(coordinates, "1.0");
+
+    assertThat(cache.get(coordinates), is("1.0"));
+    verify(resolver, timeout(5000)).resolveLatestVersion(coordinates);
+    for (int i = 0; i < 50 && !"2.0".equals(cache.get(coordinates)); i++) {
+      Thread.sleep(100);
+    }
+    cache.setTimeToLive(1, TimeUnit.HOURS);
+    assertThat(cache.get(coordinates), is("2.0"));
+  }
+
+  @Test
+  public void testLoad_restoresStoredVersions() throws Exception {
+    Path file = stateLocation.getRoot().toPath().resolve("latest-versions.properties");
+    cache.load(file);
+    cache.put(coordinates, "1.0");
+    cache.flush();
+
+    LatestVersionCache restored = new LatestVersionCache(resolver);
+    restored.load(file);
+    assertThat(restored.get(coordinates), is("1.0"));
+  }
+
+  @Test
+  public void testPut_storedAfterDelay() throws Exception {
+    Path file = stateLocation.getRoot().toPath().resolve("latest-versions.properties");
+    cache.load(file);
+    cache.put(coordinates, "1.0");
+
+    for (int i = 0; i < 50 && !Files.exists(file); i++) {
+      Thread.sleep(100);
+    }
+    LatestVersionCache restored = new LatestVersionCache(resolver);
+    restored.load(file);
+    assertThat(restored.get(coordinates), is("1.0"));
+  }
+
+  @Test
+  public void testFlush_storesVersionsPutTogether() throws Exception {
+    Path file = stateLocation.getRoot().toPath().resolve("latest-versions.properties");
+    MavenCoordinates otherCoordinates = new MavenCoordinates("groupId", "otherArtifactId");
+    cache.load(file);
+    cache.put(coordinates, "1.0");
+    cache.put(otherCoordinates, "2.0");
+    cache.flush();
+
+    LatestVersionCache restored = new LatestVersionCache(resolver);
+    restored.load(file);
+    assertThat(restored.get(coordinates), is("1.0"));
+    assertThat(restored.get(otherCoordinates), is("2.0"));
+    // only the file itself is left in the directory
+    assertThat(stateLocation.getRoot().list().length, is(1));
+  }
+
+  @Test
+  public void testFlush_unchangedVersionsAreNotStored() {
+    Path file = stateLocation.getRoot().toPath().resolve("latest-versions.properties");
+    cache.load(file);
+    cache.flush();
+    assertFalse(Files.exists(file));
+  }
+
+  @Test
+  public void testLoad_missingFile() {
+    cache.load(stateLocation.getRoot().toPath().resolve("missing.properties"));
+    assertNull(cache.get(coordinates));
+  }
+}
@@ -17,13 +17,20 @@
 package com.google.cloud.tools.eclipse.appengine.libraries.repository;
 
 import static org.hamcrest.CoreMatchers.allOf;
+import static org.hamcrest.CoreMatchers.endsWith;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.beans.HasPropertyWithValue.hasProperty;
 import static org.hamcrest.collection.IsArrayContaining.hasItemInArray;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFile;
@@ -32,14 +39,24 @@ import com.google.cloud.tools.eclipse.appengine.libraries.repository.M2Repositor
 import com.google.cloud.tools.eclipse.util.status.StatusUtil;
 import java.io.File;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.Path;
 import org.eclipse.jdt.core.IClasspathAttribute;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.JavaCore;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
@@ -50,6 +67,7 @@ public class M2RepositoryServiceTest {
 
   @Mock private MavenHelper mavenHelper;
   @Mock private MavenCoordinatesClasspathAttributesTransformer transformer;
+  @Rule public TemporaryFolder localRepository = new TemporaryFolder();
 
   private M2RepositoryService m2RepositoryService;
   
@@ -134,6 +152,256 @@ public class M2RepositoryServiceTest {
                                                             is("http://example.com/javadoc")))));
   }
 
+  @Test
+  public void getLibraryClasspathEntry_resolvesArtifactOnce() throws Exception {
+    M2RepositoryService m2RepositoryService = new M2RepositoryService();
+    m2RepositoryService.setMavenHelper(mavenHelper);
+    m2RepositoryService.setTransformer(transformer);
+    Artifact artifact = mock(Artifact.class);
+    when(artifact.getFile()).thenReturn(localRepository.newFile());
+    when(mavenHelper.resolveArtifact(any(IProgressMonitor.class),
+                                     any(MavenCoordinates.class),
+                                     anyListOf(ArtifactRepository.class))).thenReturn(artifact);
+    MavenCoordinates mavenCoordinates = new MavenCoordinates("groupId", "artifactId");
+    mavenCoordinates.setVersion("1.0");
+    m2RepositoryService.getLibraryClasspathEntry(new LibraryFile(mavenCoordinates));
+    m2RepositoryService.getLibraryClasspathEntry(new LibraryFile(mavenCoordinates));
+
+    verify(mavenHelper, times(1)).resolveArtifact(any(IProgressMonitor.class),
+                                                  any(MavenCoordinates.class),
+                                                  anyListOf(ArtifactRepository.class));
+    assertThat(m2RepositoryService.getCacheHitCount(), is(1L));
+    assertThat(m2RepositoryService.getCacheMissCount(), is(1L));
+  }
+
+  @Test
+  public void rebuildClasspathEntries_resolvesSharedArtifactOnce() throws Exception {
+    M2RepositoryService m2RepositoryService = new M2RepositoryService();
+    m2RepositoryService.setMavenHelper(mavenHelper);
+    m2RepositoryService.setTransformer(transformer);
+    MavenCoordinates mavenCoordinates = new MavenCoordinates("groupId", "artifactId");
+    when(transformer.createMavenCoordinates(any(IClasspathAttribute[].class))).thenReturn(mavenCoordinates);
+    Artifact artifact = mock(Artifact.class);
+    File jar = localRepository.newFile();
+    when(artifact.getFile()).thenReturn(jar);
+    when(artifact.getVersion()).thenReturn("1.0");
+    when(mavenHelper.resolveArtifact(any(IProgressMonitor.class),
+                                     any(MavenCoordinates.class),
+                                     anyListOf(ArtifactRepository.class))).thenReturn(artifact);
+    IClasspathEntry first = JavaCore.newLibraryEntry(new Path("/first/artifactId.jar"), null, null);
+    IClasspathEntry second = JavaCore.newLibraryEntry(new Path("/second/artifactId.jar"), null, null);
+
+    List<IClasspathEntry> rebuilt = m2RepositoryService.rebuildClasspathEntries(Arrays.asList(first, second));
+
+    assertThat(rebuilt.size(), is(2));
+    assertThat(rebuilt.get(0).getPath().toOSString(), is(jar.getAbsolutePath()));
+    assertThat(rebuilt.get(1).getPath().toOSString(), is(jar.getAbsolutePath()));
+    verify(mavenHelper, times(1)).resolveArtifact(any(IProgressMonitor.class),
+                                                  any(MavenCoordinates.class),
+                                                  anyListOf(ArtifactRepository.class));
+  }
+
+  @Test
+  public void getLibraryClasspathEntry_fixedVersionInLocalRepository() throws Exception {
+    M2RepositoryService m2RepositoryService = new M2RepositoryService();
+    m2RepositoryService.setMavenHelper(mavenHelper);
+    m2RepositoryService.setTransformer(transformer);
+    Artifact artifact = getMockArtifactWithJarPath();
+    MavenCoordinates mavenCoordinates = new MavenCoordinates("groupId", "artifactId");
+    mavenCoordinates.setVersion("1.0");
+    when(mavenHelper.findLocalArtifact(mavenCoordinates)).thenReturn(artifact);
+    IPath jarLocation = m2RepositoryService.getLibraryClasspathEntry(new LibraryFile(mavenCoordinates)).getPath();
+
+    assertThat(jarLocation.toOSString(), is(FAKE_PATH));
+    verify(mavenHelper, never()).resolveArtifact(any(IProgressMonitor.class),
+                                                 any(MavenCoordinates.class),
+                                                 anyListOf(ArtifactRepository.class));
+  }
+
+  @Test
+  public void getLibraryClasspathEntry_fixedVersionNotInLocalRepository() throws Exception {
+    M2RepositoryService m2RepositoryService = new M2RepositoryService();
+    m2RepositoryService.setMavenHelper(mavenHelper);
+    m2RepositoryService.setTransformer(transformer);
+    Artifact artifact = getMockArtifactWithJarPath();
+    MavenCoordinates mavenCoordinates = new MavenCoordinates("groupId", "artifactId");
+    mavenCoordinates.setVersion("1.0");
+    when(mavenHelper.resolveArtifact(any(IProgressMonitor.class),
+                                     any(MavenCoordinates.class),
+                                     anyListOf(ArtifactRepository.class))).thenReturn(artifact);
+    IPath jarLocation = m2RepositoryService.getLibraryClasspathEntry(new LibraryFile(mavenCoordinates)).getPath();
+
+    assertThat(jarLocation.toOSString(), is(FAKE_PATH));
+    verify(mavenHelper).findLocalArtifact(mavenCoordinates);
+  }
+
+  @Test
+  public void getLibraryClasspathEntry_latestVersionSkipsLocalRepository() throws Exception {
+    M2RepositoryService m2RepositoryService = new M2RepositoryService();
+    m2RepositoryService.setMavenHelper(mavenHelper);
+    m2RepositoryService.setTransformer(transformer);
+    Artifact artifact = getMockArtifactWithJarPath();
+    when(mavenHelper.resolveArtifact(any(IProgressMonitor.class),
+                                     any(MavenCoordinates.class),
+                                     anyListOf(ArtifactRepository.class))).thenReturn(artifact);
+    m2RepositoryService.getLibraryClasspathEntry(new LibraryFile(new MavenCoordinates("groupId", "artifactId")));
+
+    verify(mavenHelper, never()).findLocalArtifact(any(MavenCoordinates.class));
+  }
+
+  @Test
+  public void getLibraryClasspathEntry_latestVersionResolvedOnce() throws Exception {
+    M2RepositoryService m2RepositoryService = new M2RepositoryService();
+    m2RepositoryService.setMavenHelper(mavenHelper);
+    m2RepositoryService.setTransformer(transformer);
+    Artifact artifact = getMockArtifactWithJarPath();
+    when(artifact.getVersion()).thenReturn("1.0");
+    when(mavenHelper.resolveArtifact(any(IProgressMonitor.class),
+                                     any(MavenCoordinates.class),
+                                     anyListOf(ArtifactRepository.class))).thenReturn(artifact);
+    when(mavenHelper.findLocalArtifact(any(MavenCoordinates.class))).thenReturn(artifact);
+    MavenCoordinates mavenCoordinates = new MavenCoordinates("groupId", "artifactId");
+    m2RepositoryService.getLibraryClasspathEntry(new LibraryFile(mavenCoordinates));
+    m2RepositoryService.getLibraryClasspathEntry(new LibraryFile(mavenCoordinates));
+
+    verify(mavenHelper, times(1)).resolveArtifact(any(IProgressMonitor.class),
+                                                  any(MavenCoordinates.class),
+                                                  anyListOf(ArtifactRepository.class));
+    verify(mavenHelper, times(1)).findLocalArtifact(any(MavenCoordinates.class));
+  }
+
+  @Test
+  public void getLibraryClasspathEntry_jarCache() throws Exception {
+    M2RepositoryService m2RepositoryService = new M2RepositoryService();
+    m2RepositoryService.setMavenHelper(mavenHelper);
+    m2RepositoryService.setTransformer(transformer);
+    File cacheDirectory = localRepository.newFolder("jars");
+    m2RepositoryService.setJarCache(new JarCache(cacheDirectory.toPath()));
+    Artifact artifact = mock(Artifact.class);
+    when(artifact.getFile()).thenReturn(localRepository.newFile("artifactId-1.0.jar"));
+    MavenCoordinates mavenCoordinates = new MavenCoordinates("groupId", "artifactId");
+    mavenCoordinates.setVersion("1.0");
+    when(mavenHelper.findLocalArtifact(mavenCoordinates)).thenReturn(artifact);
+    IPath jarLocation = m2RepositoryService.getLibraryClasspathEntry(new LibraryFile(mavenCoordinates)).getPath();
+
+    assertTrue(new Path(cacheDirectory.getAbsolutePath()).isPrefixOf(jarLocation));
+    assertThat(jarLocation.lastSegment(), is("artifactId-1.0.jar"));
+  }
+
+  @Test
+  public void getLibraryClasspathEntry_jarCacheErrorFallsBackToLocalRepository() throws Exception {
+    M2RepositoryService m2RepositoryService = new M2RepositoryService();
+    m2RepositoryService.setMavenHelper(mavenHelper);
+    m2RepositoryService.setTransformer(transformer);
+    m2RepositoryService.setJarCache(new JarCache(localRepository.newFolder("jars").toPath()));
+    MavenCoordinates mavenCoordinates = new MavenCoordinates("groupId", "artifactId");
+    mavenCoordinates.setVersion("1.0");
+    // the jar at FAKE_PATH does not exist, so it cannot be stored
+    when(mavenHelper.findLocalArtifact(mavenCoordinates)).thenReturn(getMockArtifactWithJarPath());
+    IPath jarLocation = m2RepositoryService.getLibraryClasspathEntry(new LibraryFile(mavenCoordinates)).getPath();
+
+    assertThat(jarLocation.toOSString(), is(FAKE_PATH));
+  }
+
+  @Test(expected = LibraryRepositoryServiceException.class)
+  public void getLibraryClasspathEntry_jarCacheChecksumMismatch() throws Exception {
+    M2RepositoryService m2RepositoryService = new M2RepositoryService();
+    m2RepositoryService.setMavenHelper(mavenHelper);
+    m2RepositoryService.setTransformer(transformer);
+    m2RepositoryService.setJarCache(new JarCache(localRepository.newFolder("jars").toPath()));
+    Artifact artifact = mock(Artifact.class);
+    File jar = localRepository.newFile("artifactId-1.0.jar");
+    Files.write(new File(jar.getPath() + ".sha1").toPath(),
+                "0000000000000000000000000000000000000000".getBytes(StandardCharsets.US_ASCII));
+    when(artifact.getFile()).thenReturn(jar);
+    MavenCoordinates mavenCoordinates = new MavenCoordinates("groupId", "artifactId");
+    mavenCoordinates.setVersion("1.0");
+    when(mavenHelper.findLocalArtifact(mavenCoordinates)).thenReturn(artifact);
+
+    m2RepositoryService.getLibraryClasspathEntry(new LibraryFile(mavenCoordinates));
+  }
+
+  @Test
+  public void getLibraryClasspathEntry_sourcesNotInLocalRepositoryAreNotResolved() throws Exception {
+    M2RepositoryService m2RepositoryService = new M2RepositoryService();
+    m2RepositoryService.setMavenHelper(mavenHelper);
+    m2RepositoryService.setTransformer(transformer);
+    MavenCoordinates mavenCoordinates = new MavenCoordinates("groupId", "artifactId");
+    mavenCoordinates.setVersion("1.0");
+    when(mavenHelper.findLocalArtifact(mavenCoordinates)).thenReturn(getMockArtifactWithJarPath());
+    IClasspathEntry classpathEntry = m2RepositoryService.getLibraryClasspathEntry(new LibraryFile(mavenCoordinates));
+
+    assertNull(classpathEntry.getSourceAttachmentPath());
+    verify(mavenHelper, never()).resolveArtifact(any(IProgressMonitor.class),
+                                                 any(MavenCoordinates.class),
+                                                 anyListOf(ArtifactRepository.class));
+  }
+
+  @Test
+  public void resolveSourceAttachment_resolvesSourcesArtifact() throws Exception {
+    M2RepositoryService m2RepositoryService = new M2RepositoryService();
+    m2RepositoryService.setMavenHelper(mavenHelper);
+    Artifact artifact = mock(Artifact.class);
+    File sourceJar = localRepository.newFile("artifactId-1.0-sources.jar");
+    when(artifact.getFile()).thenReturn(sourceJar);
+    ArgumentCaptor<MavenCoordinates> resolved = ArgumentCaptor.forClass(MavenCoordinates.class);
+    when(mavenHelper.resolveArtifact(any(IProgressMonitor.class),
+                                     resolved.capture(),
+                                     anyListOf(ArtifactRepository.class))).thenReturn(artifact);
+    MavenCoordinates mavenCoordinates = new MavenCoordinates("groupId", "artifactId");
+    mavenCoordinates.setVersion("1.0");
+    IPath sourceLocation = m2RepositoryService.resolveSourceAttachment(new LibraryFile(mavenCoordinates));
+
+    assertThat(sourceLocation.toOSString(), is(sourceJar.getAbsolutePath()));
+    assertThat(resolved.getValue().getClassifier(), is("sources"));
+    assertThat(resolved.getValue().getVersion(), is("1.0"));
+    // the coordinates of the library file are not modified
+    assertNull(mavenCoordinates.getClassifier());
+  }
+
+  @Test
+  public void resolveSourceAttachment_downloadsSourceUri() throws Exception {
+    M2RepositoryService m2RepositoryService = new M2RepositoryService();
+    m2RepositoryService.setMavenHelper(mavenHelper);
+    m2RepositoryService.setTransformer(transformer);
+    m2RepositoryService.setSourceCache(new DownloadCache(localRepository.newFolder("sources").toPath()));
+    File remoteSourceJar = localRepository.newFile("remote-sources.jar");
+    LibraryFile libraryFile = new LibraryFile(new MavenCoordinates("groupId", "artifactId"));
+    libraryFile.setSourceUri(remoteSourceJar.toURI());
+
+    IPath sourceLocation = m2RepositoryService.resolveSourceAttachment(libraryFile);
+
+    assertTrue(sourceLocation.toFile().isFile());
+    assertThat(sourceLocation.lastSegment(), endsWith("-remote-sources.jar"));
+    // once downloaded, the source attachment is set without network access
+    when(mavenHelper.resolveArtifact(any(IProgressMonitor.class),
+                                     any(MavenCoordinates.class),
+                                     anyListOf(ArtifactRepository.class))).thenReturn(getMockArtifactWithJarPath());
+    IClasspathEntry classpathEntry = m2RepositoryService.getLibraryClasspathEntry(libraryFile);
+    assertThat(classpathEntry.getSourceAttachmentPath(), is(sourceLocation));
+  }
+
+  @Test(expected = LibraryRepositoryServiceException.class)
+  public void resolveSourceAttachment_missingSourceUri() throws Exception {
+    M2RepositoryService m2RepositoryService = new M2RepositoryService();
+    m2RepositoryService.setMavenHelper(mavenHelper);
+    m2RepositoryService.setSourceCache(new DownloadCache(localRepository.newFolder("sources").toPath()));
+    LibraryFile libraryFile = new LibraryFile(new MavenCoordinates("groupId", "artifactId"));
+    libraryFile.setSourceUri(new File(localRepository.getRoot(), "missing-sources.jar").toURI());
+
+    m2RepositoryService.resolveSourceAttachment(libraryFile);
+  }
+
+  @Test
+  public void testHasFixedVersion() {
+    assertTrue(M2RepositoryService.hasFixedVersion(withVersion("1.9.48")));
+    assertFalse(M2RepositoryService.hasFixedVersion(withVersion(MavenCoordinates.LATEST_VERSION)));
+    assertFalse(M2RepositoryService.hasFixedVersion(withVersion("RELEASE")));
+    assertFalse(M2RepositoryService.hasFixedVersion(withVersion("1.0-SNAPSHOT")));
+    assertFalse(M2RepositoryService.hasFixedVersion(withVersion("[1.0,2.0)")));
+    assertFalse(M2RepositoryService.hasFixedVersion(withVersion("(,1.0]")));
+  }
+
   @Test(expected = IllegalStateException.class)
   public void testMavenHelperMustBeSet() throws LibraryRepositoryServiceException {
     new M2RepositoryService().getLibraryClasspathEntry(new LibraryFile(new MavenCoordinates("groupId", "artifactId")));
@@ -156,6 +424,12 @@ public class M2RepositoryServiceTest {
     return artifact;
   }
 
+  private static MavenCoordinates withVersion(String version) {
+    MavenCoordinates mavenCoordinates = new MavenCoordinates("groupId", "artifactId");
+    mavenCoordinates.setVersion(version);
+    return mavenCoordinates;
+  }
+
   private CoreException testCoreException() {
     return new CoreException(StatusUtil.error(this, "Test exception"));
   }
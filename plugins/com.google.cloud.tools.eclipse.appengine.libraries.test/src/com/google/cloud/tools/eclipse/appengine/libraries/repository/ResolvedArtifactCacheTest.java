@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.repository;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.model.MavenCoordinates;
+import java.io.File;
+import java.io.IOException;
+import org.apache.maven.artifact.Artifact;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ResolvedArtifactCacheTest {
+
+  @Rule
+  public TemporaryFolder localRepository = new TemporaryFolder();
+
+  private final ResolvedArtifactCache cache = new ResolvedArtifactCache(2);
+
+  @Test
+  public void testGet_resolvedArtifact() throws IOException {
+    Artifact artifact = mockArtifact(localRepository.newFile());
+    cache.put(coordinates("artifactId", "1.0"), artifact);
+
+    assertThat(cache.get(coordinates("artifactId", "1.0")), sameInstance(artifact));
+    assertThat(cache.getHitCount(), is(1L));
+    assertThat(cache.getMissCount(), is(0L));
+  }
+
+  @Test
+  public void testGet_otherVersion() throws IOException {
+    cache.put(coordinates("artifactId", "1.0"), mockArtifact(localRepository.newFile()));
+
+    assertNull(cache.get(coordinates("artifactId", "2.0")));
+    assertThat(cache.getMissCount(), is(1L));
+  }
+
+  @Test
+  public void testGet_otherClassifier() throws IOException {
+    cache.put(coordinates("artifactId", "1.0"), mockArtifact(localRepository.newFile()));
+    MavenCoordinates sources = coordinates("artifactId", "1.0");
+    sources.setClassifier("sources");
+
+    assertNull(cache.get(sources));
+  }
+
+  @Test
+  public void testGet_fileRemovedFromLocalRepository() throws IOException {
+    File file = localRepository.newFile();
+    cache.put(coordinates("artifactId", "1.0"), mockArtifact(file));
+    assertTrue(file.delete());
+
+    assertNull(cache.get(coordinates("artifactId", "1.0")));
+    assertThat(cache.getHitCount(), is(0L));
+    assertThat(cache.getMissCount(), is(1L));
+  }
+
+  @Test
+  public void testPut_latestVersionIsNotCached() throws IOException {
+    cache.put(coordinates("artifactId", MavenCoordinates.LATEST_VERSION),
+              mockArtifact(localRepository.newFile()));
+
+    assertNull(cache.get(coordinates("artifactId", MavenCoordinates.LATEST_VERSION)));
+    assertThat(cache.getMissCount(), is(0L));
+  }
+
+  @Test
+  public void testPut_evictsLeastRecentlyUsed() throws IOException {
+    cache.put(coordinates("first", "1.0"), mockArtifact(localRepository.newFile()));
+    cache.put(coordinates("second", "1.0"), mockArtifact(localRepository.newFile()));
+    cache.get(coordinates("first", "1.0"));
+    cache.put(coordinates("third", "1.0"), mockArtifact(localRepository.newFile()));
+
+    assertNull(cache.get(coordinates("second", "1.0")));
+  }
+
+  private static MavenCoordinates coordinates(String artifactId, String version) {
+    MavenCoordinates mavenCoordinates = new MavenCoordinates("groupId", artifactId);
+    mavenCoordinates.setVersion(version);
+    return mavenCoordinates;
+  }
+
+  private static Artifact mockArtifact(File file) {
+    Artifact artifact = mock(Artifact.class);
+    when(artifact.getFile()).thenReturn(file);
+    return artifact;
+  }
+}
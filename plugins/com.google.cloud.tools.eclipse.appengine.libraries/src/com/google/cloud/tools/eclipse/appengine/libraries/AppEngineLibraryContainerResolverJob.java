@@ -16,9 +16,9 @@
 
 package com.google.cloud.tools.eclipse.appengine.libraries;
 
+import com.google.cloud.tools.eclipse.appengine.libraries.model.ILibraryCatalog;
 import com.google.cloud.tools.eclipse.appengine.libraries.model.Library;
-import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFactory;
-import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFactoryException;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryDependencyGraph;
 import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFile;
 import com.google.cloud.tools.eclipse.appengine.libraries.persistence.LibraryClasspathContainerSerializer;
 import com.google.cloud.tools.eclipse.appengine.libraries.repository.ILibraryRepositoryService;
@@ -27,43 +27,68 @@ import com.google.cloud.tools.eclipse.util.status.StatusUtil;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import org.eclipse.core.runtime.CoreException;
-import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.RegistryFactory;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.core.runtime.jobs.Job;
-import org.eclipse.jdt.core.IClasspathContainer;
 import org.eclipse.jdt.core.IClasspathEntry;
 import org.eclipse.jdt.core.IJavaProject;
-import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.osgi.util.NLS;
 
+/**
+ * Resolves the jars of the library containers on the classpath of a project and saves the
+ * resolved containers.
+ * <p>
+ * The resolved containers are not installed by this job itself, but handed to a
+ * {@link LibraryContainerUpdateJob} that installs the containers of all projects resolved at about
+ * the same time in one batch, shortly after this job has finished. Callers that need the
+ * containers installed must therefore join the {@link #FAMILY} of both jobs rather than this job,
+ * e.g. with <code>Job.getJobManager().join(AppEngineLibraryContainerResolverJob.FAMILY, monitor)</code>.
+ */
 public class AppEngineLibraryContainerResolverJob extends Job {
-  //TODO duplicate of com.google.cloud.tools.eclipse.appengine.libraries.AppEngineLibraryContainerInitializer.LIBRARIES_EXTENSION_POINT
-  public static final String LIBRARIES_EXTENSION_POINT = "com.google.cloud.tools.eclipse.appengine.libraries"; //$NON-NLS-1$
 
-  private static final Logger logger = Logger.getLogger(AppEngineLibraryContainerResolverJob.class.getName());
+  /**
+   * Family of the resolver jobs and of the job installing the containers they resolve, so that
+   * joining it waits until the resolved containers are installed.
+   */
+  public static final Object FAMILY = AppEngineLibraryContainerResolverJob.class.getName();
 
-  private Map<String, Library> libraries;
+  // every artifact may be a network round-trip through M2Eclipse, so a few are resolved at once
+  private static final int MAX_CONCURRENT_RESOLUTIONS = 4;
+  private static final long CANCELLATION_CHECK_INTERVAL_MS = 100;
 
   @Inject
   private IJavaProject javaProject;
   @Inject
+  private ILibraryCatalog libraryCatalog;
+  @Inject
   private ILibraryRepositoryService repositoryService;
   @Inject
   private LibraryClasspathContainerSerializer serializer;
+  // IDs of the libraries whose containers are resolved, null to resolve all of them
+  private Set<String> libraryIdsToResolve;
 
   public AppEngineLibraryContainerResolverJob() {
     super(Messages.AppEngineLibraryContainerResolverJobName);
@@ -71,43 +96,105 @@ public class AppEngineLibraryContainerResolverJob extends Job {
   }
 
   @VisibleForTesting
-  AppEngineLibraryContainerResolverJob(LibraryClasspathContainerSerializer serializer) {
+  AppEngineLibraryContainerResolverJob(LibraryClasspathContainerSerializer serializer,
+                                       ILibraryCatalog libraryCatalog) {
     super(Messages.AppEngineLibraryContainerResolverJobName);
     Preconditions.checkNotNull(serializer);
+    Preconditions.checkNotNull(libraryCatalog);
     this.serializer = serializer;
+    this.libraryCatalog = libraryCatalog;
     setUser(true);
   }
 
+  /**
+   * Creates a job that resolves only the containers of <code>libraryIdsToResolve</code> on
+   * <code>javaProject</code>, e.g. after their definitions changed.
+   */
+  AppEngineLibraryContainerResolverJob(IJavaProject javaProject,
+                                       ILibraryCatalog libraryCatalog,
+                                       ILibraryRepositoryService repositoryService,
+                                       LibraryClasspathContainerSerializer serializer,
+                                       Set<String> libraryIdsToResolve) {
+    this(serializer, libraryCatalog);
+    Preconditions.checkNotNull(javaProject);
+    Preconditions.checkNotNull(repositoryService);
+    this.javaProject = javaProject;
+    this.repositoryService = repositoryService;
+    this.libraryIdsToResolve = new HashSet<>(libraryIdsToResolve);
+    init();
+    // not started by the user, so it should not show a progress dialog
+    setUser(false);
+  }
+
   @PostConstruct
   public void init() {
     setRule(javaProject.getSchedulingRule());
   }
 
+  @Override
+  public boolean belongsTo(Object family) {
+    return family == FAMILY;
+  }
+
   @Override
   protected IStatus run(IProgressMonitor monitor) {
-    // TODO parse library definition in ILibraryConfigService (or similar) started when the plugin/bundle starts
-    // https://github.com/GoogleCloudPlatform/google-cloud-eclipse/issues/856
     try {
-      if (libraries == null) {
-        // in tests libraries will be initialized via the test constructor, this would override mocks/stubs.
-        IConfigurationElement[] configurationElements =
-            RegistryFactory.getRegistry().getConfigurationElementsFor(LIBRARIES_EXTENSION_POINT);
-        initializeLibraries(configurationElements, new LibraryFactory());
+      List<IClasspathEntry> containerEntries = new ArrayList<>();
+      List<Library> containerLibraries = new ArrayList<>();
+      Set<String> libraryIds = new HashSet<>();
+      for (IClasspathEntry classpathEntry : javaProject.getRawClasspath()) {
+        if (isLibraryClasspathEntry(classpathEntry.getPath())) {
+          Library library = libraryCatalog.getLibrary(classpathEntry.getPath().segment(1));
+          if (library != null && libraryIds.add(library.getId())) {
+            containerEntries.add(classpathEntry);
+            containerLibraries.add(library);
+          }
+        }
+      }
+      Map<String, List<String>> includedLibraryIds =
+          getIncludedLibraryIds(containerLibraries, libraryCatalog.getDependencyGraph(), libraryIds);
+
+      List<IClasspathEntry> classpathEntries = new ArrayList<>();
+      List<Library> libraries = new ArrayList<>();
+      List<List<LibraryFile>> libraryFiles = new ArrayList<>();
+      int libraryFileCount = 0;
+      for (int i = 0; i < containerLibraries.size(); i++) {
+        Library library = containerLibraries.get(i);
+        List<String> includedIds = includedLibraryIds.get(library.getId());
+        if (libraryIdsToResolve == null || libraryIdsToResolve.contains(library.getId())
+            || !Collections.disjoint(libraryIdsToResolve, includedIds)) {
+          List<LibraryFile> files = getLibraryFiles(library, includedIds);
+          classpathEntries.add(containerEntries.get(i));
+          libraries.add(library);
+          libraryFiles.add(files);
+          libraryFileCount += files.size();
+        }
       }
-      IClasspathEntry[] rawClasspath = javaProject.getRawClasspath();
-      SubMonitor subMonitor = SubMonitor.convert(monitor,
-                                                 Messages.TaskResolveLibraries,
-                                                 getTotalwork(rawClasspath));
-      for (int i = 0; i < rawClasspath.length; i++) {
-        IClasspathEntry classpathEntry = rawClasspath[i];
-        String libraryId = classpathEntry.getPath().segment(1);
-        Library library = libraries.get(libraryId);
-        if (library != null) {
-          LibraryClasspathContainer container = resolveLibraryFiles(classpathEntry, library, subMonitor.newChild(1));
-          JavaCore.setClasspathContainer(classpathEntry.getPath(), new IJavaProject[] {javaProject},
-                                         new IClasspathContainer[] {container}, null);
+      SubMonitor subMonitor = SubMonitor.convert(monitor, Messages.TaskResolveLibraries, libraryFileCount);
+
+      ExecutorService executor =
+          Executors.newFixedThreadPool(Math.max(1, Math.min(MAX_CONCURRENT_RESOLUTIONS, libraryFileCount)));
+      try {
+        // start resolving the files of all libraries before waiting for the first one
+        List<List<Future<IClasspathEntry>>> resolutions = new ArrayList<>(libraries.size());
+        for (List<LibraryFile> files : libraryFiles) {
+          resolutions.add(submitResolutions(executor, files));
+        }
+        for (int i = 0; i < libraries.size(); i++) {
+          Library library = libraries.get(i);
+          subMonitor.subTask(NLS.bind(Messages.TaskResolveArtifacts, getLibraryDescription(library)));
+          IClasspathEntry[] entries = getResolvedEntries(resolutions.get(i), subMonitor);
+          LibraryClasspathContainer container = new LibraryClasspathContainer(classpathEntries.get(i).getPath(),
+                                                                              getLibraryDescription(library),
+                                                                              entries);
+          // set in a batch with the containers of other projects, so that they are built once
+          LibraryContainerUpdateJob.update(javaProject, container);
           serializer.saveContainer(javaProject, container);
+          LibrarySourceAttachmentJob.attachSources(javaProject, container, libraryFiles.get(i),
+                                                   repositoryService, serializer);
         }
+      } finally {
+        executor.shutdownNow();
       }
     } catch (LibraryRepositoryServiceException | CoreException | IOException ex) {
       return StatusUtil.error(this, Messages.TaskResolveLibrariesError, ex);
@@ -115,36 +202,98 @@ public class AppEngineLibraryContainerResolverJob extends Job {
     return Status.OK_STATUS;
   }
 
-  private LibraryClasspathContainer resolveLibraryFiles(IClasspathEntry classpathEntry,
-                                                        Library library,
-                                                        IProgressMonitor monitor)
-                                                            throws LibraryRepositoryServiceException {
-    List<LibraryFile> libraryFiles = library.getLibraryFiles();
-    SubMonitor subMonitor = SubMonitor.convert(monitor, libraryFiles.size());
-    subMonitor.subTask(NLS.bind(Messages.TaskResolveArtifacts, getLibraryDescription(library)));
-    SubMonitor child = subMonitor.newChild(libraryFiles.size());
-
-    IClasspathEntry[] entries = new IClasspathEntry[libraryFiles.size()];
-    int idx = 0;
-    for (LibraryFile libraryFile : libraryFiles) {
-      entries[idx++] = repositoryService.getLibraryClasspathEntry(libraryFile);
-      child.worked(1);
+  /**
+   * Finds the container that includes each library required by <code>libraries</code> but without
+   * a container of its own on the classpath, i.e. not in <code>libraryIds</code>. Such a library is
+   * included in the container of the first library in classpath order that requires it, so that
+   * its jars are on the classpath once. The container that includes a library is resolved again
+   * whenever the library is, to pick up changes of its definition.
+   *
+   * @return for each library of <code>libraries</code>, the IDs of the libraries its container
+   *     includes, in a stable order
+   */
+  private static Map<String, List<String>> getIncludedLibraryIds(List<Library> libraries,
+                                                                 LibraryDependencyGraph dependencyGraph,
+                                                                 Set<String> libraryIds) {
+    Map<String, List<String>> includedLibraryIds = new HashMap<>();
+    Set<String> includedIds = new HashSet<>(libraryIds);
+    for (Library library : libraries) {
+      List<String> requiredIds = new ArrayList<>(dependencyGraph.getRequiredLibraryIds(library.getId()));
+      Collections.sort(requiredIds);
+      List<String> containerIncludedIds = new ArrayList<>();
+      for (String requiredId : requiredIds) {
+        if (includedIds.add(requiredId)) {
+          containerIncludedIds.add(requiredId);
+        }
+      }
+      includedLibraryIds.put(library.getId(), containerIncludedIds);
     }
-    monitor.done();
-    LibraryClasspathContainer container = new LibraryClasspathContainer(classpathEntry.getPath(),
-                                                                        getLibraryDescription(library),
-                                                                        entries);
-    return container;
+    return includedLibraryIds;
   }
 
-  private static int getTotalwork(IClasspathEntry[] rawClasspath) {
-    int sum = 0;
-    for (IClasspathEntry element : rawClasspath) {
-      if (isLibraryClasspathEntry(element.getPath())) {
-        ++sum;
+  /**
+   * @return the files of <code>library</code>, followed by the files of the libraries of
+   *     <code>includedLibraryIds</code>
+   */
+  private List<LibraryFile> getLibraryFiles(Library library, List<String> includedLibraryIds) {
+    List<LibraryFile> libraryFiles = new ArrayList<>(library.getLibraryFiles());
+    for (String includedId : includedLibraryIds) {
+      Library included = libraryCatalog.getLibrary(includedId);
+      if (included != null) {
+        libraryFiles.addAll(included.getLibraryFiles());
       }
     }
-    return sum;
+    return libraryFiles;
+  }
+
+  private List<Future<IClasspathEntry>> submitResolutions(ExecutorService executor, List<LibraryFile> libraryFiles) {
+    List<Future<IClasspathEntry>> resolutions = new ArrayList<>();
+    for (final LibraryFile libraryFile : libraryFiles) {
+      resolutions.add(executor.submit(new Callable<IClasspathEntry>() {
+        @Override
+        public IClasspathEntry call() throws LibraryRepositoryServiceException {
+          return repositoryService.getLibraryClasspathEntry(libraryFile);
+        }
+      }));
+    }
+    return resolutions;
+  }
+
+  /**
+   * Waits for <code>resolutions</code> and returns their results in the same order, checking
+   * <code>monitor</code> for cancellation while waiting.
+   */
+  private static IClasspathEntry[] getResolvedEntries(List<Future<IClasspathEntry>> resolutions,
+                                                      SubMonitor monitor)
+                                                          throws LibraryRepositoryServiceException {
+    IClasspathEntry[] entries = new IClasspathEntry[resolutions.size()];
+    for (int i = 0; i < entries.length; i++) {
+      entries[i] = getResolvedEntry(resolutions.get(i), monitor);
+      monitor.worked(1);
+    }
+    return entries;
+  }
+
+  private static IClasspathEntry getResolvedEntry(Future<IClasspathEntry> resolution, IProgressMonitor monitor)
+      throws LibraryRepositoryServiceException {
+    try {
+      while (true) {
+        if (monitor.isCanceled()) {
+          throw new OperationCanceledException();
+        }
+        try {
+          return resolution.get(CANCELLATION_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+          // check for cancellation again
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new OperationCanceledException();
+    } catch (ExecutionException ex) {
+      Throwables.propagateIfPossible(ex.getCause(), LibraryRepositoryServiceException.class);
+      throw Throwables.propagate(ex.getCause());
+    }
   }
 
   private static boolean isLibraryClasspathEntry(IPath path) {
@@ -158,16 +307,4 @@ public class AppEngineLibraryContainerResolverJob extends Job {
       return library.getId();
     }
   }
-
-  private void initializeLibraries(IConfigurationElement[] configurationElements, LibraryFactory libraryFactory) {
-    libraries = new HashMap<>(configurationElements.length);
-    for (IConfigurationElement configurationElement : configurationElements) {
-      try {
-        Library library = libraryFactory.create(configurationElement);
-        libraries.put(library.getId(), library);
-      } catch (LibraryFactoryException exception) {
-        logger.log(Level.SEVERE, "Failed to initialize libraries", exception); //$NON-NLS-1$
-      }
-    }
-  }
 }
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.model.ILibraryCatalog;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.ILibraryCatalogListener;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.Library;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryDependencyGraph;
+import com.google.cloud.tools.eclipse.appengine.libraries.persistence.LibraryClasspathContainerSerializer;
+import com.google.cloud.tools.eclipse.appengine.libraries.repository.ILibraryRepositoryService;
+import com.google.cloud.tools.eclipse.util.status.StatusUtil;
+import com.google.common.annotations.VisibleForTesting;
+import java.util.HashSet;
+import java.util.Set;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+
+/**
+ * Resolves the library containers of the workspace projects again when the definitions of their
+ * libraries change in the {@link ILibraryCatalog}, e.g. when the version of a library is bumped
+ * in the external catalog file. Only the containers of the changed libraries, and of the libraries
+ * requiring them, are resolved, so that the projects are up to date without restarting the IDE.
+ */
+@Component
+public class LibraryCatalogChangeHandler implements ILibraryCatalogListener {
+
+  private ILibraryCatalog libraryCatalog;
+  private ILibraryRepositoryService repositoryService;
+  private LibraryClasspathContainerSerializer serializer;
+
+  @Reference
+  protected void setLibraryCatalog(ILibraryCatalog libraryCatalog) {
+    this.libraryCatalog = libraryCatalog;
+  }
+
+  @Reference
+  protected void setRepositoryService(ILibraryRepositoryService repositoryService) {
+    this.repositoryService = repositoryService;
+  }
+
+  @VisibleForTesting
+  void setSerializer(LibraryClasspathContainerSerializer serializer) {
+    this.serializer = serializer;
+  }
+
+  @Activate
+  protected void activate() {
+    if (serializer == null) {
+      serializer = new LibraryClasspathContainerSerializer();
+    }
+    libraryCatalog.addListener(this);
+  }
+
+  @Deactivate
+  protected void deactivate() {
+    libraryCatalog.removeListener(this);
+  }
+
+  @Override
+  public void librariesChanged(Set<String> libraryIds) {
+    // finding the projects reads their classpaths, which is not done on the notifying thread
+    new FindAffectedProjectsJob(libraryIds).schedule();
+  }
+
+  /**
+   * Schedules an {@link AppEngineLibraryContainerResolverJob} for every project that has a
+   * container of a changed library, or of a library requiring one, on its classpath.
+   */
+  private class FindAffectedProjectsJob extends Job {
+
+    private final Set<String> libraryIds;
+
+    private FindAffectedProjectsJob(Set<String> libraryIds) {
+      super(Messages.LibraryCatalogChangeJobName);
+      this.libraryIds = libraryIds;
+      setSystem(true);
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+      try {
+        // the container of a library may include the files of the libraries it requires
+        Set<String> changedIds = withDependentLibraryIds(libraryIds, libraryCatalog.getDependencyGraph());
+        IJavaProject[] projects = JavaCore.create(ResourcesPlugin.getWorkspace().getRoot()).getJavaProjects();
+        for (IJavaProject project : projects) {
+          Set<String> affected = getAffectedLibraryIds(project, changedIds);
+          if (!affected.isEmpty()) {
+            new AppEngineLibraryContainerResolverJob(project, libraryCatalog, repositoryService, serializer,
+                                                     affected).schedule();
+          }
+        }
+      } catch (JavaModelException ex) {
+        return StatusUtil.error(this, Messages.LibraryCatalogChangeError, ex);
+      }
+      return Status.OK_STATUS;
+    }
+  }
+
+  /**
+   * @return <code>libraryIds</code> and the IDs of the libraries that require any of them
+   */
+  @VisibleForTesting
+  static Set<String> withDependentLibraryIds(Set<String> libraryIds, LibraryDependencyGraph dependencyGraph) {
+    Set<String> withDependents = new HashSet<>(libraryIds);
+    for (String libraryId : libraryIds) {
+      withDependents.addAll(dependencyGraph.getDependentLibraryIds(libraryId));
+    }
+    return withDependents;
+  }
+
+  /**
+   * @return the IDs of <code>libraryIds</code> that have a container on the classpath of
+   *     <code>project</code>
+   */
+  @VisibleForTesting
+  static Set<String> getAffectedLibraryIds(IJavaProject project, Set<String> libraryIds)
+      throws JavaModelException {
+    Set<String> affected = new HashSet<>();
+    if (!project.getProject().isAccessible()) {
+      return affected;
+    }
+    for (IClasspathEntry entry : project.getRawClasspath()) {
+      IPath path = entry.getPath();
+      if (entry.getEntryKind() == IClasspathEntry.CPE_CONTAINER && path.segmentCount() == 2
+          && Library.CONTAINER_PATH_PREFIX.equals(path.segment(0)) && libraryIds.contains(path.segment(1))) {
+        affected.add(path.segment(1));
+      }
+    }
+    return affected;
+  }
+}
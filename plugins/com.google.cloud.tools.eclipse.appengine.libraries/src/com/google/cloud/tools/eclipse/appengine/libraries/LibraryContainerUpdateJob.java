@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries;
+
+import com.google.cloud.tools.eclipse.util.status.StatusUtil;
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.MultiRule;
+import org.eclipse.jdt.core.IClasspathContainer;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+
+/**
+ * Sets resolved library containers on their projects in batches. Resolver jobs of any number of
+ * projects hand in their containers through {@link #update(IJavaProject, IClasspathContainer)},
+ * and all containers pending when this job runs are set in a single workspace operation, with one
+ * {@link JavaCore#setClasspathContainer} call per container path covering every project. JDT then
+ * fires one delta, so importing many projects triggers one build instead of one per container.
+ * <p>
+ * A container handed in through {@link #replace} only replaces a given container, and is dropped
+ * if another one was installed or handed in for the project in the meantime.
+ * <p>
+ * This job belongs to the {@link AppEngineLibraryContainerResolverJob#FAMILY} of the jobs that
+ * hand in their containers, so joining it waits until their containers are installed.
+ */
+class LibraryContainerUpdateJob extends Job {
+
+  // how long to wait for further containers before setting the pending ones
+  private static final long BATCH_DELAY_MS = 200;
+
+  private static final LibraryContainerUpdateJob instance = new LibraryContainerUpdateJob();
+
+  // container path -> project -> container, in the order they were handed in
+  private final Map<IPath, Map<IJavaProject, IClasspathContainer>> pending = new LinkedHashMap<>();
+  // pending container -> the installed container it replaces, for containers handed in through replace
+  private final Map<IClasspathContainer, IClasspathContainer> replacedContainers = new IdentityHashMap<>();
+
+  @VisibleForTesting
+  LibraryContainerUpdateJob() {
+    super(Messages.LibraryContainerUpdateJobName);
+    setSystem(true);
+  }
+
+  /**
+   * Schedules <code>container</code> to be set on <code>project</code> together with the other
+   * containers handed in shortly before or after it. A container handed in later for the same
+   * project and path replaces this one if both are still pending.
+   */
+  static void update(IJavaProject project, IClasspathContainer container) {
+    instance.add(project, container);
+  }
+
+  /**
+   * Schedules <code>container</code> to be set on <code>project</code> like
+   * {@link #update(IJavaProject, IClasspathContainer)}, but only if <code>installed</code> is still
+   * the container installed on the project for its path by then, e.g. so that a container patched
+   * in the background never replaces one resolved again in the meantime.
+   */
+  static void replace(IJavaProject project, IClasspathContainer installed, IClasspathContainer container) {
+    instance.add(project, installed, container);
+  }
+
+  @VisibleForTesting
+  synchronized void add(IJavaProject project, IClasspathContainer installed, IClasspathContainer container) {
+    Map<IJavaProject, IClasspathContainer> containers = pending.get(container.getPath());
+    if (containers != null && containers.containsKey(project)) {
+      // the pending container replaces the installed one anyway, and was handed in for a reason
+      return;
+    }
+    replacedContainers.put(container, installed);
+    add(project, container);
+  }
+
+  @VisibleForTesting
+  synchronized void add(IJavaProject project, IClasspathContainer container) {
+    Map<IJavaProject, IClasspathContainer> containers = pending.get(container.getPath());
+    if (containers == null) {
+      containers = new LinkedHashMap<>();
+      pending.put(container.getPath(), containers);
+    }
+    containers.put(project, container);
+    schedule(BATCH_DELAY_MS);
+  }
+
+  @Override
+  public boolean belongsTo(Object family) {
+    return family == AppEngineLibraryContainerResolverJob.FAMILY;
+  }
+
+  @Override
+  protected IStatus run(IProgressMonitor monitor) {
+    final Map<IPath, Map<IJavaProject, IClasspathContainer>> batch;
+    final Map<IClasspathContainer, IClasspathContainer> replaced;
+    synchronized (this) {
+      batch = new LinkedHashMap<>(pending);
+      pending.clear();
+      replaced = new IdentityHashMap<>(replacedContainers);
+      replacedContainers.clear();
+    }
+    if (batch.isEmpty()) {
+      return Status.OK_STATUS;
+    }
+    try {
+      JavaCore.run(new IWorkspaceRunnable() {
+        @Override
+        public void run(IProgressMonitor monitor) throws CoreException {
+          SubMonitor subMonitor = SubMonitor.convert(monitor, batch.size());
+          for (Map.Entry<IPath, Map<IJavaProject, IClasspathContainer>> entry : batch.entrySet()) {
+            List<IJavaProject> projects = new ArrayList<>();
+            List<IClasspathContainer> containers = new ArrayList<>();
+            for (Map.Entry<IJavaProject, IClasspathContainer> container : entry.getValue().entrySet()) {
+              IClasspathContainer installed = replaced.get(container.getValue());
+              if (installed == null
+                  || JavaCore.getClasspathContainer(entry.getKey(), container.getKey()) == installed) {
+                projects.add(container.getKey());
+                containers.add(container.getValue());
+              }
+            }
+            if (projects.isEmpty()) {
+              subMonitor.worked(1);
+              continue;
+            }
+            JavaCore.setClasspathContainer(entry.getKey(),
+                                           projects.toArray(new IJavaProject[projects.size()]),
+                                           containers.toArray(new IClasspathContainer[containers.size()]),
+                                           subMonitor.newChild(1));
+          }
+        }
+      }, getRule(batch), monitor);
+    } catch (CoreException ex) {
+      return StatusUtil.error(this, Messages.LibraryContainerUpdateError, ex);
+    }
+    return Status.OK_STATUS;
+  }
+
+  private static ISchedulingRule getRule(Map<IPath, Map<IJavaProject, IClasspathContainer>> batch) {
+    List<ISchedulingRule> rules = new ArrayList<>();
+    for (Map<IJavaProject, IClasspathContainer> containers : batch.values()) {
+      for (IJavaProject project : containers.keySet()) {
+        rules.add(project.getSchedulingRule());
+      }
+    }
+    return MultiRule.combine(rules.toArray(new ISchedulingRule[rules.size()]));
+  }
+}
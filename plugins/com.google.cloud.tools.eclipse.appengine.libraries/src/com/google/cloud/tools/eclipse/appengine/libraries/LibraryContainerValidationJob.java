@@ -0,0 +1,205 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.persistence.LibraryClasspathContainerSerializer;
+import com.google.cloud.tools.eclipse.appengine.libraries.repository.ILibraryRepositoryService;
+import com.google.cloud.tools.eclipse.appengine.libraries.repository.LibraryRepositoryServiceException;
+import com.google.cloud.tools.eclipse.util.status.StatusUtil;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Futures;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+
+/**
+ * Checks that the jars of library containers installed from their persisted state still exist,
+ * and resolves the missing ones again. Checking and resolving happen in the background, so that
+ * initializing a container never waits for the file system or Maven. The jars of all queued
+ * containers are checked concurrently, and the missing ones are resolved in a single request to
+ * the repository service. A container with missing jars is not modified; a copy with the resolved
+ * jars is saved and replaces it through {@link LibraryContainerUpdateJob}, unless another container
+ * was installed for the project in the meantime, e.g. by a resolver job. The existing jars are
+ * marked as used through {@link ILibraryRepositoryService#markUsed}, so that a shared jar cache
+ * keeps them as long as an installed container refers to them.
+ */
+class LibraryContainerValidationJob extends Job {
+
+  private static final Logger logger = Logger.getLogger(LibraryContainerValidationJob.class.getName());
+
+  // checks of jars on network file systems mostly wait
+  private static final int MAX_CONCURRENT_CHECKS = 8;
+
+  private final ILibraryRepositoryService repositoryService;
+  private final LibraryClasspathContainerSerializer serializer;
+  // project -> container path -> container, in the order they were handed in
+  private final Map<IJavaProject, Map<IPath, LibraryClasspathContainer>> pending = new LinkedHashMap<>();
+
+  LibraryContainerValidationJob(ILibraryRepositoryService repositoryService,
+                                LibraryClasspathContainerSerializer serializer) {
+    super(Messages.LibraryContainerValidationJobName);
+    Preconditions.checkNotNull(repositoryService);
+    Preconditions.checkNotNull(serializer);
+    this.repositoryService = repositoryService;
+    this.serializer = serializer;
+    setSystem(true);
+  }
+
+  /**
+   * Schedules the jars of <code>container</code>, which is installed on <code>project</code>, to
+   * be checked.
+   */
+  synchronized void validate(IJavaProject project, LibraryClasspathContainer container) {
+    Map<IPath, LibraryClasspathContainer> containers = pending.get(project);
+    if (containers == null) {
+      containers = new LinkedHashMap<>();
+      pending.put(project, containers);
+    }
+    containers.put(container.getPath(), container);
+    schedule();
+  }
+
+  @Override
+  protected IStatus run(IProgressMonitor monitor) {
+    List<IJavaProject> projects = new ArrayList<>();
+    List<LibraryClasspathContainer> containers = new ArrayList<>();
+    synchronized (this) {
+      for (Map.Entry<IJavaProject, Map<IPath, LibraryClasspathContainer>> entry : pending.entrySet()) {
+        for (LibraryClasspathContainer container : entry.getValue().values()) {
+          projects.add(entry.getKey());
+          containers.add(container);
+        }
+      }
+      pending.clear();
+    }
+    if (containers.isEmpty()) {
+      return Status.OK_STATUS;
+    }
+    try {
+      List<boolean[]> missing = findMissingJars(containers);
+      List<IClasspathEntry> missingEntries = new ArrayList<>();
+      for (int i = 0; i < containers.size(); i++) {
+        IClasspathEntry[] classpathEntries = containers.get(i).getClasspathEntries();
+        for (int j = 0; j < classpathEntries.length; j++) {
+          if (missing.get(i)[j]) {
+            missingEntries.add(classpathEntries[j]);
+          }
+        }
+      }
+      if (missingEntries.isEmpty()) {
+        return Status.OK_STATUS;
+      }
+      if (monitor.isCanceled()) {
+        throw new OperationCanceledException();
+      }
+      Iterator<IClasspathEntry> rebuiltEntries = repositoryService.rebuildClasspathEntries(missingEntries).iterator();
+      for (int i = 0; i < containers.size(); i++) {
+        LibraryClasspathContainer container = containers.get(i);
+        IClasspathEntry[] classpathEntries = container.getClasspathEntries();
+        IClasspathEntry[] validatedEntries = null;
+        for (int j = 0; j < classpathEntries.length; j++) {
+          if (missing.get(i)[j]) {
+            if (validatedEntries == null) {
+              validatedEntries = classpathEntries.clone();
+            }
+            validatedEntries[j] = rebuiltEntries.next();
+          }
+        }
+        IJavaProject project = projects.get(i);
+        // the container may have been replaced while its jars were checked and resolved
+        if (validatedEntries != null
+            && JavaCore.getClasspathContainer(container.getPath(), project) == container) {
+          LibraryClasspathContainer validated =
+              new LibraryClasspathContainer(container.getPath(), container.getDescription(), validatedEntries);
+          serializer.saveContainer(project, validated);
+          LibraryContainerUpdateJob.replace(project, container, validated);
+        }
+      }
+    } catch (LibraryRepositoryServiceException | CoreException | IOException ex) {
+      // the installed containers stay in place
+      logger.log(Level.WARNING, "Could not resolve missing library jars", ex); //$NON-NLS-1$
+      return StatusUtil.error(this, Messages.LibraryContainerValidationError, ex);
+    }
+    return Status.OK_STATUS;
+  }
+
+  /**
+   * Checks whether the jars of all entries of <code>containers</code> exist, concurrently since
+   * every check may be a round trip to a network file system, and marks the existing ones as used.
+   *
+   * @return for each container, whether the jar of each of its entries is missing
+   */
+  private List<boolean[]> findMissingJars(List<LibraryClasspathContainer> containers) {
+    int entryCount = 0;
+    for (LibraryClasspathContainer container : containers) {
+      entryCount += container.getClasspathEntries().length;
+    }
+    ExecutorService executor =
+        Executors.newFixedThreadPool(Math.max(1, Math.min(MAX_CONCURRENT_CHECKS, entryCount)));
+    try {
+      List<List<Future<Boolean>>> checks = new ArrayList<>(containers.size());
+      for (LibraryClasspathContainer container : containers) {
+        List<Future<Boolean>> containerChecks = new ArrayList<>();
+        for (final IClasspathEntry classpathEntry : container.getClasspathEntries()) {
+          final java.nio.file.Path jar = classpathEntry.getPath().toFile().toPath();
+          containerChecks.add(executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+              if (!Files.exists(jar)) {
+                return true;
+              }
+              repositoryService.markUsed(classpathEntry);
+              return false;
+            }
+          }));
+        }
+        checks.add(containerChecks);
+      }
+      List<boolean[]> missing = new ArrayList<>(containers.size());
+      for (List<Future<Boolean>> containerChecks : checks) {
+        boolean[] containerMissing = new boolean[containerChecks.size()];
+        for (int i = 0; i < containerMissing.length; i++) {
+          containerMissing[i] = Futures.getUnchecked(containerChecks.get(i));
+        }
+        missing.add(containerMissing);
+      }
+      return missing;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
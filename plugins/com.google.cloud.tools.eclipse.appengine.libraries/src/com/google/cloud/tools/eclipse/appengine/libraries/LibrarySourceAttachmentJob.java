@@ -0,0 +1,268 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFile;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.MavenCoordinates;
+import com.google.cloud.tools.eclipse.appengine.libraries.persistence.LibraryClasspathContainerSerializer;
+import com.google.cloud.tools.eclipse.appengine.libraries.repository.ILibraryRepositoryService;
+import com.google.cloud.tools.eclipse.appengine.libraries.repository.LibraryRepositoryServiceException;
+import com.google.cloud.tools.eclipse.util.status.StatusUtil;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Joiner;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.IClasspathContainer;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+
+/**
+ * Attaches sources to the entries of resolved library containers in the background, so that
+ * resolving a container never waits for source downloads. The sources of all queued containers
+ * are downloaded concurrently, and a source attachment shared by several containers, e.g. the
+ * same library in several projects, is downloaded once. Once the sources of a container are
+ * downloaded, they are attached to a copy of the container installed by then, to the entries that
+ * still have the downloaded jars, and the copy is saved and replaces it through
+ * {@link LibraryContainerUpdateJob}.
+ */
+class LibrarySourceAttachmentJob extends Job {
+
+  private static final Logger logger = Logger.getLogger(LibrarySourceAttachmentJob.class.getName());
+
+  // every download is a network round-trip, so a few run at once
+  private static final int MAX_CONCURRENT_DOWNLOADS = 4;
+  private static final long CANCELLATION_CHECK_INTERVAL_MS = 100;
+
+  private static final LibrarySourceAttachmentJob instance = new LibrarySourceAttachmentJob();
+
+  private static class Request {
+    private final IJavaProject project;
+    private final LibraryClasspathContainer container;
+    private final List<LibraryFile> libraryFiles;
+    private final ILibraryRepositoryService repositoryService;
+    private final LibraryClasspathContainerSerializer serializer;
+
+    private Request(IJavaProject project, LibraryClasspathContainer container, List<LibraryFile> libraryFiles,
+                    ILibraryRepositoryService repositoryService, LibraryClasspathContainerSerializer serializer) {
+      this.project = project;
+      this.container = container;
+      this.libraryFiles = libraryFiles;
+      this.repositoryService = repositoryService;
+      this.serializer = serializer;
+    }
+  }
+
+  private final List<Request> pending = new ArrayList<>();
+
+  @VisibleForTesting
+  LibrarySourceAttachmentJob() {
+    super(Messages.LibrarySourceAttachmentJobName);
+    setSystem(true);
+  }
+
+  /**
+   * Schedules the sources of the entries of <code>container</code> without a source attachment to
+   * be downloaded and attached. The entries must be in the order of <code>libraryFiles</code>.
+   */
+  static void attachSources(IJavaProject project, LibraryClasspathContainer container, List<LibraryFile> libraryFiles,
+                            ILibraryRepositoryService repositoryService,
+                            LibraryClasspathContainerSerializer serializer) {
+    instance.add(project, container, libraryFiles, repositoryService, serializer);
+  }
+
+  @VisibleForTesting
+  synchronized void add(IJavaProject project, LibraryClasspathContainer container, List<LibraryFile> libraryFiles,
+                        ILibraryRepositoryService repositoryService, LibraryClasspathContainerSerializer serializer) {
+    pending.add(new Request(project, container, new ArrayList<>(libraryFiles), repositoryService, serializer));
+    schedule();
+  }
+
+  @Override
+  protected IStatus run(IProgressMonitor monitor) {
+    List<Request> batch;
+    synchronized (this) {
+      batch = new ArrayList<>(pending);
+      pending.clear();
+    }
+    IStatus status = Status.OK_STATUS;
+    ExecutorService executor = Executors.newFixedThreadPool(MAX_CONCURRENT_DOWNLOADS);
+    // source attachment key -> download, shared by the requests of all containers of this run;
+    // a later run downloads the sources again, in case they failed or have been deleted since
+    Map<String, Future<IPath>> downloads = new HashMap<>();
+    try {
+      // start the downloads of all containers before waiting for the first one
+      List<List<Future<IPath>>> requestDownloads = new ArrayList<>(batch.size());
+      for (Request request : batch) {
+        requestDownloads.add(submitDownloads(executor, request, downloads));
+      }
+      for (int i = 0; i < batch.size(); i++) {
+        try {
+          attachSources(batch.get(i), requestDownloads.get(i), monitor);
+        } catch (CoreException | IOException ex) {
+          logger.log(Level.WARNING, "Could not attach sources to " + batch.get(i).container.getPath(), ex); //$NON-NLS-1$
+          status = StatusUtil.error(this, Messages.LibrarySourceAttachmentError, ex);
+        }
+      }
+    } finally {
+      // on cancellation, the downloads that have not started are never run
+      for (Runnable download : executor.shutdownNow()) {
+        ((Future<?>) download).cancel(false);
+      }
+    }
+    return status;
+  }
+
+  private static List<Future<IPath>> submitDownloads(ExecutorService executor, Request request,
+                                                     Map<String, Future<IPath>> downloads) {
+    IClasspathEntry[] classpathEntries = request.container.getClasspathEntries();
+    List<Future<IPath>> requestDownloads = new ArrayList<>(classpathEntries.length);
+    for (int i = 0; i < classpathEntries.length; i++) {
+      if (classpathEntries[i].getSourceAttachmentPath() != null || i >= request.libraryFiles.size()) {
+        requestDownloads.add(null);
+        continue;
+      }
+      final LibraryFile libraryFile = request.libraryFiles.get(i);
+      final ILibraryRepositoryService repositoryService = request.repositoryService;
+      FutureTask<IPath> download = new FutureTask<>(new Callable<IPath>() {
+        @Override
+        public IPath call() throws LibraryRepositoryServiceException {
+          return repositoryService.resolveSourceAttachment(libraryFile);
+        }
+      });
+      Future<IPath> existing = downloads.get(getKey(libraryFile));
+      if (existing == null) {
+        downloads.put(getKey(libraryFile), download);
+        executor.execute(download);
+        requestDownloads.add(download);
+      } else {
+        requestDownloads.add(existing);
+      }
+    }
+    return requestDownloads;
+  }
+
+  private void attachSources(Request request, List<Future<IPath>> requestDownloads, IProgressMonitor monitor)
+      throws CoreException, IOException {
+    IClasspathEntry[] classpathEntries = request.container.getClasspathEntries();
+    // jar path -> downloaded source attachment
+    Map<IPath, IPath> sourceAttachmentPaths = new HashMap<>();
+    for (int i = 0; i < classpathEntries.length; i++) {
+      if (requestDownloads.get(i) == null) {
+        continue;
+      }
+      IPath sourceAttachmentPath = getSourceAttachmentPath(request.libraryFiles.get(i), requestDownloads.get(i),
+                                                           monitor);
+      if (sourceAttachmentPath != null) {
+        sourceAttachmentPaths.put(classpathEntries[i].getPath(), sourceAttachmentPath);
+      }
+    }
+    if (sourceAttachmentPaths.isEmpty()) {
+      return;
+    }
+
+    // the container may have been replaced while the sources were downloaded, e.g. by a resolver
+    // job, so the sources are attached to the entries of the installed one that have the same jars
+    IClasspathContainer installed =
+        JavaCore.getClasspathContainer(request.container.getPath(), request.project);
+    if (installed == null) {
+      return;
+    }
+    IClasspathEntry[] installedEntries = installed.getClasspathEntries();
+    IClasspathEntry[] attachedEntries = null;
+    for (int i = 0; i < installedEntries.length; i++) {
+      IClasspathEntry entry = installedEntries[i];
+      IPath sourceAttachmentPath = sourceAttachmentPaths.get(entry.getPath());
+      if (sourceAttachmentPath != null && entry.getSourceAttachmentPath() == null) {
+        if (attachedEntries == null) {
+          attachedEntries = installedEntries.clone();
+        }
+        attachedEntries[i] = JavaCore.newLibraryEntry(entry.getPath(),
+                                                      sourceAttachmentPath,
+                                                      null /* sourceAttachmentRootPath */,
+                                                      entry.getAccessRules(),
+                                                      entry.getExtraAttributes(),
+                                                      entry.isExported());
+      }
+    }
+    if (attachedEntries != null) {
+      LibraryClasspathContainer container = new LibraryClasspathContainer(installed.getPath(),
+                                                                          installed.getDescription(),
+                                                                          attachedEntries);
+      request.serializer.saveContainer(request.project, container);
+      LibraryContainerUpdateJob.replace(request.project, installed, container);
+    }
+  }
+
+  /**
+   * Waits for <code>download</code>, checking <code>monitor</code> for cancellation while waiting.
+   *
+   * @return the downloaded source attachment, or null if it could not be downloaded
+   */
+  private IPath getSourceAttachmentPath(LibraryFile libraryFile, Future<IPath> download, IProgressMonitor monitor) {
+    try {
+      while (true) {
+        if (monitor.isCanceled()) {
+          throw new OperationCanceledException();
+        }
+        try {
+          return download.get(CANCELLATION_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+          // check for cancellation again
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new OperationCanceledException();
+    } catch (ExecutionException ex) {
+      // many artifacts have no sources, which leaves the entry without a source attachment
+      logger.log(Level.FINE, "No sources for " + getKey(libraryFile), ex.getCause()); //$NON-NLS-1$
+      return null;
+    }
+  }
+
+  private static String getKey(LibraryFile libraryFile) {
+    if (libraryFile.getSourceUri() != null) {
+      return libraryFile.getSourceUri().toString();
+    }
+    MavenCoordinates mavenCoordinates = libraryFile.getMavenCoordinates();
+    return Joiner.on(':').useForNull("").join(mavenCoordinates.getRepository(), //$NON-NLS-1$
+                                              mavenCoordinates.getGroupId(),
+                                              mavenCoordinates.getArtifactId(),
+                                              mavenCoordinates.getVersion());
+  }
+}
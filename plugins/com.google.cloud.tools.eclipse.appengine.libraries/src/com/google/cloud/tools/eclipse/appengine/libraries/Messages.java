@@ -21,17 +21,31 @@ import org.eclipse.osgi.util.NLS;
 public class Messages extends NLS {
   private static final String BUNDLE_NAME = "com.google.cloud.tools.eclipse.appengine.libraries.messages"; //$NON-NLS-1$
   public static String AppEngineLibraryContainerResolverJobName;
+  public static String ArtifactChecksumMismatch;
   public static String ContainerPathInvalidFirstSegment;
   public static String ContainerPathNotTwoSegments;
   public static String CreateLibraryError;
+  public static String DownloadSourceError;
+  public static String ExternalLibraryCatalogWatchJobName;
+  public static String LibraryCatalogChangeError;
+  public static String LibraryCatalogChangeJobName;
+  public static String LibraryContainerUpdateError;
+  public static String LibraryContainerUpdateJobName;
+  public static String LibraryContainerValidationError;
+  public static String LibraryContainerValidationJobName;
+  public static String LibrarySourceAttachmentError;
+  public static String LibrarySourceAttachmentJobName;
   public static String LoadContainerFailed;
   public static String RepositoryCannotBeLocated;
   public static String RepositoryUriInvalid;
   public static String RepositoryUriNotAbsolute;
   public static String ResolveArtifactError;
+  public static String TaskEvictUnusedJars;
+  public static String TaskRefreshLatestVersion;
   public static String TaskResolveArtifacts;
   public static String TaskResolveLibraries;
   public static String TaskResolveLibrariesError;
+  public static String TaskStoreLatestVersions;
   public static String UnexpectedConfigurationElement;
 
   static {
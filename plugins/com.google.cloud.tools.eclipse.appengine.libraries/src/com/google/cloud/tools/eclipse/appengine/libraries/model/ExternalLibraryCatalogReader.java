@@ -0,0 +1,318 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.model;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.Messages;
+import com.google.common.base.Strings;
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads library definitions from a JSON file maintained outside of the IDE, e.g. on a shared
+ * drive. The file is read as a stream, so that the text of a large catalog is never held in
+ * memory as a whole. Its structure follows the elements and attributes of the
+ * {@value ILibraryCatalog#LIBRARIES_EXTENSION_POINT} extension point:
+ *
+ * <pre>
+ * {
+ *   "libraries": [
+ *     {
+ *       "id": "objectify",
+ *       "name": "Objectify",
+ *       "siteUri": "https://github.com/objectify/objectify/wiki",
+ *       "export": true,
+ *       "recommendation": "optional",
+ *       "libraryDependencies": [ "appengine-api" ],
+ *       "libraryFiles": [
+ *         {
+ *           "javadocUri": "http://static.javadoc.io/com.googlecode.objectify/objectify/5.1.13/",
+ *           "sourceUri": "...",
+ *           "export": true,
+ *           "mavenCoordinates": {
+ *             "groupId": "com.googlecode.objectify",
+ *             "artifactId": "objectify",
+ *             "version": "5.1.13",
+ *             "type": "jar",
+ *             "classifier": "...",
+ *             "repositoryUri": "central"
+ *           },
+ *           "filters": [
+ *             { "exclusionFilter": "com/googlecode/objectify/impl/**" },
+ *             { "inclusionFilter": "com/googlecode/objectify/**" }
+ *           ]
+ *         }
+ *       ]
+ *     }
+ *   ]
+ * }
+ * </pre>
+ *
+ * Unknown names are skipped, so that newer catalogs can be read by older versions of the plugin.
+ */
+class ExternalLibraryCatalogReader {
+
+  private static final String NAME_LIBRARIES = "libraries"; //$NON-NLS-1$
+  private static final String NAME_ID = "id"; //$NON-NLS-1$
+  private static final String NAME_NAME = "name"; //$NON-NLS-1$
+  private static final String NAME_SITE_URI = "siteUri"; //$NON-NLS-1$
+  private static final String NAME_EXPORT = "export"; //$NON-NLS-1$
+  private static final String NAME_RECOMMENDATION = "recommendation"; //$NON-NLS-1$
+  private static final String NAME_LIBRARY_DEPENDENCIES = "libraryDependencies"; //$NON-NLS-1$
+  private static final String NAME_LIBRARY_FILES = "libraryFiles"; //$NON-NLS-1$
+  private static final String NAME_SOURCE_URI = "sourceUri"; //$NON-NLS-1$
+  private static final String NAME_JAVADOC_URI = "javadocUri"; //$NON-NLS-1$
+  private static final String NAME_MAVEN_COORDINATES = "mavenCoordinates"; //$NON-NLS-1$
+  private static final String NAME_FILTERS = "filters"; //$NON-NLS-1$
+  private static final String NAME_EXCLUSION_FILTER = "exclusionFilter"; //$NON-NLS-1$
+  private static final String NAME_INCLUSION_FILTER = "inclusionFilter"; //$NON-NLS-1$
+  private static final String NAME_GROUP_ID = "groupId"; //$NON-NLS-1$
+  private static final String NAME_ARTIFACT_ID = "artifactId"; //$NON-NLS-1$
+  private static final String NAME_VERSION = "version"; //$NON-NLS-1$
+  private static final String NAME_TYPE = "type"; //$NON-NLS-1$
+  private static final String NAME_CLASSIFIER = "classifier"; //$NON-NLS-1$
+  private static final String NAME_REPOSITORY_URI = "repositoryUri"; //$NON-NLS-1$
+
+  /**
+   * @return the libraries defined by the catalog read from <code>reader</code>
+   * @throws LibraryFactoryException if the catalog is not well-formed or defines an invalid
+   *     library
+   */
+  List<Library> read(Reader reader) throws LibraryFactoryException {
+    try (JsonReader json = new JsonReader(reader)) {
+      List<Library> libraries = new ArrayList<>();
+      json.beginObject();
+      while (json.hasNext()) {
+        if (NAME_LIBRARIES.equals(json.nextName())) {
+          json.beginArray();
+          while (json.hasNext()) {
+            libraries.add(readLibrary(json));
+          }
+          json.endArray();
+        } else {
+          json.skipValue();
+        }
+      }
+      json.endObject();
+      return libraries;
+    } catch (IOException | URISyntaxException | IllegalArgumentException | IllegalStateException ex) {
+      // JsonReader throws IllegalStateException when a value is not of the expected type
+      throw new LibraryFactoryException(Messages.CreateLibraryError, ex);
+    }
+  }
+
+  private static Library readLibrary(JsonReader json) throws IOException, URISyntaxException {
+    String id = null;
+    String name = null;
+    URI siteUri = null;
+    Boolean export = null;
+    LibraryRecommendation recommendation = null;
+    List<String> libraryDependencies = new ArrayList<>();
+    List<LibraryFile> libraryFiles = new ArrayList<>();
+    json.beginObject();
+    while (json.hasNext()) {
+      switch (json.nextName()) {
+        case NAME_ID:
+          id = json.nextString();
+          break;
+        case NAME_NAME:
+          name = json.nextString();
+          break;
+        case NAME_SITE_URI:
+          siteUri = getUri(json.nextString());
+          break;
+        case NAME_EXPORT:
+          export = json.nextBoolean();
+          break;
+        case NAME_RECOMMENDATION:
+          recommendation = LibraryRecommendation.valueOf(json.nextString().toUpperCase(Locale.US));
+          break;
+        case NAME_LIBRARY_DEPENDENCIES:
+          json.beginArray();
+          while (json.hasNext()) {
+            String libraryId = json.nextString();
+            if (!Strings.isNullOrEmpty(libraryId)) {
+              libraryDependencies.add(libraryId);
+            }
+          }
+          json.endArray();
+          break;
+        case NAME_LIBRARY_FILES:
+          json.beginArray();
+          while (json.hasNext()) {
+            libraryFiles.add(readLibraryFile(json));
+          }
+          json.endArray();
+          break;
+        default:
+          json.skipValue();
+          break;
+      }
+    }
+    json.endObject();
+
+    checkPresent(id, NAME_ID);
+    Library library = new Library(id);
+    library.setName(name);
+    library.setSiteUri(siteUri);
+    if (export != null) {
+      library.setExport(export);
+    }
+    if (recommendation != null) {
+      library.setRecommendation(recommendation);
+    }
+    library.setLibraryDependencies(libraryDependencies);
+    library.setLibraryFiles(libraryFiles);
+    return library;
+  }
+
+  private static LibraryFile readLibraryFile(JsonReader json) throws IOException, URISyntaxException {
+    MavenCoordinates mavenCoordinates = null;
+    URI sourceUri = null;
+    URI javadocUri = null;
+    Boolean export = null;
+    List<Filter> filters = new ArrayList<>();
+    json.beginObject();
+    while (json.hasNext()) {
+      switch (json.nextName()) {
+        case NAME_MAVEN_COORDINATES:
+          mavenCoordinates = readMavenCoordinates(json);
+          break;
+        case NAME_SOURCE_URI:
+          sourceUri = getUri(json.nextString());
+          break;
+        case NAME_JAVADOC_URI:
+          javadocUri = getUri(json.nextString());
+          break;
+        case NAME_EXPORT:
+          export = json.nextBoolean();
+          break;
+        case NAME_FILTERS:
+          json.beginArray();
+          while (json.hasNext()) {
+            readFilters(json, filters);
+          }
+          json.endArray();
+          break;
+        default:
+          json.skipValue();
+          break;
+      }
+    }
+    json.endObject();
+
+    checkPresent(mavenCoordinates, NAME_MAVEN_COORDINATES);
+    LibraryFile libraryFile = new LibraryFile(mavenCoordinates);
+    libraryFile.setSourceUri(sourceUri);
+    libraryFile.setJavadocUri(javadocUri);
+    if (export != null) {
+      libraryFile.setExport(export);
+    }
+    libraryFile.setFilters(filters);
+    return libraryFile;
+  }
+
+  private static MavenCoordinates readMavenCoordinates(JsonReader json) throws IOException {
+    String groupId = null;
+    String artifactId = null;
+    String version = null;
+    String type = null;
+    String classifier = null;
+    String repository = null;
+    json.beginObject();
+    while (json.hasNext()) {
+      switch (json.nextName()) {
+        case NAME_GROUP_ID:
+          groupId = json.nextString();
+          break;
+        case NAME_ARTIFACT_ID:
+          artifactId = json.nextString();
+          break;
+        case NAME_VERSION:
+          version = json.nextString();
+          break;
+        case NAME_TYPE:
+          type = json.nextString();
+          break;
+        case NAME_CLASSIFIER:
+          classifier = json.nextString();
+          break;
+        case NAME_REPOSITORY_URI:
+          repository = json.nextString();
+          break;
+        default:
+          json.skipValue();
+          break;
+      }
+    }
+    json.endObject();
+
+    checkPresent(groupId, NAME_GROUP_ID);
+    checkPresent(artifactId, NAME_ARTIFACT_ID);
+    MavenCoordinates mavenCoordinates = new MavenCoordinates(groupId, artifactId);
+    if (!Strings.isNullOrEmpty(repository)) {
+      mavenCoordinates.setRepository(repository);
+    }
+    if (!Strings.isNullOrEmpty(version)) {
+      mavenCoordinates.setVersion(version);
+    }
+    if (!Strings.isNullOrEmpty(type)) {
+      mavenCoordinates.setType(type);
+    }
+    if (!Strings.isNullOrEmpty(classifier)) {
+      mavenCoordinates.setClassifier(classifier);
+    }
+    return mavenCoordinates;
+  }
+
+  private static void readFilters(JsonReader json, List<Filter> filters) throws IOException {
+    json.beginObject();
+    while (json.hasNext()) {
+      switch (json.nextName()) {
+        case NAME_EXCLUSION_FILTER:
+          filters.add(Filter.exclusionFilter(json.nextString()));
+          break;
+        case NAME_INCLUSION_FILTER:
+          filters.add(Filter.inclusionFilter(json.nextString()));
+          break;
+        default:
+          json.skipValue();
+          break;
+      }
+    }
+    json.endObject();
+  }
+
+  private static void checkPresent(Object value, String name) {
+    if (value == null) {
+      throw new IllegalArgumentException(name + " is missing"); //$NON-NLS-1$
+    }
+  }
+
+  private static URI getUri(String uriString) throws URISyntaxException {
+    if (uriString == null || uriString.isEmpty()) {
+      return null;
+    } else {
+      return new URI(uriString);
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.model;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.Messages;
+import com.google.common.base.Objects;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Checks the external catalog file of a {@link LibraryCatalog} for changes at a fixed interval,
+ * and makes the catalog read it again when its modification time or size changed. The file is
+ * polled rather than watched through a {@link java.nio.file.WatchService}, since the file
+ * systems of shared drives do not report changes made by other machines.
+ */
+class ExternalLibraryCatalogWatchJob extends Job {
+
+  static final long POLL_INTERVAL_MS = 10000;
+
+  private final LibraryCatalog catalog;
+  private final Path file;
+  // the state of the file when it was last read, null if it did not exist
+  private FileTime lastModified;
+  private long size = -1;
+
+  ExternalLibraryCatalogWatchJob(LibraryCatalog catalog, Path file) {
+    super(Messages.ExternalLibraryCatalogWatchJobName);
+    this.catalog = catalog;
+    this.file = file;
+    setSystem(true);
+  }
+
+  /**
+   * Records the current state of the file, so that it is only reported once it changes again.
+   */
+  synchronized void fileRead() {
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+      lastModified = attributes.lastModifiedTime();
+      size = attributes.size();
+    } catch (IOException ex) {
+      lastModified = null;
+      size = -1;
+    }
+  }
+
+  @Override
+  protected IStatus run(IProgressMonitor monitor) {
+    if (hasChanged()) {
+      catalog.reloadExternalCatalog();
+    }
+    if (!monitor.isCanceled()) {
+      schedule(POLL_INTERVAL_MS);
+    }
+    return Status.OK_STATUS;
+  }
+
+  private synchronized boolean hasChanged() {
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+      return !Objects.equal(attributes.lastModifiedTime(), lastModified) || attributes.size() != size;
+    } catch (NoSuchFileException ex) {
+      return lastModified != null;
+    } catch (IOException ex) {
+      // e.g. the shared drive is unavailable for a moment, which is no reason to drop its libraries
+      return false;
+    }
+  }
+}
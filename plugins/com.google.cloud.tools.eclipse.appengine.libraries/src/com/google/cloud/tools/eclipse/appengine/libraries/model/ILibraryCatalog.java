@@ -0,0 +1,54 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.model;
+
+import java.util.Collection;
+
+/**
+ * Service interface for looking up the libraries defined through the
+ * {@value #LIBRARIES_EXTENSION_POINT} extension point.
+ */
+public interface ILibraryCatalog {
+
+  String LIBRARIES_EXTENSION_POINT = "com.google.cloud.tools.eclipse.appengine.libraries"; //$NON-NLS-1$
+
+  /**
+   * @return the library with the ID <code>libraryId</code>, or <code>null</code> if no such
+   *     library is defined
+   */
+  Library getLibrary(String libraryId);
+
+  /**
+   * @return an unmodifiable snapshot of all defined libraries, which does not change when
+   *     libraries are added or removed later
+   */
+  Collection<Library> getLibraries();
+
+  /**
+   * @return the dependencies between the libraries returned by {@link #getLibraries()}, which do
+   *     not change when libraries are added or removed later
+   */
+  LibraryDependencyGraph getDependencyGraph();
+
+  /**
+   * Registers <code>listener</code> to be notified when libraries are added, removed, or changed.
+   * Has no effect if it is registered already.
+   */
+  void addListener(ILibraryCatalogListener listener);
+
+  void removeListener(ILibraryCatalogListener listener);
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.model;
+
+import java.util.Set;
+
+/**
+ * Notified by an {@link ILibraryCatalog} when the definitions of its libraries change, e.g. when
+ * the external catalog file is edited.
+ */
+public interface ILibraryCatalogListener {
+
+  /**
+   * Called after the catalog has been updated, on the thread that updated it.
+   *
+   * @param libraryIds the IDs of the libraries that were added, removed, or changed, and of the
+   *     libraries that require them, directly or through other libraries
+   */
+  void librariesChanged(Set<String> libraryIds);
+}
@@ -42,7 +42,7 @@ public final class Library {
   private List<LibraryFile> libraryFiles = Collections.emptyList();
 
   // library IDs of dependencies that are also need to be added to the build path along this library
-  private List<String> libraryDependencies = new ArrayList<>();
+  private List<String> libraryDependencies = Collections.emptyList();
 
   private LibraryRecommendation recommendation = LibraryRecommendation.OPTIONAL;
 
@@ -76,16 +76,20 @@ public final class Library {
     this.siteUri = siteUri;
   }
 
+  /**
+   * @return the artifacts associated with this library, as an unmodifiable list
+   */
   public List<LibraryFile> getLibraryFiles() {
-    return new ArrayList<>(libraryFiles);
+    return libraryFiles;
   }
 
   /**
-   * @param libraryFiles artifacts associated with this library, cannot be <code>null</code>
+   * @param libraryFiles artifacts associated with this library, cannot be <code>null</code>; the
+   *     list is copied, so later changes to it do not affect this library
    */
   public void setLibraryFiles(List<LibraryFile> libraryFiles) {
     Preconditions.checkNotNull(libraryFiles);
-    this.libraryFiles = new ArrayList<>(libraryFiles);
+    this.libraryFiles = Collections.unmodifiableList(new ArrayList<>(libraryFiles));
   }
 
   public boolean isExport() {
@@ -96,17 +100,20 @@ public final class Library {
     this.export = export;
   }
 
+  /**
+   * @return the IDs of the libraries this library depends on, as an unmodifiable list
+   */
   public List<String> getLibraryDependencies() {
-    return new ArrayList<>(libraryDependencies);
+    return libraryDependencies;
   }
 
   /**
    * @param libraryDependencies list of libraryIds that are dependencies of this library and should be added to the 
-   * classpath, cannot be <code>null</code>
+   * classpath, cannot be <code>null</code>; the list is copied
    */
   public void setLibraryDependencies(List<String> libraryDependencies) {
     Preconditions.checkNotNull(libraryDependencies);
-    this.libraryDependencies = new ArrayList<>(libraryDependencies);
+    this.libraryDependencies = Collections.unmodifiableList(new ArrayList<>(libraryDependencies));
   }
 
   /**
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.model;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IExtension;
+import org.eclipse.core.runtime.IExtensionPoint;
+import org.eclipse.core.runtime.IExtensionRegistry;
+import org.eclipse.core.runtime.IRegistryEventListener;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.RegistryFactory;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+
+/**
+ * Implementation of {@link ILibraryCatalog} that parses the library definitions once when the
+ * component is activated and again only when extensions of the
+ * {@value ILibraryCatalog#LIBRARIES_EXTENSION_POINT} extension point are added or removed, e.g.
+ * when a bundle contributing libraries is installed.
+ * <p>
+ * Libraries can also be defined in an external catalog file, set through the
+ * {@value #EXTERNAL_CATALOG_PREFERENCE} preference, e.g. in the
+ * <code>plugin_customization.ini</code> of an installation. Its libraries replace the ones of the
+ * extension point with the same ID. The file is read again whenever it changes, and
+ * {@link ILibraryCatalogListener listeners} are told which libraries changed, so that only their
+ * containers need to be resolved again.
+ */
+@Component
+public class LibraryCatalog implements ILibraryCatalog, IRegistryEventListener {
+
+  /**
+   * Preference of this bundle for the path of a JSON file with additional library definitions,
+   * read by {@link ExternalLibraryCatalogReader}.
+   */
+  public static final String EXTERNAL_CATALOG_PREFERENCE = "externalCatalog"; //$NON-NLS-1$
+
+  private static final Logger logger = Logger.getLogger(LibraryCatalog.class.getName());
+
+  private IExtensionRegistry extensionRegistry;
+  private final LibraryFactory libraryFactory;
+  private Path externalCatalog;
+  private ExternalLibraryCatalogWatchJob watchJob;
+  // libraries of the external catalog file as last read successfully
+  private List<Library> externalLibraries = Collections.emptyList();
+  // replaced as a whole whenever the extensions change, so readers need no locking
+  private volatile Map<String, Library> libraries = Collections.emptyMap();
+  private volatile LibraryDependencyGraph dependencyGraph = LibraryDependencyGraph.empty();
+  private final CopyOnWriteArrayList<ILibraryCatalogListener> listeners = new CopyOnWriteArrayList<>();
+
+  public LibraryCatalog() {
+    this(null, new LibraryFactory(), null);
+  }
+
+  @VisibleForTesting
+  LibraryCatalog(IExtensionRegistry extensionRegistry, LibraryFactory libraryFactory) {
+    this(extensionRegistry, libraryFactory, null);
+  }
+
+  @VisibleForTesting
+  LibraryCatalog(IExtensionRegistry extensionRegistry, LibraryFactory libraryFactory, Path externalCatalog) {
+    this.extensionRegistry = extensionRegistry;
+    this.libraryFactory = libraryFactory;
+    this.externalCatalog = externalCatalog;
+  }
+
+  @Activate
+  protected void activate() {
+    if (extensionRegistry == null) {
+      extensionRegistry = RegistryFactory.getRegistry();
+    }
+    if (externalCatalog == null) {
+      externalCatalog = getExternalCatalogPreference();
+    }
+    // listen before parsing so that no change is missed in between
+    extensionRegistry.addListener(this, LIBRARIES_EXTENSION_POINT);
+    if (externalCatalog != null) {
+      watchJob = new ExternalLibraryCatalogWatchJob(this, externalCatalog);
+      readExternalCatalog();
+      watchJob.schedule(ExternalLibraryCatalogWatchJob.POLL_INTERVAL_MS);
+    }
+    reload();
+  }
+
+  @Deactivate
+  protected void deactivate() {
+    extensionRegistry.removeListener(this);
+    if (watchJob != null) {
+      watchJob.cancel();
+    }
+  }
+
+  @Override
+  public Library getLibrary(String libraryId) {
+    return libraries.get(libraryId);
+  }
+
+  @Override
+  public Collection<Library> getLibraries() {
+    return libraries.values();
+  }
+
+  @Override
+  public LibraryDependencyGraph getDependencyGraph() {
+    return dependencyGraph;
+  }
+
+  @Override
+  public void addListener(ILibraryCatalogListener listener) {
+    listeners.addIfAbsent(listener);
+  }
+
+  @Override
+  public void removeListener(ILibraryCatalogListener listener) {
+    listeners.remove(listener);
+  }
+
+  @Override
+  public void added(IExtension[] extensions) {
+    reload();
+  }
+
+  @Override
+  public void removed(IExtension[] extensions) {
+    reload();
+  }
+
+  @Override
+  public void added(IExtensionPoint[] extensionPoints) {
+  }
+
+  @Override
+  public void removed(IExtensionPoint[] extensionPoints) {
+  }
+
+  /**
+   * Reads the external catalog file again and updates the libraries, e.g. after it changed.
+   */
+  void reloadExternalCatalog() {
+    readExternalCatalog();
+    reload();
+  }
+
+  private synchronized void readExternalCatalog() {
+    // recorded before reading, so that a change while reading is seen by the next check
+    watchJob.fileRead();
+    if (!Files.exists(externalCatalog)) {
+      externalLibraries = Collections.emptyList();
+      return;
+    }
+    try (Reader reader = Files.newBufferedReader(externalCatalog, StandardCharsets.UTF_8)) {
+      externalLibraries = new ExternalLibraryCatalogReader().read(reader);
+    } catch (IOException | LibraryFactoryException exception) {
+      // e.g. the file is being edited; its libraries stay as last read until it is valid again
+      logger.log(Level.WARNING, "Failed to read external library catalog " + externalCatalog, exception); //$NON-NLS-1$
+    }
+  }
+
+  private void reload() {
+    Set<String> changedIds;
+    synchronized (this) {
+      IConfigurationElement[] configurationElements =
+          extensionRegistry.getConfigurationElementsFor(LIBRARIES_EXTENSION_POINT);
+      Map<String, Library> parsed = new HashMap<>(configurationElements.length + externalLibraries.size());
+      for (IConfigurationElement configurationElement : configurationElements) {
+        try {
+          Library library = libraryFactory.create(configurationElement);
+          parsed.put(library.getId(), library);
+        } catch (LibraryFactoryException exception) {
+          logger.log(Level.SEVERE, "Failed to initialize libraries", exception); //$NON-NLS-1$
+        }
+      }
+      for (Library library : externalLibraries) {
+        parsed.put(library.getId(), library);
+      }
+      LibraryDependencyGraph previousGraph = dependencyGraph;
+      changedIds = LibraryChanges.getChangedLibraryIds(libraries, parsed);
+      // the graph is computed before the libraries are published, so that it never lags behind them
+      dependencyGraph = LibraryDependencyGraph.create(parsed.values());
+      libraries = Collections.unmodifiableMap(parsed);
+      changedIds = LibraryChanges.getAffectedLibraryIds(changedIds, previousGraph, dependencyGraph);
+    }
+    if (!changedIds.isEmpty()) {
+      for (ILibraryCatalogListener listener : listeners) {
+        listener.librariesChanged(Collections.unmodifiableSet(changedIds));
+      }
+    }
+  }
+
+  private Path getExternalCatalogPreference() {
+    String path = Platform.getPreferencesService().getString(
+        FrameworkUtil.getBundle(getClass()).getSymbolicName(), EXTERNAL_CATALOG_PREFERENCE, null, null);
+    return Strings.isNullOrEmpty(path) ? null : Paths.get(path);
+  }
+}
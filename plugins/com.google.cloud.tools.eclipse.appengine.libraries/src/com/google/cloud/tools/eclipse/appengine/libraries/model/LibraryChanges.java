@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.model;
+
+import com.google.common.base.Objects;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compares two versions of the library definitions of a catalog. The model classes have no
+ * notion of equality, so the definitions are compared field by field.
+ */
+class LibraryChanges {
+
+  private LibraryChanges() {
+  }
+
+  /**
+   * @return the IDs of the libraries that were added, removed, or whose definition changed
+   *     between <code>before</code> and <code>after</code>
+   */
+  static Set<String> getChangedLibraryIds(Map<String, Library> before, Map<String, Library> after) {
+    Set<String> changed = new LinkedHashSet<>();
+    for (Map.Entry<String, Library> entry : after.entrySet()) {
+      Library previous = before.get(entry.getKey());
+      if (previous == null || !sameDefinition(previous, entry.getValue())) {
+        changed.add(entry.getKey());
+      }
+    }
+    for (String libraryId : before.keySet()) {
+      if (!after.containsKey(libraryId)) {
+        changed.add(libraryId);
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * @return the IDs of <code>changedIds</code> and of the libraries that require any of them in
+   *     <code>before</code> or <code>after</code>
+   */
+  static Set<String> getAffectedLibraryIds(Set<String> changedIds, LibraryDependencyGraph before,
+                                           LibraryDependencyGraph after) {
+    Set<String> affected = new LinkedHashSet<>(changedIds);
+    for (String libraryId : changedIds) {
+      affected.addAll(before.getDependentLibraryIds(libraryId));
+      affected.addAll(after.getDependentLibraryIds(libraryId));
+    }
+    return affected;
+  }
+
+  static boolean sameDefinition(Library library, Library other) {
+    return library.getId().equals(other.getId())
+        && Objects.equal(library.getName(), other.getName())
+        && Objects.equal(library.getSiteUri(), other.getSiteUri())
+        && library.isExport() == other.isExport()
+        && library.getRecommendation() == other.getRecommendation()
+        && library.getLibraryDependencies().equals(other.getLibraryDependencies())
+        && sameLibraryFiles(library.getLibraryFiles(), other.getLibraryFiles());
+  }
+
+  private static boolean sameLibraryFiles(List<LibraryFile> libraryFiles, List<LibraryFile> others) {
+    if (libraryFiles.size() != others.size()) {
+      return false;
+    }
+    for (int i = 0; i < libraryFiles.size(); i++) {
+      LibraryFile libraryFile = libraryFiles.get(i);
+      LibraryFile other = others.get(i);
+      if (!Objects.equal(libraryFile.getSourceUri(), other.getSourceUri())
+          || !Objects.equal(libraryFile.getJavadocUri(), other.getJavadocUri())
+          || libraryFile.isExport() != other.isExport()
+          || !sameMavenCoordinates(libraryFile.getMavenCoordinates(), other.getMavenCoordinates())
+          || !sameFilters(libraryFile.getFilters(), other.getFilters())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean sameMavenCoordinates(MavenCoordinates mavenCoordinates, MavenCoordinates other) {
+    return mavenCoordinates.getGroupId().equals(other.getGroupId())
+        && mavenCoordinates.getArtifactId().equals(other.getArtifactId())
+        && Objects.equal(mavenCoordinates.getVersion(), other.getVersion())
+        && Objects.equal(mavenCoordinates.getType(), other.getType())
+        && Objects.equal(mavenCoordinates.getClassifier(), other.getClassifier())
+        && Objects.equal(mavenCoordinates.getRepository(), other.getRepository());
+  }
+
+  private static boolean sameFilters(List<Filter> filters, List<Filter> others) {
+    if (filters.size() != others.size()) {
+      return false;
+    }
+    for (int i = 0; i < filters.size(); i++) {
+      if (filters.get(i).isExclude() != others.get(i).isExclude()
+          || !filters.get(i).getPattern().equals(others.get(i).getPattern())) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.model;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * The dependencies between a set of libraries, as declared by
+ * {@link Library#getLibraryDependencies()}. The transitive closure of the dependencies and its
+ * reverse are computed once when the graph is created, so that looking up the libraries required
+ * by a library, or the libraries requiring it, takes constant time.
+ * <p>
+ * Libraries that depend on each other, directly or through other libraries, form a cycle. All
+ * libraries of a cycle require each other, and {@link #getCycles()} reports them. Dependencies on
+ * libraries that are not part of the graph are ignored.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ */
+public final class LibraryDependencyGraph {
+
+  private static final Logger logger = Logger.getLogger(LibraryDependencyGraph.class.getName());
+
+  private static final LibraryDependencyGraph EMPTY =
+      new LibraryDependencyGraph(Collections.<Library>emptyList());
+
+  // library ID -> IDs of the libraries it requires, transitively, itself excluded
+  private final Map<String, Set<String>> requiredLibraries;
+  // library ID -> IDs of the libraries that require it, transitively, itself excluded
+  private final Map<String, Set<String>> dependentLibraries;
+  private final List<Set<String>> cycles;
+
+  /**
+   * @return the graph of no libraries
+   */
+  public static LibraryDependencyGraph empty() {
+    return EMPTY;
+  }
+
+  /**
+   * @return the graph of the dependencies between <code>libraries</code>
+   */
+  public static LibraryDependencyGraph create(Collection<Library> libraries) {
+    Preconditions.checkNotNull(libraries, "libraries is null");
+    return libraries.isEmpty() ? EMPTY : new LibraryDependencyGraph(libraries);
+  }
+
+  private LibraryDependencyGraph(Collection<Library> libraries) {
+    Map<String, List<String>> dependencies = new LinkedHashMap<>();
+    for (Library library : libraries) {
+      dependencies.put(library.getId(), library.getLibraryDependencies());
+    }
+    ClosureBuilder builder = new ClosureBuilder(dependencies);
+    for (String libraryId : dependencies.keySet()) {
+      builder.visit(libraryId);
+    }
+
+    ImmutableMap.Builder<String, Set<String>> required = ImmutableMap.builder();
+    Map<String, Set<String>> dependents = new LinkedHashMap<>();
+    for (String libraryId : dependencies.keySet()) {
+      Set<String> closure = new LinkedHashSet<>(builder.closures.get(libraryId));
+      closure.remove(libraryId);
+      required.put(libraryId, ImmutableSet.copyOf(closure));
+      for (String requiredId : closure) {
+        Set<String> requiring = dependents.get(requiredId);
+        if (requiring == null) {
+          requiring = new LinkedHashSet<>();
+          dependents.put(requiredId, requiring);
+        }
+        requiring.add(libraryId);
+      }
+    }
+    requiredLibraries = required.build();
+    ImmutableMap.Builder<String, Set<String>> dependent = ImmutableMap.builder();
+    for (Map.Entry<String, Set<String>> entry : dependents.entrySet()) {
+      dependent.put(entry.getKey(), ImmutableSet.copyOf(entry.getValue()));
+    }
+    dependentLibraries = dependent.build();
+    cycles = ImmutableList.copyOf(builder.cycles);
+    for (Set<String> cycle : cycles) {
+      logger.warning("Libraries depend on each other: " + cycle); //$NON-NLS-1$
+    }
+  }
+
+  /**
+   * @return the IDs of the libraries that <code>libraryId</code> requires, directly or through
+   *     other libraries; empty if <code>libraryId</code> is not part of the graph
+   */
+  public Set<String> getRequiredLibraryIds(String libraryId) {
+    Set<String> required = requiredLibraries.get(libraryId);
+    return required == null ? Collections.<String>emptySet() : required;
+  }
+
+  /**
+   * @return the IDs of the libraries that any of <code>libraryIds</code> require, excluding
+   *     <code>libraryIds</code> themselves
+   */
+  public Set<String> getRequiredLibraryIds(Collection<String> libraryIds) {
+    Set<String> required = new LinkedHashSet<>();
+    for (String libraryId : libraryIds) {
+      required.addAll(getRequiredLibraryIds(libraryId));
+    }
+    required.removeAll(libraryIds);
+    return required;
+  }
+
+  /**
+   * @return the IDs of the libraries that require <code>libraryId</code>, directly or through
+   *     other libraries; empty if no library requires it
+   */
+  public Set<String> getDependentLibraryIds(String libraryId) {
+    Set<String> dependents = dependentLibraries.get(libraryId);
+    return dependents == null ? Collections.<String>emptySet() : dependents;
+  }
+
+  /**
+   * @return true if <code>libraryId</code> requires <code>requiredLibraryId</code>, directly or
+   *     through other libraries
+   */
+  public boolean requires(String libraryId, String requiredLibraryId) {
+    return getRequiredLibraryIds(libraryId).contains(requiredLibraryId);
+  }
+
+  /**
+   * @return the sets of libraries that depend on each other
+   */
+  public List<Set<String>> getCycles() {
+    return cycles;
+  }
+
+  /**
+   * Finds the strongly connected components of the dependencies with Tarjan's algorithm. A
+   * component is completed only after all components it depends on, so the closure of each
+   * component is computed from the closures of its dependencies, and every library is visited
+   * once.
+   */
+  private static class ClosureBuilder {
+
+    private final Map<String, List<String>> dependencies;
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final Map<String, Integer> lowLinks = new HashMap<>();
+    private final Deque<String> stack = new ArrayDeque<>();
+    private final Set<String> onStack = new HashSet<>();
+    // library ID -> IDs of the libraries it requires, itself included, shared within a component
+    private final Map<String, Set<String>> closures = new HashMap<>();
+    private final List<Set<String>> cycles = new ArrayList<>();
+
+    private ClosureBuilder(Map<String, List<String>> dependencies) {
+      this.dependencies = dependencies;
+    }
+
+    private void visit(String libraryId) {
+      if (indexes.containsKey(libraryId)) {
+        return;
+      }
+      int index = indexes.size();
+      indexes.put(libraryId, index);
+      lowLinks.put(libraryId, index);
+      stack.push(libraryId);
+      onStack.add(libraryId);
+
+      for (String dependencyId : dependencies.get(libraryId)) {
+        if (!dependencies.containsKey(dependencyId)) {
+          logger.warning("Library " + libraryId + " depends on unknown library " + dependencyId); //$NON-NLS-1$ //$NON-NLS-2$
+        } else if (!indexes.containsKey(dependencyId)) {
+          visit(dependencyId);
+          lowLinks.put(libraryId, Math.min(lowLinks.get(libraryId), lowLinks.get(dependencyId)));
+        } else if (onStack.contains(dependencyId)) {
+          lowLinks.put(libraryId, Math.min(lowLinks.get(libraryId), indexes.get(dependencyId)));
+        }
+      }
+
+      if (lowLinks.get(libraryId).equals(indexes.get(libraryId))) {
+        completeComponent(libraryId);
+      }
+    }
+
+    private void completeComponent(String rootId) {
+      Set<String> members = new LinkedHashSet<>();
+      String memberId;
+      do {
+        memberId = stack.pop();
+        onStack.remove(memberId);
+        members.add(memberId);
+      } while (!memberId.equals(rootId));
+
+      Set<String> closure = new LinkedHashSet<>();
+      boolean cyclic = members.size() > 1;
+      for (String member : members) {
+        for (String dependencyId : dependencies.get(member)) {
+          if (members.contains(dependencyId)) {
+            cyclic = true;
+          } else if (closures.containsKey(dependencyId)) {
+            closure.add(dependencyId);
+            closure.addAll(closures.get(dependencyId));
+          }
+        }
+      }
+      closure.addAll(members);
+      for (String member : members) {
+        closures.put(member, closure);
+      }
+      if (cyclic) {
+        cycles.add(Collections.unmodifiableSet(members));
+      }
+    }
+  }
+}
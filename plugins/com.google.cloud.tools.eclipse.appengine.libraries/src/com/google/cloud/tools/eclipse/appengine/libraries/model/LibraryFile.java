@@ -43,13 +43,20 @@ public class LibraryFile {
     return mavenCoordinates;
   }
 
+  /**
+   * @return the filters of this file in the order they apply, as an unmodifiable list
+   */
   public List<Filter> getFilters() {
-    return new ArrayList<>(filters);
+    return filters;
   }
 
+  /**
+   * @param filters the filters of this file, copied so that later changes to the list do not
+   *     affect this file; <code>null</code> leaves the current filters unchanged
+   */
   public void setFilters(List<Filter> filters) {
     if (filters != null) {
-      this.filters = new ArrayList<>(filters);
+      this.filters = Collections.unmodifiableList(new ArrayList<>(filters));
     }
   }
 
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.persistence;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.LibraryClasspathContainer;
+import com.google.cloud.tools.eclipse.appengine.libraries.repository.AccessRules;
+import com.google.cloud.tools.eclipse.util.io.PathUtil;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IAccessRule;
+import org.eclipse.jdt.core.IClasspathAttribute;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.JavaCore;
+
+/**
+ * Binary representation of a {@link LibraryClasspathContainer} in a container state file. The
+ * layout is:
+ * <pre>
+ * int magic, int format version, UTF description, UTF path, u2 entry count
+ * entry*: UTF path, bool has source attachment, [UTF source attachment path],
+ *         u2 access rule count, (int kind, UTF pattern)*,
+ *         u2 attribute count, (UTF name, UTF value)*
+ * </pre>
+ * where UTF is the modified UTF-8 of {@link DataOutputStream#writeUTF(String)}. Paths are
+ * portable strings, and library paths are relative to the artifact base location if they are
+ * below it.
+ */
+class ContainerStateFormat {
+
+  static final int MAGIC = 0x47434C43; // GCLC
+  static final int FORMAT_VERSION = 1;
+
+  private ContainerStateFormat() {
+  }
+
+  static void write(DataOutputStream output, LibraryClasspathContainer container, IPath baseDirectory)
+      throws IOException {
+    output.writeInt(MAGIC);
+    output.writeInt(FORMAT_VERSION);
+    writeBody(output, container, baseDirectory);
+  }
+
+  /**
+   * Writes <code>container</code> without the magic and format version.
+   */
+  static void writeBody(DataOutputStream output, LibraryClasspathContainer container, IPath baseDirectory)
+      throws IOException {
+    output.writeUTF(container.getDescription());
+    output.writeUTF(container.getPath().toPortableString());
+    IClasspathEntry[] entries = container.getClasspathEntries();
+    output.writeShort(entries.length);
+    for (IClasspathEntry entry : entries) {
+      output.writeUTF(PathUtil.relativizePath(entry.getPath(), baseDirectory).toPortableString());
+      IPath sourceAttachmentPath = entry.getSourceAttachmentPath();
+      output.writeBoolean(sourceAttachmentPath != null);
+      if (sourceAttachmentPath != null) {
+        output.writeUTF(sourceAttachmentPath.toPortableString());
+      }
+      IAccessRule[] accessRules = entry.getAccessRules();
+      output.writeShort(accessRules.length);
+      for (IAccessRule rule : accessRules) {
+        output.writeInt(rule.ignoreIfBetter() ? rule.getKind() | IAccessRule.IGNORE_IF_BETTER : rule.getKind());
+        output.writeUTF(rule.getPattern().toPortableString());
+      }
+      IClasspathAttribute[] attributes = entry.getExtraAttributes();
+      output.writeShort(attributes.length);
+      for (IClasspathAttribute attribute : attributes) {
+        output.writeUTF(attribute.getName());
+        output.writeUTF(attribute.getValue());
+      }
+    }
+  }
+
+  /**
+   * Reads a container written by {@link #writeBody(DataOutputStream, LibraryClasspathContainer, IPath)},
+   * or one written by {@link #write(DataOutputStream, LibraryClasspathContainer, IPath)} after the
+   * magic and format version, which the caller has checked.
+   */
+  static LibraryClasspathContainer read(DataInputStream input, IPath baseDirectory) throws IOException {
+    String description = input.readUTF();
+    IPath path = Path.fromPortableString(input.readUTF());
+    IClasspathEntry[] entries = new IClasspathEntry[input.readUnsignedShort()];
+    for (int i = 0; i < entries.length; i++) {
+      IPath entryPath = PathUtil.makePathAbsolute(Path.fromPortableString(input.readUTF()), baseDirectory);
+      IPath sourceAttachmentPath = input.readBoolean() ? Path.fromPortableString(input.readUTF()) : null;
+      IAccessRule[] accessRules = new IAccessRule[input.readUnsignedShort()];
+      for (int j = 0; j < accessRules.length; j++) {
+        int kind = input.readInt();
+        accessRules[j] = JavaCore.newAccessRule(Path.fromPortableString(input.readUTF()), kind);
+      }
+      // share the rules with the entries of the other containers
+      accessRules = AccessRules.intern(accessRules);
+      IClasspathAttribute[] attributes = new IClasspathAttribute[input.readUnsignedShort()];
+      for (int j = 0; j < attributes.length; j++) {
+        String name = input.readUTF();
+        attributes[j] = JavaCore.newClasspathAttribute(name, input.readUTF());
+      }
+      entries[i] = JavaCore.newLibraryEntry(entryPath, sourceAttachmentPath, null, accessRules, attributes, true);
+    }
+    return new LibraryClasspathContainer(path, description, entries);
+  }
+}
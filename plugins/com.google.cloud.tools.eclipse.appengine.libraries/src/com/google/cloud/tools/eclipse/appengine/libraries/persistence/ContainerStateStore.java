@@ -0,0 +1,229 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.persistence;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.LibraryClasspathContainer;
+import com.google.cloud.tools.eclipse.util.io.StateFiles;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * The resolved library containers of all projects in the workspace, so that opening a workspace
+ * reads a single file rather than a container state file per project and library.
+ * <p>
+ * The containers are stored in a binary file that is memory-mapped when loaded. Only the keys are
+ * read up front; a container is decoded when it is looked up, and containers that are not touched
+ * are copied to the next file as they are.
+ * <p>
+ * The per-project state file of a container may change outside of the workspace, e.g. when the
+ * project is updated from version control, so each container is stored with the time stamp and
+ * size its state file had, and is only answered while the state file still has them. The file
+ * layout is:
+ * <pre>
+ * int magic, int store version, int format version, int container count
+ * container*: UTF project name, UTF container path, long state file time stamp,
+ *             long state file size, int length, byte[length] container
+ * </pre>
+ * where UTF is a u2 length followed by that many bytes of UTF-8, and a container is encoded as by
+ * {@link ContainerStateFormat#writeBody} in the given format version.
+ */
+class ContainerStateStore {
+
+  private static final int MAGIC = 0x47434C53; // GCLS
+  private static final int STORE_VERSION = 2;
+
+  private static class StoredContainer {
+    private final long stateFileTimeStamp;
+    private final long stateFileSize;
+    // either a slice of the mapped file or the bytes of a container stored since loading
+    private final ByteBuffer encoded;
+
+    private StoredContainer(long stateFileTimeStamp, long stateFileSize, ByteBuffer encoded) {
+      this.stateFileTimeStamp = stateFileTimeStamp;
+      this.stateFileSize = stateFileSize;
+      this.encoded = encoded;
+    }
+
+    // a state file that does not exist has neither a time stamp nor a size
+    private StoredContainer(File stateFile, ByteBuffer encoded) {
+      this(stateFile == null ? 0 : stateFile.lastModified(),
+           stateFile == null ? 0 : stateFile.length(),
+           encoded);
+    }
+
+    private boolean hasStateOf(File stateFile) {
+      StoredContainer current = new StoredContainer(stateFile, null);
+      return stateFileTimeStamp == current.stateFileTimeStamp && stateFileSize == current.stateFileSize;
+    }
+  }
+
+  // project name -> container path -> stored container
+  private final Map<String, Map<String, StoredContainer>> containers = new HashMap<>();
+  private boolean dirty;
+
+  private ContainerStateStore() {
+  }
+
+  static ContainerStateStore empty() {
+    return new ContainerStateStore();
+  }
+
+  /**
+   * Maps <code>file</code> into memory and indexes its containers. Returns an empty store if the
+   * file does not exist or has another format.
+   *
+   * @throws IOException if the file cannot be read or is corrupt
+   */
+  static ContainerStateStore load(Path file) throws IOException {
+    ContainerStateStore store = new ContainerStateStore();
+    if (!Files.isRegularFile(file)) {
+      return store;
+    }
+    ByteBuffer mapped = StateFiles.map(file);
+    try {
+      if (mapped.getInt() != MAGIC || mapped.getInt() != STORE_VERSION
+          || mapped.getInt() != ContainerStateFormat.FORMAT_VERSION) {
+        return store;
+      }
+      int count = mapped.getInt();
+      for (int i = 0; i < count; i++) {
+        String projectName = StateFiles.readString(mapped);
+        String containerPath = StateFiles.readString(mapped);
+        long stateFileTimeStamp = mapped.getLong();
+        long stateFileSize = mapped.getLong();
+        int length = mapped.getInt();
+        ByteBuffer encoded = mapped.slice();
+        encoded.limit(length);
+        mapped.position(mapped.position() + length);
+        store.getProjectContainers(projectName).put(containerPath,
+            new StoredContainer(stateFileTimeStamp, stateFileSize, encoded));
+      }
+      return store;
+    } catch (RuntimeException ex) {
+      throw new IOException("Corrupt container store " + file, ex);
+    }
+  }
+
+  /**
+   * @param stateFile the per-project state file of the container, or null if it does not exist
+   * @return the container stored for <code>containerPath</code> of the project, or null if there
+   *     is none or <code>stateFile</code> changed since the container was stored
+   */
+  synchronized LibraryClasspathContainer get(String projectName, IPath containerPath, File stateFile,
+                                             IPath baseDirectory) throws IOException {
+    Map<String, StoredContainer> projectContainers = containers.get(projectName);
+    StoredContainer container = projectContainers == null ? null
+        : projectContainers.get(containerPath.toPortableString());
+    if (container == null || !container.hasStateOf(stateFile)) {
+      return null;
+    }
+    byte[] bytes = new byte[container.encoded.remaining()];
+    container.encoded.duplicate().get(bytes);
+    try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+      return ContainerStateFormat.read(input, baseDirectory);
+    }
+  }
+
+  /**
+   * Stores <code>container</code> for the project, replacing the container stored for its path.
+   *
+   * @param stateFile the per-project state file that <code>container</code> was read from or
+   *     written to, or null if it does not exist
+   */
+  synchronized void put(String projectName, LibraryClasspathContainer container, File stateFile,
+                        IPath baseDirectory) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      ContainerStateFormat.writeBody(output, container, baseDirectory);
+    }
+    StoredContainer stored = new StoredContainer(stateFile, ByteBuffer.wrap(bytes.toByteArray()));
+    StoredContainer previous =
+        getProjectContainers(projectName).put(container.getPath().toPortableString(), stored);
+    if (previous == null || !previous.hasStateOf(stateFile) || !stored.encoded.equals(previous.encoded)) {
+      dirty = true;
+    }
+  }
+
+  /**
+   * Forgets the containers of every project whose name is not in <code>projectNames</code>, e.g.
+   * because the project was deleted.
+   */
+  synchronized void retainProjects(Set<String> projectNames) {
+    for (Iterator<String> iterator = containers.keySet().iterator(); iterator.hasNext();) {
+      if (!projectNames.contains(iterator.next())) {
+        iterator.remove();
+        dirty = true;
+      }
+    }
+  }
+
+  synchronized boolean isDirty() {
+    return dirty;
+  }
+
+  /**
+   * Writes the store to <code>file</code>, which must not be the file the store was loaded from.
+   */
+  synchronized void save(Path file) throws IOException {
+    try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      output.writeInt(MAGIC);
+      output.writeInt(STORE_VERSION);
+      output.writeInt(ContainerStateFormat.FORMAT_VERSION);
+      int count = 0;
+      for (Map<String, StoredContainer> projectContainers : containers.values()) {
+        count += projectContainers.size();
+      }
+      output.writeInt(count);
+      for (Map.Entry<String, Map<String, StoredContainer>> project : containers.entrySet()) {
+        for (Map.Entry<String, StoredContainer> container : project.getValue().entrySet()) {
+          StoredContainer stored = container.getValue();
+          StateFiles.writeString(output, project.getKey());
+          StateFiles.writeString(output, container.getKey());
+          output.writeLong(stored.stateFileTimeStamp);
+          output.writeLong(stored.stateFileSize);
+          byte[] bytes = new byte[stored.encoded.remaining()];
+          stored.encoded.duplicate().get(bytes);
+          output.writeInt(bytes.length);
+          output.write(bytes);
+        }
+      }
+    }
+    dirty = false;
+  }
+
+  private Map<String, StoredContainer> getProjectContainers(String projectName) {
+    Map<String, StoredContainer> projectContainers = containers.get(projectName);
+    if (projectContainers == null) {
+      projectContainers = new HashMap<>();
+      containers.put(projectName, projectContainers);
+    }
+    return projectContainers;
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.persistence;
+
+import com.google.cloud.tools.eclipse.util.io.StateFileSaveParticipant;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Platform;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.FrameworkUtil;
+
+/**
+ * Persists the {@link ContainerStateStore} in the state location of this bundle whenever the
+ * workspace is saved. Containers of projects that no longer exist are dropped when saving.
+ */
+class ContainerStateStoreSaveParticipant extends StateFileSaveParticipant {
+
+  private static final Logger logger = Logger.getLogger(ContainerStateStoreSaveParticipant.class.getName());
+
+  private ContainerStateStore store;
+
+  private ContainerStateStoreSaveParticipant(IPath stateLocation) {
+    super(stateLocation, "containers"); //$NON-NLS-1$
+  }
+
+  /**
+   * Registers a save participant for this bundle and returns the store it persists, loaded from
+   * the file written by the last save.
+   */
+  static ContainerStateStore start() throws CoreException {
+    Bundle bundle = FrameworkUtil.getBundle(ContainerStateStoreSaveParticipant.class);
+    ContainerStateStoreSaveParticipant participant =
+        new ContainerStateStoreSaveParticipant(Platform.getStateLocation(bundle));
+
+    Path file = participant.register(bundle);
+    ContainerStateStore store = ContainerStateStore.empty();
+    if (file != null) {
+      try {
+        store = ContainerStateStore.load(file);
+      } catch (IOException ex) {
+        logger.log(Level.WARNING, "Discarding library container store " + file, ex); //$NON-NLS-1$
+      }
+    }
+    synchronized (participant) {
+      participant.store = store;
+    }
+    return store;
+  }
+
+  @Override
+  protected boolean isDirty() {
+    if (store == null) {
+      return false;
+    }
+    Set<String> projectNames = new HashSet<>();
+    for (IProject project : ResourcesPlugin.getWorkspace().getRoot().getProjects()) {
+      projectNames.add(project.getName());
+    }
+    store.retainProjects(projectNames);
+    return store.isDirty();
+  }
+
+  @Override
+  protected void save(Path file) throws IOException {
+    // the per-project container files are still there if this fails
+    store.save(file);
+  }
+}
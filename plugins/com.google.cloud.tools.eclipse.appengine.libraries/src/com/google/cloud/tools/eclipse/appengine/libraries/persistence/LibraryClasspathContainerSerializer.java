@@ -20,13 +20,20 @@ import com.google.cloud.tools.eclipse.appengine.libraries.LibraryClasspathContai
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Charsets;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
@@ -40,12 +47,25 @@ import org.osgi.framework.FrameworkUtil;
 
 /**
  * Provides functionality to save and load {@link LibraryClasspathContainer} instances to disk.
+ * <p>
+ * Containers are saved in the binary format of {@link ContainerStateFormat}. The file is written
+ * next to the state file first and then renamed over it, so a crash while saving never leaves a
+ * truncated state file behind. State files in the JSON format of earlier versions are still read.
+ * <p>
+ * Containers are also kept in a {@link ContainerStateStore} shared by all projects of the
+ * workspace, which is read instead of the per-project state file when it has the container. The
+ * per-project files remain as a portable copy that travels with the project, and are read again
+ * when they change after the container was stored, e.g. when the project is updated from version
+ * control.
  */
 @Creatable
 public class LibraryClasspathContainerSerializer {
 
   private static final Logger logger = Logger.getLogger(LibraryClasspathContainerSerializer.class.getName());
 
+  // only used to read the JSON format of earlier versions
+  private static final Gson gson = new Gson();
+
   /**
    * Implementers of this interface provide a location of a file that can be used to save and load
    * {@link LibraryClasspathContainer}s
@@ -70,18 +90,29 @@ public class LibraryClasspathContainerSerializer {
     IPath getBaseLocation();
   }
 
+  private static ContainerStateStore workspaceStore;
+
   private LibraryContainerStateLocationProvider stateLocationProvider;
   private ArtifactBaseLocationProvider artifactBaseLocationProvider;
+  private final ContainerStateStore store;
 
   public LibraryClasspathContainerSerializer() {
-    this(new DefaultStateLocationProvider(), new M2LocalRepositoryLocationProvider());
+    this(new DefaultStateLocationProvider(), new M2LocalRepositoryLocationProvider(), getWorkspaceStore());
   }
 
   @VisibleForTesting
   public LibraryClasspathContainerSerializer(LibraryContainerStateLocationProvider stateLocationProvider,
                                              ArtifactBaseLocationProvider artifactBaseLocationProvider) {
+    this(stateLocationProvider, artifactBaseLocationProvider, ContainerStateStore.empty());
+  }
+
+  @VisibleForTesting
+  LibraryClasspathContainerSerializer(LibraryContainerStateLocationProvider stateLocationProvider,
+                                      ArtifactBaseLocationProvider artifactBaseLocationProvider,
+                                      ContainerStateStore store) {
     this.stateLocationProvider = stateLocationProvider;
     this.artifactBaseLocationProvider = artifactBaseLocationProvider;
+    this.store = store;
   }
 
   public void saveContainer(IJavaProject javaProject, LibraryClasspathContainer container) throws IOException,
@@ -89,27 +120,99 @@ public class LibraryClasspathContainerSerializer {
     File stateFile = getContainerStateFile(javaProject, container.getPath(), true);
     if (stateFile == null) {
       logger.warning("Container state file cannot be created, save failed");
-      return;
+    } else {
+      writeContainerStateFile(stateFile, container);
     }
-    try (OutputStreamWriter outputStream = new OutputStreamWriter(new FileOutputStream(stateFile), Charsets.UTF_8)) {
-      Gson gson = new GsonBuilder().setPrettyPrinting().create();
-      outputStream.write(gson.toJson(new SerializableLibraryClasspathContainer(container,
-                                                                               artifactBaseLocationProvider.getBaseLocation())));
+    if (javaProject != null) {
+      // stored with the time stamp of the state file it was just written to
+      store.put(javaProject.getElementName(), container, stateFile, artifactBaseLocationProvider.getBaseLocation());
+    }
+  }
+
+  private void writeContainerStateFile(File stateFile, LibraryClasspathContainer container) throws IOException {
+    java.nio.file.Path target = stateFile.toPath();
+    java.nio.file.Path temporaryFile = Files.createTempFile(target.getParent(), stateFile.getName(), ".tmp");
+    try {
+      try (DataOutputStream output =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+        ContainerStateFormat.write(output, container, artifactBaseLocationProvider.getBaseLocation());
+      }
+      try {
+        Files.move(temporaryFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException ex) {
+        Files.move(temporaryFile, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temporaryFile);
     }
   }
 
   public LibraryClasspathContainer loadContainer(IJavaProject javaProject, IPath containerPath) throws IOException,
                                                                                                        CoreException {
+    IPath baseLocation = artifactBaseLocationProvider.getBaseLocation();
     File stateFile = getContainerStateFile(javaProject, containerPath, false);
+    if (javaProject != null) {
+      // null if the state file changed since the container was stored
+      LibraryClasspathContainer container =
+          store.get(javaProject.getElementName(), containerPath, stateFile, baseLocation);
+      if (container != null) {
+        return container;
+      }
+    }
     if (stateFile == null) {
       return null;
     }
-    try (FileReader fileReader = new FileReader(stateFile)) {
-      Gson gson = new GsonBuilder().create();
+    LibraryClasspathContainer container = loadContainerStateFile(stateFile, baseLocation);
+    if (container != null && javaProject != null) {
+      // e.g. the project was imported with its state files, read them only once
+      store.put(javaProject.getElementName(), container, stateFile, baseLocation);
+    }
+    return container;
+  }
+
+  private static LibraryClasspathContainer loadContainerStateFile(File stateFile, IPath baseLocation)
+      throws IOException {
+    try (DataInputStream input =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(stateFile.toPath())))) {
+      int magic;
+      try {
+        magic = input.readInt();
+      } catch (EOFException ex) {
+        // empty or truncated, the container is resolved again
+        return null;
+      }
+      if (magic != ContainerStateFormat.MAGIC) {
+        return loadJsonContainer(stateFile, baseLocation);
+      }
+      int version = input.readInt();
+      if (version != ContainerStateFormat.FORMAT_VERSION) {
+        logger.info("Ignoring container state file " + stateFile + " of format version " + version);
+        return null;
+      }
+      return ContainerStateFormat.read(input, baseLocation);
+    }
+  }
+
+  private static LibraryClasspathContainer loadJsonContainer(File stateFile, IPath baseLocation) throws IOException {
+    try (Reader reader = Files.newBufferedReader(stateFile.toPath(), Charsets.UTF_8)) {
       SerializableLibraryClasspathContainer fromJson =
-          gson.fromJson(fileReader, SerializableLibraryClasspathContainer.class);
-      return fromJson.toLibraryClasspathContainer(artifactBaseLocationProvider.getBaseLocation());
+          gson.fromJson(reader, SerializableLibraryClasspathContainer.class);
+      return fromJson == null ? null : fromJson.toLibraryClasspathContainer(baseLocation);
+    } catch (JsonParseException ex) {
+      throw new IOException("Invalid container state file " + stateFile, ex);
+    }
+  }
+
+  private static synchronized ContainerStateStore getWorkspaceStore() {
+    if (workspaceStore == null) {
+      try {
+        workspaceStore = ContainerStateStoreSaveParticipant.start();
+      } catch (CoreException ex) {
+        logger.log(Level.WARNING, "Library containers will only be read from project state files", ex);
+        workspaceStore = ContainerStateStore.empty();
+      }
     }
+    return workspaceStore;
   }
 
   private File getContainerStateFile(IJavaProject javaProject, IPath containerPath, boolean create) 
@@ -16,6 +16,7 @@
 
 package com.google.cloud.tools.eclipse.appengine.libraries.persistence;
 
+import com.google.cloud.tools.eclipse.appengine.libraries.repository.AccessRules;
 import com.google.cloud.tools.eclipse.util.io.PathUtil;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
@@ -87,6 +88,7 @@ public class SerializableClasspathEntry {
     for (int i = 0; i < accessRules.length; i++) {
       rules[i] = accessRules[i].toAccessRule();
     }
-    return rules;
+    // share the rules with the entries of the other containers
+    return AccessRules.intern(rules);
   }
 }
@@ -17,7 +17,7 @@
 /**
  * Provides the classes to enable persisting of classpath containers representing App Engine Libraries.
  * <p>
- * The classes from the Eclipse API cannot be easily used to persist as JSON, hence the need for the corresponding
- * classes in this package. 
+ * Containers are saved in a binary format. The serializable classes in this package mirror the Eclipse API classes
+ * to read the JSON format that earlier versions saved containers in.
  */
 package com.google.cloud.tools.eclipse.appengine.libraries.persistence;
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.repository;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.model.Filter;
+import com.google.common.base.Joiner;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.IAccessRule;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.compiler.CharOperation;
+
+/**
+ * The JDT access rules of library files, shared by all the classpath entries of the workspace.
+ * The same filters are declared by many library files, and the same library files are on the
+ * classpath of many projects, so a rule is created once for a kind, including its
+ * {@link IAccessRule#IGNORE_IF_BETTER} flag, and pattern, and a table of rules once for a set of
+ * filters.
+ * <p>
+ * The tables are compiled from the filters: JDT applies the first rule whose pattern matches a
+ * type, so a rule that repeats the pattern of an earlier rule and the rules after one that matches
+ * every type are never applied, and are left out.
+ */
+public final class AccessRules {
+
+  private static final String MATCH_ALL_PATTERN = "**"; //$NON-NLS-1$
+  private static final IAccessRule[] NO_ACCESS_RULES = new IAccessRule[0];
+
+  private static final ConcurrentMap<String, IAccessRule> rules = new ConcurrentHashMap<>();
+  private static final ConcurrentMap<String, IAccessRule[]> tables = new ConcurrentHashMap<>();
+
+  private AccessRules() {
+  }
+
+  /**
+   * @return the access rules that apply <code>filters</code>, which must not be modified
+   */
+  public static IAccessRule[] fromFilters(List<Filter> filters) {
+    List<String> keys = new ArrayList<>(filters.size());
+    Set<String> patterns = new HashSet<>();
+    for (Filter filter : filters) {
+      String pattern = filter.getPattern();
+      if (patterns.add(pattern)) {
+        int kind = filter.isExclude() ? IAccessRule.K_NON_ACCESSIBLE : IAccessRule.K_ACCESSIBLE;
+        keys.add(getKey(kind, pattern));
+      }
+      if (MATCH_ALL_PATTERN.equals(pattern)) {
+        break;
+      }
+    }
+    return getTable(keys);
+  }
+
+  /**
+   * @return the shared access rules that are equal to <code>accessRules</code>, e.g. to share the
+   *     rules of entries read from disk, which must not be modified
+   */
+  public static IAccessRule[] intern(IAccessRule[] accessRules) {
+    List<String> keys = new ArrayList<>(accessRules.length);
+    for (IAccessRule accessRule : accessRules) {
+      // getKind() leaves out the flag, which must be kept for the shared rule to be equal
+      int kind = accessRule.ignoreIfBetter()
+          ? accessRule.getKind() | IAccessRule.IGNORE_IF_BETTER : accessRule.getKind();
+      keys.add(getKey(kind, accessRule.getPattern().toString()));
+    }
+    return getTable(keys);
+  }
+
+  /**
+   * @param typePath the path of a type as JDT matches it against access rules, e.g.
+   *     <code>com/google/common/base/Strings</code>
+   * @return true if <code>accessRules</code> allow access to the type, without discouraging it
+   */
+  public static boolean isAccessible(IAccessRule[] accessRules, String typePath) {
+    char[] path = typePath.toCharArray();
+    for (IAccessRule accessRule : accessRules) {
+      char[] pattern = accessRule.getPattern().toString().toCharArray();
+      if (CharOperation.pathMatch(pattern, path, true /* isCaseSensitive */, '/')) {
+        return accessRule.getKind() == IAccessRule.K_ACCESSIBLE;
+      }
+    }
+    return true;
+  }
+
+  private static IAccessRule[] getTable(List<String> keys) {
+    if (keys.isEmpty()) {
+      return NO_ACCESS_RULES;
+    }
+    String tableKey = Joiner.on('\n').join(keys);
+    IAccessRule[] table = tables.get(tableKey);
+    if (table == null) {
+      table = new IAccessRule[keys.size()];
+      for (int i = 0; i < table.length; i++) {
+        table[i] = getRule(keys.get(i));
+      }
+      IAccessRule[] existing = tables.putIfAbsent(tableKey, table);
+      if (existing != null) {
+        table = existing;
+      }
+    }
+    return table;
+  }
+
+  private static IAccessRule getRule(String key) {
+    IAccessRule rule = rules.get(key);
+    if (rule == null) {
+      int separator = key.indexOf(':');
+      // the kind may carry IGNORE_IF_BETTER, which newAccessRule applies to the rule
+      int kind = Integer.parseInt(key.substring(0, separator));
+      rule = JavaCore.newAccessRule(new Path(key.substring(separator + 1)), kind);
+      IAccessRule existing = rules.putIfAbsent(key, rule);
+      if (existing != null) {
+        rule = existing;
+      }
+    }
+    return rule;
+  }
+
+  private static String getKey(int kind, String pattern) {
+    return kind + ":" + pattern; //$NON-NLS-1$
+  }
+}
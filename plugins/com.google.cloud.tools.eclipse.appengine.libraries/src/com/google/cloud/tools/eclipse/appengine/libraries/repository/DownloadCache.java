@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.repository;
+
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Files downloaded from URLs, kept in a directory shared by all projects of the workspace. A
+ * file is named after the digest of its URL, so it is downloaded once, and it only appears under
+ * its name once it is complete.
+ */
+class DownloadCache {
+
+  private static final int CONNECT_TIMEOUT_MS = 10000;
+  private static final int READ_TIMEOUT_MS = 30000;
+
+  private final Path directory;
+
+  DownloadCache(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * @return the file downloaded from <code>uri</code> earlier, or null if there is none
+   */
+  Path getCachedFile(URI uri) {
+    Path file = getFile(uri);
+    return Files.isRegularFile(file) ? file : null;
+  }
+
+  /**
+   * @return the file downloaded from <code>uri</code>, downloading it if it is not cached yet
+   */
+  Path download(URI uri) throws IOException {
+    Path file = getFile(uri);
+    if (Files.isRegularFile(file)) {
+      return file;
+    }
+    Files.createDirectories(directory);
+    Path temporaryFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp"); //$NON-NLS-1$
+    try {
+      URLConnection connection = uri.toURL().openConnection();
+      connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+      connection.setReadTimeout(READ_TIMEOUT_MS);
+      try (InputStream input = connection.getInputStream()) {
+        Files.copy(input, temporaryFile, StandardCopyOption.REPLACE_EXISTING);
+      }
+      try {
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException ex) {
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+      return file;
+    } finally {
+      Files.deleteIfExists(temporaryFile);
+    }
+  }
+
+  private Path getFile(URI uri) {
+    String digest = Hashing.sha1().hashString(uri.toString(), StandardCharsets.UTF_8).toString();
+    String name = uri.getPath() == null ? "" : uri.getPath().substring(uri.getPath().lastIndexOf('/') + 1); //$NON-NLS-1$
+    // keep the name of the file, e.g. its extension matters to source attachments
+    return directory.resolve(digest + (name.isEmpty() ? "" : "-" + name)); //$NON-NLS-1$ //$NON-NLS-2$
+  }
+}
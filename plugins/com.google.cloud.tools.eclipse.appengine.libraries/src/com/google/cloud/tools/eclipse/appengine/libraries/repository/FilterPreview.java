@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.repository;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.model.Filter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.eclipse.jdt.core.IAccessRule;
+
+/**
+ * Shows which packages of a jar the filters of a library file expose to the projects using it,
+ * e.g. to check the filters of a new library definition. The types are matched against the same
+ * access rules as the ones of the classpath entries, see {@link AccessRules}. The preview of every
+ * resolved library file is logged by {@link M2RepositoryService} when its logger is at level
+ * <code>FINE</code>.
+ */
+class FilterPreview {
+
+  private static final String CLASS_EXTENSION = ".class"; //$NON-NLS-1$
+  private static final String MODULE_INFO = "module-info.class"; //$NON-NLS-1$
+
+  private final SortedSet<String> exposedPackages = new TreeSet<>();
+  private final SortedSet<String> hiddenPackages = new TreeSet<>();
+
+  private FilterPreview() {
+  }
+
+  /**
+   * @param jar the jar of the library file
+   * @param filters the filters of the library file
+   * @throws IOException if the jar cannot be read
+   */
+  static FilterPreview create(Path jar, List<Filter> filters) throws IOException {
+    IAccessRule[] accessRules = AccessRules.fromFilters(filters);
+    FilterPreview preview = new FilterPreview();
+    try (ZipFile zipFile = new ZipFile(jar.toFile())) {
+      Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        String name = entries.nextElement().getName();
+        if (name.endsWith(CLASS_EXTENSION) && !name.endsWith(MODULE_INFO)) {
+          String typePath = name.substring(0, name.length() - CLASS_EXTENSION.length());
+          int lastSlash = typePath.lastIndexOf('/');
+          String packageName = lastSlash < 0 ? "" : typePath.substring(0, lastSlash).replace('/', '.'); //$NON-NLS-1$
+          preview.add(packageName, AccessRules.isAccessible(accessRules, typePath));
+        }
+      }
+    }
+    preview.hiddenPackages.removeAll(preview.exposedPackages);
+    return preview;
+  }
+
+  private void add(String packageName, boolean accessible) {
+    if (accessible) {
+      exposedPackages.add(packageName);
+    } else {
+      hiddenPackages.add(packageName);
+    }
+  }
+
+  /**
+   * @return the names of the packages with at least one type that the filters give access to,
+   *     the default package being the empty string
+   */
+  SortedSet<String> getExposedPackages() {
+    return Collections.unmodifiableSortedSet(exposedPackages);
+  }
+
+  /**
+   * @return the names of the packages whose types are all hidden by the filters
+   */
+  SortedSet<String> getHiddenPackages() {
+    return Collections.unmodifiableSortedSet(hiddenPackages);
+  }
+}
@@ -18,6 +18,8 @@ package com.google.cloud.tools.eclipse.appengine.libraries.repository;
 
 import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFile;
 import com.google.cloud.tools.eclipse.appengine.libraries.model.MavenCoordinates;
+import java.util.List;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.jdt.core.IClasspathEntry;
 
 /**
@@ -43,4 +45,31 @@ public interface ILibraryRepositoryService {
    * @throws LibraryRepositoryServiceException if the artifact resolution fails.
    */
   IClasspathEntry rebuildClasspathEntry(IClasspathEntry classpathEntry) throws LibraryRepositoryServiceException;
+
+  /**
+   * Like {@link #rebuildClasspathEntry(IClasspathEntry)} for each of <code>classpathEntries</code>, in a single
+   * request, so that an artifact referred to by several entries is resolved once.
+   *
+   * @return the rebuilt entries in the order of <code>classpathEntries</code>
+   * @throws LibraryRepositoryServiceException if the resolution of any of the artifacts fails.
+   */
+  List<IClasspathEntry> rebuildClasspathEntries(List<IClasspathEntry> classpathEntries)
+      throws LibraryRepositoryServiceException;
+
+  /**
+   * Downloads the source attachment of the artifact defined by <code>libraryFile</code>: the file at its source URI
+   * if it has one, otherwise the <code>sources</code> artifact of its Maven coordinates. The entries created by
+   * {@link #getLibraryClasspathEntry(LibraryFile)} only refer to source attachments that are available without
+   * network access, so this is meant to be called in the background afterwards.
+   *
+   * @return the local path of the source attachment
+   * @throws LibraryRepositoryServiceException if the source attachment cannot be downloaded
+   */
+  IPath resolveSourceAttachment(LibraryFile libraryFile) throws LibraryRepositoryServiceException;
+
+  /**
+   * Records that the file <code>classpathEntry</code> refers to is still in use, e.g. by a container installed from
+   * its persisted state, so that this service does not delete it from its caches as unused.
+   */
+  void markUsed(IClasspathEntry classpathEntry);
 }
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.repository;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.Messages;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * Jar files of the local Maven repository, kept under the SHA-1 digest of their content in a
+ * directory that can be shared by all workspaces of a machine. Every IDE instance refers to the
+ * same file for the same content, whatever the project or the coordinates it was resolved from,
+ * so the file is stored once and JDT keeps its index of the jar from one project to the next.
+ * <p>
+ * A jar is stored as <code>&lt;directory&gt;/&lt;xx&gt;/&lt;sha1&gt;/&lt;name&gt;</code>, where
+ * <code>xx</code> are the first two characters of the digest. It is a copy of the file of the local
+ * repository, never a link to it, so that the content of a cached file always matches its digest,
+ * even if the file of the local repository is overwritten in place. Before a jar is stored, its
+ * digest is checked against the <code>.sha1</code> file Maven downloaded next to it, so that a
+ * corrupt download never makes it into the cache.
+ * <p>
+ * The time stamp of the <code>&lt;sha1&gt;</code> directory records when an IDE instance last
+ * used the jar, and jars that no instance used for a while are deleted by
+ * {@link #evictUnused()}. A jar is marked as used when it is stored or looked up again, and
+ * through {@link #markUsed(Path)} when a container referring to it is installed from its persisted
+ * state. A project still referring to a deleted jar gets it stored again when its container is
+ * validated.
+ */
+class JarCache {
+
+  private static final Logger logger = Logger.getLogger(JarCache.class.getName());
+
+  private static final String SHA1_EXTENSION = ".sha1"; //$NON-NLS-1$
+  private static final Pattern SHA1_PATTERN = Pattern.compile("[0-9a-f]{40}"); //$NON-NLS-1$
+  private static final int BUFFER_SIZE = 8192;
+  // evicting walks the whole cache, which is not done while the workbench starts
+  private static final long EVICTION_DELAY_MS = TimeUnit.MINUTES.toMillis(5);
+
+  static final long DEFAULT_TIME_TO_LIVE_DAYS = 90;
+
+  private final Path directory;
+  // the jars stored during this session, to avoid reading them again when their entries are rebuilt
+  private final ConcurrentMap<Path, StoredJar> storedJars = new ConcurrentHashMap<>();
+  // digest directory -> when this instance last marked its jar as used
+  private final ConcurrentMap<Path, Long> markedUsed = new ConcurrentHashMap<>();
+  private volatile long timeToLiveMillis = TimeUnit.DAYS.toMillis(DEFAULT_TIME_TO_LIVE_DAYS);
+  private final Job evictionJob = new Job(Messages.TaskEvictUnusedJars) {
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+      try {
+        evictUnused();
+      } catch (IOException ex) {
+        logger.log(Level.WARNING, "Could not delete unused jars of " + directory, ex); //$NON-NLS-1$
+      }
+      return Status.OK_STATUS;
+    }
+  };
+
+  JarCache(Path directory) {
+    this.directory = directory;
+    evictionJob.setSystem(true);
+  }
+
+  /**
+   * Sets how long a jar is kept after it was last used by any IDE instance.
+   */
+  void setTimeToLive(long duration, TimeUnit unit) {
+    timeToLiveMillis = unit.toMillis(duration);
+  }
+
+  /**
+   * Schedules {@link #evictUnused()} in the background.
+   */
+  void scheduleEviction() {
+    evictionJob.schedule(EVICTION_DELAY_MS);
+  }
+
+  /**
+   * @return the file of the cache with the content of <code>jar</code>, storing it if it is not
+   *     cached yet
+   * @throws LibraryRepositoryServiceException if the content of <code>jar</code> does not match its
+   *     <code>.sha1</code> file
+   * @throws IOException if the jar cannot be read or stored
+   */
+  Path store(Path jar) throws IOException, LibraryRepositoryServiceException {
+    BasicFileAttributes attributes = Files.readAttributes(jar, BasicFileAttributes.class);
+    StoredJar storedJar = storedJars.get(jar);
+    if (storedJar != null && storedJar.isCurrent(attributes) && Files.isRegularFile(storedJar.file)) {
+      markUsed(storedJar.file);
+      return storedJar.file;
+    }
+
+    String expectedDigest = readSha1File(jar);
+    Path file = expectedDigest == null ? null : getFile(expectedDigest, jar);
+    if (file == null || !Files.isRegularFile(file)) {
+      // verify the content before it is shared with every workspace
+      String digest = computeSha1(jar);
+      if (expectedDigest != null && !expectedDigest.equals(digest)) {
+        throw new LibraryRepositoryServiceException(
+            NLS.bind(Messages.ArtifactChecksumMismatch, jar, expectedDigest));
+      }
+      file = getFile(digest, jar);
+      if (!Files.isRegularFile(file)) {
+        add(jar, file);
+      }
+    }
+    markUsed(file);
+    storedJars.put(jar, new StoredJar(attributes, file));
+    return file;
+  }
+
+  /**
+   * Deletes the jars that no IDE instance used within the time to live, see
+   * {@link #setTimeToLive(long, TimeUnit)}.
+   *
+   * @throws IOException if the cache directory cannot be read
+   */
+  void evictUnused() throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+    FileTime lastUsedBefore = FileTime.fromMillis(System.currentTimeMillis() - timeToLiveMillis);
+    try (DirectoryStream<Path> prefixDirectories = Files.newDirectoryStream(directory)) {
+      for (Path prefixDirectory : prefixDirectories) {
+        if (!Files.isDirectory(prefixDirectory)) {
+          continue;
+        }
+        try (DirectoryStream<Path> digestDirectories = Files.newDirectoryStream(prefixDirectory)) {
+          for (Path digestDirectory : digestDirectories) {
+            if (Files.getLastModifiedTime(digestDirectory).compareTo(lastUsedBefore) < 0) {
+              delete(digestDirectory);
+            }
+          }
+        }
+        try {
+          Files.deleteIfExists(prefixDirectory);
+        } catch (DirectoryNotEmptyException ex) {
+          // still has jars in use
+        }
+      }
+    }
+  }
+
+  /**
+   * Deletes the files of <code>digestDirectory</code> and the directory, unless another IDE
+   * instance stores a file in it meanwhile.
+   */
+  private static void delete(Path digestDirectory) {
+    try {
+      try (DirectoryStream<Path> files = Files.newDirectoryStream(digestDirectory)) {
+        for (Path file : files) {
+          // a jar open in another IDE instance on Windows cannot be deleted, and is kept
+          Files.deleteIfExists(file);
+        }
+      }
+      Files.deleteIfExists(digestDirectory);
+    } catch (IOException ex) {
+      logger.log(Level.FINE, "Could not delete unused jar " + digestDirectory, ex); //$NON-NLS-1$
+    }
+  }
+
+  /**
+   * Records that <code>file</code> is in use if it is a jar of this cache, e.g. because an
+   * installed container refers to it, so that it is not evicted. The time stamp of a jar is only
+   * written again once half of the time to live has passed since this instance last wrote it.
+   */
+  void markUsed(Path file) {
+    Path digestDirectory = file.toAbsolutePath().normalize().getParent();
+    if (digestDirectory == null || digestDirectory.getParent() == null
+        || !directory.toAbsolutePath().normalize().equals(digestDirectory.getParent().getParent())) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    Long lastMarked = markedUsed.get(digestDirectory);
+    if (lastMarked != null && now - lastMarked < timeToLiveMillis / 2) {
+      return;
+    }
+    markedUsed.put(digestDirectory, now);
+    try {
+      Files.setLastModifiedTime(digestDirectory, FileTime.fromMillis(now));
+    } catch (IOException ex) {
+      // e.g. a read-only cache shared by several users, whose owner evicts it
+      logger.log(Level.FINE, "Could not mark " + file + " as used", ex); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+  }
+
+  private Path getFile(String digest, Path jar) {
+    return directory.resolve(digest.substring(0, 2)).resolve(digest).resolve(jar.getFileName().toString());
+  }
+
+  private static void add(Path jar, Path file) throws IOException {
+    Files.createDirectories(file.getParent());
+    // another IDE instance may store the same jar at the same time, so the file only appears once complete
+    Path temporaryFile = file.resolveSibling(file.getFileName() + "." + System.nanoTime() + ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+    try {
+      Files.copy(jar, temporaryFile, StandardCopyOption.REPLACE_EXISTING);
+      try {
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException ex) {
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temporaryFile);
+    }
+  }
+
+  /**
+   * @return the digest recorded in the <code>.sha1</code> file of <code>jar</code>, or null if
+   *     there is no such file or it does not hold a digest
+   */
+  private static String readSha1File(Path jar) throws IOException {
+    Path sha1File = jar.resolveSibling(jar.getFileName() + SHA1_EXTENSION);
+    List<String> lines;
+    try {
+      lines = Files.readAllLines(sha1File, StandardCharsets.US_ASCII);
+    } catch (NoSuchFileException ex) {
+      return null;
+    }
+    if (lines.isEmpty()) {
+      return null;
+    }
+    // some repositories append the name of the file after the digest
+    String[] tokens = lines.get(0).trim().split("\\s+"); //$NON-NLS-1$
+    String digest = tokens[0].toLowerCase(Locale.US);
+    return SHA1_PATTERN.matcher(digest).matches() ? digest : null;
+  }
+
+  private static String computeSha1(Path jar) throws IOException {
+    Hasher hasher = Hashing.sha1().newHasher();
+    byte[] buffer = new byte[BUFFER_SIZE];
+    try (InputStream input = Files.newInputStream(jar)) {
+      int read;
+      while ((read = input.read(buffer)) != -1) {
+        hasher.putBytes(buffer, 0, read);
+      }
+    }
+    return hasher.hash().toString();
+  }
+
+  private static class StoredJar {
+    private final FileTime lastModified;
+    private final long size;
+    private final Path file;
+
+    private StoredJar(BasicFileAttributes attributes, Path file) {
+      lastModified = attributes.lastModifiedTime();
+      size = attributes.size();
+      this.file = file;
+    }
+
+    private boolean isCurrent(BasicFileAttributes attributes) {
+      return lastModified.equals(attributes.lastModifiedTime()) && size == attributes.size();
+    }
+  }
+}
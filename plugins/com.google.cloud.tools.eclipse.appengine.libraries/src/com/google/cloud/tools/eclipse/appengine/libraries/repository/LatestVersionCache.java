@@ -0,0 +1,227 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.repository;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.Messages;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.MavenCoordinates;
+import com.google.common.base.Joiner;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * The concrete versions that {@link MavenCoordinates#LATEST_VERSION} resolved to, so that
+ * resolving an artifact with the <code>LATEST</code> version does not download
+ * <code>maven-metadata.xml</code> every time.
+ * <p>
+ * A version is answered from the cache even after its time to live expired; an expired version
+ * is then resolved again by a background job, so callers never wait for remote repositories once
+ * a version is known. The versions are stored in a properties file that maps the coordinates to
+ * the version and the time it was resolved, so they survive restarts. Versions resolved in quick
+ * succession, e.g. while the containers of a workspace are resolved, are written in one go after a
+ * short delay; the file is replaced atomically, so a crash never leaves a truncated file behind.
+ */
+class LatestVersionCache {
+
+  private static final Logger logger = Logger.getLogger(LatestVersionCache.class.getName());
+
+  static final long DEFAULT_TIME_TO_LIVE_HOURS = 24;
+
+  // how long to wait for further versions before storing the changed ones
+  private static final long SAVE_DELAY_MS = 1000;
+
+  /** Resolves the version that <code>LATEST</code> currently stands for. */
+  interface VersionResolver {
+    String resolveLatestVersion(MavenCoordinates mavenCoordinates)
+        throws CoreException, LibraryRepositoryServiceException;
+  }
+
+  private static class Entry {
+    private final String version;
+    private final long resolvedAt;
+
+    private Entry(String version, long resolvedAt) {
+      this.version = version;
+      this.resolvedAt = resolvedAt;
+    }
+  }
+
+  private final VersionResolver resolver;
+  private final Map<String, Entry> versions = new ConcurrentHashMap<>();
+  // keys of the versions that a background job is resolving again
+  private final Set<String> refreshing = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+  private volatile long timeToLiveMillis = TimeUnit.HOURS.toMillis(DEFAULT_TIME_TO_LIVE_HOURS);
+  private volatile Path file;
+  // whether versions changed since they were last stored
+  private volatile boolean dirty;
+  private final Job saveJob = new Job(Messages.TaskStoreLatestVersions) {
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+      save();
+      return Status.OK_STATUS;
+    }
+  };
+
+  LatestVersionCache(VersionResolver resolver) {
+    this.resolver = resolver;
+    saveJob.setSystem(true);
+  }
+
+  void setTimeToLive(long duration, TimeUnit unit) {
+    timeToLiveMillis = unit.toMillis(duration);
+  }
+
+  /**
+   * Reads the versions stored in <code>file</code>, if it exists, and stores changes to it from
+   * now on.
+   */
+  void load(Path file) {
+    this.file = file;
+    if (!Files.isRegularFile(file)) {
+      return;
+    }
+    Properties properties = new Properties();
+    try (InputStream input = Files.newInputStream(file)) {
+      properties.load(input);
+    } catch (IOException ex) {
+      logger.log(Level.WARNING, "Discarding latest library versions in " + file, ex); //$NON-NLS-1$
+      return;
+    }
+    for (String key : properties.stringPropertyNames()) {
+      String[] value = properties.getProperty(key).split(" "); //$NON-NLS-1$
+      try {
+        if (value.length == 2) {
+          versions.put(key, new Entry(value[0], Long.parseLong(value[1])));
+        }
+      } catch (NumberFormatException ex) {
+        // skip the entry, it is resolved again when needed
+      }
+    }
+  }
+
+  /**
+   * @return the version that the <code>LATEST</code> version of <code>mavenCoordinates</code>
+   *     resolved to, or <code>null</code> if it was not resolved yet. If the version expired, it
+   *     is still returned and resolved again in the background.
+   */
+  String get(MavenCoordinates mavenCoordinates) {
+    String key = getKey(mavenCoordinates);
+    Entry entry = versions.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (System.currentTimeMillis() - entry.resolvedAt >= timeToLiveMillis) {
+      refresh(key, mavenCoordinates);
+    }
+    return entry.version;
+  }
+
+  void put(MavenCoordinates mavenCoordinates, String version) {
+    versions.put(getKey(mavenCoordinates), new Entry(version, System.currentTimeMillis()));
+    dirty = true;
+    saveJob.schedule(SAVE_DELAY_MS);
+  }
+
+  /**
+   * Stores the versions that changed since they were last stored without waiting for the delay,
+   * e.g. before the bundle stops.
+   */
+  void flush() {
+    saveJob.cancel();
+    save();
+  }
+
+  private void refresh(final String key, final MavenCoordinates mavenCoordinates) {
+    if (!refreshing.add(key)) {
+      return;
+    }
+    Job job = new Job(NLS.bind(Messages.TaskRefreshLatestVersion, key)) {
+      @Override
+      protected IStatus run(IProgressMonitor monitor) {
+        try {
+          put(mavenCoordinates, resolver.resolveLatestVersion(mavenCoordinates));
+        } catch (CoreException | LibraryRepositoryServiceException ex) {
+          // e.g. offline; the expired version is used until a later refresh succeeds
+          logger.log(Level.INFO, "Could not refresh latest version of " + key, ex); //$NON-NLS-1$
+        } finally {
+          refreshing.remove(key);
+        }
+        return Status.OK_STATUS;
+      }
+    };
+    job.setSystem(true);
+    job.schedule();
+  }
+
+  private synchronized void save() {
+    Path file = this.file;
+    if (file == null || !dirty) {
+      return;
+    }
+    // versions put from now on are stored by the next save
+    dirty = false;
+    Properties properties = new Properties();
+    for (Map.Entry<String, Entry> entry : versions.entrySet()) {
+      properties.setProperty(entry.getKey(), entry.getValue().version + " " + entry.getValue().resolvedAt); //$NON-NLS-1$
+    }
+    try {
+      Path temporaryFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp"); //$NON-NLS-1$
+      try {
+        try (OutputStream output = Files.newOutputStream(temporaryFile)) {
+          properties.store(output, null);
+        }
+        try {
+          Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+          Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        Files.deleteIfExists(temporaryFile);
+      }
+    } catch (IOException ex) {
+      dirty = true;
+      logger.log(Level.WARNING, "Could not store latest library versions in " + file, ex); //$NON-NLS-1$
+    }
+  }
+
+  // the version is not part of the key, it is what the cache looks up
+  private static String getKey(MavenCoordinates mavenCoordinates) {
+    return Joiner.on(':').useForNull("").join(mavenCoordinates.getRepository(),
+                                              mavenCoordinates.getGroupId(),
+                                              mavenCoordinates.getArtifactId(),
+                                              mavenCoordinates.getType(),
+                                              mavenCoordinates.getClassifier());
+  }
+}
@@ -17,31 +17,46 @@
 package com.google.cloud.tools.eclipse.appengine.libraries.repository;
 
 import com.google.cloud.tools.eclipse.appengine.libraries.Messages;
-import com.google.cloud.tools.eclipse.appengine.libraries.model.Filter;
 import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFile;
 import com.google.cloud.tools.eclipse.appengine.libraries.model.MavenCoordinates;
 import com.google.cloud.tools.eclipse.util.MavenUtils;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
 import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Path;
-import org.eclipse.jdt.core.IAccessRule;
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.jdt.core.IClasspathAttribute;
 import org.eclipse.jdt.core.IClasspathEntry;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jst.j2ee.classpathdep.UpdateClasspathAttributeUtil;
+import org.eclipse.m2e.core.MavenPlugin;
 import org.eclipse.osgi.util.NLS;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.FrameworkUtil;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 
 /**
  * Implementation of {@link ILibraryRepositoryService} that relies on M2Eclipse to download the artifacts and store
@@ -50,44 +65,186 @@ import org.osgi.service.component.annotations.Component;
 @Component
 public class M2RepositoryService implements ILibraryRepositoryService {
 
+  /**
+   * Preference of this bundle for the number of hours after which the version that
+   * {@link MavenCoordinates#LATEST_VERSION} resolved to is resolved again.
+   */
+  public static final String LATEST_VERSION_TIME_TO_LIVE_PREFERENCE = "latestVersionTimeToLive"; //$NON-NLS-1$
+
+  /**
+   * Preference of this bundle for the directory of a cache of the resolved jars that is keyed by
+   * their SHA-1 digest, see {@link JarCache}. Setting the same directory for all workspaces of a
+   * machine makes them share the jars. There is no cache if the preference is not set, and the
+   * jars are referred to in the local Maven repository.
+   */
+  public static final String JAR_CACHE_DIRECTORY_PREFERENCE = "jarCacheDirectory"; //$NON-NLS-1$
+
+  /**
+   * Preference of this bundle for the number of days after which a jar of the cache set by
+   * {@link #JAR_CACHE_DIRECTORY_PREFERENCE} is deleted if no workspace used it.
+   */
+  public static final String JAR_CACHE_TIME_TO_LIVE_PREFERENCE = "jarCacheTimeToLive"; //$NON-NLS-1$
+
+  private static final Logger logger = Logger.getLogger(M2RepositoryService.class.getName());
+
+  private static final String LATEST_VERSIONS_FILE = "latest-versions.properties"; //$NON-NLS-1$
+  private static final String SOURCES_DIRECTORY = "sources"; //$NON-NLS-1$
+  private static final String SOURCES_CLASSIFIER = "sources"; //$NON-NLS-1$
+  // enough for the artifacts of all libraries defined by this plugin several times over
+  private static final long MAX_CACHED_ARTIFACTS = 256;
+
   private MavenHelper mavenHelper;
   private MavenCoordinatesClasspathAttributesTransformer transformer;
+  private DownloadCache sourceCache;
+  private JarCache jarCache;
+  private final ResolvedArtifactCache artifactCache = new ResolvedArtifactCache(MAX_CACHED_ARTIFACTS);
+  private final LatestVersionCache latestVersions = new LatestVersionCache(new LatestVersionCache.VersionResolver() {
+    @Override
+    public String resolveLatestVersion(MavenCoordinates mavenCoordinates)
+        throws CoreException, LibraryRepositoryServiceException {
+      return mavenHelper.resolveArtifact(null, mavenCoordinates, getRepository(mavenCoordinates)).getVersion();
+    }
+  });
 
   @Override
   public IClasspathEntry getLibraryClasspathEntry(LibraryFile libraryFile) throws LibraryRepositoryServiceException {
     Artifact artifact = resolveArtifact(libraryFile.getMavenCoordinates());
     IClasspathAttribute[] libraryFileClasspathAttributes = getClasspathAttributes(libraryFile, artifact);
-    return JavaCore.newLibraryEntry(new Path(artifact.getFile().getAbsolutePath()),
+    IPath jarPath = getJarPath(artifact);
+    if (logger.isLoggable(Level.FINE)) {
+      logFilterPreview(libraryFile, jarPath);
+    }
+    return JavaCore.newLibraryEntry(jarPath,
                                     getSourceLocation(libraryFile),
                                     null /*  sourceAttachmentRootPath */,
-                                    getAccessRules(libraryFile.getFilters()),
+                                    AccessRules.fromFilters(libraryFile.getFilters()),
                                     libraryFileClasspathAttributes,
                                     true /* isExported */);
   }
 
+  /**
+   * Logs which packages of <code>jarPath</code> the filters of <code>libraryFile</code> expose,
+   * e.g. to check the filters of a new library definition.
+   */
+  private static void logFilterPreview(LibraryFile libraryFile, IPath jarPath) {
+    try {
+      FilterPreview preview = FilterPreview.create(Paths.get(jarPath.toOSString()), libraryFile.getFilters());
+      logger.fine("Filters expose " + preview.getExposedPackages() + " of " + jarPath //$NON-NLS-1$ //$NON-NLS-2$
+          + " and hide " + preview.getHiddenPackages()); //$NON-NLS-1$
+    } catch (IOException ex) {
+      logger.log(Level.FINE, "Could not preview the filters of " + jarPath, ex); //$NON-NLS-1$
+    }
+  }
+
   @Override
   public IClasspathEntry rebuildClasspathEntry(IClasspathEntry classpathEntry) throws LibraryRepositoryServiceException {
     MavenCoordinates mavenCoordinates = transformer.createMavenCoordinates(classpathEntry.getExtraAttributes());
-    Artifact artifact = resolveArtifact(mavenCoordinates);
-    return JavaCore.newLibraryEntry(new Path(artifact.getFile().getAbsolutePath()),
+    return rebuildClasspathEntry(classpathEntry, resolveArtifact(mavenCoordinates));
+  }
+
+  @Override
+  public List<IClasspathEntry> rebuildClasspathEntries(List<IClasspathEntry> classpathEntries)
+      throws LibraryRepositoryServiceException {
+    // entries of several containers often refer to the same artifact, which is only resolved once
+    Map<String, Artifact> artifacts = new HashMap<>();
+    List<IClasspathEntry> rebuiltEntries = new ArrayList<>(classpathEntries.size());
+    for (IClasspathEntry classpathEntry : classpathEntries) {
+      MavenCoordinates mavenCoordinates = transformer.createMavenCoordinates(classpathEntry.getExtraAttributes());
+      String key = ResolvedArtifactCache.getKey(mavenCoordinates);
+      Artifact artifact = artifacts.get(key);
+      if (artifact == null) {
+        artifact = resolveArtifact(mavenCoordinates);
+        artifacts.put(key, artifact);
+      }
+      rebuiltEntries.add(rebuildClasspathEntry(classpathEntry, artifact));
+    }
+    return rebuiltEntries;
+  }
+
+  private IClasspathEntry rebuildClasspathEntry(IClasspathEntry classpathEntry, Artifact artifact)
+      throws LibraryRepositoryServiceException {
+    return JavaCore.newLibraryEntry(getJarPath(artifact),
                                     classpathEntry.getSourceAttachmentPath(),
                                     null /*  sourceAttachmentRootPath */,
-                                    classpathEntry.getAccessRules(),
+                                    AccessRules.intern(classpathEntry.getAccessRules()),
                                     classpathEntry.getExtraAttributes(),
                                     true /* isExported */);
   }
 
+  /**
+   * @return the path of the file of <code>artifact</code> in the jar cache if there is one,
+   *     otherwise its path in the local repository
+   * @throws LibraryRepositoryServiceException if the file does not match its checksum
+   */
+  private IPath getJarPath(Artifact artifact) throws LibraryRepositoryServiceException {
+    File file = artifact.getFile();
+    if (jarCache != null) {
+      try {
+        return new Path(jarCache.store(file.toPath()).toAbsolutePath().toString());
+      } catch (IOException ex) {
+        // the cache is an optimization, the jar of the local repository is as good
+        logger.log(Level.WARNING, "Could not store " + file + " in the jar cache", ex); //$NON-NLS-1$ //$NON-NLS-2$
+      }
+    }
+    return new Path(file.getAbsolutePath());
+  }
+
   private Artifact resolveArtifact(MavenCoordinates mavenCoordinates) throws LibraryRepositoryServiceException {
     Preconditions.checkState(mavenHelper != null, "mavenHelper is null"); //$NON-NLS-1$
+    Artifact artifact = artifactCache.get(mavenCoordinates);
+    if (artifact != null) {
+      return artifact;
+    }
     try {
-      List<ArtifactRepository> repository = getRepository(mavenCoordinates);
-
-      return mavenHelper.resolveArtifact(null, mavenCoordinates, repository);
+      MavenCoordinates resolvedCoordinates = mavenCoordinates;
+      boolean latest = MavenCoordinates.LATEST_VERSION.equals(mavenCoordinates.getVersion());
+      if (latest) {
+        String latestVersion = latestVersions.get(mavenCoordinates);
+        if (latestVersion != null) {
+          resolvedCoordinates = withVersion(mavenCoordinates, latestVersion);
+        }
+      }
+      if (hasFixedVersion(resolvedCoordinates)) {
+        // a fixed version never changes once downloaded, so there is nothing to ask remote repositories
+        artifact = mavenHelper.findLocalArtifact(resolvedCoordinates);
+      }
+      if (artifact == null) {
+        List<ArtifactRepository> repository = getRepository(resolvedCoordinates);
+        artifact = mavenHelper.resolveArtifact(null, resolvedCoordinates, repository);
+        if (latest && resolvedCoordinates == mavenCoordinates) {
+          latestVersions.put(mavenCoordinates, artifact.getVersion());
+        }
+      }
+      artifactCache.put(mavenCoordinates, artifact);
+      return artifact;
     } catch (CoreException ex) {
       throw new LibraryRepositoryServiceException(NLS.bind(Messages.ResolveArtifactError, mavenCoordinates), ex);
     }
   }
 
+  private static MavenCoordinates withVersion(MavenCoordinates mavenCoordinates, String version) {
+    MavenCoordinates copy = new MavenCoordinates(mavenCoordinates.getGroupId(), mavenCoordinates.getArtifactId());
+    copy.setRepository(mavenCoordinates.getRepository());
+    copy.setType(mavenCoordinates.getType());
+    copy.setClassifier(mavenCoordinates.getClassifier());
+    copy.setVersion(version);
+    return copy;
+  }
+
+  /**
+   * @return true if the version of <code>mavenCoordinates</code> denotes a single release, as
+   *     opposed to <code>LATEST</code>, <code>RELEASE</code>, a snapshot or a version range
+   */
+  @VisibleForTesting
+  static boolean hasFixedVersion(MavenCoordinates mavenCoordinates) {
+    String version = mavenCoordinates.getVersion();
+    return !MavenCoordinates.LATEST_VERSION.equals(version)
+        && !"RELEASE".equals(version) //$NON-NLS-1$
+        && !version.endsWith("-SNAPSHOT") //$NON-NLS-1$
+        && !version.startsWith("[") && !version.startsWith("(") //$NON-NLS-1$ //$NON-NLS-2$
+        && !version.contains(","); //$NON-NLS-1$
+  }
+
   private IClasspathAttribute[] getClasspathAttributes(LibraryFile libraryFile, Artifact artifact)
                                                                               throws LibraryRepositoryServiceException {
     try {
@@ -108,24 +265,54 @@ public class M2RepositoryService implements ILibraryRepositoryService {
     }
   }
 
+  /**
+   * @return the source attachment of <code>libraryFile</code> if it is available locally without
+   *     any network access, otherwise <code>null</code>
+   */
   private IPath getSourceLocation(LibraryFile libraryFile) {
-    if (libraryFile.getSourceUri() == null) {
-      return getSourceJarLocation(libraryFile.getMavenCoordinates());
-    } else {
-      // download the file and return path to it
-      // TODO https://github.com/GoogleCloudPlatform/google-cloud-eclipse/issues/800
-      return new Path("/downloaded/source/file"); //$NON-NLS-1$
+    if (libraryFile.getSourceUri() != null) {
+      java.nio.file.Path file = sourceCache == null ? null : sourceCache.getCachedFile(libraryFile.getSourceUri());
+      return file == null ? null : new Path(file.toString());
+    }
+    MavenCoordinates sourceCoordinates = getSourceCoordinates(libraryFile.getMavenCoordinates());
+    if (!hasFixedVersion(sourceCoordinates)) {
+      return null;
+    }
+    try {
+      Artifact artifact = mavenHelper.findLocalArtifact(sourceCoordinates);
+      return artifact == null ? null : new Path(artifact.getFile().getAbsolutePath());
+    } catch (CoreException ex) {
+      return null;
     }
   }
 
-  private static IAccessRule[] getAccessRules(List<Filter> filters) {
-    IAccessRule[] accessRules = new IAccessRule[filters.size()];
-    int idx = 0;
-    for (Filter filter : filters) {
-      int accessRuleKind = filter.isExclude() ? IAccessRule.K_NON_ACCESSIBLE : IAccessRule.K_ACCESSIBLE;
-      accessRules[idx++] = JavaCore.newAccessRule(new Path(filter.getPattern()), accessRuleKind);
+  @Override
+  public IPath resolveSourceAttachment(LibraryFile libraryFile) throws LibraryRepositoryServiceException {
+    if (libraryFile.getSourceUri() != null) {
+      Preconditions.checkState(sourceCache != null, "sourceCache is null"); //$NON-NLS-1$
+      try {
+        return new Path(sourceCache.download(libraryFile.getSourceUri()).toString());
+      } catch (IOException ex) {
+        throw new LibraryRepositoryServiceException(
+            NLS.bind(Messages.DownloadSourceError, libraryFile.getSourceUri()), ex);
+      }
     }
-    return accessRules;
+    Artifact artifact = resolveArtifact(getSourceCoordinates(libraryFile.getMavenCoordinates()));
+    return new Path(artifact.getFile().getAbsolutePath());
+  }
+
+  @Override
+  public void markUsed(IClasspathEntry classpathEntry) {
+    if (jarCache != null) {
+      jarCache.markUsed(classpathEntry.getPath().toFile().toPath());
+    }
+  }
+
+  private static MavenCoordinates getSourceCoordinates(MavenCoordinates mavenCoordinates) {
+    MavenCoordinates sourceCoordinates = withVersion(mavenCoordinates, mavenCoordinates.getVersion());
+    sourceCoordinates.setType(MavenCoordinates.JAR_TYPE);
+    sourceCoordinates.setClassifier(SOURCES_CLASSIFIER);
+    return sourceCoordinates;
   }
 
   private ArtifactRepository getCustomRepository(String repository) throws LibraryRepositoryServiceException {
@@ -151,14 +338,50 @@ public class M2RepositoryService implements ILibraryRepositoryService {
     }
   }
 
-  private IPath getSourceJarLocation(MavenCoordinates mavenCoordinates) {
-    return new Path("/path/to/source/jar/file/in/m2_repo/" + mavenCoordinates.getArtifactId() + "." + mavenCoordinates.getType()); //$NON-NLS-1$ //$NON-NLS-2$
+  /**
+   * @return the number of artifact resolutions answered from the cache of resolved artifacts
+   */
+  public long getCacheHitCount() {
+    return artifactCache.getHitCount();
+  }
+
+  /**
+   * @return the number of cacheable artifact resolutions that had to go to M2Eclipse
+   */
+  public long getCacheMissCount() {
+    return artifactCache.getMissCount();
   }
 
   @Activate
   protected void activate() {
     mavenHelper = new M2EclipseMavenHelper();
     transformer = new MavenCoordinatesClasspathAttributesTransformer();
+
+    Bundle bundle = FrameworkUtil.getBundle(getClass());
+    long timeToLive = Platform.getPreferencesService().getLong(bundle.getSymbolicName(),
+                                                               LATEST_VERSION_TIME_TO_LIVE_PREFERENCE,
+                                                               LatestVersionCache.DEFAULT_TIME_TO_LIVE_HOURS,
+                                                               null);
+    latestVersions.setTimeToLive(timeToLive, TimeUnit.HOURS);
+    latestVersions.load(Platform.getStateLocation(bundle).append(LATEST_VERSIONS_FILE).toFile().toPath());
+    sourceCache = new DownloadCache(Platform.getStateLocation(bundle).append(SOURCES_DIRECTORY).toFile().toPath());
+    String jarCacheDirectory = Platform.getPreferencesService().getString(bundle.getSymbolicName(),
+                                                                          JAR_CACHE_DIRECTORY_PREFERENCE,
+                                                                          null, null);
+    if (!Strings.isNullOrEmpty(jarCacheDirectory)) {
+      jarCache = new JarCache(Paths.get(jarCacheDirectory));
+      long jarTimeToLive = Platform.getPreferencesService().getLong(bundle.getSymbolicName(),
+                                                                    JAR_CACHE_TIME_TO_LIVE_PREFERENCE,
+                                                                    JarCache.DEFAULT_TIME_TO_LIVE_DAYS,
+                                                                    null);
+      jarCache.setTimeToLive(jarTimeToLive, TimeUnit.DAYS);
+      jarCache.scheduleEviction();
+    }
+  }
+
+  @Deactivate
+  protected void deactivate() {
+    latestVersions.flush();
   }
 
   @VisibleForTesting
@@ -167,6 +390,11 @@ public class M2RepositoryService implements ILibraryRepositoryService {
                              List<ArtifactRepository> repositories) throws CoreException;
 
     ArtifactRepository createArtifactRepository(String host, String string) throws CoreException;
+
+    /**
+     * @return the artifact if its file is in the local repository, or <code>null</code> otherwise
+     */
+    Artifact findLocalArtifact(MavenCoordinates coordinates) throws CoreException;
   }
 
   /*
@@ -182,6 +410,16 @@ public class M2RepositoryService implements ILibraryRepositoryService {
     this.transformer = transformer;
   }
 
+  @VisibleForTesting
+  void setSourceCache(DownloadCache sourceCache) {
+    this.sourceCache = sourceCache;
+  }
+
+  @VisibleForTesting
+  void setJarCache(JarCache jarCache) {
+    this.jarCache = jarCache;
+  }
+
   private static class M2EclipseMavenHelper implements MavenHelper {
 
     @Override
@@ -197,5 +435,21 @@ public class M2RepositoryService implements ILibraryRepositoryService {
     public ArtifactRepository createArtifactRepository(String id, String url) throws CoreException {
       return MavenUtils.createRepository(id, url);
     }
+
+    @Override
+    public Artifact findLocalArtifact(MavenCoordinates coordinates) throws CoreException {
+      ArtifactRepository localRepository = MavenPlugin.getMaven().getLocalRepository();
+      Artifact artifact = new DefaultArtifact(coordinates.getGroupId(), coordinates.getArtifactId(),
+                                              coordinates.getVersion(), null /* scope */, coordinates.getType(),
+                                              coordinates.getClassifier(),
+                                              new DefaultArtifactHandler(coordinates.getType()));
+      File file = new File(localRepository.getBasedir(), localRepository.pathOf(artifact));
+      if (!file.isFile()) {
+        return null;
+      }
+      artifact.setFile(file);
+      artifact.setResolved(true);
+      return artifact;
+    }
   }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.libraries.repository;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.model.MavenCoordinates;
+import com.google.common.base.Joiner;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.maven.artifact.Artifact;
+
+/**
+ * Bounded cache of artifacts resolved by M2Eclipse, so that projects sharing a library do not
+ * resolve its artifacts again. The least recently used artifacts are evicted first, and an
+ * artifact whose file was removed from the local repository since it was resolved is dropped when
+ * it is looked up.
+ * <p>
+ * Artifacts with the version {@link MavenCoordinates#LATEST_VERSION} are not cached, since the
+ * version they resolve to changes over time.
+ */
+class ResolvedArtifactCache {
+
+  private final Cache<String, Artifact> artifacts;
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+
+  ResolvedArtifactCache(long maximumSize) {
+    artifacts = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+  }
+
+  /**
+   * @return the artifact resolved for <code>mavenCoordinates</code>, or <code>null</code> if it
+   *     was not resolved yet or its file does not exist anymore
+   */
+  Artifact get(MavenCoordinates mavenCoordinates) {
+    if (!isCacheable(mavenCoordinates)) {
+      return null;
+    }
+    String key = getKey(mavenCoordinates);
+    Artifact artifact = artifacts.getIfPresent(key);
+    if (artifact != null && !exists(artifact.getFile())) {
+      artifacts.invalidate(key);
+      artifact = null;
+    }
+    if (artifact == null) {
+      missCount.incrementAndGet();
+    } else {
+      hitCount.incrementAndGet();
+    }
+    return artifact;
+  }
+
+  void put(MavenCoordinates mavenCoordinates, Artifact artifact) {
+    if (isCacheable(mavenCoordinates)) {
+      artifacts.put(getKey(mavenCoordinates), artifact);
+    }
+  }
+
+  long getHitCount() {
+    return hitCount.get();
+  }
+
+  long getMissCount() {
+    return missCount.get();
+  }
+
+  private static boolean isCacheable(MavenCoordinates mavenCoordinates) {
+    return !MavenCoordinates.LATEST_VERSION.equals(mavenCoordinates.getVersion());
+  }
+
+  private static boolean exists(File file) {
+    return file != null && file.isFile();
+  }
+
+  // MavenCoordinates is mutable and does not implement equals(), so it cannot be the key itself
+  static String getKey(MavenCoordinates mavenCoordinates) {
+    return Joiner.on(':').useForNull("").join(mavenCoordinates.getRepository(),
+                                              mavenCoordinates.getGroupId(),
+                                              mavenCoordinates.getArtifactId(),
+                                              mavenCoordinates.getType(),
+                                              mavenCoordinates.getClassifier(),
+                                              mavenCoordinates.getVersion());
+  }
+}
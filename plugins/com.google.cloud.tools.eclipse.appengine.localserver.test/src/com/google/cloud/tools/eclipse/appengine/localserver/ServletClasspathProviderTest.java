@@ -21,12 +21,12 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import com.google.cloud.tools.eclipse.appengine.libraries.model.ILibraryCatalog;
 import com.google.cloud.tools.eclipse.appengine.libraries.model.Library;
 import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryFile;
 import com.google.cloud.tools.eclipse.appengine.libraries.repository.ILibraryRepositoryService;
 import com.google.cloud.tools.eclipse.appengine.libraries.repository.LibraryRepositoryServiceException;
 import java.util.Collections;
-import java.util.HashMap;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.Path;
@@ -43,16 +43,16 @@ import org.mockito.runners.MockitoJUnitRunner;
 public class ServletClasspathProviderTest {
 
   private ServletClasspathProvider provider;
+  @Mock private ILibraryCatalog libraryCatalog;
   @Mock private ILibraryRepositoryService repositoryService;
 
   @Before
   public void setUp() throws LibraryRepositoryServiceException {
     Library servletApi = getMockApi("servlet-api");
     Library jspApi = getMockApi("jsp-api");
-    HashMap<String, Library> libraries = new HashMap<>();
-    libraries.put("servlet-api", servletApi);
-    libraries.put("jsp-api", jspApi);
-    provider = new ServletClasspathProvider(libraries, repositoryService);
+    when(libraryCatalog.getLibrary("servlet-api")).thenReturn(servletApi);
+    when(libraryCatalog.getLibrary("jsp-api")).thenReturn(jspApi);
+    provider = new ServletClasspathProvider(libraryCatalog, repositoryService);
   }
 
   @Test
@@ -21,7 +21,10 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
+import com.google.cloud.tools.eclipse.appengine.libraries.model.ILibraryCatalog;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryDependencyGraph;
 import com.google.cloud.tools.eclipse.test.util.ui.ShellTestResource;
 import org.eclipse.core.databinding.observable.Realm;
 import org.eclipse.jface.databinding.swt.DisplayRealm;
@@ -44,7 +47,9 @@ public class MavenArchetypeProjectWizardTest {
   public void setUp() {
     shell = shellTestResource.getShell();
 
-    wizard = new MavenArchetypeProjectWizard();
+    ILibraryCatalog libraryCatalog = mock(ILibraryCatalog.class);
+    when(libraryCatalog.getDependencyGraph()).thenReturn(LibraryDependencyGraph.empty());
+    wizard = new MavenArchetypeProjectWizard(libraryCatalog);
     wizard.addPages();
   }
 
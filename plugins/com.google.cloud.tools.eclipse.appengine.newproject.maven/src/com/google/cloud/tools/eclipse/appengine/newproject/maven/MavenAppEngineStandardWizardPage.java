@@ -16,6 +16,7 @@
 
 package com.google.cloud.tools.eclipse.appengine.newproject.maven;
 
+import com.google.cloud.tools.eclipse.appengine.libraries.model.ILibraryCatalog;
 import com.google.cloud.tools.eclipse.appengine.libraries.model.Library;
 import com.google.cloud.tools.eclipse.appengine.newproject.JavaPackageValidator;
 import com.google.cloud.tools.eclipse.appengine.ui.AppEngineImages;
@@ -75,8 +76,14 @@ public class MavenAppEngineStandardWizardPage extends WizardPage {
   /** True if we're programmatically setting javaPackageField with an auto-generated value */
   private boolean javaPackageProgrammaticUpdate = false;
 
-  public MavenAppEngineStandardWizardPage() {
+  private final ILibraryCatalog libraryCatalog;
+
+  /**
+   * @param libraryCatalog the catalog of the libraries offered for the new project
+   */
+  public MavenAppEngineStandardWizardPage(ILibraryCatalog libraryCatalog) {
     super("basicNewProjectPage"); //$NON-NLS-1$
+    this.libraryCatalog = libraryCatalog;
     setTitle(Messages.getString("WIZARD_TITLE")); //$NON-NLS-1$
     setDescription(Messages.getString("WIZARD_DESCRIPTION")); //$NON-NLS-1$
     setImageDescriptor(AppEngineImages.googleCloudPlatform(32));
@@ -98,7 +105,7 @@ public class MavenAppEngineStandardWizardPage extends WizardPage {
     createLocationArea(container);
     createMavenCoordinatesArea(container);
     createAppEngineProjectDetailsArea(container);
-    appEngineLibrariesSelectorGroup = new AppEngineLibrariesSelectorGroup(container);
+    appEngineLibrariesSelectorGroup = new AppEngineLibrariesSelectorGroup(container, libraryCatalog);
 
     Dialog.applyDialogFont(container);
   }
@@ -18,12 +18,15 @@ package com.google.cloud.tools.eclipse.appengine.newproject.maven;
 
 import com.google.cloud.tools.appengine.api.AppEngineException;
 import com.google.cloud.tools.appengine.cloudsdk.CloudSdk;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.ILibraryCatalog;
 import com.google.cloud.tools.eclipse.appengine.ui.AppEngineComponentPage;
 import com.google.cloud.tools.eclipse.sdk.ui.preferences.CloudSdkPrompter;
 import com.google.cloud.tools.eclipse.usagetracker.AnalyticsEvents;
 import com.google.cloud.tools.eclipse.usagetracker.AnalyticsPingManager;
+import com.google.common.annotations.VisibleForTesting;
 import java.io.File;
 import java.lang.reflect.InvocationTargetException;
+import javax.inject.Inject;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -38,16 +41,24 @@ public class MavenArchetypeProjectWizard extends Wizard implements INewWizard {
   private MavenAppEngineStandardWizardPage page;
   private MavenAppEngineStandardArchetypeWizardPage archetypePage;
   private File cloudSdkLocation;
+  @Inject
+  private ILibraryCatalog libraryCatalog;
 
   public MavenArchetypeProjectWizard() {
     setWindowTitle(Messages.getString("WIZARD_TITLE")); //$NON-NLS-1$
     setNeedsProgressMonitor(true);
   }
 
+  @VisibleForTesting
+  MavenArchetypeProjectWizard(ILibraryCatalog libraryCatalog) {
+    this();
+    this.libraryCatalog = libraryCatalog;
+  }
+
   @Override
   public void addPages() {
     if (appEngineJavaComponentExists()) {
-      page = new MavenAppEngineStandardWizardPage();
+      page = new MavenAppEngineStandardWizardPage(libraryCatalog);
       archetypePage = new MavenAppEngineStandardArchetypeWizardPage();
       this.addPage(page);
       this.addPage(archetypePage);
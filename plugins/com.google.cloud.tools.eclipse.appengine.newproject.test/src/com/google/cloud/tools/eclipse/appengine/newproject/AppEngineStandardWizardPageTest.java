@@ -16,13 +16,16 @@
 
 package com.google.cloud.tools.eclipse.appengine.newproject;
 
+import static org.mockito.Mockito.mock;
+
+import com.google.cloud.tools.eclipse.appengine.libraries.model.ILibraryCatalog;
 import org.junit.Assert;
 import org.junit.Test;
 
 public class AppEngineStandardWizardPageTest {
 
   private AppEngineStandardWizardPage page =
-      new AppEngineStandardWizardPage();
+      new AppEngineStandardWizardPage(mock(ILibraryCatalog.class));
   
   @Test
   public void testPageInitiallyIncomplete() {
@@ -29,6 +29,7 @@ import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Text;
 import org.eclipse.ui.dialogs.WizardNewProjectCreationPage;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.ILibraryCatalog;
 import com.google.cloud.tools.eclipse.appengine.libraries.model.Library;
 import com.google.cloud.tools.eclipse.appengine.ui.AppEngineLibrariesSelectorGroup;
 import com.google.cloud.tools.eclipse.appengine.ui.AppEngineImages;
@@ -42,9 +43,14 @@ public class AppEngineStandardWizardPage extends WizardNewProjectCreationPage {
 
   private Text javaPackageField;
   private AppEngineLibrariesSelectorGroup appEngineLibrariesSelectorGroup;
+  private final ILibraryCatalog libraryCatalog;
 
-  public AppEngineStandardWizardPage() {
+  /**
+   * @param libraryCatalog the catalog of the libraries offered for the new project
+   */
+  public AppEngineStandardWizardPage(ILibraryCatalog libraryCatalog) {
     super("basicNewProjectPage"); //$NON-NLS-1$
+    this.libraryCatalog = libraryCatalog;
     // todo instead of hard coding strings, read the wizard.name and wizard.description properties
     // from plugins/com.google.cloud.tools.eclipse.appengine.newproject/plugin.properties
     this.setTitle("App Engine Standard Project");
@@ -76,7 +82,7 @@ public class AppEngineStandardWizardPage extends WizardNewProjectCreationPage {
     javaPackageField.addModifyListener(pageValidator);
 
     // Manage APIs
-    appEngineLibrariesSelectorGroup = new AppEngineLibrariesSelectorGroup(container);
+    appEngineLibrariesSelectorGroup = new AppEngineLibrariesSelectorGroup(container, libraryCatalog);
 
     Dialog.applyDialogFont(container);
   }
@@ -18,12 +18,14 @@ package com.google.cloud.tools.eclipse.appengine.newproject;
 
 import com.google.cloud.tools.appengine.api.AppEngineException;
 import com.google.cloud.tools.appengine.cloudsdk.CloudSdk;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.ILibraryCatalog;
 import com.google.cloud.tools.eclipse.appengine.ui.AppEngineComponentPage;
 import com.google.cloud.tools.eclipse.sdk.ui.preferences.CloudSdkPrompter;
 import com.google.cloud.tools.eclipse.usagetracker.AnalyticsEvents;
 import com.google.cloud.tools.eclipse.usagetracker.AnalyticsPingManager;
 import java.io.File;
 import java.lang.reflect.InvocationTargetException;
+import javax.inject.Inject;
 import org.eclipse.core.runtime.IAdaptable;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -39,6 +41,8 @@ public class StandardProjectWizard extends Wizard implements INewWizard {
 
   private AppEngineStandardWizardPage page;
   private AppEngineStandardProjectConfig config = new AppEngineStandardProjectConfig();
+  @Inject
+  private ILibraryCatalog libraryCatalog;
 
   public StandardProjectWizard() {
     this.setWindowTitle("New App Engine Standard Project");
@@ -48,7 +52,7 @@ public class StandardProjectWizard extends Wizard implements INewWizard {
   @Override
   public void addPages() {
     if (appEngineJavaComponentExists()) {
-      page = new AppEngineStandardWizardPage();
+      page = new AppEngineStandardWizardPage(libraryCatalog);
       this.addPage(page);
     } else {
       this.addPage(new AppEngineComponentPage(true /* forNativeProjectWizard */));
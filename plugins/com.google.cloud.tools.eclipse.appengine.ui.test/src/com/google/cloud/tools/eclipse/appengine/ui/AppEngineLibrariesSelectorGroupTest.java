@@ -21,9 +21,14 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
+import com.google.cloud.tools.eclipse.appengine.libraries.model.ILibraryCatalog;
 import com.google.cloud.tools.eclipse.appengine.libraries.model.Library;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryDependencyGraph;
 import com.google.cloud.tools.eclipse.test.util.ui.ShellTestResource;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
@@ -48,13 +53,17 @@ public class AppEngineLibrariesSelectorGroupTest {
 
   @Before
   public void setUp() throws Exception {
+    final ILibraryCatalog libraryCatalog = createLibraryCatalog(library("appengine-api"),
+                                                                library("appengine-endpoints", "appengine-api"),
+                                                                library("objectify", "appengine-api"),
+                                                                library("servlet-api"));
     Display.getDefault().syncExec(new Runnable() {
 
       @Override
       public void run() {
         shell = shellTestResource.getShell();
         shell.setLayout(new FillLayout());
-        librariesSelector = new AppEngineLibrariesSelectorGroup(shell);
+        librariesSelector = new AppEngineLibrariesSelectorGroup(shell, libraryCatalog);
         shell.open();
         appengineButton = getButton("appengine-api");
         endpointsButton = getButton("appengine-endpoints");
@@ -63,6 +72,38 @@ public class AppEngineLibrariesSelectorGroupTest {
     });
   }
 
+  @Test
+  public void testOnlyOfferedLibrariesOfCatalogShown() {
+    syncExec(new Runnable() {
+
+      @Override
+      public void run() {
+        assertThat(librariesSelector.getLibraryButtons().size(), is(3));
+      }
+    });
+  }
+
+  @Test
+  public void testLibraryMissingFromCatalogNotShown() {
+    final ILibraryCatalog libraryCatalog = createLibraryCatalog(library("appengine-api"),
+                                                                library("objectify", "appengine-api"));
+    syncExec(new Runnable() {
+
+      @Override
+      public void run() {
+        AppEngineLibrariesSelectorGroup selector = new AppEngineLibrariesSelectorGroup(shell, libraryCatalog);
+        try {
+          List<Button> buttons = selector.getLibraryButtons();
+          assertThat(buttons.size(), is(2));
+          assertThat(((Library) buttons.get(0).getData()).getId(), is("appengine-api"));
+          assertThat(((Library) buttons.get(1).getData()).getId(), is("objectify"));
+        } finally {
+          selector.dispose();
+        }
+      }
+    });
+  }
+
   @Test
   public void testInitiallyNoLibrariesSelected() {
     syncExec(new Runnable() {
@@ -218,6 +259,19 @@ public class AppEngineLibrariesSelectorGroupTest {
       }});
   }
 
+  private static ILibraryCatalog createLibraryCatalog(Library... libraries) {
+    ILibraryCatalog libraryCatalog = mock(ILibraryCatalog.class);
+    when(libraryCatalog.getLibraries()).thenReturn(Arrays.asList(libraries));
+    when(libraryCatalog.getDependencyGraph()).thenReturn(LibraryDependencyGraph.create(Arrays.asList(libraries)));
+    return libraryCatalog;
+  }
+
+  private static Library library(String libraryId, String... dependencyIds) {
+    Library library = new Library(libraryId);
+    library.setLibraryDependencies(Arrays.asList(dependencyIds));
+    return library;
+  }
+
   private SWTBotCheckBox getButton(String libraryId) {
     for (Button button : librariesSelector.getLibraryButtons()) {
       if (libraryId.equals(((Library) button.getData()).getId())) {
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.eclipse.appengine.ui.whitelist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.tools.eclipse.appengine.whitelist.ReplacementIndex;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.ui.IMarkerResolution;
+import org.eclipse.ui.IMarkerResolution2;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WhitelistMarkerResolutionGeneratorTest {
+
+  @Mock private IMarker marker;
+
+  private final WhitelistMarkerResolutionGenerator generator =
+      new WhitelistMarkerResolutionGenerator();
+
+  @Test
+  public void testGetResolutions() {
+    when(marker.getAttribute(ReplacementIndex.CLASS_NAME_ATTRIBUTE, null))
+        .thenReturn("java.io.FileOutputStream");
+    assertTrue(generator.hasResolutions(marker));
+    IMarkerResolution[] resolutions = generator.getResolutions(marker);
+    assertEquals(1, resolutions.length);
+    assertEquals("Use GcsService instead (opens documentation)", resolutions[0].getLabel());
+    assertTrue(((IMarkerResolution2) resolutions[0]).getDescription()
+        .startsWith("java.io.FileOutputStream is not supported"));
+  }
+
+  @Test
+  public void testGetResolutions_noReplacement() {
+    when(marker.getAttribute(ReplacementIndex.CLASS_NAME_ATTRIBUTE, null))
+        .thenReturn("javax.swing.JFrame");
+    assertFalse(generator.hasResolutions(marker));
+    assertEquals(0, generator.getResolutions(marker).length);
+  }
+
+  @Test
+  public void testGetResolutions_noClassName() {
+    assertFalse(generator.hasResolutions(marker));
+    assertEquals(0, generator.getResolutions(marker).length);
+  }
+}
@@ -16,15 +16,20 @@
 
 package com.google.cloud.tools.eclipse.appengine.ui;
 
+import com.google.cloud.tools.eclipse.appengine.libraries.model.ILibraryCatalog;
 import com.google.cloud.tools.eclipse.appengine.libraries.model.Library;
+import com.google.cloud.tools.eclipse.appengine.libraries.model.LibraryDependencyGraph;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
 import org.eclipse.core.databinding.DataBindingContext;
 import org.eclipse.core.databinding.UpdateValueStrategy;
 import org.eclipse.core.databinding.conversion.Converter;
@@ -47,31 +52,47 @@ import org.eclipse.swt.widgets.Group;
 // TODO https://github.com/GoogleCloudPlatform/google-cloud-eclipse/issues/911
 public class AppEngineLibrariesSelectorGroup {
 
+  private static final Logger logger = Logger.getLogger(AppEngineLibrariesSelectorGroup.class.getName());
+
   private static final String BUTTON_MANUAL_SELECTION_KEY = "manualSelection";
 
+  // IDs of the libraries of the catalog that can be selected, in the order of their buttons
+  // TODO https://github.com/GoogleCloudPlatform/google-cloud-eclipse/issues/819
+  private static final List<String> LIBRARY_IDS =
+      Arrays.asList("appengine-api", "appengine-endpoints", "objectify"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
   private Composite parentContainer;
   private final List<Button> libraryButtons;
   private DataBindingContext bindingContext;
   private final IObservableList selectedLibraries;
+  private LibraryDependencyGraph dependencyGraph = LibraryDependencyGraph.empty();
 
-  public AppEngineLibrariesSelectorGroup(Composite parentContainer) {
+  /**
+   * @param libraryCatalog the catalog defining the libraries offered, and the dependencies between
+   *     them that select required libraries along with the libraries requiring them
+   */
+  public AppEngineLibrariesSelectorGroup(Composite parentContainer, ILibraryCatalog libraryCatalog) {
     Preconditions.checkNotNull(parentContainer, "parentContainer is null");
+    Preconditions.checkNotNull(libraryCatalog, "libraryCatalog is null");
     this.parentContainer = parentContainer;
     selectedLibraries = new WritableList(getDisplayRealm());
     libraryButtons = new LinkedList<>();
-    createContents();
+    createContents(libraryCatalog);
   }
 
   public List<Library> getSelectedLibraries() {
     return new ArrayList<>(selectedLibraries);
   }
 
-  private void createContents() {
+  private void createContents(ILibraryCatalog libraryCatalog) {
     Group apiGroup = new Group(parentContainer, SWT.NONE);
     apiGroup.setText(Messages.AppEngineLibrariesSelectorGroupLabel);
     GridDataFactory.fillDefaults().span(2, 1).applyTo(apiGroup);
 
-    List<Library> libraries = getLibraries();
+    // the catalog publishes its graph before its libraries, so the graph read afterwards is never
+    // older than the libraries
+    List<Library> libraries = getLibraries(libraryCatalog.getLibraries());
+    dependencyGraph = libraryCatalog.getDependencyGraph();
     for (Library library : libraries) {
       Button libraryButton = new Button(apiGroup, SWT.CHECK);
       libraryButton.setText(getLibraryName(library));
@@ -83,18 +104,25 @@ public class AppEngineLibrariesSelectorGroup {
     GridLayoutFactory.fillDefaults().applyTo(apiGroup);
   }
 
-  // TODO obtain libraries from extension registry
-  // https://github.com/GoogleCloudPlatform/google-cloud-eclipse/issues/819
-  private List<Library> getLibraries() {
-    Library appEngine = new Library("appengine-api");
-    appEngine.setName("App Engine API");
-    Library endpoints = new Library("appengine-endpoints");
-    endpoints.setName("App Engine Endpoints");
-    endpoints.setLibraryDependencies(Collections.singletonList("appengine-api"));
-    Library objectify = new Library("objectify");
-    objectify.setName("Objectify");
-    objectify.setLibraryDependencies(Collections.singletonList("appengine-api"));
-    return Arrays.asList(appEngine, endpoints, objectify);
+  /**
+   * @return the libraries of {@link #LIBRARY_IDS} defined in <code>libraries</code>, in the order
+   *     of their IDs
+   */
+  private static List<Library> getLibraries(Collection<Library> libraries) {
+    Map<String, Library> librariesById = new HashMap<>();
+    for (Library library : libraries) {
+      librariesById.put(library.getId(), library);
+    }
+    List<Library> offeredLibraries = new ArrayList<>();
+    for (String libraryId : LIBRARY_IDS) {
+      Library library = librariesById.get(libraryId);
+      if (library != null) {
+        offeredLibraries.add(library);
+      } else {
+        logger.warning("Library " + libraryId + " is not defined in the library catalog"); //$NON-NLS-1$ //$NON-NLS-2$
+      }
+    }
+    return offeredLibraries;
   }
 
   private static String getLibraryName(Library library) {
@@ -204,7 +232,8 @@ public class AppEngineLibrariesSelectorGroup {
     private boolean resultIfFound;
 
     /**
-     * @param libraryId the id of the library to be searched for
+     * @param libraryId the id of the library to be searched for among the libraries required,
+     *     directly or through other libraries, by the selected libraries
      * @param resultIfFound value returned by {@link #calculate()} if the library is found
      */
     private DependentLibrarySelected(Realm realm,
@@ -220,10 +249,8 @@ public class AppEngineLibrariesSelectorGroup {
     protected Object calculate() {
       for (Object object : selectedLibraries) {
         Library library = (Library) object;
-        for (String depId : library.getLibraryDependencies()) {
-          if (libraryId.equals(depId)) {
-            return resultIfFound;
-          }
+        if (dependencyGraph.requires(library.getId(), libraryId)) {
+          return resultIfFound;
         }
       }
       return !resultIfFound;
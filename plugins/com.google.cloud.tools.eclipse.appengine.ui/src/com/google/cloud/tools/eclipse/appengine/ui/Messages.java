@@ -22,6 +22,8 @@ public class Messages extends NLS {
   private static final String BUNDLE_NAME = "com.google.cloud.tools.eclipse.appengine.ui.messages"; //$NON-NLS-1$
   public static String AppEngineJavaComponentMissing;
   public static String AppEngineLibrariesSelectorGroupLabel;
+  public static String WhitelistReplacementLabel;
+  public static String WhitelistReplacementDescription;
 
   static {
     // initialize resource bundle
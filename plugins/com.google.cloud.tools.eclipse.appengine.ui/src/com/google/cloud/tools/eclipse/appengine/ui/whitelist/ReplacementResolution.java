@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.ui.whitelist;
+
+import com.google.cloud.tools.eclipse.appengine.ui.Messages;
+import com.google.cloud.tools.eclipse.appengine.whitelist.ReplacementIndex.Replacement;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.ui.IMarkerResolution2;
+import org.eclipse.ui.PartInitException;
+import org.eclipse.ui.PlatformUI;
+
+/**
+ * Suggests an App Engine alternative to a class that is not whitelisted by opening the
+ * documentation of the alternative. The replacements are services with other APIs rather than
+ * drop-in types, so the code itself is left alone.
+ */
+class ReplacementResolution implements IMarkerResolution2 {
+
+  private static final Logger logger = Logger.getLogger(ReplacementResolution.class.getName());
+
+  private final String className;
+  private final Replacement replacement;
+
+  ReplacementResolution(String className, Replacement replacement) {
+    this.className = className;
+    this.replacement = replacement;
+  }
+
+  @Override
+  public String getLabel() {
+    return NLS.bind(Messages.WhitelistReplacementLabel, replacement.getSimpleName());
+  }
+
+  @Override
+  public String getDescription() {
+    return NLS.bind(Messages.WhitelistReplacementDescription,
+        new String[] {className, replacement.getClassName(), replacement.getDocumentationUrl()});
+  }
+
+  @Override
+  public Image getImage() {
+    return null;
+  }
+
+  @Override
+  public void run(IMarker marker) {
+    try {
+      URL url = new URL(replacement.getDocumentationUrl());
+      PlatformUI.getWorkbench().getBrowserSupport().getExternalBrowser().openURL(url);
+    } catch (MalformedURLException | PartInitException ex) {
+      logger.log(Level.WARNING, "Could not open " + replacement.getDocumentationUrl(), ex); //$NON-NLS-1$
+    }
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.ui.whitelist;
+
+import com.google.cloud.tools.eclipse.appengine.whitelist.ReplacementIndex;
+import com.google.cloud.tools.eclipse.appengine.whitelist.ReplacementIndex.Replacement;
+import java.util.List;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.ui.IMarkerResolution;
+import org.eclipse.ui.IMarkerResolutionGenerator2;
+
+/**
+ * Offers the App Engine alternatives to a JRE class that is not whitelisted as quick fixes for
+ * whitelist problem markers, both in the Java editor and in the Problems view.
+ */
+public class WhitelistMarkerResolutionGenerator implements IMarkerResolutionGenerator2 {
+
+  @Override
+  public boolean hasResolutions(IMarker marker) {
+    String className = marker.getAttribute(ReplacementIndex.CLASS_NAME_ATTRIBUTE, null);
+    return className != null && !ReplacementIndex.getReplacements(className).isEmpty();
+  }
+
+  @Override
+  public IMarkerResolution[] getResolutions(IMarker marker) {
+    String className = marker.getAttribute(ReplacementIndex.CLASS_NAME_ATTRIBUTE, null);
+    if (className == null) {
+      return new IMarkerResolution[0];
+    }
+    List<Replacement> replacements = ReplacementIndex.getReplacements(className);
+    IMarkerResolution[] resolutions = new IMarkerResolution[replacements.size()];
+    for (int i = 0; i < resolutions.length; i++) {
+      resolutions[i] = new ReplacementResolution(className, replacements.get(i));
+    }
+    return resolutions;
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.whitelist.benchmarks;
+
+import com.google.cloud.tools.eclipse.appengine.whitelist.AppEngineJreWhitelist;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of {@link AppEngineJreWhitelist} lookups on mixes of class names such as a build
+ * sees them. Every invocation looks up {@link #LOOKUPS} names, drawn with a fixed seed from the
+ * mix selected by {@link #mix}, in each of the forms the whitelist accepts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class WhitelistLookupBenchmark {
+
+  static final int LOOKUPS = 1024;
+
+  private static final List<String> WHITELISTED_JRE = Arrays.asList(
+      "java.lang.String",
+      "java.lang.StringBuilder",
+      "java.lang.Integer",
+      "java.util.ArrayList",
+      "java.util.HashMap",
+      "java.util.Locale$Builder",
+      "java.util.concurrent.ConcurrentHashMap",
+      "java.util.logging.Logger",
+      "java.io.InputStream",
+      "java.io.IOException",
+      "java.net.URL",
+      "java.math.BigDecimal",
+      "java.text.SimpleDateFormat",
+      "java.security.MessageDigest",
+      "java.sql.Timestamp",
+      "javax.xml.parsers.DocumentBuilderFactory",
+      "org.w3c.dom.Element",
+      "org.xml.sax.SAXException");
+
+  private static final List<String> BLACKLISTED_JRE = Arrays.asList(
+      "java.io.FileOutputStream",
+      "java.io.FileWriter",
+      "java.net.CookieManager",
+      "java.net.ServerSocket",
+      "java.lang.ProcessBuilder",
+      "java.lang.management.ManagementFactory",
+      "java.nio.file.Files",
+      "java.util.prefs.Preferences",
+      "java.util.logging.FileHandler",
+      "java.awt.image.BufferedImage",
+      "java.rmi.Remote",
+      "org.omg.CORBA.ORB",
+      "org.ietf.jgss.GSSContext",
+      "sun.util.calendar.BaseCalendar",
+      "com.sun.jndi.ldap.LdapCtx");
+
+  // javax is split between the JRE and libraries, and the JRE part is only partly whitelisted
+  private static final List<String> JAVAX_EDGE_CASES = Arrays.asList(
+      "javax.servlet.http.HttpServlet",
+      "javax.servlet.ServletException",
+      "javax.persistence.Entity",
+      "javax.inject.Inject",
+      "javax.jdo.PersistenceManager",
+      "javax.mail.Session",
+      "javax.swing.JFrame",
+      "javax.imageio.ImageIO",
+      "javax.naming.InitialContext",
+      "javax.naming.ldap.LdapName",
+      "javax.annotation.Resource",
+      "javax.crypto.Cipher",
+      "javax.net.ssl.SSLContext",
+      "javax.xml.bind.JAXBContext",
+      "javax.sql.DataSource");
+
+  private static final List<String> NON_JRE = Arrays.asList(
+      "com.google.appengine.api.datastore.DatastoreService",
+      "com.google.appengine.api.ThreadManager",
+      "com.google.common.collect.ImmutableList",
+      "com.google.gson.Gson",
+      "com.fasterxml.jackson.databind.ObjectMapper",
+      "org.apache.commons.lang3.StringUtils",
+      "org.slf4j.LoggerFactory",
+      "org.joda.time.DateTime",
+      "org.springframework.context.ApplicationContext",
+      "com.sun.jersey.api.client.Client",
+      "com.example.guestbook.Greeting");
+
+  /** The kind of class names to look up. */
+  public enum Mix {
+    WHITELISTED_JRE, BLACKLISTED_JRE, JAVAX_EDGE_CASES, NON_JRE,
+    /** Mostly application and library classes, as in a typical App Engine project. */
+    REALISTIC
+  }
+
+  @Param
+  public Mix mix;
+
+  private String[] names;
+  private char[][] chars;
+  private char[][][] compoundNames;
+
+  @Setup
+  public void setUp() {
+    List<String> pool = new ArrayList<>();
+    switch (mix) {
+      case WHITELISTED_JRE:
+        pool.addAll(WHITELISTED_JRE);
+        break;
+      case BLACKLISTED_JRE:
+        pool.addAll(BLACKLISTED_JRE);
+        break;
+      case JAVAX_EDGE_CASES:
+        pool.addAll(JAVAX_EDGE_CASES);
+        break;
+      case NON_JRE:
+        pool.addAll(NON_JRE);
+        break;
+      case REALISTIC:
+        // roughly 60% application and library classes, 35% whitelisted JRE classes, and rare
+        // javax edge cases and violations
+        pool.addAll(repeat(NON_JRE, 12));
+        pool.addAll(repeat(WHITELISTED_JRE, 4));
+        pool.addAll(JAVAX_EDGE_CASES);
+        pool.addAll(BLACKLISTED_JRE.subList(0, 3));
+        break;
+      default:
+        throw new IllegalStateException("Unknown mix " + mix);
+    }
+
+    Random random = new Random(42);
+    names = new String[LOOKUPS];
+    chars = new char[LOOKUPS][];
+    compoundNames = new char[LOOKUPS][][];
+    for (int i = 0; i < LOOKUPS; i++) {
+      names[i] = pool.get(random.nextInt(pool.size()));
+      chars[i] = names[i].toCharArray();
+      compoundNames[i] = toCompoundName(names[i]);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LOOKUPS)
+  public void contains(Blackhole blackhole) {
+    for (String name : names) {
+      blackhole.consume(AppEngineJreWhitelist.contains(name));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LOOKUPS)
+  public void containsCharArray(Blackhole blackhole) {
+    for (char[] name : chars) {
+      blackhole.consume(AppEngineJreWhitelist.contains(name, 0, name.length));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LOOKUPS)
+  public void containsCompoundName(Blackhole blackhole) {
+    for (char[][] name : compoundNames) {
+      blackhole.consume(AppEngineJreWhitelist.contains(name));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LOOKUPS)
+  public void isJreClass(Blackhole blackhole) {
+    for (String name : names) {
+      blackhole.consume(AppEngineJreWhitelist.isJreClass(name));
+    }
+  }
+
+  private static List<String> repeat(List<String> names, int times) {
+    List<String> repeated = new ArrayList<>(names.size() * times);
+    for (int i = 0; i < times; i++) {
+      repeated.addAll(names);
+    }
+    return Collections.unmodifiableList(repeated);
+  }
+
+  private static char[][] toCompoundName(String name) {
+    String[] segments = name.split("\\.");
+    char[][] compoundName = new char[segments.length][];
+    for (int i = 0; i < segments.length; i++) {
+      compoundName[i] = segments[i].toCharArray();
+    }
+    return compoundName;
+  }
+}
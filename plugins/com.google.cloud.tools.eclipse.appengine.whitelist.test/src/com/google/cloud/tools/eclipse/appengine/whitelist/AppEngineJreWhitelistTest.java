@@ -56,5 +56,67 @@ public class AppEngineJreWhitelistTest {
     Assert.assertFalse(AppEngineJreWhitelist.contains("javax.swing.JFrame"));
   }
   
-}
+  @Test
+  public void testIsJreClass() {
+    Assert.assertTrue(AppEngineJreWhitelist.isJreClass("java.lang.String"));
+    Assert.assertTrue(AppEngineJreWhitelist.isJreClass("javax.swing.JFrame"));
+  }
+
+  @Test
+  public void testIsJreClass_nonJreClass() {
+    Assert.assertFalse(AppEngineJreWhitelist.isJreClass("com.google.Bar"));
+    Assert.assertFalse(AppEngineJreWhitelist.isJreClass("javax.servlet.ServletRequest"));
+  }
+
+  @Test
+  public void testContains_charArrayRange() {
+    char[] chars = "(java.net.CookieManager,java.lang.String)".toCharArray();
+    Assert.assertFalse(AppEngineJreWhitelist.contains(chars, 1, 22));
+    Assert.assertTrue(AppEngineJreWhitelist.contains(chars, 24, 16));
+  }
+
+  @Test
+  public void testContains_compoundName() {
+    Assert.assertFalse(AppEngineJreWhitelist.contains(compoundName("java", "net", "CookieManager")));
+    Assert.assertTrue(AppEngineJreWhitelist.contains(compoundName("java", "util", "Locale$Builder")));
+    Assert.assertTrue(AppEngineJreWhitelist.contains(compoundName("com", "google", "Bar")));
+  }
+
+  @Test
+  public void testIsJreClass_compoundName() {
+    Assert.assertTrue(AppEngineJreWhitelist.isJreClass(compoundName("javax", "swing", "JFrame")));
+    Assert.assertFalse(AppEngineJreWhitelist.isJreClass(compoundName("javax", "servlet", "Servlet")));
+  }
 
+  @Test
+  public void testForRuntime_java7() {
+    AppEngineJreWhitelist whitelist = AppEngineJreWhitelist.forRuntime(AppEngineJreWhitelist.JAVA_7);
+    Assert.assertEquals("java7", whitelist.getRuntime());
+    Assert.assertFalse(whitelist.allows("java.net.CookieManager"));
+    Assert.assertTrue(whitelist.allows("java.lang.String"));
+    Assert.assertTrue(whitelist.allows("com.google.Bar"));
+  }
+
+  @Test
+  public void testForRuntime_java8() {
+    AppEngineJreWhitelist whitelist = AppEngineJreWhitelist.forRuntime(AppEngineJreWhitelist.JAVA_8);
+    Assert.assertEquals("java8", whitelist.getRuntime());
+    Assert.assertTrue(whitelist.allows("java.net.CookieManager"));
+    Assert.assertTrue(whitelist.allows("javax.swing.JFrame".toCharArray(), 0, 18));
+    Assert.assertTrue(whitelist.allows(compoundName("org", "omg", "CORBA", "ORB")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testForRuntime_unknownRuntime() {
+    AppEngineJreWhitelist.forRuntime("python27");
+  }
+
+  private static char[][] compoundName(String... segments) {
+    char[][] compoundName = new char[segments.length][];
+    for (int i = 0; i < segments.length; i++) {
+      compoundName[i] = segments[i].toCharArray();
+    }
+    return compoundName;
+  }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.whitelist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClassNameTableTest {
+
+  @Test
+  public void testContains_allMembers() {
+    List<String> names = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      names.add("java.pkg" + (i % 17) + ".Class" + i);
+    }
+    ClassNameTable table = ClassNameTable.build(names);
+    Assert.assertEquals(names.size(), table.size());
+    for (String name : names) {
+      Assert.assertTrue(name, table.contains(name));
+    }
+  }
+
+  @Test
+  public void testContains_nonMembers() {
+    ClassNameTable table = ClassNameTable.build(Arrays.asList("java.lang.String", "java.util.List"));
+    Assert.assertFalse(table.contains("java.lang.Strin"));
+    Assert.assertFalse(table.contains("java.lang.StringX"));
+    Assert.assertFalse(table.contains("java.util.Map"));
+    Assert.assertFalse(table.contains(""));
+  }
+
+  @Test
+  public void testBuild_duplicatesCollapsed() {
+    ClassNameTable table = ClassNameTable.build(Arrays.asList("java.util.List", "java.util.List"));
+    Assert.assertEquals(1, table.size());
+    Assert.assertTrue(table.contains("java.util.List"));
+  }
+
+  @Test
+  public void testContains_emptyTable() {
+    Assert.assertFalse(ClassNameTable.build(Collections.<String>emptyList()).contains("java.util.List"));
+  }
+
+  @Test
+  public void testContains_charSequence() {
+    ClassNameTable table = ClassNameTable.build(Arrays.asList("java.util.List"));
+    Assert.assertTrue(table.contains(new StringBuilder("java.util.List")));
+  }
+
+  @Test
+  public void testContains_charArrayRange() {
+    ClassNameTable table = ClassNameTable.build(Arrays.asList("java.util.List"));
+    char[] chars = "[java.util.List]".toCharArray();
+    Assert.assertTrue(table.contains(chars, 1, 14));
+    Assert.assertFalse(table.contains(chars, 1, 13));
+    Assert.assertFalse(table.contains(chars, 0, 15));
+  }
+
+  @Test
+  public void testContains_compoundName() {
+    ClassNameTable table = ClassNameTable.build(Arrays.asList("java.util.List"));
+    Assert.assertTrue(table.contains(new char[][] {"java".toCharArray(), "util".toCharArray(), "List".toCharArray()}));
+    Assert.assertFalse(table.contains(new char[][] {"java".toCharArray(), "util".toCharArray()}));
+    Assert.assertFalse(table.contains(new char[][] {"java".toCharArray(), "util.List".toCharArray(), "X".toCharArray()}));
+    Assert.assertFalse(table.contains(new char[0][]));
+  }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.whitelist;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.CookieManager;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConstantPoolReaderTest {
+
+  // referenced so that the constant pool of this class contains them
+  private static final Class<?>[] REFERENCED = {CookieManager.class, Thread[][].class, int[].class};
+
+  private final Set<String> classNames = new HashSet<>();
+  private final ConstantPoolReader.ClassReferenceVisitor collector =
+      new ConstantPoolReader.ClassReferenceVisitor() {
+        @Override
+        public void visit(char[] className, int length) {
+          classNames.add(new String(className, 0, length));
+        }
+      };
+
+  @Test
+  public void testRead_classReferences() throws IOException {
+    try (InputStream input = getClass().getResourceAsStream("ConstantPoolReaderTest.class")) {
+      new ConstantPoolReader().read(new DataInputStream(input), collector);
+    }
+    Assert.assertNotNull(REFERENCED);
+    Assert.assertTrue(classNames.contains("java.net.CookieManager"));
+    Assert.assertTrue(classNames.contains("java.lang.Thread"));
+    Assert.assertTrue(classNames.contains(
+        "com.google.cloud.tools.eclipse.appengine.whitelist.ConstantPoolReaderTest$1"));
+    for (String className : classNames) {
+      Assert.assertFalse(className, className.contains("/") || className.startsWith("["));
+    }
+  }
+
+  @Test
+  public void testRead_readerIsReusable() throws IOException {
+    ConstantPoolReader reader = new ConstantPoolReader();
+    for (int i = 0; i < 2; i++) {
+      try (InputStream input = getClass().getResourceAsStream("ConstantPoolReaderTest.class")) {
+        reader.read(new DataInputStream(input), collector);
+      }
+    }
+    Assert.assertTrue(classNames.contains("java.net.CookieManager"));
+  }
+
+  @Test(expected = IOException.class)
+  public void testRead_notAClassFile() throws IOException {
+    byte[] bytes = {1, 2, 3, 4, 0, 0, 0, 0, 0, 0};
+    new ConstantPoolReader().read(new DataInputStream(new ByteArrayInputStream(bytes)), collector);
+  }
+}
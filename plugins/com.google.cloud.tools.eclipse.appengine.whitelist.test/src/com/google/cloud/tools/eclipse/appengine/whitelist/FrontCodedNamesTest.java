@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.eclipse.appengine.whitelist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Test;
+
+public class FrontCodedNamesTest {
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    List<String> names = Arrays.asList("java.util.Locale", "java.lang.String",
+        "java.util.Locale$Builder", "java.lang.String", "javax.naming.Name", "");
+    assertEquals(Arrays.asList("", "java.lang.String", "java.util.Locale",
+        "java.util.Locale$Builder", "javax.naming.Name"), roundTrip(names));
+  }
+
+  @Test
+  public void testRoundTrip_empty() throws IOException {
+    assertTrue(roundTrip(Collections.<String>emptyList()).isEmpty());
+  }
+
+  @Test
+  public void testRoundTrip_longSharedPrefix() throws IOException {
+    char[] prefix = new char[300];
+    Arrays.fill(prefix, 'a');
+    List<String> names = Arrays.asList(new String(prefix) + "x", new String(prefix) + "y");
+    assertEquals(names, roundTrip(names));
+  }
+
+  @Test
+  public void testRoundTrip_nonAscii() throws IOException {
+    List<String> names = Arrays.asList("café.Crème", "café.Crème$中");
+    assertEquals(names, roundTrip(names));
+  }
+
+  @Test(expected = IOException.class)
+  public void testRead_notFrontCoded() throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+      gzip.write(new byte[] {1, 2, 3, 4, 0, 0, 0, 0});
+    }
+    FrontCodedNames.read(new ByteArrayInputStream(output.toByteArray()));
+  }
+
+  @Test
+  public void testRead_bundledWhitelist() throws IOException {
+    List<String> names = FrontCodedNames.read(
+        AppEngineJreWhitelist.class.getResourceAsStream("java7.whitelist"));
+    assertTrue(names.contains("java.lang.String"));
+    assertTrue(names.contains("javax.naming.ldap.Rdn"));
+    for (int i = 1; i < names.size(); i++) {
+      assertTrue(names.get(i - 1).compareTo(names.get(i)) < 0);
+    }
+  }
+
+  private static List<String> roundTrip(List<String> names) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    FrontCodedNames.write(names, output);
+    return FrontCodedNames.read(new ByteArrayInputStream(output.toByteArray()));
+  }
+}
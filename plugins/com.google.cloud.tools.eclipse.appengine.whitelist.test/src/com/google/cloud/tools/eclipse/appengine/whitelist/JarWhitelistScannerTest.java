@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.whitelist;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.CookieManager;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JarWhitelistScannerTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private JarWhitelistScanner scanner =
+      new JarWhitelistScanner(AppEngineJreWhitelist.forRuntime(AppEngineJreWhitelist.JAVA_7));
+
+  @Test
+  public void testScan() throws IOException {
+    Path jar = createJar("library.jar");
+    Set<String> violations = scanner.scan(jar);
+    Assert.assertTrue(violations.contains("java.net.CookieManager"));
+    Assert.assertFalse(violations.contains("java.lang.String"));
+  }
+
+  @Test
+  public void testScan_cachedByContent() throws IOException {
+    Set<String> first = scanner.scan(createJar("first.jar"));
+    Set<String> second = scanner.scan(createJar("second.jar"));
+    Assert.assertSame(first, second);
+  }
+
+  @Test
+  public void testScan_java8Runtime() throws IOException {
+    JarWhitelistScanner java8Scanner =
+        new JarWhitelistScanner(AppEngineJreWhitelist.forRuntime(AppEngineJreWhitelist.JAVA_8));
+    Assert.assertTrue(java8Scanner.scan(createJar("library.jar")).isEmpty());
+  }
+
+  @Test
+  public void testScanDirectory() throws IOException {
+    createJar("library.jar");
+    Files.write(temporaryFolder.getRoot().toPath().resolve("empty.jar"), emptyJar());
+    Map<String, Set<String>> violations = scanner.scanDirectory(temporaryFolder.getRoot().toPath(), new NullProgressMonitor());
+    Assert.assertEquals(1, violations.size());
+    Assert.assertTrue(violations.get("library.jar").contains("java.net.CookieManager"));
+  }
+
+  @Test
+  public void testScanDirectory_missingDirectory() throws IOException {
+    Path missing = temporaryFolder.getRoot().toPath().resolve("WEB-INF/lib");
+    Assert.assertTrue(scanner.scanDirectory(missing, new NullProgressMonitor()).isEmpty());
+  }
+
+  @Test(expected = OperationCanceledException.class)
+  public void testScanDirectory_canceled() throws IOException {
+    createJar("library.jar");
+    IProgressMonitor monitor = new NullProgressMonitor();
+    monitor.setCanceled(true);
+    scanner.scanDirectory(temporaryFolder.getRoot().toPath(), monitor);
+  }
+
+  // this class references java.net.CookieManager below, so a jar of it has a violation
+  private Path createJar(String name) throws IOException {
+    Assert.assertNotNull(CookieManager.class);
+    Path jar = temporaryFolder.getRoot().toPath().resolve(name);
+    try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(jar));
+        InputStream input = getClass().getResourceAsStream("JarWhitelistScannerTest.class")) {
+      zip.putNextEntry(new ZipEntry("com/example/JarWhitelistScannerTest.class"));
+      copy(input, zip);
+      zip.closeEntry();
+    }
+    return jar;
+  }
+
+  private static byte[] emptyJar() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+      zip.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+      zip.closeEntry();
+    }
+    return bytes.toByteArray();
+  }
+
+  private static void copy(InputStream input, OutputStream output) throws IOException {
+    byte[] buffer = new byte[4096];
+    int read;
+    while ((read = input.read(buffer)) != -1) {
+      output.write(buffer, 0, read);
+    }
+  }
+}
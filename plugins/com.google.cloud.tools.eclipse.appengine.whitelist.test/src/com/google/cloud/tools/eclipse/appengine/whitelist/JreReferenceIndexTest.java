@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.whitelist;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JreReferenceIndexTest {
+
+  private static final IPath UNIT_A = new Path("/project/src/A.java");
+  private static final IPath UNIT_B = new Path("/project/src/B.java");
+  private static final IPath OTHER_UNIT = new Path("/other/src/A.java");
+
+  private JreReferenceIndex index = new JreReferenceIndex();
+
+  @Test
+  public void testUpdate_replacesPreviousReferences() {
+    index.update(UNIT_A, classes("java.lang.Thread", "java.lang.String"));
+    index.update(UNIT_A, classes("java.lang.String"));
+    Assert.assertEquals(classes("java.lang.String"), index.getReferencedClasses(UNIT_A));
+  }
+
+  @Test
+  public void testUpdate_emptyRemovesUnit() {
+    index.update(UNIT_A, classes("java.lang.String"));
+    index.update(UNIT_A, Collections.<String>emptySet());
+    Assert.assertTrue(index.getUnits("project").isEmpty());
+  }
+
+  @Test
+  public void testGetUnitsReferencing() {
+    index.update(UNIT_A, classes("java.lang.Thread"));
+    index.update(UNIT_B, classes("java.lang.String"));
+    index.update(OTHER_UNIT, classes("java.lang.Thread"));
+    Assert.assertEquals(new HashSet<>(Arrays.asList(UNIT_A, OTHER_UNIT)),
+                        index.getUnitsReferencing("java.lang.Thread"));
+  }
+
+  @Test
+  public void testClear_onlyAffectsProject() {
+    index.update(UNIT_A, classes("java.lang.Thread"));
+    index.update(OTHER_UNIT, classes("java.lang.Thread"));
+    index.clear("project");
+    Assert.assertTrue(index.getUnits("project").isEmpty());
+    Assert.assertEquals(Collections.singleton(OTHER_UNIT), index.getUnits("other"));
+  }
+
+  @Test
+  public void testGetReferencedClasses_unknownUnit() {
+    Assert.assertTrue(index.getReferencedClasses(UNIT_A).isEmpty());
+  }
+
+  private static HashSet<String> classes(String... names) {
+    return new HashSet<>(Arrays.asList(names));
+  }
+}
@@ -16,16 +16,250 @@
 
 package com.google.cloud.tools.eclipse.appengine.whitelist;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.tools.eclipse.appengine.facets.AppEngineStandardFacet;
+import com.google.cloud.tools.eclipse.test.util.project.TestProjectCreator;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.compiler.CategorizedProblem;
+import org.eclipse.jdt.core.compiler.ReconcileContext;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.launching.JavaRuntime;
+import org.eclipse.jst.common.project.facet.core.JavaFacet;
+import org.eclipse.jst.j2ee.web.project.facet.WebFacetUtils;
+import org.eclipse.wst.common.componentcore.ComponentCore;
+import org.junit.After;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 public class JreWhitelistCheckerTest {
 
+  private static final String SOURCE = "package reconciled;\n"
+      + "public class Edited {\n"
+      + "  java.net.CookieManager manager;\n"
+      + "  String name;\n"
+      + "}\n";
+  // CookieManager is java.net.CookieManager, unless the package has a type of that name
+  private static final String SHADOWED_SOURCE = "package reconciled;\n"
+      + "import java.net.*;\n"
+      + "public class Shadowed {\n"
+      + "  CookieManager manager;\n"
+      + "}\n";
+  private static final String SHADOWING_SOURCE = "package reconciled;\n"
+      + "public class CookieManager {}\n";
+
+  @Rule public TestProjectCreator appEngineStandardProject =
+      new TestProjectCreator().withFacetVersions(Arrays.asList(JavaFacet.VERSION_1_7,
+                                                               WebFacetUtils.WEB_25,
+                                                               AppEngineStandardFacet.APPENGINE_STANDARD_VERSION));
+  @Rule public TestProjectCreator javaProject = new TestProjectCreator();
+
   private JreWhitelistChecker checker = new JreWhitelistChecker();
+  private ICompilationUnit workingCopy;
+
+  @After
+  public void tearDown() throws CoreException {
+    if (workingCopy != null) {
+      workingCopy.discardWorkingCopy();
+    }
+  }
 
   @Test
   public void test() {
     Assert.assertFalse(checker.isActive(null));
   }
 
+  @Test
+  public void testGetWhitelist_noRuntime() {
+    assertEquals(AppEngineJreWhitelist.JAVA_7, getRuntime(appEngineStandardProject.getJavaProject()));
+  }
+
+  @Test
+  public void testGetWhitelist_java8Runtime() throws CoreException {
+    setRuntime("<runtime>java8</runtime>");
+    assertEquals(AppEngineJreWhitelist.JAVA_8, getRuntime(appEngineStandardProject.getJavaProject()));
+  }
+
+  @Test
+  public void testGetWhitelist_followsChangedRuntime() throws CoreException {
+    setRuntime("<runtime>java8</runtime>");
+    getRuntime(appEngineStandardProject.getJavaProject());
+    setRuntime("<runtime>java7</runtime>");
+    assertEquals(AppEngineJreWhitelist.JAVA_7, getRuntime(appEngineStandardProject.getJavaProject()));
+  }
+
+  @Test
+  public void testGetWhitelist_ignoresCompilerCompliance() {
+    IJavaProject project = appEngineStandardProject.getJavaProject();
+    project.setOption(JavaCore.COMPILER_COMPLIANCE, JavaCore.VERSION_1_8);
+    assertEquals(AppEngineJreWhitelist.JAVA_7, getRuntime(project));
+  }
+
+  @Test
+  public void testGetWhitelist_noAppEngineWebXml() {
+    assertEquals(AppEngineJreWhitelist.JAVA_7, getRuntime(javaProject.getJavaProject()));
+  }
+
+  @Test
+  public void testReconcile_reportsReferencesToClassesNotWhitelisted() throws CoreException {
+    workingCopy = createWorkingCopy();
+    ReconcileContext context = mockReconcileContext();
+
+    checker.reconcile(context);
+
+    ArgumentCaptor<CategorizedProblem[]> problems = ArgumentCaptor.forClass(CategorizedProblem[].class);
+    verify(context).putProblems(eq(WhitelistProblem.MARKER_TYPE), problems.capture());
+    assertEquals(1, problems.getValue().length);
+    assertEquals("java.net.CookieManager", ((WhitelistProblem) problems.getValue()[0]).getClassName());
+    assertEquals(3, problems.getValue()[0].getSourceLineNumber());
+  }
+
+  @Test
+  public void testReconcile_modifiedBufferReportsPreviousProblems() throws CoreException {
+    workingCopy = createWorkingCopy();
+    ReconcileContext firstContext = mockReconcileContext();
+    checker.reconcile(firstContext);
+    ArgumentCaptor<CategorizedProblem[]> firstProblems = ArgumentCaptor.forClass(CategorizedProblem[].class);
+    verify(firstContext).putProblems(eq(WhitelistProblem.MARKER_TYPE), firstProblems.capture());
+
+    // an edit that keeps the length of the buffer
+    workingCopy.getBuffer().replace(SOURCE.indexOf("name"), "name".length(), "nome");
+    ReconcileContext secondContext = mockReconcileContext();
+    checker.reconcile(secondContext);
+
+    verify(secondContext, never()).getAST8();
+    verify(secondContext).putProblems(WhitelistProblem.MARKER_TYPE, firstProblems.getValue());
+  }
+
+  @Test
+  public void testReconcile_consistentBufferIsChecked() throws CoreException {
+    workingCopy = createWorkingCopy();
+    checker.reconcile(mockReconcileContext());
+    workingCopy.getBuffer().replace(SOURCE.indexOf("java.net.CookieManager"),
+                                    "java.net.CookieManager".length(), "java.util.ArrayList   ");
+    workingCopy.reconcile(ICompilationUnit.NO_AST, false, null, null);
+    ReconcileContext context = mockReconcileContext();
+
+    checker.reconcile(context);
+
+    ArgumentCaptor<CategorizedProblem[]> problems = ArgumentCaptor.forClass(CategorizedProblem[].class);
+    verify(context).putProblems(eq(WhitelistProblem.MARKER_TYPE), problems.capture());
+    assertEquals(0, problems.getValue().length);
+  }
+
+  @Test
+  public void testReconcile_typeAddedToPackageIsNotAnsweredFromCache() throws CoreException {
+    workingCopy = JavaCore.createCompilationUnitFrom(createSourceFile("Shadowed.java", SHADOWED_SOURCE))
+        .getWorkingCopy(null);
+    assertEquals(1, cacheResults().size());
+    createSourceFile("CookieManager.java", SHADOWING_SOURCE);
+    ReconcileContext context = mockReconcileContext();
+
+    checker.reconcile(context);
+
+    ArgumentCaptor<CategorizedProblem[]> problems = ArgumentCaptor.forClass(CategorizedProblem[].class);
+    verify(context).putProblems(eq(WhitelistProblem.MARKER_TYPE), problems.capture());
+    assertEquals(0, problems.getValue().length);
+  }
+
+  @Test
+  public void testReconcile_typeRemovedFromPackageIsNotAnsweredFromCache() throws CoreException {
+    IFile shadowing = createSourceFile("CookieManager.java", SHADOWING_SOURCE);
+    workingCopy = JavaCore.createCompilationUnitFrom(createSourceFile("Shadowed.java", SHADOWED_SOURCE))
+        .getWorkingCopy(null);
+    assertEquals(0, cacheResults().size());
+    shadowing.delete(true, null);
+    ReconcileContext context = mockReconcileContext();
+
+    checker.reconcile(context);
+
+    ArgumentCaptor<CategorizedProblem[]> problems = ArgumentCaptor.forClass(CategorizedProblem[].class);
+    verify(context).putProblems(eq(WhitelistProblem.MARKER_TYPE), problems.capture());
+    assertEquals(1, problems.getValue().length);
+  }
+
+  private ICompilationUnit createWorkingCopy() throws CoreException {
+    return JavaCore.createCompilationUnitFrom(createSourceFile("Edited.java", SOURCE)).getWorkingCopy(null);
+  }
+
+  // creates a file in the reconciled package, and the source folder and package if needed
+  private IFile createSourceFile(String name, String source) throws CoreException {
+    IJavaProject javaProject = appEngineStandardProject.getJavaProject();
+    IFolder sourceFolder = javaProject.getProject().getFolder("reconcilesrc");
+    if (!sourceFolder.exists()) {
+      sourceFolder.create(true, true, null);
+      IClasspathEntry[] rawClasspath = new IClasspathEntry[] {
+          JavaCore.newSourceEntry(sourceFolder.getFullPath()),
+          JavaRuntime.getDefaultJREContainerEntry()};
+      javaProject.setRawClasspath(rawClasspath, null);
+    }
+    IFolder packageFolder = sourceFolder.getFolder("reconciled");
+    if (!packageFolder.exists()) {
+      packageFolder.create(true, true, null);
+    }
+    IFile file = packageFolder.getFile(name);
+    file.create(new ByteArrayInputStream(source.getBytes(StandardCharsets.UTF_8)), true, null);
+    return file;
+  }
+
+  // checks the working copy as a build does, which caches the results
+  private List<WhitelistProblem> cacheResults() throws CoreException {
+    AppEngineJreWhitelist whitelist = JreWhitelistChecker.getWhitelist(workingCopy.getJavaProject());
+    byte[] digest = JreWhitelistChecker.digest(workingCopy, workingCopy.getBuffer().getCharacters(),
+                                               whitelist, new HashMap<String, String>());
+    return checker.check((IFile) workingCopy.getResource(), digest, parse(), whitelist);
+  }
+
+  // a context as JDT passes it to participants, with the AST of the current buffer
+  private ReconcileContext mockReconcileContext() throws CoreException {
+    CompilationUnit ast = parse();
+    ReconcileContext context = mock(ReconcileContext.class);
+    when(context.getWorkingCopy()).thenReturn(workingCopy);
+    when(context.getAST8()).thenReturn(ast);
+    return context;
+  }
+
+  private CompilationUnit parse() {
+    ASTParser parser = ASTParser.newParser(AST.JLS8);
+    parser.setSource(workingCopy);
+    parser.setResolveBindings(true);
+    return (CompilationUnit) parser.createAST(null);
+  }
+
+  private static String getRuntime(IJavaProject project) {
+    return JreWhitelistChecker.getWhitelist(project).getRuntime();
+  }
+
+  private void setRuntime(String runtimeElement) throws CoreException {
+    IFile appEngineWebXml = ComponentCore.createComponent(appEngineStandardProject.getProject())
+        .getRootFolder().getFile("WEB-INF/appengine-web.xml").getUnderlyingFile();
+    assertTrue(appEngineWebXml.exists());
+    String contents = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+        + "<appengine-web-app xmlns=\"http://appengine.google.com/ns/1.0\">\n"
+        + "  " + runtimeElement + "\n"
+        + "</appengine-web-app>\n";
+    appEngineWebXml.setContents(new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8)),
+                                true, false, null);
+  }
 }
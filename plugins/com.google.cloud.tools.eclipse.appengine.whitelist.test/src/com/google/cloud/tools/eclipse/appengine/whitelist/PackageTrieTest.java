@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.whitelist;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PackageTrieTest {
+
+  private PackageTrie trie = new PackageTrie("java.", "javax.swing.", "javax.sql.");
+
+  @Test
+  public void testMatches() {
+    Assert.assertTrue(trie.matches("java.lang.String"));
+    Assert.assertTrue(trie.matches("javax.swing.JFrame"));
+    Assert.assertTrue(trie.matches("javax.sql.DataSource"));
+  }
+
+  @Test
+  public void testMatches_sharedPrefixOnly() {
+    Assert.assertFalse(trie.matches("javax.servlet.ServletRequest"));
+    Assert.assertFalse(trie.matches("javax.swingx.JXFrame"));
+  }
+
+  @Test
+  public void testMatches_prefixOfPrefix() {
+    Assert.assertFalse(trie.matches("java"));
+    Assert.assertFalse(trie.matches("javax.swing"));
+  }
+
+  @Test
+  public void testMatches_empty() {
+    Assert.assertFalse(trie.matches(""));
+    Assert.assertFalse(new PackageTrie().matches("java.lang.String"));
+  }
+
+  @Test
+  public void testMatches_charArrayRange() {
+    char[] chars = "Ljavax/swing/JFrame;javax.swing.JFrame".toCharArray();
+    Assert.assertFalse(trie.matches(chars, 0, 19));
+    Assert.assertTrue(trie.matches(chars, 20, 18));
+  }
+
+  @Test
+  public void testMatches_compoundName() {
+    Assert.assertTrue(trie.matches(new char[][] {"javax".toCharArray(), "swing".toCharArray(), "JFrame".toCharArray()}));
+    Assert.assertFalse(trie.matches(new char[][] {"javax".toCharArray(), "servlet".toCharArray()}));
+    Assert.assertFalse(trie.matches(new char[][] {"java".toCharArray()}));
+  }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.eclipse.appengine.whitelist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.tools.eclipse.appengine.whitelist.ReplacementIndex.Replacement;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.Test;
+
+public class ReplacementIndexTest {
+
+  @Test
+  public void testGetReplacements_class() {
+    List<Replacement> replacements = ReplacementIndex.getReplacements("java.io.FileOutputStream");
+    assertEquals(1, replacements.size());
+    assertEquals("com.google.appengine.tools.cloudstorage.GcsService",
+        replacements.get(0).getClassName());
+    assertEquals("GcsService", replacements.get(0).getSimpleName());
+    assertTrue(replacements.get(0).getDocumentationUrl().startsWith("https://"));
+  }
+
+  @Test
+  public void testGetReplacements_package() {
+    List<Replacement> replacements = ReplacementIndex.getReplacements("java.awt.image.BufferedImage");
+    assertEquals("com.google.appengine.api.images.ImagesService", replacements.get(0).getClassName());
+    assertTrue(ReplacementIndex.getReplacements("java.awt.color.ColorSpace").isEmpty());
+  }
+
+  @Test
+  public void testGetReplacements_none() {
+    assertTrue(ReplacementIndex.getReplacements("javax.swing.JFrame").isEmpty());
+    assertTrue(ReplacementIndex.getReplacements("Foo").isEmpty());
+  }
+
+  @Test
+  public void testRead_classBeforePackage() throws IOException {
+    ReplacementIndex index = read("# comment\n\na.* x.Y http://y\na.B x.Z http://z\n");
+    List<Replacement> replacements = index.lookUp("a.B");
+    assertEquals(2, replacements.size());
+    assertEquals("x.Z", replacements.get(0).getClassName());
+    assertEquals("x.Y", replacements.get(1).getClassName());
+    assertEquals("http://y", index.lookUp("a.C").get(0).getDocumentationUrl());
+  }
+
+  @Test(expected = IOException.class)
+  public void testRead_malformedLine() throws IOException {
+    read("java.io.File GcsService\n");
+  }
+
+  @Test
+  public void testBundledReplacements_replaceOnlyBlacklistedClasses() throws IOException {
+    ReplacementIndex index = ReplacementIndex.read(
+        ReplacementIndex.class.getResourceAsStream("replacements.txt"));
+    for (String className : new String[] {"java.io.FileOutputStream", "java.io.FileWriter",
+        "java.lang.ProcessBuilder", "java.net.CookieManager", "java.net.ServerSocket",
+        "java.util.logging.FileHandler", "javax.naming.InitialContext"}) {
+      assertFalse(className, AppEngineJreWhitelist.contains(className));
+      assertFalse(className, index.lookUp(className).isEmpty());
+    }
+  }
+
+  private static ReplacementIndex read(String contents) throws IOException {
+    return ReplacementIndex.read(new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8)));
+  }
+}
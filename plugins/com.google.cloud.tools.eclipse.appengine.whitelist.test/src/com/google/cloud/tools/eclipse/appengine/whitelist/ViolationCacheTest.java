@@ -0,0 +1,204 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.eclipse.appengine.whitelist;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ViolationCacheTest {
+
+  private static final String CONTEXT = "4 /project/lib.jar\nFoo.java\n";
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final byte[] digest = ViolationCache.digest("class Foo {}".toCharArray(), "java7", CONTEXT);
+  private final Set<String> jreClasses =
+      new LinkedHashSet<>(Arrays.asList("java.lang.String", "java.lang.Thread"));
+  private final List<WhitelistProblem> problems = Collections.singletonList(
+      new WhitelistProblem("java.lang.Thread", "Foo.java".toCharArray(), 10, 15, 3));
+
+  @Test
+  public void testDigest_sameContents() {
+    assertArrayEquals(digest, ViolationCache.digest("class Foo {}".toCharArray(), "java7", CONTEXT));
+    assertEquals(32, digest.length);
+  }
+
+  @Test
+  public void testDigest_otherRuntime() {
+    assertFalse(Arrays.equals(digest, ViolationCache.digest("class Foo {}".toCharArray(), "java8", CONTEXT)));
+  }
+
+  @Test
+  public void testDigest_otherBindingContext() {
+    byte[] otherDigest = ViolationCache.digest("class Foo {}".toCharArray(), "java7",
+                                               CONTEXT + "Thread.java\n");
+    assertFalse(Arrays.equals(digest, otherDigest));
+  }
+
+  @Test
+  public void testGet_unknownDigest() {
+    ViolationCache cache = ViolationCache.empty("1");
+    assertNull(cache.get(digest));
+    assertFalse(cache.isDirty());
+  }
+
+  @Test
+  public void testPut() {
+    ViolationCache cache = ViolationCache.empty("1");
+    cache.put("/project/src/Foo.java", digest, jreClasses, problems);
+    assertTrue(cache.isDirty());
+    assertEntry(cache.get(digest));
+  }
+
+  @Test
+  public void testPut_replacesEarlierContents() {
+    ViolationCache cache = ViolationCache.empty("1");
+    cache.put("/project/src/Foo.java", digest, jreClasses, problems);
+    byte[] newDigest = ViolationCache.digest("class Foo { }".toCharArray(), "java7", CONTEXT);
+    cache.put("/project/src/Foo.java", newDigest, jreClasses, problems);
+    assertNull(cache.get(digest));
+    assertEntry(cache.get(newDigest));
+  }
+
+  @Test
+  public void testRemove() {
+    ViolationCache cache = ViolationCache.empty("1");
+    cache.put("/project/src/Foo.java", digest, jreClasses, problems);
+    cache.remove("/project/src/Foo.java");
+    assertNull(cache.get(digest));
+  }
+
+  @Test
+  public void testRemove_keepsContentsSharedWithOtherUnit() {
+    ViolationCache cache = ViolationCache.empty("1");
+    cache.put("/project/src/Foo.java", digest, jreClasses, problems);
+    cache.put("/project/src/Copy.java", digest, jreClasses, problems);
+    cache.remove("/project/src/Foo.java");
+    assertEntry(cache.get(digest));
+    cache.remove("/project/src/Copy.java");
+    assertNull(cache.get(digest));
+  }
+
+  @Test
+  public void testPut_keepsEarlierContentsSharedWithOtherUnit() throws IOException {
+    ViolationCache cache = ViolationCache.empty("1");
+    cache.put("/project/src/Foo.java", digest, jreClasses, problems);
+    cache.put("/project/src/Copy.java", digest, jreClasses, problems);
+    Path file = temporaryFolder.getRoot().toPath().resolve("violations-1");
+    cache.save(file);
+
+    ViolationCache loaded = ViolationCache.load(file, "1");
+    byte[] newDigest = ViolationCache.digest("class Foo { }".toCharArray(), "java7", CONTEXT);
+    loaded.put("/project/src/Foo.java", newDigest, jreClasses, problems);
+    assertEntry(loaded.get(digest));
+    loaded.put("/project/src/Copy.java", newDigest, jreClasses, problems);
+    assertNull(loaded.get(digest));
+  }
+
+  @Test
+  public void testClear() {
+    ViolationCache cache = ViolationCache.empty("1");
+    byte[] otherDigest = ViolationCache.digest("class Bar {}".toCharArray(), "java7", CONTEXT);
+    cache.put("/project/src/Foo.java", digest, jreClasses, problems);
+    cache.put("/other/src/Bar.java", otherDigest, jreClasses, problems);
+    cache.clear("project");
+    assertNull(cache.get(digest));
+    assertEntry(cache.get(otherDigest));
+  }
+
+  @Test
+  public void testSaveAndLoad() throws IOException {
+    ViolationCache cache = ViolationCache.empty("1");
+    cache.put("/project/src/Foo.java", digest, jreClasses, problems);
+    Path file = temporaryFolder.getRoot().toPath().resolve("violations-1");
+    cache.save(file);
+    assertFalse(cache.isDirty());
+
+    ViolationCache loaded = ViolationCache.load(file, "1");
+    assertFalse(loaded.isDirty());
+    assertEntry(loaded.get(digest));
+  }
+
+  @Test
+  public void testSave_copiesUndecodedEntries() throws IOException {
+    ViolationCache cache = ViolationCache.empty("1");
+    cache.put("/project/src/Foo.java", digest, jreClasses, problems);
+    Path file1 = temporaryFolder.getRoot().toPath().resolve("violations-1");
+    cache.save(file1);
+
+    ViolationCache loaded = ViolationCache.load(file1, "1");
+    byte[] otherDigest = ViolationCache.digest("class Bar {}".toCharArray(), "java7", CONTEXT);
+    loaded.put("/project/src/Bar.java", otherDigest, Collections.<String>emptySet(),
+               Collections.<WhitelistProblem>emptyList());
+    Path file2 = temporaryFolder.getRoot().toPath().resolve("violations-2");
+    loaded.save(file2);
+
+    ViolationCache reloaded = ViolationCache.load(file2, "1");
+    assertEntry(reloaded.get(digest));
+    assertTrue(reloaded.get(otherDigest).getJreClasses().isEmpty());
+  }
+
+  @Test
+  public void testLoad_otherWhitelistVersion() throws IOException {
+    ViolationCache cache = ViolationCache.empty("1");
+    cache.put("/project/src/Foo.java", digest, jreClasses, problems);
+    Path file = temporaryFolder.getRoot().toPath().resolve("violations-1");
+    cache.save(file);
+
+    assertNull(ViolationCache.load(file, "2").get(digest));
+  }
+
+  @Test
+  public void testLoad_missingFile() throws IOException {
+    Path file = temporaryFolder.getRoot().toPath().resolve("violations-1");
+    assertNull(ViolationCache.load(file, "1").get(digest));
+  }
+
+  @Test(expected = IOException.class)
+  public void testLoad_corruptFile() throws IOException {
+    Path file = temporaryFolder.getRoot().toPath().resolve("violations-1");
+    Files.write(file, new byte[] {0x4A, 0x57, 0x4C, 0x43, 0, 0, 0, 1, 0, 1, '1', 0, 0, 0, 5});
+    ViolationCache.load(file, "1");
+  }
+
+  private void assertEntry(ViolationCache.Entry entry) {
+    assertEquals(jreClasses, entry.getJreClasses());
+    List<WhitelistProblem> cachedProblems = entry.getProblems("Foo.java".toCharArray());
+    assertEquals(1, cachedProblems.size());
+    WhitelistProblem problem = cachedProblems.get(0);
+    assertEquals("java.lang.Thread", problem.getClassName());
+    assertEquals(10, problem.getSourceStart());
+    assertEquals(15, problem.getSourceEnd());
+    assertEquals(3, problem.getSourceLineNumber());
+  }
+}
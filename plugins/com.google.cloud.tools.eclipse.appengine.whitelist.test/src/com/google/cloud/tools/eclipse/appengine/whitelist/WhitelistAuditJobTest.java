@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.whitelist;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.tools.eclipse.appengine.facets.AppEngineStandardFacet;
+import com.google.cloud.tools.eclipse.test.util.project.TestProjectCreator;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.launching.JavaRuntime;
+import org.eclipse.jst.common.project.facet.core.JavaFacet;
+import org.eclipse.jst.j2ee.web.project.facet.WebFacetUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class WhitelistAuditJobTest {
+
+  private static final String SOURCE = "package audit;\n"
+      + "public class Audited {\n"
+      + "  java.net.CookieManager manager;\n"
+      + "  String name;\n"
+      + "}\n";
+
+  @Rule public TestProjectCreator appEngineStandardProject =
+      new TestProjectCreator().withFacetVersions(Arrays.asList(JavaFacet.VERSION_1_7,
+                                                               WebFacetUtils.WEB_25,
+                                                               AppEngineStandardFacet.APPENGINE_STANDARD_VERSION));
+  @Rule public TestProjectCreator javaProject = new TestProjectCreator();
+
+  private IFile auditedFile;
+  private IFile otherFile;
+
+  @Before
+  public void setUp() throws CoreException {
+    auditedFile = createSourceFile(appEngineStandardProject.getJavaProject());
+    otherFile = createSourceFile(javaProject.getJavaProject());
+  }
+
+  @Test
+  public void testRun_marksReferencesToClassesNotWhitelisted() throws Exception {
+    WhitelistAuditJob job = new WhitelistAuditJob();
+    job.schedule();
+    job.join();
+
+    assertTrue(job.getResult().isOK());
+    IMarker[] markers = auditedFile.findMarkers(WhitelistProblem.MARKER_TYPE, false, IResource.DEPTH_ZERO);
+    assertThat(markers.length, is(1));
+    assertThat(markers[0].getAttribute(IMarker.MESSAGE, ""), containsString("java.net.CookieManager"));
+    assertThat(markers[0].getAttribute(IMarker.LINE_NUMBER, -1), is(3));
+    assertThat(markers[0].getAttribute(IMarker.CHAR_START, -1), is(SOURCE.indexOf("java.net.CookieManager")));
+    assertThat(markers[0].getAttribute(ReplacementIndex.CLASS_NAME_ATTRIBUTE, ""), is("java.net.CookieManager"));
+  }
+
+  @Test
+  public void testRun_skipsProjectsOtherThanAppEngineStandard() throws Exception {
+    WhitelistAuditJob job = new WhitelistAuditJob();
+    job.schedule();
+    job.join();
+
+    assertThat(otherFile.findMarkers(WhitelistProblem.MARKER_TYPE, false, IResource.DEPTH_ZERO).length, is(0));
+  }
+
+  @Test
+  public void testRun_canceledLeavesMarkersAlone() throws Exception {
+    WhitelistAuditJob job = new WhitelistAuditJob();
+    IProgressMonitor monitor = new NullProgressMonitor();
+    monitor.setCanceled(true);
+
+    assertThat(job.run(monitor).getSeverity(), is(IStatus.CANCEL));
+    assertThat(auditedFile.findMarkers(WhitelistProblem.MARKER_TYPE, false, IResource.DEPTH_ZERO).length, is(0));
+  }
+
+  private static IFile createSourceFile(IJavaProject javaProject) throws CoreException {
+    IProject project = javaProject.getProject();
+    IFolder sourceFolder = project.getFolder("auditsrc");
+    sourceFolder.create(true, true, null);
+    IClasspathEntry[] rawClasspath = new IClasspathEntry[] {
+        JavaCore.newSourceEntry(sourceFolder.getFullPath()),
+        JavaRuntime.getDefaultJREContainerEntry()};
+    javaProject.setRawClasspath(rawClasspath, null);
+    IFolder packageFolder = sourceFolder.getFolder("audit");
+    packageFolder.create(true, true, null);
+    IFile file = packageFolder.getFile("Audited.java");
+    file.create(new ByteArrayInputStream(SOURCE.getBytes(StandardCharsets.UTF_8)), true, null);
+    return file;
+  }
+}
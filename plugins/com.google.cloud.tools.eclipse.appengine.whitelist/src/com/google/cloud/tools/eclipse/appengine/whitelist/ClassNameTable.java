@@ -0,0 +1,232 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.whitelist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Immutable set of class names backed by a minimal perfect hash (hash, displace and compress).
+ * Every member occupies exactly one slot of the table; a lookup hashes the name twice, reads one
+ * slot and compares characters, without allocating.
+ */
+class ClassNameTable {
+
+  // gives on average four names per bucket, which keeps the displacement search short
+  private static final int NAMES_PER_BUCKET = 4;
+  private static final int MAX_SEED = 1 << 20;
+
+  private final char[][] slots;
+  private final int[] seeds;
+
+  private ClassNameTable(char[][] slots, int[] seeds) {
+    this.slots = slots;
+    this.seeds = seeds;
+  }
+
+  static ClassNameTable build(Collection<String> classNames) {
+    List<String> names = new ArrayList<>(new TreeSet<>(classNames));
+    int size = names.size();
+    int bucketCount = Math.max(1, size / NAMES_PER_BUCKET);
+
+    List<List<String>> buckets = new ArrayList<>(bucketCount);
+    for (int i = 0; i < bucketCount; i++) {
+      buckets.add(new ArrayList<String>());
+    }
+    for (String name : names) {
+      buckets.get(index(finish(hash(0, name)), bucketCount)).add(name);
+    }
+    Integer[] order = new Integer[bucketCount];
+    for (int i = 0; i < bucketCount; i++) {
+      order[i] = i;
+    }
+    final List<List<String>> bucketsBySize = buckets;
+    // place the largest buckets first while the table is still mostly empty
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer bucket1, Integer bucket2) {
+        return bucketsBySize.get(bucket2).size() - bucketsBySize.get(bucket1).size();
+      }
+    });
+
+    char[][] slots = new char[size][];
+    int[] seeds = new int[bucketCount];
+    List<Integer> candidateSlots = new ArrayList<>();
+    for (int bucket : order) {
+      List<String> bucketNames = buckets.get(bucket);
+      if (bucketNames.isEmpty()) {
+        break;
+      }
+      for (int seed = 1; ; seed++) {
+        if (seed == MAX_SEED) {
+          throw new IllegalStateException("Cannot find a perfect hash for bucket " + bucketNames);
+        }
+        candidateSlots.clear();
+        for (String name : bucketNames) {
+          int slot = index(finish(hash(seed, name)), size);
+          if (slots[slot] != null || candidateSlots.contains(slot)) {
+            break;
+          }
+          candidateSlots.add(slot);
+        }
+        if (candidateSlots.size() == bucketNames.size()) {
+          for (int i = 0; i < bucketNames.size(); i++) {
+            slots[candidateSlots.get(i)] = bucketNames.get(i).toCharArray();
+          }
+          seeds[bucket] = seed;
+          break;
+        }
+      }
+    }
+    return new ClassNameTable(slots, seeds);
+  }
+
+  int size() {
+    return slots.length;
+  }
+
+  boolean contains(CharSequence name) {
+    if (slots.length == 0) {
+      return false;
+    }
+    int seed = seeds[index(finish(hash(0, name)), seeds.length)];
+    if (seed == 0) {
+      return false;
+    }
+    char[] candidate = slots[index(finish(hash(seed, name)), slots.length)];
+    if (candidate.length != name.length()) {
+      return false;
+    }
+    for (int i = 0; i < candidate.length; i++) {
+      if (candidate[i] != name.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return true if the <code>length</code> characters of <code>name</code> starting at
+   *     <code>offset</code> are a member of this table
+   */
+  boolean contains(char[] name, int offset, int length) {
+    if (slots.length == 0) {
+      return false;
+    }
+    int seed = seeds[index(finish(update(initial(0), name, offset, length)), seeds.length)];
+    if (seed == 0) {
+      return false;
+    }
+    char[] candidate = slots[index(finish(update(initial(seed), name, offset, length)), slots.length)];
+    if (candidate.length != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (candidate[i] != name[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return true if the segments of <code>compoundName</code> joined with <code>'.'</code> are a
+   *     member of this table
+   */
+  boolean contains(char[][] compoundName) {
+    if (slots.length == 0 || compoundName.length == 0) {
+      return false;
+    }
+    int seed = seeds[index(finish(hash(0, compoundName)), seeds.length)];
+    if (seed == 0) {
+      return false;
+    }
+    char[] candidate = slots[index(finish(hash(seed, compoundName)), slots.length)];
+    int position = 0;
+    for (int segment = 0; segment < compoundName.length; segment++) {
+      if (segment > 0) {
+        if (position == candidate.length || candidate[position++] != '.') {
+          return false;
+        }
+      }
+      char[] chars = compoundName[segment];
+      if (candidate.length - position < chars.length) {
+        return false;
+      }
+      for (char c : chars) {
+        if (candidate[position++] != c) {
+          return false;
+        }
+      }
+    }
+    return position == candidate.length;
+  }
+
+  private static int index(int hash, int length) {
+    return (hash & Integer.MAX_VALUE) % length;
+  }
+
+  // FNV-1a over the characters, seeded through the offset basis and finished with the
+  // MurmurHash3 avalanche step so that different seeds give unrelated slot assignments.
+  // All representations of a name must hash to the same value.
+  private static int initial(int seed) {
+    return 0x811C9DC5 ^ (seed * 0x9E3779B9);
+  }
+
+  private static int step(int hash, char c) {
+    return (hash ^ c) * 0x01000193;
+  }
+
+  private static int hash(int seed, CharSequence name) {
+    int hash = initial(seed);
+    for (int i = 0; i < name.length(); i++) {
+      hash = step(hash, name.charAt(i));
+    }
+    return hash;
+  }
+
+  private static int update(int hash, char[] name, int offset, int length) {
+    for (int i = offset; i < offset + length; i++) {
+      hash = step(hash, name[i]);
+    }
+    return hash;
+  }
+
+  private static int hash(int seed, char[][] compoundName) {
+    int hash = initial(seed);
+    for (int segment = 0; segment < compoundName.length; segment++) {
+      if (segment > 0) {
+        hash = step(hash, '.');
+      }
+      hash = update(hash, compoundName[segment], 0, compoundName[segment].length);
+    }
+    return hash;
+  }
+
+  private static int finish(int hash) {
+    hash ^= hash >>> 16;
+    hash *= 0x85EBCA6B;
+    hash ^= hash >>> 13;
+    hash *= 0xC2B2AE35;
+    hash ^= hash >>> 16;
+    return hash;
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.whitelist;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Reads the classes referenced from the constant pool of a class file. Only the header and the
+ * constant pool are read; fields, methods and attributes are never touched. The buffers are
+ * reused from one class file to the next, so an instance must not be shared between threads.
+ */
+class ConstantPoolReader {
+
+  /**
+   * Receives each class referenced from a constant pool as a binary name such as
+   * <code>java.util.Locale$Builder</code>. The characters are only valid during the call.
+   */
+  interface ClassReferenceVisitor {
+    void visit(char[] className, int length);
+  }
+
+  private static final int MAGIC = 0xCAFEBABE;
+
+  private static final int CONSTANT_UTF8 = 1;
+  private static final int CONSTANT_INTEGER = 3;
+  private static final int CONSTANT_FLOAT = 4;
+  private static final int CONSTANT_LONG = 5;
+  private static final int CONSTANT_DOUBLE = 6;
+  private static final int CONSTANT_CLASS = 7;
+  private static final int CONSTANT_STRING = 8;
+  private static final int CONSTANT_FIELDREF = 9;
+  private static final int CONSTANT_METHODREF = 10;
+  private static final int CONSTANT_INTERFACE_METHODREF = 11;
+  private static final int CONSTANT_NAME_AND_TYPE = 12;
+  private static final int CONSTANT_METHOD_HANDLE = 15;
+  private static final int CONSTANT_METHOD_TYPE = 16;
+  private static final int CONSTANT_DYNAMIC = 17;
+  private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+  private static final int CONSTANT_MODULE = 19;
+  private static final int CONSTANT_PACKAGE = 20;
+
+  // raw bytes of all UTF-8 entries of the current pool, addressed by utf8Offsets/utf8Lengths
+  private byte[] utf8 = new byte[8192];
+  private int[] utf8Offsets = new int[512];
+  private int[] utf8Lengths = new int[512];
+  private int[] classNameIndices = new int[128];
+  private char[] chars = new char[256];
+
+  /**
+   * Reads a class file up to the end of its constant pool and reports every class it references.
+   *
+   * @throws IOException if the input cannot be read or is not a class file
+   */
+  void read(DataInput input, ClassReferenceVisitor visitor) throws IOException {
+    if (input.readInt() != MAGIC) {
+      throw new IOException("Not a class file");
+    }
+    input.readUnsignedShort(); // minor version
+    input.readUnsignedShort(); // major version
+    int poolSize = input.readUnsignedShort();
+    if (utf8Offsets.length < poolSize) {
+      utf8Offsets = new int[poolSize];
+      utf8Lengths = new int[poolSize];
+    }
+
+    int utf8Size = 0;
+    int classCount = 0;
+    for (int index = 1; index < poolSize; index++) {
+      int tag = input.readUnsignedByte();
+      switch (tag) {
+        case CONSTANT_UTF8:
+          int length = input.readUnsignedShort();
+          if (utf8.length < utf8Size + length) {
+            utf8 = Arrays.copyOf(utf8, Math.max(utf8.length * 2, utf8Size + length));
+          }
+          input.readFully(utf8, utf8Size, length);
+          utf8Offsets[index] = utf8Size;
+          utf8Lengths[index] = length;
+          utf8Size += length;
+          break;
+        case CONSTANT_CLASS:
+          if (classNameIndices.length == classCount) {
+            classNameIndices = Arrays.copyOf(classNameIndices, classCount * 2);
+          }
+          classNameIndices[classCount++] = input.readUnsignedShort();
+          break;
+        case CONSTANT_LONG:
+        case CONSTANT_DOUBLE:
+          input.skipBytes(8);
+          index++; // 8-byte constants take up two entries
+          break;
+        case CONSTANT_INTEGER:
+        case CONSTANT_FLOAT:
+        case CONSTANT_FIELDREF:
+        case CONSTANT_METHODREF:
+        case CONSTANT_INTERFACE_METHODREF:
+        case CONSTANT_NAME_AND_TYPE:
+        case CONSTANT_DYNAMIC:
+        case CONSTANT_INVOKE_DYNAMIC:
+          input.skipBytes(4);
+          break;
+        case CONSTANT_METHOD_HANDLE:
+          input.skipBytes(3);
+          break;
+        case CONSTANT_STRING:
+        case CONSTANT_METHOD_TYPE:
+        case CONSTANT_MODULE:
+        case CONSTANT_PACKAGE:
+          input.skipBytes(2);
+          break;
+        default:
+          throw new IOException("Unknown constant pool tag " + tag + " at index " + index);
+      }
+    }
+
+    for (int i = 0; i < classCount; i++) {
+      int nameIndex = classNameIndices[i];
+      if (nameIndex <= 0 || nameIndex >= poolSize) {
+        throw new IOException("Invalid class name index " + nameIndex);
+      }
+      int length = decodeClassName(utf8Offsets[nameIndex], utf8Lengths[nameIndex]);
+      if (length > 0) {
+        visitor.visit(chars, length);
+      }
+    }
+  }
+
+  /**
+   * Decodes the modified UTF-8 internal name at <code>offset</code> into {@link #chars} as a
+   * binary name. Array descriptors are reduced to their element type.
+   *
+   * @return the number of characters decoded, or 0 for arrays of primitive types
+   */
+  private int decodeClassName(int offset, int length) {
+    int start = offset;
+    int end = offset + length;
+    while (offset < end && utf8[offset] == '[') {
+      offset++;
+    }
+    if (offset > start) {
+      // array descriptor: either Lsome/Class; or a primitive type
+      if (offset == end || utf8[offset] != 'L') {
+        return 0;
+      }
+      offset++;
+      end--;
+    }
+    if (chars.length < end - offset) {
+      chars = new char[end - offset];
+    }
+
+    int count = 0;
+    while (offset < end) {
+      int b = utf8[offset++] & 0xFF;
+      char c;
+      if (b < 0x80) {
+        c = (char) b;
+      } else if ((b & 0xE0) == 0xC0) {
+        c = (char) (((b & 0x1F) << 6) | (utf8[offset++] & 0x3F));
+      } else {
+        c = (char) (((b & 0x0F) << 12) | ((utf8[offset++] & 0x3F) << 6) | (utf8[offset++] & 0x3F));
+      }
+      chars[count++] = c == '/' ? '.' : c;
+    }
+    return count;
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.whitelist;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reads and writes a sorted list of names as a gzipped front-coded string table. Each name is
+ * stored as the length of the prefix it shares with the previous name followed by the rest of
+ * the name, so the long common package prefixes of class names are stored only once:
+ * <pre>
+ * int magic, int name count
+ * name*: u1 shared prefix length, UTF suffix
+ * </pre>
+ * where UTF is the modified UTF-8 written by {@link DataOutputStream#writeUTF(String)}.
+ */
+class FrontCodedNames {
+
+  private static final int MAGIC = 0x41454E4D; // AENM
+  private static final int MAX_PREFIX = 0xFF;
+
+  private FrontCodedNames() {
+  }
+
+  /**
+   * @return the names stored in <code>input</code>, in sorted order
+   * @throws IOException if the input cannot be read or is not a front-coded string table
+   */
+  static List<String> read(InputStream input) throws IOException {
+    DataInputStream data = new DataInputStream(new GZIPInputStream(input));
+    if (data.readInt() != MAGIC) {
+      throw new IOException("Not a front-coded string table");
+    }
+    int count = data.readInt();
+    List<String> names = new ArrayList<>(count);
+    String previous = "";
+    for (int i = 0; i < count; i++) {
+      int prefix = data.readUnsignedByte();
+      if (prefix > previous.length()) {
+        throw new IOException("Invalid prefix length " + prefix + " at name " + i);
+      }
+      previous = previous.substring(0, prefix) + data.readUTF();
+      names.add(previous);
+    }
+    return names;
+  }
+
+  /**
+   * Writes <code>names</code> in sorted order without duplicates. The output stream is not
+   * closed.
+   */
+  static void write(Collection<String> names, OutputStream output) throws IOException {
+    TreeSet<String> sorted = new TreeSet<>(names);
+    GZIPOutputStream gzip = new GZIPOutputStream(output);
+    DataOutputStream data = new DataOutputStream(gzip);
+    data.writeInt(MAGIC);
+    data.writeInt(sorted.size());
+    String previous = "";
+    for (String name : sorted) {
+      int prefix = 0;
+      int max = Math.min(MAX_PREFIX, Math.min(previous.length(), name.length()));
+      while (prefix < max && previous.charAt(prefix) == name.charAt(prefix)) {
+        prefix++;
+      }
+      data.writeByte(prefix);
+      data.writeUTF(name.substring(prefix));
+      previous = name;
+    }
+    data.flush();
+    gzip.finish();
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.whitelist;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubMonitor;
+
+/**
+ * Finds the JRE classes outside the App Engine whitelist that are referenced from the class files
+ * of jars, such as the libraries in <code>WEB-INF/lib</code> of an exploded WAR.
+ * <p>
+ * Jars are streamed and only the constant pool of each class file is read. Results are cached by
+ * the SHA-256 digest of the jar, so a dependency that has not changed is never scanned twice.
+ * Only the results of the {@value #MAX_CACHED_JARS} jars used most recently are kept.
+ * <p>
+ * A scanner checks against the whitelist of one runtime. {@link #forProject(IProject)} returns
+ * the scanner of the runtime a project targets, which is shared by all the projects targeting it.
+ */
+public class JarWhitelistScanner {
+
+  private static final Logger logger = Logger.getLogger(JarWhitelistScanner.class.getName());
+
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  // many times the libraries of a large application, while a scanner lives as long as the IDE
+  static final int MAX_CACHED_JARS = 1024;
+
+  // by runtime, so that unchanged libraries are only scanned once whatever the project deployed
+  private static final ConcurrentMap<String, JarWhitelistScanner> scanners = new ConcurrentHashMap<>();
+
+  private final AppEngineJreWhitelist whitelist;
+  private final Map<String, Set<String>> violationsByDigest = Collections.synchronizedMap(
+      new LinkedHashMap<String, Set<String>>(16, 0.75f, true /* accessOrder */) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Set<String>> eldest) {
+          return size() > MAX_CACHED_JARS;
+        }
+      });
+
+  public JarWhitelistScanner(AppEngineJreWhitelist whitelist) {
+    this.whitelist = whitelist;
+  }
+
+  /**
+   * @return the shared scanner of the runtime that <code>project</code> targets, as set by the
+   *     <code>runtime</code> element of its <code>appengine-web.xml</code>
+   */
+  public static JarWhitelistScanner forProject(IProject project) {
+    AppEngineJreWhitelist whitelist = JreWhitelistChecker.getWhitelist(project);
+    JarWhitelistScanner scanner = scanners.get(whitelist.getRuntime());
+    if (scanner == null) {
+      scanner = new JarWhitelistScanner(whitelist);
+      JarWhitelistScanner existing = scanners.putIfAbsent(whitelist.getRuntime(), scanner);
+      if (existing != null) {
+        scanner = existing;
+      }
+    }
+    return scanner;
+  }
+
+  /**
+   * @return the sorted names of the non-whitelisted JRE classes referenced from <code>jar</code>
+   * @throws IOException if the jar cannot be read
+   */
+  public Set<String> scan(Path jar) throws IOException {
+    String digest = sha256(jar);
+    Set<String> violations = violationsByDigest.get(digest);
+    if (violations == null) {
+      violations = Collections.unmodifiableSet(scanClasses(jar));
+      violationsByDigest.put(digest, violations);
+    }
+    return violations;
+  }
+
+  /**
+   * Scans every jar directly inside <code>directory</code>, reporting one unit of work per jar.
+   * Jars that cannot be read are logged and skipped.
+   *
+   * @return the file names of the jars with violations, mapped to the sorted names of the
+   *     non-whitelisted JRE classes they reference
+   * @throws IOException if the directory cannot be listed
+   * @throws OperationCanceledException if <code>monitor</code> is canceled
+   */
+  public Map<String, Set<String>> scanDirectory(Path directory, IProgressMonitor monitor) throws IOException {
+    Map<String, Set<String>> violations = new TreeMap<>();
+    if (!Files.isDirectory(directory)) {
+      return violations;
+    }
+    List<Path> jars = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.jar")) { //$NON-NLS-1$
+      for (Path jar : stream) {
+        jars.add(jar);
+      }
+    }
+    SubMonitor progress = SubMonitor.convert(monitor, jars.size());
+    for (Path jar : jars) {
+      if (progress.isCanceled()) {
+        throw new OperationCanceledException();
+      }
+      String name = jar.getFileName().toString();
+      progress.subTask(name);
+      try {
+        Set<String> jarViolations = scan(jar);
+        if (!jarViolations.isEmpty()) {
+          violations.put(name, jarViolations);
+        }
+      } catch (IOException ex) {
+        logger.log(Level.WARNING, "Could not scan " + jar, ex); //$NON-NLS-1$
+      }
+      progress.worked(1);
+    }
+    return violations;
+  }
+
+  private Set<String> scanClasses(Path jar) throws IOException {
+    final Set<String> violations = new TreeSet<>();
+    ConstantPoolReader reader = new ConstantPoolReader();
+    ConstantPoolReader.ClassReferenceVisitor visitor = new ConstantPoolReader.ClassReferenceVisitor() {
+      @Override
+      public void visit(char[] className, int length) {
+        if (!whitelist.allows(className, 0, length)) {
+          violations.add(new String(className, 0, length));
+        }
+      }
+    };
+    try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(Files.newInputStream(jar)))) {
+      DataInputStream input = new DataInputStream(zip);
+      ZipEntry entry;
+      while ((entry = zip.getNextEntry()) != null) {
+        if (!entry.isDirectory() && entry.getName().endsWith(".class")) { //$NON-NLS-1$
+          try {
+            reader.read(input, visitor);
+          } catch (IOException ex) {
+            logger.log(Level.FINE, "Skipping unreadable class " + entry.getName() + " in " + jar, ex); //$NON-NLS-1$
+          }
+        }
+      }
+    }
+    return violations;
+  }
+
+  private static String sha256(Path file) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("SHA-256 is not supported by this JRE", ex); //$NON-NLS-1$
+    }
+    byte[] buffer = new byte[8192];
+    try (InputStream input = Files.newInputStream(file)) {
+      int read;
+      while ((read = input.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    }
+    byte[] hash = digest.digest();
+    char[] hex = new char[hash.length * 2];
+    for (int i = 0; i < hash.length; i++) {
+      hex[2 * i] = HEX_DIGITS[(hash[i] >> 4) & 0xF];
+      hex[2 * i + 1] = HEX_DIGITS[hash[i] & 0xF];
+    }
+    return new String(hex);
+  }
+}
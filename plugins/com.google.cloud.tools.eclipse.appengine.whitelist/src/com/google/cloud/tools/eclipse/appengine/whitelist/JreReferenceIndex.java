@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.whitelist;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * Records which JRE classes each compilation unit references, keyed by the workspace-relative
+ * path of the unit. Entries are replaced one unit at a time as units are recompiled, so the
+ * index stays current without rescanning the whole project.
+ */
+class JreReferenceIndex {
+
+  private final Map<IPath, Set<String>> references = new ConcurrentHashMap<>();
+
+  /**
+   * Replaces the recorded references of <code>unit</code>.
+   *
+   * @param unit full workspace path of the compilation unit
+   * @param jreClasses fully qualified binary names of the JRE classes referenced by the unit
+   */
+  void update(IPath unit, Set<String> jreClasses) {
+    if (jreClasses.isEmpty()) {
+      references.remove(unit);
+    } else {
+      references.put(unit, Collections.unmodifiableSet(new HashSet<>(jreClasses)));
+    }
+  }
+
+  void remove(IPath unit) {
+    references.remove(unit);
+  }
+
+  /**
+   * Forgets every unit of the project named <code>projectName</code>.
+   */
+  void clear(String projectName) {
+    for (IPath unit : references.keySet()) {
+      if (projectName.equals(unit.segment(0))) {
+        references.remove(unit);
+      }
+    }
+  }
+
+  /**
+   * @return the JRE classes referenced by <code>unit</code>, empty if the unit is not indexed
+   */
+  Set<String> getReferencedClasses(IPath unit) {
+    Set<String> classes = references.get(unit);
+    return classes == null ? Collections.<String>emptySet() : classes;
+  }
+
+  /**
+   * @return the indexed units of the project named <code>projectName</code>
+   */
+  Set<IPath> getUnits(String projectName) {
+    Set<IPath> units = new HashSet<>();
+    for (IPath unit : references.keySet()) {
+      if (projectName.equals(unit.segment(0))) {
+        units.add(unit);
+      }
+    }
+    return units;
+  }
+
+  /**
+   * @return the indexed units that reference <code>className</code>
+   */
+  Set<IPath> getUnitsReferencing(String className) {
+    Set<IPath> units = new HashSet<>();
+    for (Map.Entry<IPath, Set<String>> entry : references.entrySet()) {
+      if (entry.getValue().contains(className)) {
+        units.add(entry.getKey());
+      }
+    }
+    return units;
+  }
+}
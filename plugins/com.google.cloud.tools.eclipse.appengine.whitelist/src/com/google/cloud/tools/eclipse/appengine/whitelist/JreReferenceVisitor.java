@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.whitelist;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.SimpleName;
+
+/**
+ * Collects the JRE classes referenced from a compilation unit with resolved bindings, and a
+ * {@link WhitelistProblem} for every reference to a class that the whitelist does not allow.
+ */
+class JreReferenceVisitor extends ASTVisitor {
+
+  private final char[] fileName;
+  private final CompilationUnit ast;
+  private final AppEngineJreWhitelist whitelist;
+  private final Set<String> jreClasses = new HashSet<>();
+  private final List<WhitelistProblem> problems = new ArrayList<>();
+
+  JreReferenceVisitor(IFile file, CompilationUnit ast, AppEngineJreWhitelist whitelist) {
+    this.fileName = file.getFullPath().toString().toCharArray();
+    this.ast = ast;
+    this.whitelist = whitelist;
+  }
+
+  Set<String> getJreClasses() {
+    return jreClasses;
+  }
+
+  List<WhitelistProblem> getProblems() {
+    return problems;
+  }
+
+  @Override
+  public boolean visit(SimpleName node) {
+    IBinding binding = node.resolveBinding();
+    if (binding instanceof ITypeBinding) {
+      ITypeBinding type = ((ITypeBinding) binding).getErasure();
+      if (type.isArray()) {
+        type = type.getElementType();
+      }
+      String className = type.getBinaryName();
+      if (!type.isPrimitive() && className != null && AppEngineJreWhitelist.isJreClass(className)) {
+        jreClasses.add(className);
+        if (!whitelist.allows(className)) {
+          int start = node.getStartPosition();
+          problems.add(new WhitelistProblem(className, fileName, start, start + node.getLength() - 1,
+                                            ast.getLineNumber(start)));
+        }
+      }
+    }
+    return false;
+  }
+}
@@ -16,15 +16,388 @@
 
 package com.google.cloud.tools.eclipse.appengine.whitelist;
 
+import com.google.cloud.tools.eclipse.appengine.facets.AppEngineStandardFacet;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.compiler.BuildContext;
+import org.eclipse.jdt.core.compiler.CategorizedProblem;
 import org.eclipse.jdt.core.compiler.CompilationParticipant;
+import org.eclipse.jdt.core.compiler.ReconcileContext;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTRequestor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.wst.common.componentcore.ComponentCore;
+import org.eclipse.wst.common.componentcore.resources.IVirtualComponent;
+import org.eclipse.wst.common.project.facet.core.IFacetedProject;
+import org.eclipse.wst.common.project.facet.core.ProjectFacetsManager;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
 
+/**
+ * Reports references to JRE classes that are not available in the App Engine Standard sandbox.
+ * <p>
+ * Only the compilation units in the current build delta are parsed. The JRE classes each unit
+ * references are kept in a per-project {@link JreReferenceIndex}, and the resulting problems are
+ * handed to the JDT builder, which replaces the markers of just the recompiled files. Results are
+ * also kept in a {@link ViolationCache} that survives restarts, so units whose contents did not
+ * change are not parsed again. The cache key also covers what the bindings of a unit depend on
+ * besides its contents; see {@link #digest(ICompilationUnit, char[], AppEngineJreWhitelist, Map)}.
+ * <p>
+ * While a unit is edited, the same problems are reported from the JDT reconciler as editor
+ * annotations; see {@link #reconcile(ReconcileContext)}.
+ */
 // see JavaCompilationParticipant.java in old plugin
 public class JreWhitelistChecker extends CompilationParticipant {
 
+  private static final Logger logger = Logger.getLogger(JreWhitelistChecker.class.getName());
+
+  // the most recently edited units whose reconciles may be outdated and reuse earlier results
+  private static final int MAX_RECONCILED_UNITS = 16;
+
+  private static final String DEFAULT_WEB_PATH = "src/main/webapp"; //$NON-NLS-1$
+  private static final String APPENGINE_WEB_XML = "WEB-INF/appengine-web.xml"; //$NON-NLS-1$
+  private static final String APPENGINE_WEB_XML_NAMESPACE_URI = "http://appengine.google.com/ns/1.0"; //$NON-NLS-1$
+  private static final String RUNTIME_ELEMENT = "runtime"; //$NON-NLS-1$
+
+  // appengine-web.xml path -> runtime it declares
+  private static final ConcurrentMap<IPath, DeclaredRuntime> declaredRuntimes =
+      new ConcurrentHashMap<>();
+
+  private final JreReferenceIndex index = new JreReferenceIndex();
+  private ViolationCache cache;
+  private final Map<IPath, CategorizedProblem[]> reconciled = Collections.synchronizedMap(
+      new LinkedHashMap<IPath, CategorizedProblem[]>(MAX_RECONCILED_UNITS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<IPath, CategorizedProblem[]> eldest) {
+          return size() > MAX_RECONCILED_UNITS;
+        }
+      });
+
   @Override
   public boolean isActive(IJavaProject project) {
-    return false;
+    return project != null && isAppEngineStandardProject(project.getProject());
+  }
+
+  static boolean isAppEngineStandardProject(IProject project) {
+    try {
+      IFacetedProject facetedProject = ProjectFacetsManager.create(project);
+      return facetedProject != null && AppEngineStandardFacet.hasAppEngineFacet(facetedProject);
+    } catch (CoreException ex) {
+      logger.log(Level.WARNING, "Could not determine facets of " + project.getName(), ex); //$NON-NLS-1$
+      return false;
+    }
+  }
+
+  /**
+   * @return the whitelist of the App Engine runtime that <code>project</code> targets, as set by
+   *     the <code>runtime</code> element of its <code>appengine-web.xml</code>: Java 8 for
+   *     <code>java8</code>, Java 7 if the element or the file is missing
+   */
+  static AppEngineJreWhitelist getWhitelist(IJavaProject project) {
+    return getWhitelist(project.getProject());
+  }
+
+  /**
+   * @see #getWhitelist(IJavaProject)
+   */
+  static AppEngineJreWhitelist getWhitelist(IProject project) {
+    IFile appEngineWebXml = findAppEngineWebXml(project);
+    String runtime = appEngineWebXml.exists() ? getDeclaredRuntime(appEngineWebXml) : null;
+    if (AppEngineJreWhitelist.JAVA_8.equals(runtime)) {
+      return AppEngineJreWhitelist.forRuntime(AppEngineJreWhitelist.JAVA_8);
+    }
+    return AppEngineJreWhitelist.forRuntime(AppEngineJreWhitelist.JAVA_7);
+  }
+
+  private static IFile findAppEngineWebXml(IProject project) {
+    // the virtual component model is very flexible, but we assume that the
+    // WEB-INF/appengine-web.xml isn't a virtual file remapped elsewhere
+    IVirtualComponent component = ComponentCore.createComponent(project);
+    if (component != null && component.exists() && component.getRootFolder().exists()) {
+      return component.getRootFolder().getFile(APPENGINE_WEB_XML).getUnderlyingFile();
+    }
+    return project.getFolder(DEFAULT_WEB_PATH).getFile(APPENGINE_WEB_XML);
+  }
+
+  // reconciles ask for the runtime after each pause in typing, so the file is only parsed again
+  // once it changed
+  private static String getDeclaredRuntime(IFile appEngineWebXml) {
+    IPath path = appEngineWebXml.getFullPath();
+    long modificationStamp = appEngineWebXml.getModificationStamp();
+    DeclaredRuntime declared = declaredRuntimes.get(path);
+    if (declared == null || declared.modificationStamp != modificationStamp) {
+      declared = new DeclaredRuntime(modificationStamp, readRuntime(appEngineWebXml));
+      declaredRuntimes.put(path, declared);
+    }
+    return declared.runtime;
+  }
+
+  private static String readRuntime(IFile appEngineWebXml) {
+    try (InputStream input = appEngineWebXml.getContents(true)) {
+      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+      factory.setNamespaceAware(true);
+      Element root = factory.newDocumentBuilder().parse(input).getDocumentElement();
+      NodeList children = root.getChildNodes();
+      for (int i = 0; i < children.getLength(); i++) {
+        Node child = children.item(i);
+        if (child.getNodeType() == Node.ELEMENT_NODE && RUNTIME_ELEMENT.equals(child.getLocalName())
+            && APPENGINE_WEB_XML_NAMESPACE_URI.equals(child.getNamespaceURI())) {
+          return child.getTextContent().trim();
+        }
+      }
+    } catch (CoreException | IOException | SAXException | ParserConfigurationException ex) {
+      logger.log(Level.FINE, "Could not read runtime from " + appEngineWebXml, ex); //$NON-NLS-1$
+    }
+    return null;
+  }
+
+  @Override
+  public void cleanStarting(IJavaProject project) {
+    index.clear(project.getElementName());
+    getCache().clear(project.getElementName());
+  }
+
+  @Override
+  public void buildStarting(BuildContext[] files, boolean isBatch) {
+    if (files.length == 0) {
+      return;
+    }
+    final AppEngineJreWhitelist whitelist =
+        getWhitelist(JavaCore.create(files[0].getFile().getProject()));
+    ViolationCache cache = getCache();
+    final Map<ICompilationUnit, BuildContext> contexts = new HashMap<>(files.length);
+    final Map<ICompilationUnit, byte[]> digests = new HashMap<>(files.length);
+    Map<String, String> bindingContexts = new HashMap<>();
+    for (BuildContext file : files) {
+      ICompilationUnit unit = JavaCore.createCompilationUnitFrom(file.getFile());
+      if (unit == null) {
+        continue;
+      }
+      byte[] digest;
+      try {
+        digest = digest(unit, file.getContents(), whitelist, bindingContexts);
+      } catch (JavaModelException ex) {
+        logger.log(Level.FINE, "Could not compute the cache key of " + file.getFile(), ex); //$NON-NLS-1$
+        contexts.put(unit, file);
+        continue;
+      }
+      ViolationCache.Entry cached = cache.get(digest);
+      if (cached != null) {
+        // unchanged since it was last checked, possibly in an earlier session
+        IPath path = file.getFile().getFullPath();
+        List<WhitelistProblem> problems = cached.getProblems(path.toString().toCharArray());
+        index.update(path, cached.getJreClasses());
+        cache.put(path.toString(), digest, cached.getJreClasses(), problems);
+        recordProblems(file, problems);
+      } else {
+        contexts.put(unit, file);
+        digests.put(unit, digest);
+      }
+    }
+    if (contexts.isEmpty()) {
+      return;
+    }
+
+    ICompilationUnit[] units = contexts.keySet().toArray(new ICompilationUnit[contexts.size()]);
+    // parse the whole delta in one pass so the units share a single binding environment
+    ASTParser parser = ASTParser.newParser(AST.JLS8);
+    parser.setProject(units[0].getJavaProject());
+    parser.setResolveBindings(true);
+    parser.createASTs(units, new String[0], new ASTRequestor() {
+      @Override
+      public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+        BuildContext context = contexts.get(source);
+        recordProblems(context, check(context.getFile(), digests.get(source), ast, whitelist));
+      }
+    }, null);
+  }
+
+  private static void recordProblems(BuildContext context, List<WhitelistProblem> problems) {
+    if (!problems.isEmpty()) {
+      context.recordNewProblems(problems.toArray(new CategorizedProblem[problems.size()]));
+    }
+  }
+
+  /**
+   * Reports the problems of a working copy as editor annotations. JDT calls this on the thread of
+   * the editor's reconciler once typing pauses, so nothing happens on the UI thread, and problems
+   * reported here never become markers; the build replaces the markers in a single workspace
+   * operation.
+   * <p>
+   * Rapid keystrokes are debounced further: when the buffer was modified since JDT made the
+   * working copy consistent with it, another reconcile is already due, so the outdated AST is not
+   * walked and the previous problems are reported again. Contents that a build already checked are
+   * answered from the {@link ViolationCache}.
+   */
+  @Override
+  public void reconcile(ReconcileContext context) {
+    ICompilationUnit workingCopy = context.getWorkingCopy();
+    if (!(workingCopy.getResource() instanceof IFile)) {
+      return;
+    }
+    IFile file = (IFile) workingCopy.getResource();
+    IPath path = file.getFullPath();
+    try {
+      CategorizedProblem[] problems;
+      // JDT tracks every modification of the buffer, including edits that keep its length
+      if (!workingCopy.isConsistent()) {
+        problems = reconciled.get(path);
+      } else {
+        CompilationUnit ast = context.getAST8();
+        char[] contents = workingCopy.getBuffer().getCharacters();
+        AppEngineJreWhitelist whitelist = getWhitelist(workingCopy.getJavaProject());
+        ViolationCache.Entry cached = getCache().get(
+            digest(workingCopy, contents, whitelist, new HashMap<String, String>()));
+        List<WhitelistProblem> found;
+        if (cached != null) {
+          found = cached.getProblems(path.toString().toCharArray());
+        } else {
+          // results of unsaved contents are not cached, they would evict those of the saved file
+          JreReferenceVisitor visitor = new JreReferenceVisitor(file, ast, whitelist);
+          ast.accept(visitor);
+          found = visitor.getProblems();
+        }
+        problems = found.toArray(new CategorizedProblem[found.size()]);
+        reconciled.put(path, problems);
+      }
+      if (problems != null) {
+        context.putProblems(WhitelistProblem.MARKER_TYPE, problems);
+      }
+    } catch (JavaModelException ex) {
+      logger.log(Level.FINE, "Could not reconcile " + path, ex); //$NON-NLS-1$
+    }
+  }
+
+  /**
+   * Drops index and cache entries for compilation units that were deleted since the last build.
+   */
+  @Override
+  public void buildFinished(IJavaProject project) {
+    IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+    for (IPath unit : index.getUnits(project.getElementName())) {
+      if (!root.getFile(unit).exists()) {
+        index.remove(unit);
+        getCache().remove(unit.toString());
+      }
+    }
+  }
+
+  /**
+   * Collects the JRE classes referenced from <code>ast</code>, records them in the index and the
+   * cache, and returns one problem per reference to a class that <code>whitelist</code> does not
+   * allow.
+   *
+   * @param digest the cache key of the contents of <code>file</code>, or null if it could not be
+   *     computed and the results are not cached
+   */
+  List<WhitelistProblem> check(IFile file, byte[] digest, CompilationUnit ast,
+                               AppEngineJreWhitelist whitelist) {
+    JreReferenceVisitor visitor = new JreReferenceVisitor(file, ast, whitelist);
+    ast.accept(visitor);
+    index.update(file.getFullPath(), visitor.getJreClasses());
+    if (digest != null) {
+      getCache().put(file.getFullPath().toString(), digest, visitor.getJreClasses(), visitor.getProblems());
+    }
+    return visitor.getProblems();
+  }
+
+  /**
+   * The bindings JDT resolves do not only depend on the contents of a unit, so the cache key also
+   * covers the resolved classpath of the project, and the compilation units of the package of
+   * <code>unit</code>, whose types shadow the ones of <code>java.lang</code> and of the packages
+   * imported on demand.
+   *
+   * @param bindingContexts the binding contexts computed so far for the packages of the same
+   *     project, by package name
+   * @return the key of the {@link ViolationCache} for <code>contents</code> of <code>unit</code>
+   *     checked against <code>whitelist</code>
+   */
+  static byte[] digest(ICompilationUnit unit, char[] contents, AppEngineJreWhitelist whitelist,
+                       Map<String, String> bindingContexts) throws JavaModelException {
+    String packageName = unit.getParent().getElementName();
+    String bindingContext = bindingContexts.get(packageName);
+    if (bindingContext == null) {
+      bindingContext = getBindingContext(unit.getJavaProject(), packageName);
+      bindingContexts.put(packageName, bindingContext);
+    }
+    return ViolationCache.digest(contents, whitelist.getRuntime(), bindingContext);
+  }
+
+  private static String getBindingContext(IJavaProject project, String packageName)
+      throws JavaModelException {
+    StringBuilder context = new StringBuilder();
+    for (IClasspathEntry entry : project.getResolvedClasspath(true /* ignoreUnresolvedEntry */)) {
+      context.append(entry.getEntryKind()).append(' ').append(entry.getPath()).append('\n');
+    }
+    List<String> units = new ArrayList<>();
+    for (IPackageFragmentRoot root : project.getPackageFragmentRoots()) {
+      if (root.getKind() == IPackageFragmentRoot.K_SOURCE) {
+        IPackageFragment fragment = root.getPackageFragment(packageName);
+        if (fragment.exists()) {
+          for (ICompilationUnit unit : fragment.getCompilationUnits()) {
+            units.add(unit.getElementName());
+          }
+        }
+      }
+    }
+    Collections.sort(units);
+    for (String unit : units) {
+      context.append(unit).append('\n');
+    }
+    return context.toString();
+  }
+
+  private synchronized ViolationCache getCache() {
+    if (cache == null) {
+      try {
+        cache = ViolationCacheSaveParticipant.start();
+      } catch (CoreException ex) {
+        logger.log(Level.WARNING, "Whitelist results will not be persisted", ex); //$NON-NLS-1$
+        cache = ViolationCache.empty(""); //$NON-NLS-1$
+      }
+    }
+    return cache;
+  }
+
+  JreReferenceIndex getIndex() {
+    return index;
+  }
+
+  private static class DeclaredRuntime {
+    private final long modificationStamp;
+    private final String runtime;
+
+    private DeclaredRuntime(long modificationStamp, String runtime) {
+      this.modificationStamp = modificationStamp;
+      this.runtime = runtime;
+    }
   }
-  
 }
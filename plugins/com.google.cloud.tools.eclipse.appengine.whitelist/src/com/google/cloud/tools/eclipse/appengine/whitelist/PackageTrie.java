@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.whitelist;
+
+import java.util.Arrays;
+
+/**
+ * Character trie over a set of package prefixes such as <code>java.</code> or
+ * <code>javax.swing.</code>. A name is matched by walking it one character at a time until the
+ * end of a registered prefix is reached, so a lookup reads each character at most once and
+ * allocates nothing.
+ */
+class PackageTrie {
+
+  private final Node root = new Node();
+
+  PackageTrie(String... prefixes) {
+    for (String prefix : prefixes) {
+      add(prefix);
+    }
+  }
+
+  private void add(String prefix) {
+    Node node = root;
+    for (int i = 0; i < prefix.length(); i++) {
+      node = node.getOrAddChild(prefix.charAt(i));
+    }
+    node.terminal = true;
+  }
+
+  /**
+   * @return true if <code>name</code> starts with one of the prefixes of this trie
+   */
+  boolean matches(CharSequence name) {
+    Node node = root;
+    for (int i = 0; i < name.length(); i++) {
+      node = node.getChild(name.charAt(i));
+      if (node == null) {
+        return false;
+      } else if (node.terminal) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return true if the <code>length</code> characters of <code>name</code> starting at
+   *     <code>offset</code> start with one of the prefixes of this trie
+   */
+  boolean matches(char[] name, int offset, int length) {
+    Node node = root;
+    for (int i = offset; i < offset + length; i++) {
+      node = node.getChild(name[i]);
+      if (node == null) {
+        return false;
+      } else if (node.terminal) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return true if the segments of <code>compoundName</code> joined with <code>'.'</code> start
+   *     with one of the prefixes of this trie
+   */
+  boolean matches(char[][] compoundName) {
+    Node node = root;
+    for (int segment = 0; segment < compoundName.length; segment++) {
+      if (segment > 0) {
+        node = node.getChild('.');
+        if (node == null) {
+          return false;
+        } else if (node.terminal) {
+          return true;
+        }
+      }
+      for (char c : compoundName[segment]) {
+        node = node.getChild(c);
+        if (node == null) {
+          return false;
+        } else if (node.terminal) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static class Node {
+    // sorted, so children can be found by binary search
+    private char[] labels = new char[0];
+    private Node[] children = new Node[0];
+    private boolean terminal;
+
+    private Node getChild(char label) {
+      int index = Arrays.binarySearch(labels, label);
+      return index < 0 ? null : children[index];
+    }
+
+    private Node getOrAddChild(char label) {
+      int index = Arrays.binarySearch(labels, label);
+      if (index >= 0) {
+        return children[index];
+      }
+      int insertAt = -index - 1;
+      char[] newLabels = new char[labels.length + 1];
+      Node[] newChildren = new Node[children.length + 1];
+      System.arraycopy(labels, 0, newLabels, 0, insertAt);
+      System.arraycopy(children, 0, newChildren, 0, insertAt);
+      System.arraycopy(labels, insertAt, newLabels, insertAt + 1, labels.length - insertAt);
+      System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+      newLabels[insertAt] = label;
+      newChildren[insertAt] = new Node();
+      labels = newLabels;
+      children = newChildren;
+      return newChildren[insertAt];
+    }
+  }
+}
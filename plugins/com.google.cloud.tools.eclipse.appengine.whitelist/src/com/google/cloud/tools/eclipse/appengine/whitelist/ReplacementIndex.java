@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.whitelist;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * App Engine alternatives to JRE classes that are not whitelisted, offered as quick fixes for
+ * whitelist problems. The index is read from a small resource next to this class when it is
+ * first used, and answers each query with at most two hash lookups: one for the class and one
+ * for its package.
+ */
+public class ReplacementIndex {
+
+  /**
+   * Attribute of whitelist problem markers that holds the binary name of the offending class.
+   */
+  public static final String CLASS_NAME_ATTRIBUTE = "className"; //$NON-NLS-1$
+
+  /** A class to use instead of a class that is not whitelisted. */
+  public static class Replacement {
+    private final String className;
+    private final String documentationUrl;
+
+    Replacement(String className, String documentationUrl) {
+      this.className = className;
+      this.documentationUrl = documentationUrl;
+    }
+
+    public String getClassName() {
+      return className;
+    }
+
+    public String getSimpleName() {
+      return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    public String getDocumentationUrl() {
+      return documentationUrl;
+    }
+  }
+
+  private static final String RESOURCE = "replacements.txt"; //$NON-NLS-1$
+  private static final String PACKAGE_WILDCARD = ".*"; //$NON-NLS-1$
+
+  // loaded by the JVM when getReplacements() is first called, and only once
+  private static class Holder {
+    private static final ReplacementIndex INSTANCE = load();
+  }
+
+  // class names and package names followed by ".*"
+  private final Map<String, List<Replacement>> replacements;
+
+  ReplacementIndex(Map<String, List<Replacement>> replacements) {
+    this.replacements = replacements;
+  }
+
+  /**
+   * @param className the binary name of a class that is not whitelisted
+   * @return the alternatives to <code>className</code>, most specific first, or an empty list
+   */
+  public static List<Replacement> getReplacements(String className) {
+    return Holder.INSTANCE.lookUp(className);
+  }
+
+  List<Replacement> lookUp(String className) {
+    List<Replacement> forClass = replacements.get(className);
+    int lastDot = className.lastIndexOf('.');
+    List<Replacement> forPackage = lastDot < 0 ? null
+        : replacements.get(className.substring(0, lastDot) + PACKAGE_WILDCARD);
+    if (forClass == null) {
+      return forPackage == null ? Collections.<Replacement>emptyList() : forPackage;
+    } else if (forPackage == null) {
+      return forClass;
+    }
+    List<Replacement> result = new ArrayList<>(forClass);
+    result.addAll(forPackage);
+    return result;
+  }
+
+  private static ReplacementIndex load() {
+    try (InputStream input = ReplacementIndex.class.getResourceAsStream(RESOURCE)) {
+      if (input == null) {
+        throw new IllegalStateException("Missing replacement resource " + RESOURCE); //$NON-NLS-1$
+      }
+      return read(input);
+    } catch (IOException ex) {
+      throw new IllegalStateException("Cannot read replacement resource " + RESOURCE, ex); //$NON-NLS-1$
+    }
+  }
+
+  /**
+   * Reads lines of the form <code>class replacementClass documentationUrl</code>, where
+   * <code>class</code> may also be a package followed by <code>.*</code>. Empty lines and lines
+   * starting with <code>#</code> are ignored.
+   */
+  static ReplacementIndex read(InputStream input) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    Map<String, List<Replacement>> replacements = new HashMap<>();
+    String line;
+    while ((line = reader.readLine()) != null) {
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#")) { //$NON-NLS-1$
+        continue;
+      }
+      String[] fields = line.split("\\s+"); //$NON-NLS-1$
+      if (fields.length != 3) {
+        throw new IOException("Expected class, replacement and URL: " + line);
+      }
+      List<Replacement> list = replacements.get(fields[0]);
+      if (list == null) {
+        list = new ArrayList<>(1);
+        replacements.put(fields[0], list);
+      }
+      list.add(new Replacement(fields[1], fields[2]));
+    }
+    for (Map.Entry<String, List<Replacement>> entry : replacements.entrySet()) {
+      entry.setValue(Collections.unmodifiableList(entry.getValue()));
+    }
+    return new ReplacementIndex(replacements);
+  }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.whitelist;
+
+import com.google.cloud.tools.eclipse.util.io.StateFiles;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Whitelist check results of compilation units, keyed by the SHA-256 digest of their contents,
+ * runtime and binding context, so that a unit whose contents did not change since it was last
+ * checked does not need to be parsed.
+ * <p>
+ * The results are stored in a compact binary file that is memory-mapped when loaded. Only the
+ * digests are read up front; an entry is decoded when it is looked up, and entries that are not
+ * touched are copied to the next file without being decoded. The file layout is:
+ * <pre>
+ * int magic, int format version, UTF whitelist version, int entry count
+ * entry*: UTF unit, byte[32] digest, u2 class count, UTF class*,
+ *         u2 problem count, (u2 class index, int start, int end, int line)*
+ * </pre>
+ * where UTF is a u2 length followed by that many bytes of UTF-8. At most one entry is kept per
+ * unit, so the file does not grow beyond the number of units in the workspace.
+ */
+class ViolationCache {
+
+  private static final int MAGIC = 0x4A574C43; // JWLC
+  private static final int FORMAT_VERSION = 2;
+  private static final int DIGEST_LENGTH = 32;
+
+  /** The check results of one compilation unit. */
+  static class Entry {
+    private final Set<String> jreClasses;
+    private final String[] problemClasses;
+    private final int[] problemPositions; // start, end and line of each problem
+
+    private Entry(Set<String> jreClasses, String[] problemClasses, int[] problemPositions) {
+      this.jreClasses = jreClasses;
+      this.problemClasses = problemClasses;
+      this.problemPositions = problemPositions;
+    }
+
+    Set<String> getJreClasses() {
+      return jreClasses;
+    }
+
+    List<WhitelistProblem> getProblems(char[] fileName) {
+      List<WhitelistProblem> problems = new ArrayList<>(problemClasses.length);
+      for (int i = 0; i < problemClasses.length; i++) {
+        problems.add(new WhitelistProblem(problemClasses[i], fileName, problemPositions[3 * i],
+                                          problemPositions[3 * i + 1], problemPositions[3 * i + 2]));
+      }
+      return problems;
+    }
+  }
+
+  private final String whitelistVersion;
+  // the mapped file the cache was loaded from, if any; entries refer to it by offset
+  private final ByteBuffer mapped;
+  // unit -> digest of the contents last checked
+  private final Map<String, ByteBuffer> digests = new HashMap<>();
+  // digest -> offset of the entry in the mapped file, or the entry itself if added since loading
+  private final Map<ByteBuffer, Object> entries = new HashMap<>();
+  // digest -> number of units whose contents have that digest
+  private final Map<ByteBuffer, Integer> references = new HashMap<>();
+  private boolean dirty;
+
+  private ViolationCache(String whitelistVersion, ByteBuffer mapped) {
+    this.whitelistVersion = whitelistVersion;
+    this.mapped = mapped;
+  }
+
+  static ViolationCache empty(String whitelistVersion) {
+    return new ViolationCache(whitelistVersion, null);
+  }
+
+  /**
+   * Maps <code>file</code> into memory and indexes its entries. Returns an empty cache if the file
+   * does not exist, has another format or was written for another whitelist version.
+   *
+   * @throws IOException if the file cannot be read or is corrupt
+   */
+  static ViolationCache load(Path file, String whitelistVersion) throws IOException {
+    if (!Files.isRegularFile(file)) {
+      return empty(whitelistVersion);
+    }
+    ByteBuffer mapped = StateFiles.map(file);
+    try {
+      if (mapped.getInt() != MAGIC || mapped.getInt() != FORMAT_VERSION
+          || !whitelistVersion.equals(StateFiles.readString(mapped))) {
+        return empty(whitelistVersion);
+      }
+      ViolationCache cache = new ViolationCache(whitelistVersion, mapped);
+      int count = mapped.getInt();
+      for (int i = 0; i < count; i++) {
+        int offset = mapped.position();
+        String unit = StateFiles.readString(mapped);
+        ByteBuffer digest = readDigest(mapped);
+        skipEntryBody(mapped);
+        cache.digests.put(unit, digest);
+        cache.entries.put(digest, offset);
+        cache.retain(digest);
+      }
+      return cache;
+    } catch (RuntimeException ex) {
+      throw new IOException("Corrupt whitelist cache " + file, ex);
+    }
+  }
+
+  /**
+   * @param bindingContext what the bindings of the unit depend on besides its contents, e.g. its
+   *     classpath
+   * @return the SHA-256 digest of <code>contents</code> checked against the whitelist of
+   *     <code>runtime</code> in <code>bindingContext</code>
+   */
+  static byte[] digest(char[] contents, String runtime, String bindingContext) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+      digest.update(runtime.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      digest.update(bindingContext.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      ByteBuffer bytes = ByteBuffer.allocate(contents.length * 2);
+      bytes.asCharBuffer().put(contents);
+      return digest.digest(bytes.array());
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("SHA-256 is not supported by this JRE", ex); //$NON-NLS-1$
+    }
+  }
+
+  /**
+   * @return the results recorded for contents with the given digest, or null if there are none
+   */
+  synchronized Entry get(byte[] digest) {
+    Object entry = entries.get(ByteBuffer.wrap(digest));
+    if (entry instanceof Integer) {
+      ByteBuffer buffer = mapped.duplicate();
+      buffer.position((Integer) entry);
+      StateFiles.readString(buffer);
+      readDigest(buffer);
+      entry = readEntryBody(buffer);
+      entries.put(ByteBuffer.wrap(digest), entry);
+    }
+    return (Entry) entry;
+  }
+
+  /**
+   * Records the results of checking <code>unit</code>, whose contents have the given digest,
+   * replacing any results recorded for earlier contents of the unit.
+   */
+  synchronized void put(String unit, byte[] digest, Set<String> jreClasses, List<WhitelistProblem> problems) {
+    ByteBuffer key = ByteBuffer.wrap(digest.clone());
+    ByteBuffer previous = digests.put(unit, key);
+    if (key.equals(previous)) {
+      return;
+    }
+    if (previous != null) {
+      release(previous);
+    }
+    retain(key);
+    String[] problemClasses = new String[problems.size()];
+    int[] problemPositions = new int[3 * problems.size()];
+    for (int i = 0; i < problems.size(); i++) {
+      WhitelistProblem problem = problems.get(i);
+      problemClasses[i] = problem.getClassName();
+      problemPositions[3 * i] = problem.getSourceStart();
+      problemPositions[3 * i + 1] = problem.getSourceEnd();
+      problemPositions[3 * i + 2] = problem.getSourceLineNumber();
+    }
+    entries.put(key, new Entry(Collections.unmodifiableSet(new LinkedHashSet<>(jreClasses)),
+                               problemClasses, problemPositions));
+    dirty = true;
+  }
+
+  /**
+   * Forgets the results of <code>unit</code>, e.g. after it was deleted.
+   */
+  synchronized void remove(String unit) {
+    ByteBuffer digest = digests.remove(unit);
+    if (digest != null) {
+      release(digest);
+      dirty = true;
+    }
+  }
+
+  /**
+   * Forgets the results of every unit of the project named <code>projectName</code>.
+   */
+  synchronized void clear(String projectName) {
+    String prefix = "/" + projectName + "/"; //$NON-NLS-1$ //$NON-NLS-2$
+    for (String unit : new ArrayList<>(digests.keySet())) {
+      if (unit.startsWith(prefix)) {
+        remove(unit);
+      }
+    }
+  }
+
+  private void retain(ByteBuffer digest) {
+    Integer count = references.get(digest);
+    references.put(digest, count == null ? 1 : count + 1);
+  }
+
+  // forgets the entry of digest once no unit has contents with that digest
+  private void release(ByteBuffer digest) {
+    int count = references.get(digest);
+    if (count == 1) {
+      references.remove(digest);
+      entries.remove(digest);
+    } else {
+      references.put(digest, count - 1);
+    }
+  }
+
+  synchronized boolean isDirty() {
+    return dirty;
+  }
+
+  /**
+   * Writes the cache to <code>file</code>, which must not be the file the cache was loaded from.
+   */
+  synchronized void save(Path file) throws IOException {
+    try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      output.writeInt(MAGIC);
+      output.writeInt(FORMAT_VERSION);
+      StateFiles.writeString(output, whitelistVersion);
+      output.writeInt(digests.size());
+      for (Map.Entry<String, ByteBuffer> unit : digests.entrySet()) {
+        Object entry = entries.get(unit.getValue());
+        StateFiles.writeString(output, unit.getKey());
+        output.write(unit.getValue().array());
+        if (entry instanceof Integer) {
+          copyEntryBody(output, (Integer) entry);
+        } else {
+          writeEntryBody(output, (Entry) entry);
+        }
+      }
+    }
+    dirty = false;
+  }
+
+  private void copyEntryBody(DataOutputStream output, int offset) throws IOException {
+    ByteBuffer buffer = mapped.duplicate();
+    buffer.position(offset);
+    StateFiles.readString(buffer);
+    readDigest(buffer);
+    int start = buffer.position();
+    skipEntryBody(buffer);
+    byte[] body = new byte[buffer.position() - start];
+    buffer.position(start);
+    buffer.get(body);
+    output.write(body);
+  }
+
+  private static void writeEntryBody(DataOutputStream output, Entry entry) throws IOException {
+    List<String> classes = new ArrayList<>(entry.jreClasses);
+    output.writeShort(classes.size());
+    for (String className : classes) {
+      StateFiles.writeString(output, className);
+    }
+    output.writeShort(entry.problemClasses.length);
+    for (int i = 0; i < entry.problemClasses.length; i++) {
+      output.writeShort(classes.indexOf(entry.problemClasses[i]));
+      output.writeInt(entry.problemPositions[3 * i]);
+      output.writeInt(entry.problemPositions[3 * i + 1]);
+      output.writeInt(entry.problemPositions[3 * i + 2]);
+    }
+  }
+
+  private static Entry readEntryBody(ByteBuffer buffer) {
+    String[] classes = new String[buffer.getShort() & 0xFFFF];
+    for (int i = 0; i < classes.length; i++) {
+      classes[i] = StateFiles.readString(buffer);
+    }
+    int problemCount = buffer.getShort() & 0xFFFF;
+    String[] problemClasses = new String[problemCount];
+    int[] problemPositions = new int[3 * problemCount];
+    for (int i = 0; i < problemCount; i++) {
+      problemClasses[i] = classes[buffer.getShort() & 0xFFFF];
+      problemPositions[3 * i] = buffer.getInt();
+      problemPositions[3 * i + 1] = buffer.getInt();
+      problemPositions[3 * i + 2] = buffer.getInt();
+    }
+    Set<String> jreClasses = new LinkedHashSet<>();
+    Collections.addAll(jreClasses, classes);
+    return new Entry(Collections.unmodifiableSet(jreClasses), problemClasses, problemPositions);
+  }
+
+  private static void skipEntryBody(ByteBuffer buffer) {
+    int classCount = buffer.getShort() & 0xFFFF;
+    for (int i = 0; i < classCount; i++) {
+      StateFiles.readString(buffer);
+    }
+    int problemCount = buffer.getShort() & 0xFFFF;
+    buffer.position(buffer.position() + problemCount * (2 + 3 * 4));
+  }
+
+  private static ByteBuffer readDigest(ByteBuffer buffer) {
+    byte[] digest = new byte[DIGEST_LENGTH];
+    buffer.get(digest);
+    return ByteBuffer.wrap(digest);
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.whitelist;
+
+import com.google.cloud.tools.eclipse.util.io.StateFileSaveParticipant;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Platform;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.FrameworkUtil;
+
+/**
+ * Persists the {@link ViolationCache} in the state location of this bundle whenever the workspace
+ * is saved.
+ */
+class ViolationCacheSaveParticipant extends StateFileSaveParticipant {
+
+  private static final Logger logger = Logger.getLogger(ViolationCacheSaveParticipant.class.getName());
+
+  private ViolationCache cache;
+
+  private ViolationCacheSaveParticipant(IPath stateLocation) {
+    super(stateLocation, "violations"); //$NON-NLS-1$
+  }
+
+  /**
+   * Registers a save participant for this bundle and returns the cache it persists, loaded from
+   * the file written by the last save.
+   */
+  static ViolationCache start() throws CoreException {
+    Bundle bundle = FrameworkUtil.getBundle(ViolationCacheSaveParticipant.class);
+    String whitelistVersion = bundle.getVersion().toString();
+    ViolationCacheSaveParticipant participant =
+        new ViolationCacheSaveParticipant(Platform.getStateLocation(bundle));
+
+    Path file = participant.register(bundle);
+    ViolationCache cache = ViolationCache.empty(whitelistVersion);
+    if (file != null) {
+      try {
+        cache = ViolationCache.load(file, whitelistVersion);
+      } catch (IOException ex) {
+        logger.log(Level.WARNING, "Discarding whitelist cache " + file, ex); //$NON-NLS-1$
+      }
+    }
+    synchronized (participant) {
+      participant.cache = cache;
+    }
+    return cache;
+  }
+
+  @Override
+  protected boolean isDirty() {
+    return cache != null && cache.isDirty();
+  }
+
+  @Override
+  protected void save(Path file) throws IOException {
+    cache.save(file);
+  }
+}
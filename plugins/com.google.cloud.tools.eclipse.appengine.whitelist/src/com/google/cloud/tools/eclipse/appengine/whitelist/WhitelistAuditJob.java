@@ -0,0 +1,316 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.whitelist;
+
+import com.google.cloud.tools.eclipse.util.status.StatusUtil;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.ICompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragment;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTRequestor;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+/**
+ * Checks every App Engine Standard project in the workspace against the JRE whitelist on demand.
+ * <p>
+ * Projects are audited concurrently on a fork/join pool, and each project forks one task per
+ * source package fragment root, so large multi-module workspaces use every core. The problems
+ * found replace the whitelist markers of the audited files in a single workspace operation.
+ * <p>
+ * When the job is canceled, the tasks stop parsing at the next compilation unit, and the job
+ * returns once they have all stopped, without changing any marker.
+ */
+public class WhitelistAuditJob extends Job {
+
+  private static final Logger logger = Logger.getLogger(WhitelistAuditJob.class.getName());
+
+  // how often the job thread reports progress and checks for cancellation
+  private static final long PROGRESS_INTERVAL_MILLIS = 100;
+
+  private final Map<IFile, List<WhitelistProblem>> problems = new ConcurrentHashMap<>();
+  private final AtomicInteger completedRoots = new AtomicInteger();
+
+  public WhitelistAuditJob() {
+    super(Messages.WhitelistAuditJobName);
+    setUser(true);
+  }
+
+  /**
+   * @return the problems found by the last run, keyed by the file they were found in
+   */
+  Map<IFile, List<WhitelistProblem>> getProblems() {
+    return Collections.unmodifiableMap(problems);
+  }
+
+  @Override
+  protected IStatus run(IProgressMonitor monitor) {
+    problems.clear();
+    completedRoots.set(0);
+    try {
+      Map<IJavaProject, List<IPackageFragmentRoot>> sourceRoots = getAppEngineSourceRoots();
+      // the tasks cannot use the monitor of the job, which is only meant for the job thread
+      CancellationMonitor cancellation = new CancellationMonitor();
+      int totalRoots = 0;
+      List<ProjectAudit> audits = new ArrayList<>(sourceRoots.size());
+      for (Map.Entry<IJavaProject, List<IPackageFragmentRoot>> entry : sourceRoots.entrySet()) {
+        totalRoots += entry.getValue().size();
+        audits.add(new ProjectAudit(entry.getKey(), entry.getValue(), cancellation));
+      }
+      SubMonitor progress = SubMonitor.convert(monitor, Messages.WhitelistAuditTask, totalRoots + 1);
+
+      ForkJoinPool pool = new ForkJoinPool();
+      try {
+        ForkJoinTask<?> audit = pool.submit(new WorkspaceAudit(audits));
+        int reported = 0;
+        boolean done = false;
+        while (!done) {
+          if (progress.isCanceled()) {
+            return Status.CANCEL_STATUS;
+          }
+          done = waitFor(audit);
+          int completed = completedRoots.get();
+          progress.worked(completed - reported);
+          reported = completed;
+        }
+      } finally {
+        // fork/join tasks ignore interrupts, so they are stopped through their monitor, and must
+        // not add problems once the job returned
+        cancellation.setCanceled(true);
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+      }
+
+      progress.subTask(Messages.WhitelistAuditUpdateMarkers);
+      updateMarkers(progress.newChild(1));
+      return Status.OK_STATUS;
+    } catch (CoreException ex) {
+      return StatusUtil.error(this, Messages.WhitelistAuditFailed, ex);
+    } catch (ExecutionException ex) {
+      return StatusUtil.error(this, Messages.WhitelistAuditFailed, ex.getCause());
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return Status.CANCEL_STATUS;
+    } finally {
+      if (monitor != null) {
+        monitor.done();
+      }
+    }
+  }
+
+  /**
+   * @return true if <code>task</code> completed within {@link #PROGRESS_INTERVAL_MILLIS}
+   */
+  private static boolean waitFor(ForkJoinTask<?> task) throws InterruptedException, ExecutionException {
+    try {
+      task.get(PROGRESS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+      return true;
+    } catch (TimeoutException ex) {
+      return false;
+    }
+  }
+
+  private static Map<IJavaProject, List<IPackageFragmentRoot>> getAppEngineSourceRoots()
+      throws JavaModelException {
+    Map<IJavaProject, List<IPackageFragmentRoot>> sourceRoots = new LinkedHashMap<>();
+    for (IProject project : ResourcesPlugin.getWorkspace().getRoot().getProjects()) {
+      if (!project.isAccessible() || !JreWhitelistChecker.isAppEngineStandardProject(project)) {
+        continue;
+      }
+      IJavaProject javaProject = JavaCore.create(project);
+      if (!javaProject.exists()) {
+        continue;
+      }
+      List<IPackageFragmentRoot> roots = new ArrayList<>();
+      for (IPackageFragmentRoot root : javaProject.getPackageFragmentRoots()) {
+        if (root.getKind() == IPackageFragmentRoot.K_SOURCE) {
+          roots.add(root);
+        }
+      }
+      sourceRoots.put(javaProject, roots);
+    }
+    return sourceRoots;
+  }
+
+  private void updateMarkers(IProgressMonitor monitor) throws CoreException {
+    IWorkspaceRunnable runnable = new IWorkspaceRunnable() {
+      @Override
+      public void run(IProgressMonitor monitor) throws CoreException {
+        for (Map.Entry<IFile, List<WhitelistProblem>> entry : problems.entrySet()) {
+          IFile file = entry.getKey();
+          file.deleteMarkers(WhitelistProblem.MARKER_TYPE, false, IResource.DEPTH_ZERO);
+          for (WhitelistProblem problem : entry.getValue()) {
+            IMarker marker = file.createMarker(WhitelistProblem.MARKER_TYPE);
+            marker.setAttributes(
+                new String[] {IMarker.MESSAGE, IMarker.SEVERITY, IMarker.CHAR_START, IMarker.CHAR_END,
+                              IMarker.LINE_NUMBER, ReplacementIndex.CLASS_NAME_ATTRIBUTE},
+                new Object[] {problem.getMessage(), IMarker.SEVERITY_ERROR, problem.getSourceStart(),
+                              problem.getSourceEnd() + 1, problem.getSourceLineNumber(),
+                              problem.getClassName()});
+          }
+        }
+      }
+    };
+    IWorkspace workspace = ResourcesPlugin.getWorkspace();
+    // parsing needs no scheduling rule, so the workspace is only locked while markers change
+    ISchedulingRule markerRule = workspace.getRuleFactory().markerRule(workspace.getRoot());
+    workspace.run(runnable, markerRule, IResource.NONE, monitor);
+  }
+
+  private static class WorkspaceAudit extends RecursiveAction {
+
+    private final List<ProjectAudit> projects;
+
+    private WorkspaceAudit(List<ProjectAudit> projects) {
+      this.projects = projects;
+    }
+
+    @Override
+    protected void compute() {
+      invokeAll(projects);
+    }
+  }
+
+  private class ProjectAudit extends RecursiveAction {
+
+    private final IJavaProject project;
+    private final List<IPackageFragmentRoot> roots;
+    private final IProgressMonitor cancellation;
+
+    private ProjectAudit(IJavaProject project, List<IPackageFragmentRoot> roots,
+        IProgressMonitor cancellation) {
+      this.project = project;
+      this.roots = roots;
+      this.cancellation = cancellation;
+    }
+
+    @Override
+    protected void compute() {
+      List<PackageRootAudit> rootAudits = new ArrayList<>(roots.size());
+      for (IPackageFragmentRoot root : roots) {
+        rootAudits.add(new PackageRootAudit(project, root, cancellation));
+      }
+      invokeAll(rootAudits);
+    }
+  }
+
+  private class PackageRootAudit extends RecursiveAction {
+
+    private final IJavaProject project;
+    private final IPackageFragmentRoot root;
+    private final IProgressMonitor cancellation;
+
+    private PackageRootAudit(IJavaProject project, IPackageFragmentRoot root, IProgressMonitor cancellation) {
+      this.project = project;
+      this.root = root;
+      this.cancellation = cancellation;
+    }
+
+    @Override
+    protected void compute() {
+      try {
+        if (cancellation.isCanceled()) {
+          return;
+        }
+        final AppEngineJreWhitelist whitelist = JreWhitelistChecker.getWhitelist(project);
+        List<ICompilationUnit> units = new ArrayList<>();
+        for (IJavaElement child : root.getChildren()) {
+          units.addAll(Arrays.asList(((IPackageFragment) child).getCompilationUnits()));
+        }
+        if (!units.isEmpty()) {
+          ASTParser parser = ASTParser.newParser(AST.JLS8);
+          parser.setProject(project);
+          parser.setResolveBindings(true);
+          parser.createASTs(units.toArray(new ICompilationUnit[units.size()]), new String[0],
+                            new ASTRequestor() {
+            @Override
+            public void acceptAST(ICompilationUnit source, CompilationUnit ast) {
+              if (cancellation.isCanceled()) {
+                throw new OperationCanceledException();
+              }
+              IFile file = (IFile) source.getResource();
+              JreReferenceVisitor visitor = new JreReferenceVisitor(file, ast, whitelist);
+              ast.accept(visitor);
+              problems.put(file, visitor.getProblems());
+            }
+          }, cancellation);
+        }
+      } catch (JavaModelException ex) {
+        logger.log(Level.WARNING, "Could not audit " + root.getPath(), ex); //$NON-NLS-1$
+      } catch (OperationCanceledException ex) {
+        // the job was canceled, and does not update any marker
+      } finally {
+        completedRoots.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Tells the audit tasks that the job was canceled. Unlike the monitor of the job, it can be
+   * checked from any thread.
+   */
+  private static class CancellationMonitor extends NullProgressMonitor {
+
+    private volatile boolean canceled;
+
+    @Override
+    public boolean isCanceled() {
+      return canceled;
+    }
+
+    @Override
+    public void setCanceled(boolean canceled) {
+      this.canceled = canceled;
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.whitelist;
+
+import org.eclipse.jdt.core.compiler.CategorizedProblem;
+import org.eclipse.jdt.core.compiler.IProblem;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * A reference to a JRE class that is not on the App Engine Standard whitelist. The JDT builder
+ * turns these into markers of type {@link #MARKER_TYPE}.
+ */
+class WhitelistProblem extends CategorizedProblem {
+
+  static final String MARKER_TYPE = "com.google.cloud.tools.eclipse.appengine.whitelist.blacklistedClass"; //$NON-NLS-1$
+
+  private final String className;
+  private final char[] fileName;
+  private int sourceStart;
+  private int sourceEnd;
+  private int lineNumber;
+
+  WhitelistProblem(String className, char[] fileName, int sourceStart, int sourceEnd, int lineNumber) {
+    this.className = className;
+    this.fileName = fileName;
+    this.sourceStart = sourceStart;
+    this.sourceEnd = sourceEnd;
+    this.lineNumber = lineNumber;
+  }
+
+  String getClassName() {
+    return className;
+  }
+
+  @Override
+  public int getCategoryID() {
+    return CAT_RESTRICTION;
+  }
+
+  @Override
+  public String getMarkerType() {
+    return MARKER_TYPE;
+  }
+
+  @Override
+  public String[] getExtraMarkerAttributeNames() {
+    return new String[] {ReplacementIndex.CLASS_NAME_ATTRIBUTE};
+  }
+
+  @Override
+  public Object[] getExtraMarkerAttributeValues() {
+    return new Object[] {className};
+  }
+
+  @Override
+  public String[] getArguments() {
+    return new String[] {className};
+  }
+
+  @Override
+  public int getID() {
+    return IProblem.ForbiddenReference;
+  }
+
+  @Override
+  public String getMessage() {
+    return NLS.bind(Messages.ClassNotWhitelisted, className);
+  }
+
+  @Override
+  public char[] getOriginatingFileName() {
+    return fileName;
+  }
+
+  @Override
+  public int getSourceStart() {
+    return sourceStart;
+  }
+
+  @Override
+  public int getSourceEnd() {
+    return sourceEnd;
+  }
+
+  @Override
+  public int getSourceLineNumber() {
+    return lineNumber;
+  }
+
+  @Override
+  public boolean isError() {
+    return true;
+  }
+
+  @Override
+  public boolean isWarning() {
+    return false;
+  }
+
+  @Override
+  public void setSourceStart(int sourceStart) {
+    this.sourceStart = sourceStart;
+  }
+
+  @Override
+  public void setSourceEnd(int sourceEnd) {
+    this.sourceEnd = sourceEnd;
+  }
+
+  @Override
+  public void setSourceLineNumber(int lineNumber) {
+    this.lineNumber = lineNumber;
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.util.io;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.eclipse.core.resources.ISaveContext;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StateFileSaveParticipantTest {
+
+  @Rule public TemporaryFolder stateLocation = new TemporaryFolder();
+
+  @Mock private ISaveContext context;
+
+  private TestParticipant participant;
+
+  @Before
+  public void setUp() {
+    participant = new TestParticipant(new org.eclipse.core.runtime.Path(stateLocation.getRoot().getPath()));
+    when(context.getKind()).thenReturn(ISaveContext.FULL_SAVE);
+    when(context.getSaveNumber()).thenReturn(2);
+    when(context.getPreviousSaveNumber()).thenReturn(1);
+  }
+
+  @Test
+  public void testSaving_writesFileOfSaveNumber() throws Exception {
+    participant.dirty = true;
+    participant.saving(context);
+
+    assertTrue(file("state-2").exists());
+    verify(context).map(new org.eclipse.core.runtime.Path("state"), new org.eclipse.core.runtime.Path("state-2"));
+    verify(context).needSaveNumber();
+  }
+
+  @Test
+  public void testSaving_unchangedStateIsNotWritten() throws Exception {
+    participant.saving(context);
+
+    assertFalse(file("state-2").exists());
+    verify(context, never()).map(any(IPath.class), any(IPath.class));
+  }
+
+  @Test
+  public void testSaving_projectSaveIsIgnored() throws Exception {
+    when(context.getKind()).thenReturn(ISaveContext.PROJECT_SAVE);
+    participant.dirty = true;
+    participant.saving(context);
+
+    assertFalse(file("state-2").exists());
+  }
+
+  @Test
+  public void testSaving_failureDoesNotFailWorkspaceSave() throws CoreException {
+    participant.dirty = true;
+    participant.failure = new IOException("test exception");
+    participant.saving(context);
+
+    verify(context, never()).map(any(IPath.class), any(IPath.class));
+  }
+
+  @Test
+  public void testDoneSaving_deletesPreviousFile() throws Exception {
+    stateLocation.newFile("state-1");
+    participant.dirty = true;
+    participant.saving(context);
+    participant.doneSaving(context);
+
+    assertFalse(file("state-1").exists());
+    assertTrue(file("state-2").exists());
+  }
+
+  @Test
+  public void testDoneSaving_keepsPreviousFileIfNothingWasSaved() throws Exception {
+    stateLocation.newFile("state-1");
+    participant.saving(context);
+    participant.doneSaving(context);
+
+    assertTrue(file("state-1").exists());
+  }
+
+  @Test
+  public void testRollback_deletesNewFile() throws Exception {
+    stateLocation.newFile("state-1");
+    participant.dirty = true;
+    participant.saving(context);
+    participant.rollback(context);
+
+    assertTrue(file("state-1").exists());
+    assertFalse(file("state-2").exists());
+  }
+
+  @Test
+  public void testDeleteStaleFiles_keepsCurrentFileAndOtherFiles() throws Exception {
+    stateLocation.newFile("state-1");
+    stateLocation.newFile("state-3");
+    stateLocation.newFile("state-4");
+    stateLocation.newFile("other-1");
+
+    participant.deleteStaleFiles("state-4");
+
+    assertThat(stateLocation.getRoot().list().length, is(2));
+    assertTrue(file("state-4").exists());
+    assertTrue(file("other-1").exists());
+  }
+
+  @Test
+  public void testDeleteStaleFiles_noCurrentFile() throws Exception {
+    stateLocation.newFile("state-1");
+    participant.deleteStaleFiles(null);
+    assertFalse(file("state-1").exists());
+  }
+
+  private File file(String name) {
+    return new File(stateLocation.getRoot(), name);
+  }
+
+  private static class TestParticipant extends StateFileSaveParticipant {
+    private boolean dirty;
+    private IOException failure;
+
+    private TestParticipant(IPath stateLocation) {
+      super(stateLocation, "state");
+    }
+
+    @Override
+    protected boolean isDirty() {
+      return dirty;
+    }
+
+    @Override
+    protected void save(Path file) throws IOException {
+      if (failure != null) {
+        throw failure;
+      }
+      Files.write(file, new byte[] {1});
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.util.io;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.base.Strings;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StateFilesTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testWriteAndReadString() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      StateFiles.writeString(output, "/project/src/Foo.java");
+      StateFiles.writeString(output, "");
+      StateFiles.writeString(output, "caf\u00e9 \ud83d\ude00");
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+    assertThat(StateFiles.readString(buffer), is("/project/src/Foo.java"));
+    assertThat(StateFiles.readString(buffer), is(""));
+    assertThat(StateFiles.readString(buffer), is("caf\u00e9 \ud83d\ude00"));
+    assertThat(buffer.remaining(), is(0));
+  }
+
+  @Test(expected = IOException.class)
+  public void testWriteString_tooLong() throws IOException {
+    StateFiles.writeString(new DataOutputStream(new ByteArrayOutputStream()), Strings.repeat("a", 0x10000));
+  }
+
+  @Test
+  public void testMap() throws IOException {
+    Path file = temporaryFolder.newFile("state-1").toPath();
+    Files.write(file, new byte[] {0, 0, 0, 42});
+    ByteBuffer mapped = StateFiles.map(file);
+    assertThat(mapped.getInt(), is(42));
+    assertThat(mapped.remaining(), is(0));
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.util.io;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.core.resources.ISaveContext;
+import org.eclipse.core.resources.ISaveParticipant;
+import org.eclipse.core.resources.ISavedState;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.osgi.framework.Bundle;
+
+/**
+ * Persists state that a bundle keeps for the whole workspace, such as a cache, in the state
+ * location of the bundle whenever the workspace is saved. Each save writes a new file named
+ * <code>&lt;name&gt;-&lt;save number&gt;</code> and the previous file is deleted once the save
+ * succeeded, so the file the state was read from, which may be memory-mapped with
+ * {@link StateFiles#map}, is never overwritten.
+ * <p>
+ * Platforms such as Windows do not allow deleting a file while it is mapped. Files that could not
+ * be deleted are deleted when the participant is registered in the next session, before the file
+ * of the last save is read.
+ */
+public abstract class StateFileSaveParticipant implements ISaveParticipant {
+
+  private static final Logger logger = Logger.getLogger(StateFileSaveParticipant.class.getName());
+
+  private final IPath stateLocation;
+  private final String name;
+  // whether the current save cycle wrote a new file
+  private boolean saved;
+
+  /**
+   * @param stateLocation the state location of the bundle
+   * @param name the name of the state, which prefixes its files
+   */
+  protected StateFileSaveParticipant(IPath stateLocation, String name) {
+    this.stateLocation = stateLocation;
+    this.name = name;
+  }
+
+  /**
+   * Registers this participant for <code>bundle</code> and deletes the files of earlier saves that
+   * were left behind.
+   *
+   * @return the file written by the last save, or null if there is none
+   */
+  protected Path register(Bundle bundle) throws CoreException {
+    ISavedState lastState =
+        ResourcesPlugin.getWorkspace().addSaveParticipant(bundle.getSymbolicName(), this);
+    IPath lastFile = lastState == null ? null : lastState.lookup(new org.eclipse.core.runtime.Path(name));
+    deleteStaleFiles(lastFile == null ? null : lastFile.lastSegment());
+    return lastFile == null ? null : stateLocation.append(lastFile).toFile().toPath();
+  }
+
+  @VisibleForTesting
+  void deleteStaleFiles(String currentFileName) {
+    File[] files = stateLocation.toFile().listFiles();
+    if (files == null) {
+      return;
+    }
+    String prefix = name + "-"; //$NON-NLS-1$
+    for (File file : files) {
+      String fileName = file.getName();
+      if (fileName.startsWith(prefix) && !fileName.equals(currentFileName) && !file.delete()) {
+        logger.log(Level.FINE, "Could not delete stale state file " + file); //$NON-NLS-1$
+      }
+    }
+  }
+
+  /**
+   * @return true if the state changed since it was last saved; called on every full save of the
+   *     workspace, so it may also drop state that became obsolete
+   */
+  protected abstract boolean isDirty();
+
+  /**
+   * Writes the state to <code>file</code>, which is never the file the state was read from.
+   */
+  protected abstract void save(Path file) throws IOException;
+
+  @Override
+  public void prepareToSave(ISaveContext context) throws CoreException {
+  }
+
+  @Override
+  public synchronized void saving(ISaveContext context) throws CoreException {
+    saved = false;
+    if (context.getKind() == ISaveContext.PROJECT_SAVE || !isDirty()) {
+      return;
+    }
+    String fileName = getFileName(context.getSaveNumber());
+    try {
+      save(stateLocation.append(fileName).toFile().toPath());
+    } catch (IOException ex) {
+      // the state can be rebuilt, so the workspace save must not fail because of it
+      logger.log(Level.WARNING, "Could not save " + fileName, ex); //$NON-NLS-1$
+      return;
+    }
+    context.map(new org.eclipse.core.runtime.Path(name), new org.eclipse.core.runtime.Path(fileName));
+    context.needSaveNumber();
+    saved = true;
+  }
+
+  @Override
+  public synchronized void doneSaving(ISaveContext context) {
+    if (saved) {
+      // fails if the previous file is mapped on platforms that do not allow deleting it; such a
+      // file is deleted on the next registration
+      stateLocation.append(getFileName(context.getPreviousSaveNumber())).toFile().delete();
+    }
+  }
+
+  @Override
+  public synchronized void rollback(ISaveContext context) {
+    if (saved) {
+      stateLocation.append(getFileName(context.getSaveNumber())).toFile().delete();
+    }
+  }
+
+  private String getFileName(int saveNumber) {
+    return name + "-" + saveNumber; //$NON-NLS-1$
+  }
+}
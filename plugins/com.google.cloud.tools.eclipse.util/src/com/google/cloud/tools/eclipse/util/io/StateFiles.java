@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.util.io;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes the compact binary files that workspace-wide state is persisted in, see
+ * {@link StateFileSaveParticipant}. Strings are stored as a u2 length followed by that many bytes
+ * of standard UTF-8, unlike the modified UTF-8 of {@link DataOutput#writeUTF}.
+ */
+public class StateFiles {
+
+  private StateFiles() {
+  }
+
+  /**
+   * Maps <code>file</code> into memory, so that only the parts of it that are read are loaded.
+   * The file must not be modified or overwritten while the buffer is used.
+   */
+  public static ByteBuffer map(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+
+  /**
+   * Reads a string written by {@link #writeString} at the position of <code>buffer</code>, and
+   * moves the position after it.
+   */
+  public static String readString(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @throws IOException if <code>string</code> is longer than 65535 bytes in UTF-8, or it cannot
+   *     be written
+   */
+  public static void writeString(DataOutput output, String string) throws IOException {
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    if (bytes.length > 0xFFFF) {
+      throw new IOException("String too long: " + bytes.length + " bytes"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+    output.writeShort(bytes.length);
+    output.write(bytes);
+  }
+}